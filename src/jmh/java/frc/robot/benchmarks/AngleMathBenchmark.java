@@ -0,0 +1,59 @@
+package frc.robot.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frc.robot.util.DriverOI;
+
+/**
+ * The angle helpers behind the translation slew limiting, over angles up to a few turns either
+ * side of zero so every wrapping branch is taken.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AngleMathBenchmark {
+    private static final int kInputCount = 1024;
+
+    private final double[] currentAngles = new double[kInputCount];
+    private final double[] targetAngles = new double[kInputCount];
+    private final double[] stepSizes = new double[kInputCount];
+    private int index;
+
+    @Setup
+    public void setup(){
+        Random random = new Random(1678);
+        for(int i = 0; i < kInputCount; i++){
+            currentAngles[i] = (random.nextDouble() - 0.5) * 6 * Math.PI;
+            targetAngles[i] = (random.nextDouble() - 0.5) * 6 * Math.PI;
+            stepSizes[i] = random.nextDouble() * 0.5;
+        }
+        index = 0;
+    }
+
+    @Benchmark
+    public double stepTowardsCircular(){
+        index = (index + 1) % kInputCount;
+        return DriverOI.StepTowardsCircular(currentAngles[index], targetAngles[index], stepSizes[index]);
+    }
+
+    @Benchmark
+    public double wrapAngle(){
+        index = (index + 1) % kInputCount;
+        return DriverOI.WrapAngle(currentAngles[index]);
+    }
+}
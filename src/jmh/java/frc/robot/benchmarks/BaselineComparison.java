@@ -0,0 +1,120 @@
+package frc.robot.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares a JMH JSON result file with the stored baseline and fails when a benchmark got slower
+ * by more than the noise allows or allocates more per operation. Run by {@code ./gradlew jmhCompare}.
+ */
+public final class BaselineComparison {
+    // Slower than this fraction, beyond both runs' error, counts as a regression
+    private static final double kMaxSlowdown = 0.10;
+    // gc.alloc.rate.norm is not exactly zero for allocation free code
+    private static final double kAllocationToleranceBytes = 1.0;
+
+    private static final class Result{
+        private final String mode;
+        private final double score, scoreError;
+        // NaN when the gc profiler was not used
+        private final double bytesPerOp;
+
+        private Result(JsonNode node){
+            mode = node.path("mode").asText();
+            JsonNode primary = node.path("primaryMetric");
+            score = primary.path("score").asDouble();
+            double error = primary.path("scoreError").asDouble();
+            scoreError = Double.isNaN(error) ? 0.0 : error;
+
+            double bytes = Double.NaN;
+            Iterator<Map.Entry<String, JsonNode>> secondary = node.path("secondaryMetrics").fields();
+            while(secondary.hasNext()){
+                Map.Entry<String, JsonNode> metric = secondary.next();
+                // Older JMH versions prefix the name with a dot
+                if(metric.getKey().endsWith("gc.alloc.rate.norm")){
+                    bytes = metric.getValue().path("score").asDouble();
+                }
+            }
+            bytesPerOp = bytes;
+        }
+    }
+
+    private BaselineComparison(){}
+
+    /**
+     * @param args Baseline file, then the new results file
+     */
+    public static void main(String[] args) throws IOException{
+        File baselineFile = new File(args[0]);
+        File resultsFile = new File(args[1]);
+        if(!baselineFile.exists()){
+            System.out.println("No baseline at " + baselineFile + ", record one with ./gradlew jmh jmhSaveBaseline");
+            return;
+        }
+
+        Map<String, Result> baseline = load(baselineFile);
+        Map<String, Result> results = load(resultsFile);
+
+        int regressions = 0;
+        System.out.printf("%-60s %12s %12s %8s %10s %10s%n", "Benchmark", "Baseline", "Now", "Change", "Base B/op", "Now B/op");
+        for(Map.Entry<String, Result> entry : results.entrySet()){
+            Result now = entry.getValue();
+            Result base = baseline.get(entry.getKey());
+            if(base == null){
+                System.out.printf("%-60s %12s %12.3f %8s %10s %10.1f  new%n", entry.getKey(), "-", now.score, "-", "-", now.bytesPerOp);
+                continue;
+            }
+
+            // Throughput is better when higher, every other mode is a time
+            boolean higherIsBetter = now.mode.equals("thrpt");
+            double change = (now.score - base.score) / base.score;
+            double worse = higherIsBetter ? base.score - now.score : now.score - base.score;
+            boolean slower = worse > base.score * kMaxSlowdown + base.scoreError + now.scoreError;
+            boolean allocatesMore = now.bytesPerOp > base.bytesPerOp + kAllocationToleranceBytes;
+
+            String flag = "";
+            if(slower){
+                flag += "  SLOWER";
+            }
+            if(allocatesMore){
+                flag += "  ALLOCATES MORE";
+            }
+            if(slower || allocatesMore){
+                regressions++;
+            }
+            System.out.printf("%-60s %12.3f %12.3f %+7.1f%% %10.1f %10.1f%s%n", entry.getKey(), base.score, now.score,
+                change * 100, base.bytesPerOp, now.bytesPerOp, flag);
+        }
+
+        if(regressions > 0){
+            System.out.println(regressions + " benchmarks regressed against " + baselineFile);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return Results by benchmark name and parameters, in file order
+     */
+    private static Map<String, Result> load(File file) throws IOException{
+        Map<String, Result> results = new LinkedHashMap<>();
+        for(JsonNode node : new ObjectMapper().readTree(file)){
+            String name = node.path("benchmark").asText().replace("frc.robot.benchmarks.", "");
+            JsonNode params = node.path("params");
+            if(!params.isMissingNode()){
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while(fields.hasNext()){
+                    Map.Entry<String, JsonNode> param = fields.next();
+                    name += " " + param.getKey() + "=" + param.getValue().asText();
+                }
+            }
+            results.put(name, new Result(node));
+        }
+        return results;
+    }
+}
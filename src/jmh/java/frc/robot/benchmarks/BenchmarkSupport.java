@@ -0,0 +1,59 @@
+package frc.robot.benchmarks;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.MathShared;
+import edu.wpi.first.math.MathSharedStore;
+import edu.wpi.first.math.MathUsageId;
+
+/**
+ * Setup shared by the benchmarks that run robot classes. Those log and read the FPGA clock, so
+ * they need the simulation HAL started the same way the simulator starts it.
+ */
+final class BenchmarkSupport {
+    private static boolean halInitialized = false;
+
+    private BenchmarkSupport(){}
+
+    static synchronized void initializeHal(){
+        if(halInitialized){
+            return;
+        }
+        if(!HAL.initialize(500, 0)){
+            throw new IllegalStateException("Could not start the simulation HAL");
+        }
+        halInitialized = true;
+    }
+
+    /**
+     * Loop clock the benchmark steps by hand. Replaces the MathSharedStore clock, which InputLog
+     * points at its loop timestamp, so create it after anything that creates InputLog.
+     */
+    static final class LoopClock{
+        private double timeSeconds = 0.0;
+
+        LoopClock(){
+            MathShared defaultMathShared = MathSharedStore.getMathShared();
+            MathSharedStore.setMathShared(new MathShared(){
+                @Override
+                public void reportError(String error, StackTraceElement[] stackTrace){
+                    defaultMathShared.reportError(error, stackTrace);
+                }
+
+                @Override
+                public void reportUsage(MathUsageId id, int count){
+                    defaultMathShared.reportUsage(id, count);
+                }
+
+                @Override
+                public double getTimestamp(){
+                    return timeSeconds;
+                }
+            });
+        }
+
+        double step(double seconds){
+            timeSeconds += seconds;
+            return timeSeconds;
+        }
+    }
+}
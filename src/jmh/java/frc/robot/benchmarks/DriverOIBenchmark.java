@@ -0,0 +1,86 @@
+package frc.robot.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import frc.robot.Constants.SchedulerConstants;
+import frc.robot.util.DriverInputIO;
+import frc.robot.util.DriverOI;
+
+/**
+ * One loop of translation joystick shaping, as SwerveDriveCommand runs it: read the scripted
+ * sticks, then slew limit and deadband them. {@link DriverOI#getSwerveTranslation()} is the same
+ * work plus one Translation2d, the command uses the allocation free path measured here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DriverOIBenchmark {
+    private static final int kInputCount = 1024;
+
+    private final double[] leftX = new double[kInputCount];
+    private final double[] leftY = new double[kInputCount];
+
+    private DriverOI driverOI;
+    private BenchmarkSupport.LoopClock clock;
+    private int index;
+
+    /**
+     * Stands in for the joysticks, hands out the next scripted stick position every loop.
+     */
+    private class ScriptedInputs implements DriverInputIO{
+        @Override
+        public void updateInputs(DriverInputIOInputs inputs){
+            inputs.leftX = leftX[index];
+            inputs.leftY = leftY[index];
+        }
+    }
+
+    @Setup
+    public void setup(){
+        BenchmarkSupport.initializeHal();
+
+        // A driver wandering around the field: the stick drifts, with a sharp reversal now and then
+        Random random = new Random(1678);
+        double x = 0.0, y = 0.0;
+        for(int i = 0; i < kInputCount; i++){
+            if(i % 128 == 0){
+                x = -x;
+                y = -y;
+            }
+            x = Math.max(-1.0, Math.min(1.0, x + random.nextGaussian() * 0.1));
+            y = Math.max(-1.0, Math.min(1.0, y + random.nextGaussian() * 0.1));
+            leftX[i] = x;
+            leftY[i] = y;
+        }
+
+        driverOI = new DriverOI(new ScriptedInputs());
+        clock = new BenchmarkSupport.LoopClock();
+        index = 0;
+    }
+
+    @Benchmark
+    public void updateSwerveTranslation(Blackhole blackhole){
+        index = (index + 1) % kInputCount;
+        double time = clock.step(SchedulerConstants.kMainPeriodSeconds);
+        driverOI.updateInputs();
+        driverOI.updateSwerveTranslation(time);
+        blackhole.consume(driverOI.getSwerveTranslationX());
+        blackhole.consume(driverOI.getSwerveTranslationY());
+    }
+}
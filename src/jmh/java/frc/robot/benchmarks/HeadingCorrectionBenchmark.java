@@ -0,0 +1,65 @@
+package frc.robot.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frc.robot.Constants.SchedulerConstants;
+import frc.robot.util.HeadingCorrector;
+
+/**
+ * Teleop heading correction one drive control step at a time. The script translates without
+ * rotating most of the time, so the correction is active, with bursts of rotation in between.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeadingCorrectionBenchmark {
+    private static final int kInputCount = 1024;
+
+    private final double[] vx = new double[kInputCount];
+    private final double[] vy = new double[kInputCount];
+    private final double[] vr = new double[kInputCount];
+    private final double[] headings = new double[kInputCount];
+
+    private HeadingCorrector headingCorrector;
+    private double time;
+    private int index;
+
+    @Setup
+    public void setup(){
+        Random random = new Random(1678);
+        double heading = 0.0;
+        for(int i = 0; i < kInputCount; i++){
+            vx[i] = 2.0 + random.nextGaussian() * 0.5;
+            vy[i] = random.nextGaussian() * 0.5;
+            // About one loop in eight is part of a turn
+            vr[i] = (i / 16) % 8 == 0 ? 1.5 : 0.0;
+            heading += (vr[i] + random.nextGaussian() * 0.05) * SchedulerConstants.kDriveControlPeriodSeconds;
+            headings[i] = Math.IEEEremainder(heading, 2 * Math.PI);
+        }
+        headingCorrector = new HeadingCorrector(headings[0], 0.0);
+        time = 0.0;
+        index = 0;
+    }
+
+    @Benchmark
+    public double correctHeading(){
+        index = (index + 1) % kInputCount;
+        time += SchedulerConstants.kDriveControlPeriodSeconds;
+        return headingCorrector.calculate(vx[index], vy[index], vr[index], time, headings[index]);
+    }
+}
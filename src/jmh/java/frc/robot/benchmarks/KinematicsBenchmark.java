@@ -0,0 +1,104 @@
+package frc.robot.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.Constants.SwerveDriveConstants;
+import frc.robot.util.FastSwerveKinematics;
+
+/**
+ * Teleop drive kinematics with the center of rotation moving every loop, as it does with the
+ * right joystick: inverse kinematics, desaturation and optimization, for WPILib's
+ * {@link SwerveDriveKinematics} and {@link FastSwerveKinematics}. FastSwerveKinematicsTest checks
+ * that both give the same results. Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KinematicsBenchmark {
+    private static final int kInputCount = 1024;
+
+    // Random inputs, indexed by loop so both sides see the same sequence
+    private final double[] vx = new double[kInputCount];
+    private final double[] vy = new double[kInputCount];
+    private final double[] omega = new double[kInputCount];
+    private final double[] centerX = new double[kInputCount];
+    private final double[] centerY = new double[kInputCount];
+    private final Translation2d[] centers = new Translation2d[kInputCount];
+    private final Rotation2d[] currentRotations = new Rotation2d[kInputCount];
+    private final double[] currentAngles = new double[4];
+
+    private SwerveDriveKinematics wpilibKinematics;
+    private FastSwerveKinematics fastKinematics;
+    private int index;
+
+    @Setup
+    public void setup(){
+        Random random = new Random(1678);
+        for(int i = 0; i < kInputCount; i++){
+            vx[i] = randomBetween(random, -SwerveDriveConstants.kRealMaxSpeedMPS, SwerveDriveConstants.kRealMaxSpeedMPS);
+            vy[i] = randomBetween(random, -SwerveDriveConstants.kRealMaxSpeedMPS, SwerveDriveConstants.kRealMaxSpeedMPS);
+            omega[i] = randomBetween(random, -SwerveDriveConstants.kMaxAngularSpeed, SwerveDriveConstants.kMaxAngularSpeed);
+            centerX[i] = randomBetween(random, -1.0, 1.0);
+            centerY[i] = randomBetween(random, -1.0, 1.0);
+            centers[i] = new Translation2d(centerX[i], centerY[i]);
+            currentRotations[i] = new Rotation2d(randomBetween(random, -Math.PI, Math.PI));
+        }
+
+        wpilibKinematics = new SwerveDriveKinematics(SwerveDriveConstants.swerveModuleLocations);
+        fastKinematics = new FastSwerveKinematics(SwerveDriveConstants.swerveModuleLocations);
+        index = 0;
+    }
+
+    @Benchmark
+    public void wpilibDrive(Blackhole blackhole){
+        int i = next();
+        SwerveModuleState[] states = wpilibKinematics.toSwerveModuleStates(new ChassisSpeeds(vx[i], vy[i], omega[i]), centers[i]);
+        SwerveDriveKinematics.desaturateWheelSpeeds(states, SwerveDriveConstants.kRealMaxSpeedMPS);
+        for(SwerveModuleState state : states){
+            state.optimize(currentRotations[i]);
+        }
+        blackhole.consume(states);
+    }
+
+    @Benchmark
+    public void fastDrive(Blackhole blackhole){
+        int i = next();
+        fastKinematics.toSwerveModuleStates(vx[i], vy[i], omega[i], centerX[i], centerY[i]);
+        fastKinematics.desaturateWheelSpeeds(SwerveDriveConstants.kRealMaxSpeedMPS);
+        for(int module = 0; module < 4; module++){
+            currentAngles[module] = currentRotations[i].getRadians();
+        }
+        fastKinematics.optimize(currentAngles);
+        blackhole.consume(fastKinematics.getModuleSpeed(0));
+    }
+
+    private int next(){
+        index = (index + 1) % kInputCount;
+        return index;
+    }
+
+    private static double randomBetween(Random random, double min, double max){
+        return min + random.nextDouble() * (max - min);
+    }
+}
@@ -0,0 +1,88 @@
+package frc.robot.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.Constants.SchedulerConstants;
+import frc.robot.subsystems.Mk4TTBSwerve;
+import frc.robot.subsystems.ModuleIO;
+import frc.robot.util.SwerveModuleConstants;
+
+/**
+ * {@link Mk4TTBSwerve#setDesiredState(double, double, double)} against a fake motor controller
+ * that only counts the setpoints it is sent: offset, optimization, setpoint filtering and the
+ * setpoint log. Half the requests repeat the last one so the filters skip writes as on the robot.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModuleBenchmark {
+    private static final int kInputCount = 1024;
+
+    private final double[] speeds = new double[kInputCount];
+    private final double[] angles = new double[kInputCount];
+
+    private Mk4TTBSwerve module;
+    private FakeModuleIO io;
+    private double time;
+    private int index;
+
+    /**
+     * Takes setpoints and does nothing with them.
+     */
+    private static class FakeModuleIO implements ModuleIO{
+        private long turnWrites = 0;
+        private long driveWrites = 0;
+
+        @Override
+        public void setTurnPosition(double angleRadians){
+            turnWrites++;
+        }
+
+        @Override
+        public void setDriveVelocity(double metersPerSecond){
+            driveWrites++;
+        }
+    }
+
+    @Setup
+    public void setup(){
+        BenchmarkSupport.initializeHal();
+
+        Random random = new Random(1678);
+        for(int i = 0; i < kInputCount; i += 2){
+            speeds[i] = (random.nextDouble() - 0.5) * 8.0;
+            angles[i] = (random.nextDouble() - 0.5) * 2 * Math.PI;
+            speeds[i + 1] = speeds[i];
+            angles[i + 1] = angles[i];
+        }
+
+        io = new FakeModuleIO();
+        module = new Mk4TTBSwerve(0, new SwerveModuleConstants(1, 2, Rotation2d.fromDegrees(30), false, false), io);
+        time = 0.0;
+        index = 0;
+    }
+
+    @Benchmark
+    public long setDesiredState(){
+        index = (index + 1) % kInputCount;
+        time += SchedulerConstants.kDriveControlPeriodSeconds;
+        module.setDesiredState(speeds[index], angles[index], time);
+        return io.turnWrites + io.driveWrites;
+    }
+}
@@ -0,0 +1,162 @@
+package frc.robot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import frc.robot.Constants.SwerveDriveConstants;
+import frc.robot.util.FastPoseEstimator;
+
+/**
+ * One main loop of pose estimation: the five 250 Hz odometry samples the odometry thread buffers
+ * in 20 ms and one vision measurement captured a few loops earlier, for WPILib's estimator and
+ * {@link FastPoseEstimator}. Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoseEstimatorBenchmark {
+    private static final double kOdometryPeriodSeconds = 1.0 / SwerveDriveConstants.kOdometryFrequencyHz;
+    private static final int kSamplesPerLoop = 5;
+    private static final double kVisionLatencySeconds = 0.06;
+    private static final double[] kStdDevs = {0.1, 0.1, 0.1};
+    private static final double kVisionXYStdDev = 0.5;
+    private static final double kVisionRotationStdDev = 0.9;
+    // Precomputed so neither side pays for the harness computing angles
+    private static final int kAngleTableSize = 256;
+
+    private SwerveDrivePoseEstimator wpilibEstimator;
+    private FastPoseEstimator fastEstimator;
+
+    private final SwerveModulePosition[] wpilibPositions = new SwerveModulePosition[4];
+    private final Rotation2d[] angleTable = new Rotation2d[kAngleTableSize];
+    private final Rotation2d[] gyroTable = new Rotation2d[kAngleTableSize];
+    private final double[] angleRadiansTable = new double[kAngleTableSize];
+    private final double[] gyroRadiansTable = new double[kAngleTableSize];
+    private final double[] distances = new double[4];
+    private final double[] angles = new double[4];
+
+    private long wpilibStep, fastStep;
+
+    @Setup
+    public void setup(){
+        for(int i = 0; i < kAngleTableSize; i++){
+            angleRadiansTable[i] = 0.5 * Math.sin(2.0 * Math.PI * i / kAngleTableSize);
+            gyroRadiansTable[i] = 0.3 * Math.sin(2.0 * Math.PI * i / kAngleTableSize);
+            angleTable[i] = new Rotation2d(angleRadiansTable[i]);
+            gyroTable[i] = new Rotation2d(gyroRadiansTable[i]);
+        }
+        wpilibEstimator = createWpilibEstimator();
+        fastEstimator = createFastEstimator();
+        wpilibStep = 0;
+        fastStep = 0;
+        checkEstimatorsAgree();
+    }
+
+    @Benchmark
+    public Pose2d wpilibLoop(){
+        for(int i = 0; i < kSamplesPerLoop; i++){
+            wpilibStep++;
+            fillWpilibPositions(wpilibStep);
+            wpilibEstimator.updateWithTime(timestamp(wpilibStep), gyroTable[(int)(wpilibStep % kAngleTableSize)], wpilibPositions);
+        }
+        double visionTime = timestamp(wpilibStep) - kVisionLatencySeconds;
+        wpilibEstimator.addVisionMeasurement(new Pose2d(visionTime, 0.0, Rotation2d.kZero), visionTime,
+            VecBuilder.fill(kVisionXYStdDev, kVisionXYStdDev, kVisionRotationStdDev));
+        return wpilibEstimator.getEstimatedPosition();
+    }
+
+    @Benchmark
+    public double fastLoop(){
+        for(int i = 0; i < kSamplesPerLoop; i++){
+            fastStep++;
+            fillFastPositions(fastStep);
+            fastEstimator.updateWithTime(timestamp(fastStep), gyroRadiansTable[(int)(fastStep % kAngleTableSize)], distances, angles);
+        }
+        double visionTime = timestamp(fastStep) - kVisionLatencySeconds;
+        fastEstimator.addVisionMeasurement(visionTime, 0.0, 0.0, visionTime, kVisionXYStdDev, kVisionRotationStdDev);
+        return fastEstimator.getEstimatedX();
+    }
+
+    /**
+     * Runs both estimators over the same two seconds and fails the run if they disagree, so the
+     * numbers compare two estimators doing the same work.
+     */
+    private void checkEstimatorsAgree(){
+        SwerveDrivePoseEstimator wpilib = createWpilibEstimator();
+        FastPoseEstimator fast = createFastEstimator();
+        for(long step = 1; step <= 2 * SwerveDriveConstants.kOdometryFrequencyHz; step++){
+            fillWpilibPositions(step);
+            wpilib.updateWithTime(timestamp(step), gyroTable[(int)(step % kAngleTableSize)], wpilibPositions);
+            fillFastPositions(step);
+            fast.updateWithTime(timestamp(step), gyroRadiansTable[(int)(step % kAngleTableSize)], distances, angles);
+            if(step % kSamplesPerLoop == 0){
+                double visionTime = timestamp(step) - kVisionLatencySeconds;
+                wpilib.addVisionMeasurement(new Pose2d(visionTime, 0.0, Rotation2d.kZero), visionTime,
+                    VecBuilder.fill(kVisionXYStdDev, kVisionXYStdDev, kVisionRotationStdDev));
+                fast.addVisionMeasurement(visionTime, 0.0, 0.0, visionTime, kVisionXYStdDev, kVisionRotationStdDev);
+            }
+        }
+
+        Pose2d expected = wpilib.getEstimatedPosition();
+        if(Math.abs(expected.getX() - fast.getEstimatedX()) > 1e-6
+            || Math.abs(expected.getY() - fast.getEstimatedY()) > 1e-6
+            || Math.abs(expected.getRotation().minus(new Rotation2d(fast.getEstimatedTheta())).getRadians()) > 1e-6){
+            throw new IllegalStateException("Estimators disagree, WPILib " + expected + " fast " + fast.getEstimatedPosition());
+        }
+    }
+
+    private SwerveDrivePoseEstimator createWpilibEstimator(){
+        fillWpilibPositions(0);
+        return new SwerveDrivePoseEstimator(SwerveDriveConstants.kinematics, gyroTable[0], wpilibPositions, Pose2d.kZero,
+            VecBuilder.fill(kStdDevs[0], kStdDevs[1], kStdDevs[2]),
+            VecBuilder.fill(kVisionXYStdDev, kVisionXYStdDev, kVisionRotationStdDev));
+    }
+
+    private FastPoseEstimator createFastEstimator(){
+        fillFastPositions(0);
+        return new FastPoseEstimator(SwerveDriveConstants.swerveModuleLocations, gyroRadiansTable[0], distances, Pose2d.kZero,
+            kStdDevs, SwerveDriveConstants.kPoseHistorySeconds, SwerveDriveConstants.kPoseHistorySize,
+            SwerveDriveConstants.kVisionUpdateHistorySize);
+    }
+
+    // New positions every sample, as Drivetrain created them before it used FastPoseEstimator
+    private void fillWpilibPositions(long step){
+        for(int module = 0; module < 4; module++){
+            wpilibPositions[module] = new SwerveModulePosition(distance(step, module), angleTable[(int)(step % kAngleTableSize)]);
+        }
+    }
+
+    private void fillFastPositions(long step){
+        for(int module = 0; module < 4; module++){
+            distances[module] = distance(step, module);
+            angles[module] = angleRadiansTable[(int)(step % kAngleTableSize)];
+        }
+    }
+
+    private static double timestamp(long step){
+        return step * kOdometryPeriodSeconds;
+    }
+
+    // A weaving path at about 3 m/s, the outside modules a little faster
+    private static double distance(long step, int module){
+        return step * kOdometryPeriodSeconds * (3.0 + 0.1 * module);
+    }
+}
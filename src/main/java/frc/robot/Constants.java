@@ -5,10 +5,14 @@
 package frc.robot;
 
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import frc.robot.util.SwerveModuleConstants;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.RobotBase;
 
 /**
  * The Constants class provides a convenient place for teams to hold robot-wide numerical or boolean
@@ -21,14 +25,206 @@ import edu.wpi.first.math.util.Units;
 public final class Constants {
   public static boolean debugMode = false;
   public static boolean calibrationMode = false;
+  // Times loop sections into histograms, see LoopProfiler
+  public static boolean profilingMode = false;
+
+  public enum Mode{
+    REAL, SIM, REPLAY
+  }
+
+  // Replay runs in simulation when a log to replay is given, see ReplayRunner
+  public static final Mode currentMode = RobotBase.isReal() ? Mode.REAL
+    : System.getenv(LoggingConstants.kReplayLogVariable) != null ? Mode.REPLAY : Mode.SIM;
+
   public static class AutoConstants{
     public static final double autoDrivekP = 0.4;
+
+    // PPHolonomicDriveController gains for following paths
+    public static final double kPathTranslationP = 0.1;
+    public static final double kPathRotationP = 0.4;
+
+    // Trajectories for both alliances, built by ./gradlew generateTrajectoryCache, under the deploy directory
+    public static final String kTrajectoryCacheFile = "pathplanner/trajectories.bin";
   }
   public static class NeoMotorConstants{
     public static final double kFreeSpeedRpm = 5676;
     public static final double kMotorKv = 473;
   }
 
+  public static class CANBudgetConstants{
+    // Status frame periods in ms, see StatusFrameProfile
+    // The odometry thread polls faster than this and drops the passes where no new frame came in
+    public static final int kOdometrySignalPeriodMs = 10;
+    public static final int kFollowerLeaderSignalPeriodMs = 10;
+    public static final int kTelemetrySignalPeriodMs = 20;
+    public static final int kSlowTelemetrySignalPeriodMs = 250;
+    public static final int kUnusedSignalPeriodMs = 500;
+
+    public static final double kBusBitRate = 1e6;
+    // Extended frame with 8 data bytes, plus worst case bit stuffing
+    public static final double kBitsPerFrame = 155;
+    public static final double kPublishPeriodSeconds = 0.5;
+  }
+
+  public static class TelemetryConstants{
+    // Publish rates in Hz
+    public static final double kPoseRateHz = 50;
+    public static final double kModuleStateRateHz = 50;
+    public static final double kGyroHeadingRateHz = 50;
+    public static final double kGyroTiltRateHz = 5;
+    public static final double kStatusRateHz = 5;
+    public static final double kDebugRateHz = 10;
+    public static final double kDriverDebugRateHz = 50;
+
+    // Lets a 50 Hz signal publish every loop even when the loop runs slightly early
+    public static final double kPublishToleranceSeconds = 0.005;
+  }
+
+  public static class ProfilerConstants{
+    public static final double kLoopBudgetSeconds = 0.02;
+    public static final double kPublishRateHz = 2;
+    // 16 buckets per power of two keeps every value within about 6%, up to about 1 s
+    public static final int kHistogramSubBucketBits = 4;
+    public static final int kHistogramMaxValueBits = 30;
+  }
+
+  public static class SchedulerConstants{
+    public static final double kMainPeriodSeconds = 0.02;
+    public static final double kTelemetryPeriodSeconds = 0.1;
+    // A main loop task runs this early rather than waiting a whole extra loop
+    public static final double kPeriodToleranceSeconds = 0.005;
+
+    // 100 Hz drive output on its own real time thread
+    public static final double kDriveControlPeriodSeconds = 0.01;
+    public static final int kDriveControlPriority = 20;
+    // Drive requests older than this are not re-sent, a few missed main loops
+    public static final double kDriveRequestTimeoutSeconds = 0.1;
+    public static final double kMaxHeadingExtrapolationSeconds = 0.04;
+    // PathPlanner speeds are discretized over one main loop, the rate they are updated at
+    public static final double kDriveDiscretizationSeconds = kMainPeriodSeconds;
+  }
+
+  public static class WarmupConstants{
+    // Drive control steps run per disabled loop, alternating teleop and auto requests
+    public static final int kIterationsPerLoop = 10;
+    // Well past the invocation counts C2 compiles at, about 30 seconds of disabled
+    public static final int kIterations = 15000;
+    // Synthetic stick time between two iterations
+    public static final double kInputPeriodSeconds = 0.02;
+    // Out of every this many iterations the rotation stick is twisted for the first quarter and
+    // let go for the rest, long past the half second the heading corrector waits before correcting
+    public static final int kRotationCycleIterations = 200;
+  }
+
+  public static class LoadSheddingConstants{
+    // Loop time, from start to end of the loop's work, that sheds a tier or counts as headroom
+    public static final double kShedLoopSeconds = 0.016;
+    public static final double kRestoreLoopSeconds = 0.010;
+    public static final int kRestoreLoops = 50;
+    public static final double kShedPeriodScale = 2.0;
+    // Telemetry still being written this far into the loop waits for the next one
+    public static final double kPublishDeadlineSeconds = 0.017;
+  }
+
+  public static class LoggingConstants{
+    public static final String kUsbLogDirectory = "/U/logs";
+    public static final String kRioLogDirectory = "/home/lvuser/logs";
+    // Records queued before new ones are dropped, about 20 seconds of drivetrain data
+    public static final int kBufferCapacity = 1 << 15;
+    public static final int kMaxEntries = 128;
+    public static final long kWriterIdleMs = 5;
+    public static final long kFlushPeriodMs = 1000;
+    // Environment variable holding the path of a log to replay
+    public static final String kReplayLogVariable = "REPLAY_LOG";
+    // Entries logged from real time threads, replay does not compare them
+    public static final String kRealtimeLogPrefix = "/RealTime/";
+    // System property that prints the startup time outside of debug mode, the CDS startup benchmark sets it
+    public static final String kPrintStartupProperty = "robot.printStartup";
+  }
+
+  public static class SimulationConstants{
+    // Physics step, fast enough that every odometry sample sees the robot move
+    public static final double kPhysicsPeriodSeconds = 0.002;
+    // Longest step the sim models take, so a paused debugger does not launch the robot
+    public static final double kMaxStepSeconds = 0.1;
+
+    // Mk4 steering, the moment of inertia is an estimate
+    public static final double kTurnGearing = 12.8;
+    public static final double kTurnMOI = 0.004;
+    // SparkMax analog input, 12 bits over 0 to 3.3 V
+    public static final double kAnalogFullScaleVolts = 3.3;
+    public static final double kAnalogResolutionVolts = kAnalogFullScaleVolts / 4096;
+
+    // Headless runs, see SimulationRunner. Set the auto to run one.
+    public static final String kHeadlessAutoVariable = "SIM_AUTO";
+    public static final String kHeadlessAllianceVariable = "SIM_ALLIANCE";
+    public static final double kHeadlessDisabledSeconds = 0.5;
+    public static final double kHeadlessAutoSeconds = 15.0;
+    // Optional, where to write the JSON report and the baseline to check it against
+    public static final String kHeadlessReportVariable = "SIM_REPORT";
+    public static final String kHeadlessBaselineVariable = "SIM_BASELINE";
+
+    // Auto benchmark, worse than the baseline by more than this is a regression
+    public static final double kBenchmarkTimeToleranceSeconds = 0.1;
+    public static final double kBenchmarkRmsErrorToleranceMeters = 0.02;
+    public static final double kBenchmarkMaxErrorToleranceMeters = 0.05;
+  }
+
+  public static class TuningConstants{
+    // Offline sweeps, see src/tuner. Steering in the sweeps is a first order lag instead of the SparkMax loop.
+    public static final double kTurnTimeConstantSeconds = 0.03;
+    // Volts per meter per second of drive speed error, on top of the ideal feedforward
+    public static final double kDriveVelocityP = 2.0;
+
+    // Settled means this close to the end of the path, or to where the driver sent the robot
+    public static final double kSettlePositionToleranceMeters = 0.02;
+    public static final double kSettleHeadingToleranceDegrees = 2.0;
+    // Time allowed after the path or the driver inputs end, a run that has not settled scores this
+    public static final double kMaxSettleSeconds = 2.0;
+
+    // Score = RMS position error + heading weight * RMS heading error + settle weight * settle time
+    public static final double kHeadingErrorWeightMetersPerRadian = 0.5;
+    public static final double kSettleWeightMetersPerSecond = 0.1;
+  }
+
+  public static class VisionConstants{
+    public static final String[] kCameraNames = {"camera1", "camera2"};
+    // Placeholder mounts, front corners facing out and tilted up. Measure these on the robot.
+    public static final Transform3d[] kRobotToCameras = {
+      new Transform3d(new Translation3d(0.28, 0.28, 0.25), new Rotation3d(0.0, Units.degreesToRadians(-15), Units.degreesToRadians(30))),
+      new Transform3d(new Translation3d(0.28, -0.28, 0.25), new Rotation3d(0.0, Units.degreesToRadians(-15), Units.degreesToRadians(-30)))
+    };
+
+    public static final double kWorkerPeriodSeconds = 0.01;
+    public static final int kMaxMeasurementsPerLoop = 8;
+    public static final int kMeasurementQueueSize = 16;
+    public static final long kSequenceRestartThreshold = 1000;
+
+    // Rejection
+    public static final double kMaxAmbiguity = 0.2;
+    public static final double kMaxSingleTagDistanceMeters = 4.0;
+    public static final double kMaxMultiTagDistanceMeters = 6.0;
+    public static final double kMaxZErrorMeters = 0.75;
+
+    // Standard deviations at zero distance, grown by 1 + distance^2 / kStdDevDistanceSquaredMeters
+    public static final double kSingleTagXYStdDevMeters = 0.5;
+    // A single tag is a poor heading source, leave the heading to the gyro
+    public static final double kSingleTagRotationStdDevRadians = 1e6;
+    public static final double kMultiTagXYStdDevMeters = 0.2;
+    public static final double kMultiTagRotationStdDevRadians = 0.5;
+    public static final double kStdDevDistanceSquaredMeters = 30.0;
+
+    // Simulated camera
+    public static final int kSimResolutionWidth = 960;
+    public static final int kSimResolutionHeight = 720;
+    public static final double kSimFovDegrees = 90;
+    public static final double kSimAverageErrorPixels = 0.35;
+    public static final double kSimErrorStdDevPixels = 0.10;
+    public static final double kSimFps = 30;
+    public static final double kSimAverageLatencyMs = 35;
+    public static final double kSimLatencyStdDevMs = 5;
+  }
+
   public static class OperatorConstants {
     public static final int kOperatorJoyPort = 2;
 
@@ -110,6 +306,24 @@ public final class Constants {
 
       public static final double kHeadingCorrectionP = 0.04;
       public static final double kHeadingCorrectionTolerance = 2.0;
+
+      // Odometry thread, samples are buffered until the main loop drains them. Polling faster
+      // than CANBudgetConstants.kOdometrySignalPeriodMs picks up each frame soon after it arrives
+      public static final double kOdometryFrequencyHz = 250.0;
+      public static final int kOdometryBufferSize = 20;
+
+      // Pose estimator, vision measurements older than the history are ignored
+      public static final double[] kStateStdDevs = {0.1, 0.1, 0.1};
+      public static final double kPoseHistorySeconds = 1.5;
+      // 1.5 seconds at the odometry rate with room for jitter
+      public static final int kPoseHistorySize = 512;
+      public static final int kVisionUpdateHistorySize = 64;
+
+      // Module setpoint filtering, changes smaller than these are not sent to the SparkMax
+      public static final double kTurnSetpointToleranceRad = 0.005;
+      public static final double kDriveSetpointToleranceMPS = 0.01;
+      public static final double kSetpointKeepAliveSeconds = 0.1;
+      public static final double kStoppedSpeedMPS = 0.02;
 }
   
   public static class Swerve{
@@ -20,6 +20,13 @@ public final class Main {
    * <p>If you change your main robot class, change the parameter type.
    */
   public static void main(String... args) {
-    RobotBase.startRobot(Robot::new);
+    if (Constants.currentMode == Constants.Mode.REPLAY) {
+      ReplayRunner.run();
+    } else if (Constants.currentMode == Constants.Mode.SIM
+        && System.getenv(Constants.SimulationConstants.kHeadlessAutoVariable) != null) {
+      SimulationRunner.run();
+    } else {
+      RobotBase.startRobot(Robot::new);
+    }
   }
 }
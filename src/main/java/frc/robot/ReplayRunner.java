@@ -0,0 +1,163 @@
+package frc.robot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.Constants.LoggingConstants;
+import frc.robot.util.AsyncDataLogger;
+import frc.robot.util.InputLog;
+import frc.robot.util.ReplaySource;
+
+/**
+ * Runs a recorded drive log back through the robot code as fast as it will go. Start the simulator
+ * with the log to replay in the REPLAY_LOG environment variable, for example
+ * {@code REPLAY_LOG=logs/drive_20250301_101500.wpilog ./gradlew simulateJava}.
+ *
+ * <p>The sim clock is paused and stepped to each recorded loop time, the driver station sim is set
+ * to the recorded mode and every IO reads the recorded inputs. When the log runs out the outputs
+ * this run logged are compared against the recorded ones.
+ */
+public final class ReplayRunner {
+  private ReplayRunner() {}
+
+  public static void run() {
+    if (!HAL.initialize(500, 0)) {
+      throw new IllegalStateException("Failed to initialize the HAL");
+    }
+    SimHooks.pauseTiming();
+    DriverStationSim.setDsAttached(true);
+
+    ReplaySource source = ReplaySource.getInstance();
+    System.out.println("Replaying " + source.getFilename() + ", " + (source.getFrameCount() - 1) + " loops");
+
+    long startNanos = System.nanoTime();
+    stepTo(source.getFrameTimestamp());
+    Robot robot = new Robot();
+    AsyncDataLogger logger = AsyncDataLogger.getInstance();
+
+    double firstLoopTime = Double.NaN;
+    double lastLoopTime = Double.NaN;
+    while (source.advance()) {
+      double timestamp = source.getFrameTimestamp();
+      if (Double.isNaN(firstLoopTime)) {
+        firstLoopTime = timestamp;
+      }
+      lastLoopTime = timestamp;
+      stepTo(timestamp);
+
+      DriverStationSim.setEnabled(source.peek(InputLog.kEnabledKey, 0.0) != 0.0);
+      DriverStationSim.setAutonomous(source.peek(InputLog.kAutonomousKey, 0.0) != 0.0);
+      DriverStationSim.setTest(source.peek(InputLog.kTestKey, 0.0) != 0.0);
+      DriverStationSim.setAllianceStationId(source.peek(InputLog.kRedAllianceKey, 0.0) != 0.0
+          ? AllianceStationID.Red1 : AllianceStationID.Blue1);
+      DriverStationSim.setMatchTime(source.peek(InputLog.kMatchTimeKey, -1.0));
+      DriverStationSim.notifyNewData();
+
+      robot.runLoop();
+      logger.waitIfBacklogged();
+    }
+    double replaySeconds = (System.nanoTime() - startNanos) / 1e9;
+    logger.close();
+
+    double recordedSeconds = Double.isNaN(firstLoopTime) ? 0.0 : lastLoopTime - firstLoopTime;
+    System.out.printf("Replayed %.1f s of robot time in %.1f s (%.0fx real time)%n",
+        recordedSeconds, replaySeconds, recordedSeconds / Math.max(replaySeconds, 1e-9));
+
+    int mismatches = 0;
+    try {
+      mismatches = compareOutputs(source.getFilename(), logger.getFilename());
+    } catch (IOException e) {
+      System.out.println("Could not compare outputs: " + e.getMessage());
+      mismatches = -1;
+    }
+
+    robot.close();
+    System.exit(mismatches == 0 ? 0 : 1);
+  }
+
+  private static void stepTo(double timestamp) {
+    double step = timestamp - Timer.getFPGATimestamp();
+    if (step > 0.0) {
+      SimHooks.stepTiming(step);
+    }
+  }
+
+  /**
+   * Compares every logged output, anything outside /Inputs and /RealTime, between the two logs.
+   * Values are compared in order, timestamps are ignored since they depend on how long the code
+   * took. Real time threads run on their own clock, so what they log cannot be reproduced.
+   *
+   * @return Number of outputs that differ
+   */
+  static int compareOutputs(String recordedFilename, String replayedFilename) throws IOException {
+    Map<String, double[]> recorded = readOutputs(recordedFilename);
+    Map<String, double[]> replayed = readOutputs(replayedFilename);
+
+    int mismatches = 0;
+    int compared = 0;
+    for (Map.Entry<String, double[]> entry : recorded.entrySet()) {
+      double[] replayedValues = replayed.get(entry.getKey());
+      if (replayedValues == null) {
+        continue;
+      }
+      double[] recordedValues = entry.getValue();
+      // The recording may have been cut off mid loop, only compare what both have
+      int length = Math.min(recordedValues.length, replayedValues.length);
+      for (int i = 0; i < length; i++) {
+        if (Double.compare(recordedValues[i], replayedValues[i]) != 0) {
+          System.out.printf("  %s differs at record %d: recorded %s, replayed %s%n",
+              entry.getKey(), i, recordedValues[i], replayedValues[i]);
+          mismatches++;
+          break;
+        }
+      }
+      compared++;
+    }
+    System.out.printf("Compared %d outputs, %d differ%n", compared, mismatches);
+    return mismatches;
+  }
+
+  private static Map<String, double[]> readOutputs(String filename) throws IOException {
+    DataLogReader reader = new DataLogReader(filename);
+    if (!reader.isValid()) {
+      throw new IOException(filename + " is not a WPILOG file");
+    }
+
+    Map<Integer, String> names = new HashMap<>();
+    Map<Integer, Boolean> isBoolean = new HashMap<>();
+    Map<String, List<Double>> values = new HashMap<>();
+    for (DataLogRecord record : reader) {
+      if (record.isStart()) {
+        DataLogRecord.StartRecordData start = record.getStartData();
+        if (!start.name.startsWith(InputLog.kPrefix)
+            && !start.name.startsWith(LoggingConstants.kRealtimeLogPrefix)
+            && (start.type.equals("double") || start.type.equals("boolean"))) {
+          names.put(start.entry, start.name);
+          isBoolean.put(start.entry, start.type.equals("boolean"));
+          values.putIfAbsent(start.name, new ArrayList<>());
+        }
+      } else if (!record.isControl() && names.containsKey(record.getEntry())) {
+        double value = isBoolean.get(record.getEntry())
+            ? (record.getBoolean() ? 1.0 : 0.0)
+            : record.getDouble();
+        values.get(names.get(record.getEntry())).add(value);
+      }
+    }
+
+    Map<String, double[]> outputs = new HashMap<>();
+    for (Map.Entry<String, List<Double>> entry : values.entrySet()) {
+      outputs.put(entry.getKey(), entry.getValue().stream().mapToDouble(Double::doubleValue).toArray());
+    }
+    return outputs;
+  }
+}
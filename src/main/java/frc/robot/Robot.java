@@ -4,9 +4,23 @@
 
 package frc.robot;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants.CANBudgetConstants;
+import frc.robot.Constants.LoggingConstants;
+import frc.robot.Constants.SchedulerConstants;
+import frc.robot.util.CANBudgetManager;
+import frc.robot.util.DriveWarmup;
+import frc.robot.util.DriverOI;
+import frc.robot.util.InputLog;
+import frc.robot.util.LoadShedder;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.MultiRateScheduler;
+import frc.robot.util.Telemetry;
 
 /**
  * The methods in this class are called automatically corresponding to each mode, as described in
@@ -17,15 +31,83 @@ public class Robot extends TimedRobot {
   private Command m_autonomousCommand;
 
   private final RobotContainer m_robotContainer;
+  private final DriveWarmup m_driveWarmup;
+  private boolean m_skipDriveWarmup;
+
+  private final LoopProfiler m_profiler = LoopProfiler.getInstance();
+  private final LoadShedder m_loadShedder = LoadShedder.getInstance();
+  private final LoopProfiler.Section m_inputsSection = m_profiler.addSection("Inputs");
+  private final LoopProfiler.Section m_schedulerSection = m_profiler.addSection("CommandScheduler.run");
+  private final MultiRateScheduler m_multiRateScheduler = MultiRateScheduler.getInstance();
 
   /**
    * This function is run when the robot is first started up and should be used for any
    * initialization code.
    */
   public Robot() {
+    super(SchedulerConstants.kMainPeriodSeconds);
     // Instantiate our RobotContainer.  This will perform all our button bindings, and put our
     // autonomous chooser on the dashboard.
     m_robotContainer = new RobotContainer();
+    m_driveWarmup = new DriveWarmup(m_robotContainer.getSwerveDriveCommand());
+    if (Constants.debugMode) {
+      CANBudgetManager.getInstance().printReport();
+    }
+
+    m_multiRateScheduler.addPeriodic("CANBudgetManager.periodic", CANBudgetConstants.kPublishPeriodSeconds,
+        CANBudgetManager.getInstance()::periodic);
+    // Added last so it runs after everything else that sets a signal. Runs last in the loop so a
+    // slow publish can only delay the dashboard, never a control output.
+    m_multiRateScheduler.addPeriodic("Telemetry.publish", SchedulerConstants.kTelemetryPeriodSeconds,
+        () -> Telemetry.getInstance().publish(m_loadShedder.getPublishDeadlineNanos()));
+    m_multiRateScheduler.start();
+    if (Constants.debugMode || Boolean.getBoolean(LoggingConstants.kPrintStartupProperty)) {
+      printStartupTime();
+    }
+  }
+
+  /**
+   * Startup is what a brownout or a reboot costs in a match. Printed with whether the class data
+   * sharing archive from build.gradle was used, so boots with and without it compare.
+   */
+  private static void printStartupTime() {
+    RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+    String sharing = "off";
+    // The JVM adds "sharing" here when any archive is mapped, the JDK's own one included
+    if (System.getProperty("java.vm.info", "").contains("sharing")) {
+      sharing = runtime.getInputArguments().stream().anyMatch(arg -> arg.startsWith("-XX:SharedArchiveFile="))
+          ? "robot archive" : "JDK classes only";
+    }
+    System.out.println("Robot startup took " + runtime.getUptime() + " ms after JVM start, class data sharing: " + sharing);
+  }
+
+  /**
+   * Takes every input for the loop before any mode or periodic function can read one, so a replay
+   * reads them back in the same place.
+   */
+  @Override
+  protected void loopFunc() {
+    m_profiler.beginLoop();
+    m_inputsSection.start();
+    InputLog.getInstance().beginLoop();
+    DriverOI.getInstance().updateInputs();
+    m_inputsSection.stop();
+    super.loopFunc();
+    m_profiler.endLoop();
+    m_loadShedder.update();
+  }
+
+  /**
+   * Leaves the drive code cold while disabled, used by {@link SimulationRunner}. It is only
+   * disabled for a moment between autos, part of a warmup there would only add to its loop times.
+   */
+  void skipDriveWarmup() {
+    m_skipDriveWarmup = true;
+  }
+
+  /** Runs one loop, used by {@link ReplayRunner} and {@link SimulationRunner} which step the robot themselves. */
+  void runLoop() {
+    loopFunc();
   }
 
   /**
@@ -41,20 +123,36 @@ public class Robot extends TimedRobot {
     // commands, running already-scheduled commands, removing finished or interrupted commands,
     // and running subsystem periodic() methods.  This must be called from the robot's periodic
     // block in order for anything in the Command-based framework to work.
+    m_schedulerSection.start();
     CommandScheduler.getInstance().run();
+    m_schedulerSection.stop();
+    // Everything with its own period, see MultiRateScheduler
+    m_multiRateScheduler.run();
   }
 
   /** This function is called once each time the robot enters Disabled mode. */
   @Override
-  public void disabledInit() {}
+  public void disabledInit() {
+    m_profiler.printReport();
+  }
+
+  /** Warms up the drive code while nothing else is running, see {@link DriveWarmup}. */
+  @Override
+  public void disabledPeriodic() {
+    if (!m_skipDriveWarmup) {
+      m_driveWarmup.run();
+    }
+  }
 
   @Override
-  public void disabledPeriodic() {}
+  public void disabledExit() {
+    m_driveWarmup.stop();
+  }
 
   /** This autonomous runs the autonomous command selected by your {@link RobotContainer} class. */
   @Override
   public void autonomousInit() {
-    m_autonomousCommand = m_robotContainer.getAutonomousCommand();
+    m_autonomousCommand = m_profiler.profile(m_robotContainer.getAutonomousCommand());
 
     // schedule the autonomous command (example)
     if (m_autonomousCommand != null) {
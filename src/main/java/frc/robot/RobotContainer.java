@@ -8,9 +8,11 @@ package frc.robot;
 import frc.robot.commands.SwerveDriveCommand;
 import frc.robot.subsystems.Autonomous;
 import frc.robot.subsystems.Drivetrain;
+import frc.robot.subsystems.Vision;
 //import frc.robot.commands.Autos;
 //import frc.robot.commands.ExampleCommand;
 import frc.robot.util.DriverOI;
+import frc.robot.util.LoopProfiler;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
@@ -18,15 +20,19 @@ import edu.wpi.first.wpilibj2.command.button.Trigger;
 public class RobotContainer {
   // Define robot subsystems here!
   private final Drivetrain m_Drivetrain;
+  private final SwerveDriveCommand m_SwerveDriveCommand;
   private final DriverOI m_DriverOI;
   private final Autonomous m_Autonomous;
+  private final Vision m_Vision;
 
   /** The container for the robot. Contains subsystems, OI devices, and commands. */
   public RobotContainer() {
     // Configure the trigger bindings
     m_Drivetrain = Drivetrain.getInstance();
-    m_Drivetrain.setDefaultCommand(new SwerveDriveCommand());
+    m_SwerveDriveCommand = new SwerveDriveCommand();
+    m_Drivetrain.setDefaultCommand(LoopProfiler.getInstance().profile(m_SwerveDriveCommand));
     m_Autonomous = Autonomous.getInstance();
+    m_Vision = Vision.getInstance();
     m_DriverOI = DriverOI.getInstance();
   }
 
@@ -49,4 +55,11 @@ public class RobotContainer {
   public Command getAutonomousCommand() {
     return m_Autonomous.returnAutonomousCommand();
   }
+
+  /**
+   * @return the teleop drive command, unwrapped from its profiler
+   */
+  public SwerveDriveCommand getSwerveDriveCommand() {
+    return m_SwerveDriveCommand;
+  }
 }
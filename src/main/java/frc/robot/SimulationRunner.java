@@ -0,0 +1,167 @@
+package frc.robot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.pathplanner.lib.util.PathPlannerLogging;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.SchedulerConstants;
+import frc.robot.Constants.SimulationConstants;
+import frc.robot.subsystems.Autonomous;
+import frc.robot.subsystems.Drivetrain;
+import frc.robot.subsystems.SwerveDriveSim;
+import frc.robot.util.AsyncDataLogger;
+import frc.robot.util.AutoBenchmarkReport;
+import frc.robot.util.AutoRunMetrics;
+
+/**
+ * Runs autos in simulation with no GUI or driver station, as fast as the code will go. Start it
+ * with the auto in the SIM_AUTO environment variable, for example
+ * {@code ./gradlew simulateHeadless -PsimAuto=DriveOut -PsimAlliance=Red}. SIM_AUTO=all runs every
+ * routine in {@link Autonomous}, and SIM_ALLIANCE=Both, the default, runs each for both alliances.
+ * SIM_AUTO=none only starts the robot, for timing startup.
+ * {@code ./gradlew autoBenchmark} does both and checks the report against the stored baseline.
+ *
+ * <p>The sim clock is paused and stepped one physics step at a time, so the odometry, drive control
+ * and physics notifiers all run in order between main loops. Each run starts disabled and the
+ * auto places the robot at its starting pose. The drive warmup is skipped, so the loop times do not
+ * depend on how far it got in the short disabled time. Exits with 1 if an auto does not finish in
+ * {@link SimulationConstants#kHeadlessAutoSeconds} or is worse than the baseline.
+ */
+public final class SimulationRunner {
+  private SimulationRunner() {}
+
+  public static void run() {
+    String autoName = System.getenv(SimulationConstants.kHeadlessAutoVariable);
+    String alliance = System.getenv(SimulationConstants.kHeadlessAllianceVariable);
+    String reportPath = System.getenv(SimulationConstants.kHeadlessReportVariable);
+    String baselinePath = System.getenv(SimulationConstants.kHeadlessBaselineVariable);
+
+    if (!HAL.initialize(500, 0)) {
+      throw new IllegalStateException("Failed to initialize the HAL");
+    }
+    SimHooks.pauseTiming();
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setAutonomous(true);
+    DriverStationSim.setEnabled(false);
+    DriverStationSim.notifyNewData();
+
+    Robot robot = new Robot();
+    robot.skipDriveWarmup();
+    AsyncDataLogger logger = AsyncDataLogger.getInstance();
+
+    List<String> autos = new ArrayList<>();
+    if (autoName.equalsIgnoreCase("all")) {
+      autos.addAll(Autonomous.getInstance().getAutoNames());
+    } else if (!autoName.equalsIgnoreCase("none")) {
+      autos.add(autoName);
+    }
+    List<Boolean> alliances = new ArrayList<>();
+    if (alliance == null || alliance.equalsIgnoreCase("both") || alliance.equalsIgnoreCase("blue")) {
+      alliances.add(false);
+    }
+    if (alliance == null || alliance.equalsIgnoreCase("both") || alliance.equalsIgnoreCase("red")) {
+      alliances.add(true);
+    }
+
+    AutoBenchmarkReport report = new AutoBenchmarkReport();
+    long startNanos = System.nanoTime();
+    double simSeconds = 0.0;
+    boolean allFinished = true;
+    for (boolean red : alliances) {
+      for (String auto : autos) {
+        double runStart = Timer.getFPGATimestamp();
+        allFinished &= runAuto(robot, logger, Autonomous.getInstance().getRoutine(auto, red), red, report);
+        simSeconds += Timer.getFPGATimestamp() - runStart;
+      }
+    }
+    double wallSeconds = (System.nanoTime() - startNanos) / 1e9;
+    System.out.printf("Simulated %.1f s in %.1f s (%.0fx real time)%n",
+        simSeconds, wallSeconds, simSeconds / Math.max(wallSeconds, 1e-9));
+
+    int regressions = 0;
+    try {
+      if (reportPath != null) {
+        report.write(new File(reportPath));
+        System.out.println("Wrote " + reportPath);
+      }
+      if (baselinePath != null) {
+        regressions = report.compare(new File(baselinePath));
+      }
+    } catch (IOException e) {
+      System.out.println("Could not write or compare the report: " + e.getMessage());
+      regressions = -1;
+    }
+
+    logger.close();
+    robot.close();
+    System.exit(allFinished && regressions == 0 ? 0 : 1);
+  }
+
+  /**
+   * Runs one auto from disabled, until it ends or runs out of time, and adds it to the report.
+   * @return Whether the auto finished in time
+   */
+  private static boolean runAuto(Robot robot, AsyncDataLogger logger, Command auto, boolean red,
+      AutoBenchmarkReport report) {
+    DriverStationSim.setAllianceStationId(red ? AllianceStationID.Red1 : AllianceStationID.Blue1);
+    double disabledEnd = Timer.getFPGATimestamp() + SimulationConstants.kHeadlessDisabledSeconds;
+    while (Timer.getFPGATimestamp() < disabledEnd) {
+      step(robot, logger);
+    }
+
+    AutoRunMetrics metrics = new AutoRunMetrics();
+    PathPlannerLogging.setLogTargetPoseCallback(metrics::setTargetPose);
+
+    // Commands only schedule once the robot has seen that it is enabled
+    DriverStationSim.setEnabled(true);
+    step(robot, logger);
+    auto.schedule();
+    double autoStart = Timer.getFPGATimestamp();
+    double autoEnd = autoStart + SimulationConstants.kHeadlessAutoSeconds;
+    while (auto.isScheduled() && Timer.getFPGATimestamp() < autoEnd) {
+      long loopNanos = step(robot, logger);
+      metrics.recordLoop(loopNanos, SwerveDriveSim.getInstance().getPose(), Drivetrain.getInstance().getState());
+    }
+    boolean finished = !auto.isScheduled();
+    double autoSeconds = Timer.getFPGATimestamp() - autoStart;
+    auto.cancel();
+    PathPlannerLogging.setLogTargetPoseCallback(pose -> {});
+
+    DriverStationSim.setEnabled(false);
+    step(robot, logger);
+
+    String allianceName = red ? "Red" : "Blue";
+    System.out.printf("%s (%s): %s in %.2f s, tracking error %.3f m RMS %.3f m max, peak module %.2f m/s, "
+        + "loop p50 %.2f ms p99 %.2f ms%n", auto.getName(), allianceName, finished ? "finished" : "did not finish",
+        autoSeconds, metrics.getRmsErrorMeters(), metrics.getMaxErrorMeters(), metrics.getPeakModuleSpeedMPS(),
+        metrics.getLoopMs(50), metrics.getLoopMs(99));
+    report.add(auto.getName(), allianceName, finished, autoSeconds, metrics);
+    return finished;
+  }
+
+  /**
+   * Moves the clock one main loop forward a physics step at a time, then runs the loop.
+   * @return How long the loop's code took
+   */
+  private static long step(Robot robot, AsyncDataLogger logger) {
+    int physicsSteps = (int) Math.round(SchedulerConstants.kMainPeriodSeconds / SimulationConstants.kPhysicsPeriodSeconds);
+    for (int i = 0; i < physicsSteps; i++) {
+      SimHooks.stepTiming(SimulationConstants.kPhysicsPeriodSeconds);
+    }
+    DriverStationSim.notifyNewData();
+    long loopStart = System.nanoTime();
+    robot.runLoop();
+    long loopNanos = System.nanoTime() - loopStart;
+    logger.waitIfBacklogged();
+    return loopNanos;
+  }
+}
@@ -0,0 +1,107 @@
+package frc.robot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import com.pathplanner.lib.config.RobotConfig;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectory;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectoryState;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.util.AutoFile;
+import frc.robot.util.TrajectoryCache;
+
+/**
+ * Writes the {@link TrajectoryCache} file for every auto in deploy/pathplanner/autos. Run on the
+ * desktop by {@code ./gradlew generateTrajectoryCache}, which deploying runs first. Each path gets
+ * the trajectory PathPlanner would follow starting from rest, and its flip for the red alliance.
+ * Autos that do anything but follow paths in sequence are skipped and stay on PathPlanner.
+ */
+public final class TrajectoryCacheGenerator {
+  private TrajectoryCacheGenerator() {}
+
+  public static void main(String[] args) throws Exception {
+    // PathPlanner finds the deploy directory and the robot settings through the HAL
+    if (!HAL.initialize(500, 0)) {
+      throw new IllegalStateException("Failed to initialize the HAL");
+    }
+    File deployDirectory = Filesystem.getDeployDirectory();
+    File output = new File(deployDirectory, AutoConstants.kTrajectoryCacheFile);
+    RobotConfig config = RobotConfig.fromGUISettings();
+
+    File autoDirectory = new File(deployDirectory, "pathplanner/autos");
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream body = new DataOutputStream(bytes);
+    int autoCount = 0;
+    for (String autoName : AutoFile.findAutos(autoDirectory)) {
+      AutoFile auto = AutoFile.read(new File(autoDirectory, autoName + ".auto"));
+      List<String> pathNames = auto.getPathNames();
+      if (pathNames == null) {
+        System.out.println("Skipping " + autoName + ", it does more than follow paths");
+        continue;
+      }
+
+      String[] paths = pathNames.toArray(new String[0]);
+      writeString(body, autoName);
+      body.writeLong(TrajectoryCache.computeSourceHash(deployDirectory, autoName, paths));
+      body.writeBoolean(auto.getResetOdom());
+      body.writeInt(paths.length);
+      for (String pathName : paths) {
+        PathPlannerPath path = PathPlannerPath.fromPathFile(pathName);
+        PathPlannerTrajectory blue = path.getIdealTrajectory(config).orElseGet(() -> path.generateTrajectory(
+            new ChassisSpeeds(), path.getStartingHolonomicPose().orElseThrow().getRotation(), config));
+        PathPlannerTrajectory red = path.preventFlipping ? blue : blue.flip();
+
+        writeString(body, pathName);
+        writeTrajectory(body, blue);
+        writeTrajectory(body, red);
+      }
+      autoCount++;
+      System.out.println("Cached " + autoName + ": " + String.join(", ", paths));
+    }
+
+    try (DataOutputStream file = new DataOutputStream(Files.newOutputStream(output.toPath()))) {
+      file.writeInt(TrajectoryCache.kMagic);
+      file.writeInt(TrajectoryCache.kVersion);
+      file.writeInt(autoCount);
+      bytes.writeTo(file);
+    }
+    System.out.println("Wrote " + autoCount + " autos, " + output.length() + " bytes, to " + output);
+    System.exit(0);
+  }
+
+  private static void writeString(DataOutputStream out, String string) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * States in the order {@link frc.robot.util.CachedTrajectory} reads them.
+   */
+  private static void writeTrajectory(DataOutputStream out, PathPlannerTrajectory trajectory) throws IOException {
+    List<PathPlannerTrajectoryState> states = trajectory.getStates();
+    out.writeInt(states.size());
+    for (PathPlannerTrajectoryState state : states) {
+      out.writeDouble(state.timeSeconds);
+      out.writeDouble(state.pose.getX());
+      out.writeDouble(state.pose.getY());
+      out.writeDouble(state.pose.getRotation().getRadians());
+      out.writeDouble(state.fieldSpeeds.vxMetersPerSecond);
+      out.writeDouble(state.fieldSpeeds.vyMetersPerSecond);
+      out.writeDouble(state.fieldSpeeds.omegaRadiansPerSecond);
+      out.writeDouble(state.linearVelocity);
+      out.writeDouble(state.heading.getRadians());
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package frc.robot.commands;
+
+import com.pathplanner.lib.config.PIDConstants;
+import com.pathplanner.lib.controllers.PPHolonomicDriveController;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectoryState;
+import com.pathplanner.lib.util.PathPlannerLogging;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.subsystems.Drivetrain;
+import frc.robot.util.CachedTrajectory;
+
+/**
+ * Follows a trajectory from the {@link frc.robot.util.TrajectoryCache} the way PathPlanner's
+ * FollowPathCommand follows a path, with the same controller gains. The trajectory is already
+ * the alliance's, so nothing is flipped or generated when it starts.
+ */
+public class FollowCachedTrajectoryCommand extends Command {
+  // Below this the path ends stopped, and the robot is told to stop when it finishes
+  private static final double kStoppedSpeedMPS = 0.1;
+
+  private final Drivetrain drivetrain = Drivetrain.getInstance();
+  private final CachedTrajectory trajectory;
+  private final PPHolonomicDriveController controller = new PPHolonomicDriveController(
+      new PIDConstants(AutoConstants.kPathTranslationP, 0, 0),
+      new PIDConstants(AutoConstants.kPathRotationP, 0, 0));
+  private final Timer timer = new Timer();
+  private final PathPlannerTrajectoryState targetState = new PathPlannerTrajectoryState();
+
+  public FollowCachedTrajectoryCommand(CachedTrajectory trajectory) {
+    this.trajectory = trajectory;
+    addRequirements(drivetrain);
+  }
+
+  @Override
+  public void initialize() {
+    controller.reset(drivetrain.getPose(), drivetrain.getRobotChassisSpeeds());
+    timer.restart();
+  }
+
+  @Override
+  public void execute() {
+    trajectory.sample(timer.get(), targetState);
+    Pose2d pose = drivetrain.getPose();
+
+    PathPlannerLogging.logCurrentPose(pose);
+    PathPlannerLogging.logTargetPose(targetState.pose);
+    drivetrain.autoDrive(controller.calculateRobotRelativeSpeeds(pose, targetState));
+  }
+
+  @Override
+  public boolean isFinished() {
+    return timer.hasElapsed(trajectory.getTotalTimeSeconds());
+  }
+
+  @Override
+  public void end(boolean interrupted) {
+    timer.stop();
+    if (!interrupted && Math.abs(trajectory.getEndLinearVelocity()) < kStoppedSpeedMPS) {
+      drivetrain.autoDrive(new ChassisSpeeds());
+    }
+  }
+}
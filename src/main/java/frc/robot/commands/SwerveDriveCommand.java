@@ -2,21 +2,40 @@ package frc.robot.commands;
 
 import edu.wpi.first.wpilibj2.command.Command;
 
-
-import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import frc.robot.Constants;
+import frc.robot.Constants.TelemetryConstants;
 import frc.robot.subsystems.Drivetrain;
+import frc.robot.util.AllocationCounter;
 import frc.robot.util.DriverOI;
+import frc.robot.util.Telemetry;
 
 public class SwerveDriveCommand extends Command {
-  private Drivetrain drivetrain = Drivetrain.getInstance();
-  private DriverOI driverOI = DriverOI.getInstance();
+  private final Drivetrain drivetrain;
+  private final DriverOI driverOI;
+
+  private final Telemetry.DoubleSignal xAxisSignal, yAxisSignal, corXSignal, corYSignal, rotationSignal, allocatedBytesSignal;
 
   /** Creates a new SwerveDriveCommand. */
   public SwerveDriveCommand() {
+    this(Drivetrain.getInstance(), DriverOI.getInstance());
+  }
+
+  /**
+   * @param drivetrain Drivetrain to drive, the allocation test passes in one on fake IO
+   * @param driverOI Where the sticks come from
+   */
+  public SwerveDriveCommand(Drivetrain drivetrain, DriverOI driverOI) {
+    this.drivetrain = drivetrain;
+    this.driverOI = driverOI;
     // Use addRequirements() here to declare subsystem dependencies.
     addRequirements(drivetrain);
+
+    Telemetry telemetry = Telemetry.getInstance();
+    xAxisSignal = telemetry.addDouble("FR - X Axis", TelemetryConstants.kDriverDebugRateHz, true);
+    yAxisSignal = telemetry.addDouble("FR - Y Axis", TelemetryConstants.kDriverDebugRateHz, true);
+    corXSignal = telemetry.addDouble("FR - COR X", TelemetryConstants.kDriverDebugRateHz, true);
+    corYSignal = telemetry.addDouble("FR - COR Y", TelemetryConstants.kDriverDebugRateHz, true);
+    rotationSignal = telemetry.addDouble("FR - Rotation", TelemetryConstants.kDriverDebugRateHz, true);
+    allocatedBytesSignal = telemetry.addDouble("Drive Path Bytes Allocated", TelemetryConstants.kDriverDebugRateHz, true);
   }
 
   // Called when the command is initially scheduled.
@@ -27,20 +46,28 @@ public class SwerveDriveCommand extends Command {
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
-    Translation2d position = driverOI.getSwerveTranslation();
-    Double rotation = driverOI.getRotation();
-    Translation2d centerOfRotation = driverOI.getCenterOfRotation();
-
-    if(Constants.debugMode){
-      SmartDashboard.putNumber("FR - X Axis", position.getX());
-      SmartDashboard.putNumber("FR - Y Axis", position.getY());
-      SmartDashboard.putNumber("FR - COR X", centerOfRotation.getX());
-      SmartDashboard.putNumber("FR - COR Y", centerOfRotation.getY());
-      SmartDashboard.putNumber("FR - Rotation", rotation);
+    long allocatedBytesStart = AllocationCounter.getThreadAllocatedBytes();
+
+    driverOI.updateSwerveTranslation();
+    driverOI.updateCenterOfRotation();
+    double rotation = driverOI.getRotation();
+
+    if(xAxisSignal.isEnabled()){
+      xAxisSignal.set(driverOI.getSwerveTranslationX());
+      yAxisSignal.set(driverOI.getSwerveTranslationY());
+      corXSignal.set(driverOI.getCenterOfRotationX());
+      corYSignal.set(driverOI.getCenterOfRotationY());
+      rotationSignal.set(rotation);
     }
 
 
-    drivetrain.drive(position, rotation, true, centerOfRotation);
+    drivetrain.drive(driverOI.getSwerveTranslationX(), driverOI.getSwerveTranslationY(), rotation, true,
+      driverOI.getCenterOfRotationX(), driverOI.getCenterOfRotationY());
+
+    if(allocatedBytesSignal.isEnabled()){
+      // Should read 0 once the drive path is warmed up
+      allocatedBytesSignal.set(AllocationCounter.getThreadAllocatedBytes() - allocatedBytesStart);
+    }
 
   }
 
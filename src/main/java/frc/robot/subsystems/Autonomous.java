@@ -1,32 +1,83 @@
 package frc.robot.subsystems;
 
-import java.util.Hashtable;
-
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.commands.PathPlannerAuto;
+import com.pathplanner.lib.path.PathPlannerPath;
 
-import java.util.Enumeration;
-
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.Command;
-
-
+import edu.wpi.first.wpilibj2.command.Commands;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.commands.FollowCachedTrajectoryCommand;
+import frc.robot.util.AutoFile;
+import frc.robot.util.CachedTrajectory;
+import frc.robot.util.InputLog;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.TrajectoryCache;
+
+/**
+ * Offers every .auto file in deploy/pathplanner/autos on the dashboard and builds only the one
+ * that is selected, for the alliance the robot is on. While disabled the selected routine is
+ * prepared on a background thread, again whenever the selection or the alliance changes, so
+ * autonomousInit() only has to schedule it.
+ *
+ * <p>The background thread loads the paths, or the cached trajectories with their pages read in,
+ * and builds each step of the routine. The steps are put in a sequence on the main thread, since
+ * composing commands registers them with the scheduler.
+ */
 public class Autonomous extends SubsystemBase{
     private static Autonomous m_autonomous;
 
-    private SendableChooser<Command> autoRoutineChooser;
-    private Hashtable<String, Command> autoRoutines;
+    private final SendableChooser<String> autoRoutineChooser;
+    // Every auto, sorted. The selection is recorded as an index into this
+    private final List<String> autoNames;
+    private final int selectedRoutineInput;
+
+    private final File autoDirectory;
+    private final TrajectoryCache trajectoryCache;
+    private final ExecutorService preloader;
+    private final LoopProfiler.Section periodicSection = LoopProfiler.getInstance().addSection("Autonomous.periodic");
 
-    private PathPlannerAuto driveOut, reverseDriveOut, centerDriveOut, yeetAgain;
+    // Routines ready to schedule by name and alliance, only used on the main thread
+    private final Map<String, Command> routines = new HashMap<>();
+    // Steps being built on the preloader, null when it is idle
+    private Future<Command[]> preparingSteps;
+    private String preparingName;
+    private boolean preparingRed;
+    private String failedKey;
 
 
     public Autonomous(){
-        defineAutoPaths(); // Really just the auto calls for pathplanner
-        autoRoutines = new Hashtable<String, Command>();
-        autoRoutineChooser = new SendableChooser<Command>();
-        setupAutoRoutines();
+        File deployDirectory = Filesystem.getDeployDirectory();
+        autoDirectory = new File(deployDirectory, "pathplanner/autos");
+        trajectoryCache = TrajectoryCache.load(deployDirectory, AutoConstants.kTrajectoryCacheFile);
+        autoNames = AutoFile.findAutos(autoDirectory);
+        autoRoutineChooser = new SendableChooser<String>();
+        selectedRoutineInput = InputLog.getInstance().registerDouble(InputLog.kPrefix + "Autonomous/SelectedRoutine");
         setupAutoSelector();
+
+        // The steps need the drivetrain, make sure it exists before another thread asks for it
+        Drivetrain.getInstance();
+        preloader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AutoPreloader");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     public static Autonomous getInstance(){
@@ -36,34 +87,159 @@ public class Autonomous extends SubsystemBase{
         return m_autonomous;
     }
 
-    public void setupAutoRoutines(){
-        autoRoutines.put("Drive Out", driveOut);
-        autoRoutines.put("Reverse Drive Out", reverseDriveOut);
-        autoRoutines.put("Center Drive Out", centerDriveOut);
-        autoRoutines.put("Yeet", yeetAgain);
+    public void setupAutoSelector(){
+        for(String autoName : autoNames){
+            autoRoutineChooser.addOption(autoName, autoName);
+        }
+
+        SmartDashboard.putData("Auto Routines", autoRoutineChooser);
     }
 
-    public void setupAutoSelector(){
-        Enumeration<String> e = autoRoutines.keys();
+    /**
+     * @return Every auto on the chooser, sorted
+     */
+    public List<String> getAutoNames(){
+        return Collections.unmodifiableList(autoNames);
+    }
+
+    /**
+     * @return The blue trajectory of the first cached auto's first path, or null if nothing is cached
+     */
+    public CachedTrajectory getFirstCachedTrajectory(){
+        for(String autoName : autoNames){
+            TrajectoryCache.CachedAuto cachedAuto = trajectoryCache.get(autoName);
+            if(cachedAuto != null){
+                return cachedAuto.getTrajectory(0, false);
+            }
+        }
+        return null;
+    }
 
-        while(e.hasMoreElements()){
-            String autoRoutineName = e.nextElement();
-            autoRoutineChooser.addOption(autoRoutineName, autoRoutines.get(autoRoutineName));
-        };
+    /**
+     * Keeps the selected routine built for the current alliance while disabled, one preparation at
+     * a time. A preparation that finishes after the selection moved on is kept for if it comes back.
+     */
+    @Override
+    public void periodic(){
+        periodicSection.start();
+        updatePreparation();
+        periodicSection.stop();
+    }
 
-        SmartDashboard.putData("Auto Routines", autoRoutineChooser);
+    private void updatePreparation(){
+        if(preparingSteps != null && preparingSteps.isDone()){
+            finishPreparing();
+        }
+        if(!DriverStation.isDisabled() || preparingSteps != null){
+            return;
+        }
+
+        String selected = autoRoutineChooser.getSelected();
+        boolean red = AutoBuilder.shouldFlip();
+        String key = selected == null ? null : getKey(selected, red);
+        if(key != null && !routines.containsKey(key) && !key.equals(failedKey)){
+            preparingName = selected;
+            preparingRed = red;
+            preparingSteps = preloader.submit(() -> prepareSteps(selected, red));
+        }
+    }
+
+    private void finishPreparing(){
+        String key = getKey(preparingName, preparingRed);
+        try{
+            Command[] steps = preparingSteps.get();
+            // autonomousInit() may have built it while this was running, keep the one it scheduled
+            if(!routines.containsKey(key)){
+                routines.put(key, composeRoutine(preparingName, steps));
+            }
+        }catch(InterruptedException | ExecutionException e){
+            DriverStation.reportError("Could not prepare auto " + key + ": " + e.getCause(), false);
+            // Not tried again until the selection changes, autonomousInit() tries once more
+            failedKey = key;
+        }
+        preparingSteps = null;
     }
 
     public Command returnAutonomousCommand(){
-        return autoRoutineChooser.getSelected();
+        // The dashboard selection is an input too, replay picks the routine that actually ran
+        int selected = autoNames.indexOf(autoRoutineChooser.getSelected());
+        selected = (int) InputLog.getInstance().process(selectedRoutineInput, selected);
+        return selected < 0 ? null : getRoutine(autoNames.get(selected), AutoBuilder.shouldFlip());
     }
 
-    public void defineAutoPaths(){
-        driveOut = new PathPlannerAuto("DriveOut");
-        reverseDriveOut = new PathPlannerAuto("DriveOutReverse");
-        centerDriveOut = new PathPlannerAuto("CenterDriveOut");
-        yeetAgain = new PathPlannerAuto("Yeet2");
+    /**
+     * @return The routine for an alliance, built now if it was not preloaded
+     */
+    public Command getRoutine(String autoName, boolean red){
+        String key = getKey(autoName, red);
+        Command routine = routines.get(key);
+        if(routine == null){
+            if(DriverStation.isEnabled()){
+                DriverStation.reportWarning("Auto " + key + " was not preloaded, building it now", false);
+            }
+            Command[] steps;
+            try{
+                steps = prepareSteps(autoName, red);
+            }catch(Exception e){
+                DriverStation.reportError("Could not prepare auto " + key + ", leaving it to PathPlanner: " + e, false);
+                steps = null;
+            }
+            routine = composeRoutine(autoName, steps);
+            routines.put(key, routine);
+        }
+        return routine;
+    }
+
+    /**
+     * Builds every step of a routine, safe to run off the main thread.
+     * @return The steps in order, or null if the auto does more than follow paths
+     */
+    private Command[] prepareSteps(String autoName, boolean red) throws Exception{
+        TrajectoryCache.CachedAuto cachedAuto = trajectoryCache.get(autoName);
+        if(cachedAuto != null){
+            Command[] steps = new Command[cachedAuto.getPathCount() + 1];
+            Pose2d startingPose = cachedAuto.getTrajectory(0, red).getInitialPose();
+            steps[0] = cachedAuto.getResetOdom()
+                ? Commands.runOnce(() -> Drivetrain.getInstance().resetPose(startingPose))
+                : Commands.none();
+            for(int path = 0; path < cachedAuto.getPathCount(); path++){
+                CachedTrajectory trajectory = cachedAuto.getTrajectory(path, red);
+                trajectory.preload();
+                steps[path + 1] = new FollowCachedTrajectoryCommand(trajectory);
+            }
+            return steps;
+        }
+
+        // Not cached, PathPlanner generates the trajectory for blue now and flips it when the path starts
+        AutoFile autoFile = AutoFile.read(new File(autoDirectory, autoName + ".auto"));
+        List<String> pathNames = autoFile.getPathNames();
+        if(pathNames == null){
+            return null;
+        }
+        Command[] steps = new Command[pathNames.size() + 1];
+        steps[0] = Commands.none();
+        for(int path = 0; path < pathNames.size(); path++){
+            PathPlannerPath pathPlannerPath = PathPlannerPath.fromPathFile(pathNames.get(path));
+            if(path == 0 && autoFile.getResetOdom()){
+                steps[0] = AutoBuilder.resetOdom(pathPlannerPath.getStartingHolonomicPose().orElseThrow());
+            }
+            steps[path + 1] = AutoBuilder.followPath(pathPlannerPath);
+        }
+        return steps;
+    }
+
+    /**
+     * Puts the steps in a sequence, main thread only. Autos that do more than follow paths are left
+     * to PathPlannerAuto.
+     */
+    private Command composeRoutine(String autoName, Command[] steps){
+        Command routine = steps == null ? new PathPlannerAuto(autoName) : Commands.sequence(steps);
+        routine.setName(autoName);
+        return routine;
+    }
 
+    private static String getKey(String autoName, boolean red){
+        return autoName + (red ? " Red" : " Blue");
     }
 
-}
\ No newline at end of file
+}
@@ -7,67 +7,142 @@ import com.pathplanner.lib.config.RobotConfig;
 import com.pathplanner.lib.controllers.PPHolonomicDriveController;
 import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
 
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
 // import com.pathplanner.lib.auto.AutoBuilder;
 // import com.pathplanner.lib.util.HolonomicPathFollowerConfig;
 // import com.pathplanner.lib.util.PIDConstants;
 // import com.pathplanner.lib.util.PathPlannerLogging;
 // import com.pathplanner.lib.util.ReplanningConfig;
 
-import edu.wpi.first.math.VecBuilder;
-import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
-import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 
-import edu.wpi.first.networktables.NetworkTableInstance;
-import edu.wpi.first.networktables.StructArrayPublisher;
-import edu.wpi.first.networktables.StructPublisher;
 import edu.wpi.first.wpilibj.ADIS16470_IMU;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.SchedulerConstants;
 import frc.robot.Constants.Swerve;
 import frc.robot.Constants.SwerveDriveConstants;
+import frc.robot.Constants.TelemetryConstants;
+import frc.robot.util.AsyncDataLogger;
+import frc.robot.util.DoubleRingBuffer;
+import frc.robot.util.DrivetrainState;
+import frc.robot.util.FastPoseEstimator;
+import frc.robot.util.FastSwerveKinematics;
+import frc.robot.util.GyroSample;
+import frc.robot.util.GyroIO;
+import frc.robot.util.GyroIOADIS16470;
+import frc.robot.util.GyroService;
+import frc.robot.util.HardwareReadCounter;
+import frc.robot.util.HeadingCorrector;
+import frc.robot.util.InputLog;
+import frc.robot.util.LoadShedder;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.MultiRateScheduler;
+import frc.robot.util.OdometryThread;
+import frc.robot.util.SwerveModuleConstants;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Priority;
 
 public class Drivetrain extends SubsystemBase{
     private static Drivetrain drivetrain;
 
-    private SwerveModuleState[] swerveModuleStates;
-    private SwerveModulePosition[] swerveModulePositions;
+    // Indexed by module number to match the order of SwerveDriveConstants.kinematics
+    private final double[] moduleDistances = new double[4];
+    private final double[] moduleAngles = new double[4];
+    private final FastSwerveKinematics kinematics;
+    // Main loop only, kinematics belongs to drive control
+    private final FastSwerveKinematics measuredKinematics;
+    // Drive control only, under driveControlLock
+    private final double[] controlModuleAngles = new double[4];
 
     private final Mk4TTBSwerve[] swerveModules;
     private final Mk4TTBSwerve frontLeftSwerveModule, backRightSwerveModule, backLeftSwerveModule, frontRightSwerveModule;
 
-    private double lastestChassisSpeed;
+    // Written by the drive control thread
+    private volatile double lastestChassisSpeed;
+
+    private final GyroService gyro;
+    private final DoubleRingBuffer odometryTimestampBuffer;
+    private final double[] odometryTimestamps;
+    private int odometrySampleCount;
+
+    /*
+     * Drive control runs on the main loop when a command drives and again on the DriveControl
+     * thread between loops. Everything the control step touches is guarded by driveControlLock:
+     * the drive request, the heading correction state, the kinematics, the module setpoints and
+     * IO, and the module and gyro inputs. The main loop is the only writer of the inputs, so it
+     * reads them without the lock.
+     */
+    private final ReentrantLock driveControlLock = new ReentrantLock();
+
+    private enum DriveRequest{
+        NONE, TELEOP, AUTO
+    }
+
+    private DriveRequest driveRequest = DriveRequest.NONE;
+    private double requestXSpeed, requestYSpeed, requestRotation;
+    private double requestCenterOfRotationX, requestCenterOfRotationY;
+    private boolean requestFieldOriented;
+    private double requestTime;
+    // Heading corrected rotation of the last request. The corrector takes a fraction of the error
+    // per call and is tuned at the main loop rate, so only new requests run it
+    private double requestCorrectedRotation;
+    private double lastControlTime = Double.NEGATIVE_INFINITY;
 
-    private final ADIS16470_IMU gyro;
-    private double heading;
-    private boolean isFlipped;
+    // Set by commands, read by the control step
+    private volatile boolean isFlipped;
 
     private boolean useHeadingCorrection;
-    private Rotation2d correctHeadingTargetHeading;
-    private Timer correctHeadingTimer;
-    private double correctHeadingPreviousTime;
-    private double correctHeadingOffTime;
+    private final HeadingCorrector headingCorrector;
+    // Set while DriveWarmup runs requests, the modules are sent zero speed
+    private boolean holdOutputs;
 
     private Field2d m_field = new Field2d();
-    private final SwerveDrivePoseEstimator odometry;
-
-    private final StructArrayPublisher<SwerveModuleState> publisher;
-    private final StructPublisher<Pose2d> posPublisher;
+    private final FastPoseEstimator odometry;
+
+    // Replaced whole by the main loop after every odometry update, readers on any thread never block
+    private final AtomicReference<DrivetrainState> state = new AtomicReference<>();
+    private final double[] stateModuleSpeeds = new double[4];
+    private final double[] stateModuleAngles = new double[4];
+
+    private final Telemetry.StructArraySignal<SwerveModuleState> moduleStatesSignal;
+    private final Telemetry.StructSignal<Pose2d> poseSignal;
+    private final Telemetry.DoubleSignal hardwareReadsSignal, matchTimeSignal, suppressedWritesSignal;
+    private final Telemetry.DoubleSignal gyroHeadingSignal, gyroYawRateSignal, gyroPitchSignal, gyroRollSignal;
+    private final Telemetry.BooleanSignal idleModeConfirmedSignal;
+    private final Telemetry.DoubleSignal logDroppedRecordsSignal;
+
+    // Drive log entries
+    private final AsyncDataLogger logger;
+    private final LoopProfiler.Section periodicSection;
+    private final int poseXLog, poseYLog, poseRotationLog;
+    private final int odometryTimestampsInput;
 
     RobotConfig robotConfig;
 
     // Mutable holder for unit-safe voltage values, persisted to avoid reallocation.
 
     public Drivetrain(){
+        this(new ModuleIO[] {
+                createModuleIO(0, Swerve.Mod0.constants),
+                createModuleIO(1, Swerve.Mod1.constants),
+                createModuleIO(2, Swerve.Mod2.constants),
+                createModuleIO(3, Swerve.Mod3.constants)
+            }, createGyroIO());
 
         try{
             robotConfig = RobotConfig.fromGUISettings();
@@ -75,65 +150,14 @@ public class Drivetrain extends SubsystemBase{
             e.printStackTrace();
         }
 
-        SmartDashboard.putData("Field",m_field);
-        posPublisher = NetworkTableInstance.getDefault().getStructTopic("Robot Current Pose", Pose2d.struct).publish();
-
-
-        publisher = NetworkTableInstance.getDefault().getStructArrayTopic("/SwerveStates", SwerveModuleState.struct).publish();
-
-        frontLeftSwerveModule = new Mk4TTBSwerve(0, Swerve.Mod0.constants);
-        frontRightSwerveModule = new Mk4TTBSwerve(1, Swerve.Mod1.constants);
-        backLeftSwerveModule = new Mk4TTBSwerve(2, Swerve.Mod2.constants);
-        backRightSwerveModule = new Mk4TTBSwerve(3 , Swerve.Mod3.constants);
-
-        swerveModules = new Mk4TTBSwerve[] {
-            frontLeftSwerveModule,
-            frontRightSwerveModule,
-            backRightSwerveModule,
-            backLeftSwerveModule
-            };
-
-        swerveModulePositions = new SwerveModulePosition[] {
-            frontLeftSwerveModule.getPosition(),
-            frontRightSwerveModule.getPosition(),
-            backRightSwerveModule.getPosition(),
-            backLeftSwerveModule.getPosition(),
-            };
-
-        gyro = new ADIS16470_IMU();
-        isFlipped = false;
-
-        lastestChassisSpeed = 0.0;
-
-        odometry = new SwerveDrivePoseEstimator(
-        SwerveDriveConstants.kinematics, 
-        getHeadingAsRotation2d(), 
-            new SwerveModulePosition[]
-            {
-                frontLeftSwerveModule.getPosition(),
-                frontRightSwerveModule.getPosition(),
-                backRightSwerveModule.getPosition(),
-                backLeftSwerveModule.getPosition()
-                }, 
-                new Pose2d(), 
-                VecBuilder.fill(0.1, 0.1, 0.1), 
-                VecBuilder.fill(0.9,0.9,0.9));
-
-        useHeadingCorrection = true;
-        correctHeadingTimer = new Timer();
-        correctHeadingTimer.start();
-        correctHeadingPreviousTime = 0.0;
-        correctHeadingOffTime = 0.0;
-        correctHeadingTargetHeading = getHeadingAsRotation2d();
-
         AutoBuilder.configure(
             this::getPose,
             this::resetPose,
             this::getRobotChassisSpeeds,
             (speeds, feedfowards) -> autoDrive(speeds),
             new PPHolonomicDriveController(
-                new PIDConstants(0.1,0,0),
-                new PIDConstants(0.4,0,0)
+                new PIDConstants(AutoConstants.kPathTranslationP,0,0),
+                new PIDConstants(AutoConstants.kPathRotationP,0,0)
             ),
             robotConfig,
             ()-> {
@@ -149,6 +173,110 @@ public class Drivetrain extends SubsystemBase{
             },
             this // Reference to this subsystem to set requirements
         );
+
+        // Every module and the gyro have registered their signals by now. Replay takes the samples from the log.
+        if(Constants.currentMode != Constants.Mode.REPLAY){
+            OdometryThread.getInstance().start();
+        }
+        if(Constants.currentMode == Constants.Mode.SIM){
+            SwerveDriveSim.getInstance().start();
+        }
+
+        MultiRateScheduler.getInstance().addRealtime("DriveControl",
+            SchedulerConstants.kDriveControlPeriodSeconds, SchedulerConstants.kDriveControlPriority, this::runDriveControl);
+    }
+
+    /**
+     * Drivetrain on the given hardware, with no odometry thread, control thread or PathPlanner
+     * setup. The tests drive it through fake IO.
+     * @param moduleIOs Indexed by module number
+     */
+    Drivetrain(ModuleIO[] moduleIOs, GyroIO gyroIO){
+        SmartDashboard.putData("Field",m_field);
+        Telemetry telemetry = Telemetry.getInstance();
+        poseSignal = telemetry.addStruct("Robot Current Pose", Pose2d.struct, TelemetryConstants.kPoseRateHz, Priority.CRITICAL);
+        moduleStatesSignal = telemetry.addStructArray("/SwerveStates", SwerveModuleState.struct, TelemetryConstants.kModuleStateRateHz, Priority.DISPLAY);
+        hardwareReadsSignal = telemetry.addDouble("Hardware Reads Per Loop", TelemetryConstants.kStatusRateHz);
+        matchTimeSignal = telemetry.addDouble("Match Time", TelemetryConstants.kStatusRateHz, Priority.CRITICAL);
+        suppressedWritesSignal = telemetry.addDouble("Suppressed Setpoint Writes", TelemetryConstants.kStatusRateHz);
+        idleModeConfirmedSignal = telemetry.addBoolean("Drive Idle Mode Confirmed", TelemetryConstants.kStatusRateHz, Priority.CRITICAL);
+        gyroHeadingSignal = telemetry.addDouble("Gyro Heading", TelemetryConstants.kGyroHeadingRateHz);
+        gyroYawRateSignal = telemetry.addDouble("Gyro Yaw Rate", TelemetryConstants.kGyroHeadingRateHz);
+        gyroPitchSignal = telemetry.addDouble("Gyro Pitch", TelemetryConstants.kGyroTiltRateHz);
+        gyroRollSignal = telemetry.addDouble("Gyro Roll", TelemetryConstants.kGyroTiltRateHz);
+        logDroppedRecordsSignal = telemetry.addDouble("Log Dropped Records", TelemetryConstants.kStatusRateHz);
+
+        logger = AsyncDataLogger.getInstance();
+        periodicSection = LoopProfiler.getInstance().addSection("Drivetrain.periodic");
+        poseXLog = logger.registerDouble("/Drivetrain/Pose/XMeters");
+        poseYLog = logger.registerDouble("/Drivetrain/Pose/YMeters");
+        poseRotationLog = logger.registerDouble("/Drivetrain/Pose/RotationRadians");
+        odometryTimestampsInput = InputLog.getInstance().registerArray(InputLog.kPrefix + "Drivetrain/OdometryTimestamps");
+
+        kinematics = new FastSwerveKinematics(SwerveDriveConstants.swerveModuleLocations);
+        measuredKinematics = new FastSwerveKinematics(SwerveDriveConstants.swerveModuleLocations);
+
+        frontLeftSwerveModule = new Mk4TTBSwerve(0, Swerve.Mod0.constants, moduleIOs[0]);
+        frontRightSwerveModule = new Mk4TTBSwerve(1, Swerve.Mod1.constants, moduleIOs[1]);
+        backLeftSwerveModule = new Mk4TTBSwerve(2, Swerve.Mod2.constants, moduleIOs[2]);
+        backRightSwerveModule = new Mk4TTBSwerve(3 , Swerve.Mod3.constants, moduleIOs[3]);
+
+        swerveModules = new Mk4TTBSwerve[] {
+            frontLeftSwerveModule,
+            frontRightSwerveModule,
+            backRightSwerveModule,
+            backLeftSwerveModule
+            };
+
+        gyro = new GyroService(gyroIO);
+        odometryTimestampBuffer = OdometryThread.getInstance().getTimestampBuffer();
+        odometryTimestamps = new double[odometryTimestampBuffer.capacity()];
+        isFlipped = false;
+
+        lastestChassisSpeed = 0.0;
+
+        for(Mk4TTBSwerve module : swerveModules){
+            moduleDistances[module.getModuleNumber()] = module.getDistanceMeters();
+        }
+        odometry = new FastPoseEstimator(
+            SwerveDriveConstants.swerveModuleLocations,
+            getHeadingAsRotation2d().getRadians(),
+            moduleDistances,
+            new Pose2d(),
+            SwerveDriveConstants.kStateStdDevs,
+            SwerveDriveConstants.kPoseHistorySeconds,
+            SwerveDriveConstants.kPoseHistorySize,
+            SwerveDriveConstants.kVisionUpdateHistorySize);
+        publishState();
+
+        useHeadingCorrection = true;
+        headingCorrector = new HeadingCorrector(getHeadingAsRotation2d().getRadians(), InputLog.getInstance().getTimestamp());
+    }
+
+    private static ModuleIO createModuleIO(int moduleNum, SwerveModuleConstants constants){
+        switch(Constants.currentMode){
+            case REAL:
+                return new ModuleIOSparkMax(moduleNum, constants);
+            case SIM:
+                ModuleIOSparkMax io = new ModuleIOSparkMax(moduleNum, constants);
+                SwerveDriveSim.getInstance().addModule(moduleNum, constants, io);
+                return io;
+            default:
+                return new ModuleIO(){};
+        }
+    }
+
+    private static GyroIO createGyroIO(){
+        switch(Constants.currentMode){
+            case REAL:
+                return new GyroIOADIS16470();
+            case SIM:
+                ADIS16470_IMU simGyro = new ADIS16470_IMU();
+                SwerveDriveSim.getInstance().setGyro(simGyro);
+                return new GyroIOADIS16470(simGyro);
+            default:
+                return new GyroIO(){};
+        }
     }
 
     public static Drivetrain getInstance(){
@@ -164,152 +292,427 @@ public class Drivetrain extends SubsystemBase{
     }
 
     public void setUseHeadingCorrection(boolean enable){
-        useHeadingCorrection = enable;
+        driveControlLock.lock();
+        try{
+            useHeadingCorrection = enable;
+        }finally{
+            driveControlLock.unlock();
+        }
     }
 
+    /**
+     * Sends module states directly. Clears the drive request so the control thread leaves them alone.
+     */
     public void setSwerveModuleStates(SwerveModuleState[] swerveModuleStates){
         SwerveDriveKinematics.desaturateWheelSpeeds(swerveModuleStates, SwerveDriveConstants.kRealMaxSpeedMPS); //12.5 per SDS for L1
     
-        // for(int i=0; i < swerveModules.length; i++){
-        //     swerveModules[i].setDesiredState(swerveModuleStates[i]);
-        // }
-        for(Mk4TTBSwerve module : swerveModules){
-            module.setDesiredState(swerveModuleStates[module.getModuleNumber()]);
+        driveControlLock.lock();
+        try{
+            driveRequest = DriveRequest.NONE;
+            for(Mk4TTBSwerve module : swerveModules){
+                module.setDesiredState(swerveModuleStates[module.getModuleNumber()]);
+            }
+        }finally{
+            driveControlLock.unlock();
         }
-
     }
 
-    public void stopSwerveModules(){
+    /**
+     * Desaturates, optimizes and sends the module states held in {@link #kinematics} without
+     * allocating. Must be called while holding {@link #driveControlLock}.
+     * @param newRequest True when a command just made the request, its states are logged for replay
+     */
+    private void setSwerveModuleStatesFromKinematics(double timestamp, boolean newRequest){
+        kinematics.desaturateWheelSpeeds(SwerveDriveConstants.kRealMaxSpeedMPS);
         for(Mk4TTBSwerve module : swerveModules){
-            module.stop();
+            controlModuleAngles[module.getModuleNumber()] = module.getAngleRadians();
         }
-    }
+        kinematics.optimize(controlModuleAngles);
 
-    public ChassisSpeeds getRobotChassisSpeeds(){
-        return SwerveDriveConstants.kinematics.toChassisSpeeds(
-            frontLeftSwerveModule.getState(),
-            frontRightSwerveModule.getState(),
-            backRightSwerveModule.getState(), 
-            backLeftSwerveModule.getState()
-            );
+        for(Mk4TTBSwerve module : swerveModules){
+            if(holdOutputs){
+                // Everything above ran, but the module stays stopped pointing where it already is
+                module.setDesiredState(0.0, controlModuleAngles[module.getModuleNumber()], timestamp);
+            }else{
+                module.setDesiredState(kinematics.getModuleSpeed(module.getModuleNumber()), 
+                    kinematics.getModuleAngle(module.getModuleNumber()), timestamp);
+            }
+            if(newRequest){
+                module.logRequestedState();
+            }
+        }
     }
 
-    private ChassisSpeeds correctHeading(ChassisSpeeds desiredSpeed){
-        double correctHeadingCurrentTime = correctHeadingTimer.get();
-        double dt = correctHeadingCurrentTime - correctHeadingPreviousTime;
-
-        double vr = desiredSpeed.omegaRadiansPerSecond;
-        double v = Math.sqrt(Math.pow(desiredSpeed.vxMetersPerSecond, 2) + Math.pow(desiredSpeed.vyMetersPerSecond, 2));
+    /**
+     * While set, drive requests run the whole control step but every module is sent zero speed at
+     * its current angle, so {@link frc.robot.util.DriveWarmup} can exercise it while disabled.
+     * Clearing it drops the request and forgets the heading the warmup left behind.
+     */
+    public void setHoldOutputs(boolean hold){
+        driveControlLock.lock();
+        try{
+            holdOutputs = hold;
+            if(!hold){
+                driveRequest = DriveRequest.NONE;
+                lastestChassisSpeed = 0.0;
+                headingCorrector.reset(getHeadingAsRotation2d().getRadians(), InputLog.getInstance().getTimestamp());
+                for(Mk4TTBSwerve module : swerveModules){
+                    module.stop();
+                }
+            }
+        }finally{
+            driveControlLock.unlock();
+        }
+    }
 
-        if(vr > 0.01 || vr < -0.01){
-            correctHeadingOffTime = correctHeadingCurrentTime;
-            correctHeadingTargetHeading = getHeadingAsRotation2d();
-            return desiredSpeed;
+    /**
+     * Requests an idle mode on every drive motor. Cheap to call every loop, the change is only
+     * sent when the mode differs and is applied off the main thread.
+     */
+    public void setDriveIdleMode(IdleMode mode){
+        for(Mk4TTBSwerve module : swerveModules){
+            module.setDriveIdleMode(mode);
         }
-        if(correctHeadingCurrentTime - correctHeadingOffTime < 0.5){
-            correctHeadingTargetHeading = getHeadingAsRotation2d();
-            return desiredSpeed;
+    }
+
+    public boolean isDriveIdleModeConfirmed(){
+        for(Mk4TTBSwerve module : swerveModules){
+            if(!module.isDriveIdleModeConfirmed()){
+                return false;
+            }
         }
-        if (v < 0.05){
-            correctHeadingTargetHeading = getHeadingAsRotation2d();
-            return desiredSpeed;
+        return true;
+    }
+
+    public long getSuppressedSetpointWrites(){
+        long suppressedWrites = 0;
+        for(Mk4TTBSwerve module : swerveModules){
+            suppressedWrites += module.getSuppressedSetpointWrites();
         }
+        return suppressedWrites;
+    }
 
-        correctHeadingTargetHeading = correctHeadingTargetHeading.plus(new Rotation2d(vr * dt));
-        Rotation2d currentHeading = getHeadingAsRotation2d();
+    public void stopSwerveModules(){
+        driveControlLock.lock();
+        try{
+            driveRequest = DriveRequest.NONE;
+            for(Mk4TTBSwerve module : swerveModules){
+                module.stop();
+            }
+        }finally{
+            driveControlLock.unlock();
+        }
+    }
 
-        Rotation2d deltaHeading = correctHeadingTargetHeading.minus(currentHeading);
+    /**
+     * @return Robot relative speeds from the latest {@link #getState()}
+     */
+    public ChassisSpeeds getRobotChassisSpeeds(){
+        return state.get().getChassisSpeeds();
+    }
 
-        if(Math.abs(deltaHeading.getDegrees()) < SwerveDriveConstants.kHeadingCorrectionTolerance){
-            return desiredSpeed;
+    /**
+     * Computes the speeds from this loop's module inputs, main loop only. Leaves the module states
+     * in stateModuleSpeeds and stateModuleAngles.
+     */
+    private ChassisSpeeds measureChassisSpeeds(){
+        for(Mk4TTBSwerve module : swerveModules){
+            stateModuleSpeeds[module.getModuleNumber()] = module.getSpeedMetersPerSecond();
+            stateModuleAngles[module.getModuleNumber()] = module.getAngleRadians();
         }
+        measuredKinematics.toChassisSpeeds(stateModuleSpeeds, stateModuleAngles);
+        return new ChassisSpeeds(measuredKinematics.getChassisVx(), measuredKinematics.getChassisVy(),
+            measuredKinematics.getChassisOmega());
+    }
 
-        double correctedVr = deltaHeading.getRadians() / dt * SwerveDriveConstants.kHeadingCorrectionP;
+    /**
+     * @return Latest pose, speeds and module states, safe to call from any thread
+     */
+    public DrivetrainState getState(){
+        return state.get();
+    }
 
-        correctHeadingPreviousTime = correctHeadingCurrentTime;
-        return new ChassisSpeeds(
-            desiredSpeed.vxMetersPerSecond,
-            desiredSpeed.vyMetersPerSecond,
-            correctedVr);
+    /**
+     * Replaces the published state with one built from this loop's inputs and the estimator.
+     * Main loop only, after anything that changes the pose.
+     */
+    private void publishState(){
+        ChassisSpeeds speeds = measureChassisSpeeds();
+        state.set(new DrivetrainState(odometry.getEstimatedPosition(), speeds.vxMetersPerSecond, speeds.vyMetersPerSecond,
+            speeds.omegaRadiansPerSecond, stateModuleSpeeds, stateModuleAngles, InputLog.getInstance().getTimestamp()));
     }
 
     public void drive(Translation2d translation, double rotation, boolean fieldOriented, Translation2d centerOfRoation){
+        drive(translation.getX(), translation.getY(), rotation, fieldOriented, centerOfRoation.getX(), centerOfRoation.getY());
+    }
+
+    /**
+     * Allocation free version of {@link #drive(Translation2d, double, boolean, Translation2d)}, this is
+     * the one the teleop drive command runs every loop.
+     */
+    public void drive(double xSpeed, double ySpeed, double rotation, boolean fieldOriented, 
+                      double centerOfRotationX, double centerOfRotationY){
         if(DriverStation.isTeleop()){
-            for (Mk4TTBSwerve module : swerveModules){
-                if (module.getDriveIdleMode().equals(IdleMode.kBrake)){
-                    module.toggleDriveIdleMode();
-                }
-            }
+            setDriveIdleMode(IdleMode.kCoast);
         }
-        double adjustedRotation = Constants.SwerveDriveConstants.MAXROTATIONRATE * rotation; // Max turn rate in Radians
+        setDriveRequest(DriveRequest.TELEOP, xSpeed, ySpeed, rotation, fieldOriented, centerOfRotationX, centerOfRotationY);
+    }
 
+    public void autoDrive(ChassisSpeeds speeds){
+        if(DriverStation.isAutonomous()){
+            setDriveIdleMode(IdleMode.kBrake);
+        }
+        setDriveRequest(DriveRequest.AUTO, speeds.vxMetersPerSecond, speeds.vyMetersPerSecond,
+            speeds.omegaRadiansPerSecond, false, 0.0, 0.0);
+    }
 
-        ChassisSpeeds fieldRelativeSpeeds = new ChassisSpeeds(translation.getX(), translation.getY(), adjustedRotation);
-        ChassisSpeeds robotRelativeSpeeds;
+    /**
+     * Stores the request for the control thread and runs the control step right away, so a new
+     * command never waits for the next control period. The request is stamped with the loop
+     * time, so the heading correction it runs is replayed the same way.
+     */
+    private void setDriveRequest(DriveRequest request, double xSpeed, double ySpeed, double rotation, boolean fieldOriented,
+                                 double centerOfRotationX, double centerOfRotationY){
+        driveControlLock.lock();
+        try{
+            driveRequest = request;
+            requestXSpeed = xSpeed;
+            requestYSpeed = ySpeed;
+            requestRotation = rotation;
+            requestFieldOriented = fieldOriented;
+            requestCenterOfRotationX = centerOfRotationX;
+            requestCenterOfRotationY = centerOfRotationY;
+            requestTime = InputLog.getInstance().getTimestamp();
+            runDriveControlLocked(requestTime, true);
+        }finally{
+            driveControlLock.unlock();
+        }
+    }
 
-        if(useHeadingCorrection){
-            fieldRelativeSpeeds = correctHeading(fieldRelativeSpeeds);
+    /**
+     * Runs on the DriveControl thread. Turns the last drive request into module setpoints again
+     * with the heading moved forward to now, until the request is too old to trust. This runs on
+     * the live clock, replay does not reproduce it.
+     */
+    private void runDriveControl(){
+        driveControlLock.lock();
+        try{
+            double timestamp = Timer.getFPGATimestamp();
+            if(driveRequest == DriveRequest.NONE
+                || timestamp - requestTime > SchedulerConstants.kDriveRequestTimeoutSeconds){
+                return;
+            }
+            runDriveControlLocked(timestamp, false);
+        }finally{
+            driveControlLock.unlock();
         }
+    }
 
-        if(fieldOriented){
-            robotRelativeSpeeds = ChassisSpeeds.fromFieldRelativeSpeeds(fieldRelativeSpeeds, 
-                                Rotation2d.fromDegrees((isFlipped ? 180 : 0) + getHeading()));
-        }else{
-            robotRelativeSpeeds = fieldRelativeSpeeds;
+    /**
+     * Must be called while holding {@link #driveControlLock}.
+     * @param newRequest True when a command just made the request, false when the control thread repeats it
+     */
+    private void runDriveControlLocked(double timestamp, boolean newRequest){
+        // Both threads call this, keep time moving forward for the setpoint filters. The heading
+        // correction only runs on new requests, which all come on loop time.
+        double writeTime = Math.max(timestamp, lastControlTime);
+        lastControlTime = writeTime;
+        double headingRadians = Math.toRadians(getControlHeadingDegrees(timestamp));
+
+        if(driveRequest == DriveRequest.AUTO){
+            //Pathplanner example code, ChassisSpeeds.discretize(speeds, dt) done in place
+            double dt = SchedulerConstants.kDriveDiscretizationSeconds;
+            double dtheta = requestRotation * dt;
+            double halfDtheta = dtheta / 2.0;
+            double cosMinusOne = Math.cos(dtheta) - 1;
+            double halfThetaByTanOfHalfDtheta;
+            if(Math.abs(cosMinusOne) < 1E-9){
+                halfThetaByTanOfHalfDtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+            }else{
+                halfThetaByTanOfHalfDtheta = -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+            }
+            double dx = requestXSpeed * dt;
+            double dy = requestYSpeed * dt;
+            double targetVx = (dx * halfThetaByTanOfHalfDtheta + dy * halfDtheta) / dt;
+            double targetVy = (dy * halfThetaByTanOfHalfDtheta - dx * halfDtheta) / dt;
+
+            kinematics.toSwerveModuleStates(targetVx, targetVy, requestRotation, 0.0, 0.0);
+            setSwerveModuleStatesFromKinematics(writeTime, newRequest);
+            return;
         }
 
+        double adjustedRotation = Constants.SwerveDriveConstants.MAXROTATIONRATE * requestRotation; // Max turn rate in Radians
 
-        lastestChassisSpeed = Math.sqrt(Math.pow(robotRelativeSpeeds.vxMetersPerSecond, 2) + Math.pow(robotRelativeSpeeds.vyMetersPerSecond, 2));
+        if(newRequest){
+            requestCorrectedRotation = useHeadingCorrection
+                ? headingCorrector.calculate(requestXSpeed, requestYSpeed, adjustedRotation, timestamp, headingRadians)
+                : adjustedRotation;
+        }
+        adjustedRotation = requestCorrectedRotation;
+
+        double robotRelativeX = requestXSpeed;
+        double robotRelativeY = requestYSpeed;
+        if(requestFieldOriented){
+            // Same as ChassisSpeeds.fromFieldRelativeSpeeds, rotates the field speeds by -heading
+            double robotAngle = (isFlipped ? Math.PI : 0) + headingRadians;
+            double cos = Math.cos(robotAngle);
+            double sin = Math.sin(robotAngle);
+            robotRelativeX = requestXSpeed * cos + requestYSpeed * sin;
+            robotRelativeY = -requestXSpeed * sin + requestYSpeed * cos;
+        }
 
-        swerveModuleStates = SwerveDriveConstants.kinematics.toSwerveModuleStates(robotRelativeSpeeds, centerOfRoation);
 
-        setSwerveModuleStates(swerveModuleStates);
-    }
+        lastestChassisSpeed = Math.sqrt(robotRelativeX * robotRelativeX + robotRelativeY * robotRelativeY);
 
-    public void autoDrive(ChassisSpeeds speeds){
-        if(DriverStation.isAutonomous()){
-            for (Mk4TTBSwerve module : swerveModules){
-                if (module.getDriveIdleMode().equals(IdleMode.kCoast)){
-                    module.toggleDriveIdleMode();
-                }
-            }
-        }
+        kinematics.toSwerveModuleStates(robotRelativeX, robotRelativeY, adjustedRotation,
+            requestCenterOfRotationX, requestCenterOfRotationY);
+
+        setSwerveModuleStatesFromKinematics(writeTime, newRequest);
+    }
 
-        //Pathplanner example code
-        ChassisSpeeds targetSpeeds = ChassisSpeeds.discretize(speeds, 0.02);
+    /**
+     * @return This loop's gyro heading moved forward to {@code timestamp} with the measured yaw rate
+     */
+    private double getControlHeadingDegrees(double timestamp){
+        GyroSample sample = gyro.getLatestSample();
+        double age = MathUtil.clamp(timestamp - sample.timestampSeconds, 0.0, SchedulerConstants.kMaxHeadingExtrapolationSeconds);
+        return sample.getHeadingDegrees() + sample.yawRateDegreesPerSecond * age;
+    }
 
-        SwerveModuleState[] targetStates = SwerveDriveConstants.kinematics.toSwerveModuleStates(targetSpeeds);
-        setSwerveModuleStates(targetStates);
+    /**
+     * @return This loop's gyro sample, every heading read in a loop comes from the same sample
+     */
+    public GyroSample getGyroSample(){
+        return gyro.getLatestSample();
     }
 
     public double getHeading(){
-        heading = gyro.getAngle(gyro.getYawAxis());
-        return Math.IEEEremainder(heading, 360);
+        return gyro.getLatestSample().getHeadingDegrees();
     }
 
     public Rotation2d getHeadingAsRotation2d(){
-        heading = getHeading();
-        return Rotation2d.fromDegrees(heading);
+        return gyro.getLatestSample().getHeading();
     }
 
     public void resetPose(Pose2d pose){
-        resetGyro();
-        odometry.resetPosition(getHeadingAsRotation2d(),swerveModulePositions, pose);
+        // Autos start by placing the robot, put the simulated one there too
+        if(Constants.currentMode == Constants.Mode.SIM){
+            SwerveDriveSim.getInstance().setPose(pose);
+        }
+        // Samples taken before the reset no longer match the gyro, use them for the inputs only.
+        // Holding the lock keeps the odometry thread from sampling between the drain and the reset.
+        // Same lock order as updateInputs(), drive control first.
+        driveControlLock.lock();
+        OdometryThread.odometryLock.lock();
+        try{
+            updateInputs();
+            resetGyro();
+        }finally{
+            OdometryThread.odometryLock.unlock();
+            driveControlLock.unlock();
+        }
+        odometrySampleCount = 0;
+
+        for(Mk4TTBSwerve module : swerveModules){
+            moduleDistances[module.getModuleNumber()] = module.getDistanceMeters();
+        }
+        odometry.resetPosition(getHeadingAsRotation2d().getRadians(), moduleDistances,
+            pose.getX(), pose.getY(), pose.getRotation().getRadians());
+        publishState();
+    }
+
+    /**
+     * Corrects the pose estimate with a vision pose. Main loop only, the estimator is not locked.
+     * @param timestampSeconds Capture time on the FPGA clock
+     * @return False if the measurement was older than the pose history
+     */
+    public boolean addVisionMeasurement(double xMeters, double yMeters, double rotationRadians, double timestampSeconds,
+                                        double xyStdDevMeters, double rotationStdDevRadians){
+        if(!odometry.addVisionMeasurement(xMeters, yMeters, rotationRadians, timestampSeconds,
+            xyStdDevMeters, rotationStdDevRadians)){
+            return false;
+        }
+        publishState();
+        return true;
     }
 
     public void resetGyro(){
-        gyro.reset();   
+        driveControlLock.lock();
+        try{
+            gyro.reset();
+        }finally{
+            driveControlLock.unlock();
+        }
     }
 
+    /**
+     * @return Pose from the latest {@link #getState()}
+     */
     public Pose2d getPose(){
-        return odometry.getEstimatedPosition();
+        return state.get().pose;
+    }
+
+    /**
+     * Moves every buffered odometry sample out of the OdometryThread buffers.
+     * Must be called while holding {@link OdometryThread#odometryLock}.
+     * @return Number of complete samples available
+     */
+    private int drainOdometrySamples(){
+        int sampleCount = odometryTimestampBuffer.drainTo(odometryTimestamps);
+        sampleCount = Math.min(sampleCount, gyro.drainOdometrySamples());
+        for(Mk4TTBSwerve module : swerveModules){
+            sampleCount = Math.min(sampleCount, module.drainOdometrySamples());
+        }
+        return sampleCount;
+    }
+
+    /**
+     * Drains the odometry samples and refreshes every module's inputs snapshot.
+     * Call once per loop before anything reads module state.
+     */
+    public void updateInputs(){
+        driveControlLock.lock();
+        try{
+            OdometryThread.odometryLock.lock();
+            try{
+                odometrySampleCount = drainOdometrySamples();
+            }finally{
+                OdometryThread.odometryLock.unlock();
+            }
+            odometrySampleCount = InputLog.getInstance().process(odometryTimestampsInput, odometryTimestamps, odometrySampleCount);
+
+            for(Mk4TTBSwerve module : swerveModules){
+                module.updateInputs(odometrySampleCount);
+            }
+            gyro.update(odometrySampleCount);
+        }finally{
+            driveControlLock.unlock();
+        }
     }
 
     public void updateOdometry(){
-        odometry.updateWithTime(Timer.getFPGATimestamp(), getHeadingAsRotation2d(), swerveModulePositions);
+        // Replay every high rate sample so the estimator sees the motion between loops
+        for(int i = 0; i < odometrySampleCount; i++){
+            for(Mk4TTBSwerve module : swerveModules){
+                moduleDistances[module.getModuleNumber()] = module.getOdometryDistanceMeters(i);
+                moduleAngles[module.getModuleNumber()] = module.getOdometryAngleRadians(i);
+            }
+            odometry.updateWithTime(odometryTimestamps[i],
+                Math.toRadians(Math.IEEEremainder(gyro.getOdometryYaw(i), 360)), moduleDistances, moduleAngles);
+        }
         //odometry.update(correctHeadingTargetHeading, swerveModulePositions);
-        m_field.setRobotPose(odometry.getEstimatedPosition());
-        posPublisher.set(getPose());
+        publishState();
+        Pose2d pose = getPose();
+        // Field2d publishes on every call, so it is shed with the other display output
+        if(LoadShedder.getInstance().allows(Priority.DISPLAY)){
+            m_field.setRobotPose(pose);
+        }
+        poseSignal.set(pose);
+
+        long timestamp = RobotController.getFPGATime();
+        logger.log(poseXLog, pose.getX(), timestamp);
+        logger.log(poseYLog, pose.getY(), timestamp);
+        logger.log(poseRotationLog, pose.getRotation().getRadians(), timestamp);
     }
 
     public void setFlipped(){
@@ -326,22 +729,30 @@ public class Drivetrain extends SubsystemBase{
 
     @Override
     public void periodic(){
+        periodicSection.start();
+        // Reads from the previous loop, including the ones made by commands after this periodic()
+        hardwareReadsSignal.set(HardwareReadCounter.getAndReset());
+
+        updateInputs();
+        updateOdometry();
+
         for (Mk4TTBSwerve module : swerveModules){
             module.putSmartDashboard();
-            module.getPosition();
         }
 
-        publisher.set(new SwerveModuleState[]{
-            frontLeftSwerveModule.getState(),
-            frontRightSwerveModule.getState(),
-            backLeftSwerveModule.getState(),
-            backRightSwerveModule.getState()
-        });
+        if(moduleStatesSignal.isDue()){
+            moduleStatesSignal.set(getState().getModuleStates());
+        }
 
-        SmartDashboard.putNumber("Match Time", DriverStation.getMatchTime());
-        SmartDashboard.putNumber("Gyro Heading", getHeading());
-        SmartDashboard.putNumber("Gyro Pitch", gyro.getAngle(gyro.getPitchAxis()));
-        SmartDashboard.putNumber("Gyro Roll", gyro.getAngle(gyro.getRollAxis()));
-        updateOdometry();
+        matchTimeSignal.set(DriverStation.getMatchTime());
+        idleModeConfirmedSignal.set(isDriveIdleModeConfirmed());
+        suppressedWritesSignal.set(getSuppressedSetpointWrites());
+        GyroSample gyroSample = gyro.getLatestSample();
+        gyroHeadingSignal.set(gyroSample.getHeadingDegrees());
+        gyroYawRateSignal.set(gyroSample.yawRateDegreesPerSecond);
+        gyroPitchSignal.set(gyroSample.pitchDegrees);
+        gyroRollSignal.set(gyroSample.rollDegrees);
+        logDroppedRecordsSignal.set(logger.getDroppedRecords());
+        periodicSection.stop();
     }
 }
@@ -1,12 +1,16 @@
 package frc.robot.subsystems;
 
 import com.revrobotics.spark.SparkMax;
+import com.revrobotics.spark.SparkLowLevel.MotorType;
 import com.revrobotics.spark.config.SparkMaxConfig;
 import com.revrobotics.spark.config.ClosedLoopConfig.FeedbackSensor;
 import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.ElevatorConstants;
+import frc.robot.util.CANBudgetManager;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.StatusFrameProfile;
 
 public class Elevator extends SubsystemBase{
     
@@ -15,7 +19,13 @@ public class Elevator extends SubsystemBase{
     private static SparkMax leftLiftMotor, rightLiftMotor;
     private static SparkMaxConfig leftLiftConfig, rightLiftConfig;
 
+    private final LoopProfiler.Section periodicSection = LoopProfiler.getInstance().addSection("Elevator.periodic");
+
     public Elevator(){
+        leftLiftMotor = new SparkMax(ElevatorConstants.leftMotorID, MotorType.kBrushless);
+        rightLiftMotor = new SparkMax(ElevatorConstants.rightMotorID, MotorType.kBrushless);
+        leftLiftConfig = new SparkMaxConfig();
+        rightLiftConfig = new SparkMaxConfig();
         configureMotors();
     }
 
@@ -40,9 +50,21 @@ public class Elevator extends SubsystemBase{
         .maxAcceleration(100) //Default Acceleration is in Motor RPM/s
         .allowedClosedLoopError(10);
 
+        CANBudgetManager.getInstance().applyProfile("Elevator Left", leftLiftConfig, StatusFrameProfile.kElevatorLeader);
+        leftLiftMotor.configure(leftLiftConfig, null, null);
+
         // Right Motor Configuration
         rightLiftConfig.apply(leftLiftConfig);
         rightLiftConfig.follow(ElevatorConstants.leftMotorID,true);
+        CANBudgetManager.getInstance().applyProfile("Elevator Right", rightLiftConfig, StatusFrameProfile.kElevatorFollower);
+        rightLiftMotor.configure(rightLiftConfig, null, null);
         
     }
+
+    @Override
+    public void periodic(){
+        periodicSection.start();
+        // Nothing to update yet, the elevator only runs MAXMotion on the SparkMax
+        periodicSection.stop();
+    }
 }
@@ -1,157 +1,246 @@
 package frc.robot.subsystems;
 
-import com.revrobotics.RelativeEncoder;
-import com.revrobotics.spark.SparkAnalogSensor;
-import com.revrobotics.spark.SparkClosedLoopController;
-import com.revrobotics.spark.SparkMax;
-import com.revrobotics.spark.SparkLowLevel.MotorType;
-import com.revrobotics.spark.config.SparkMaxConfig;
-import com.revrobotics.spark.config.ClosedLoopConfig.FeedbackSensor;
 import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.Timer;
 
+import frc.robot.util.InputLog;
+import frc.robot.util.OdometryThread;
+import frc.robot.util.SetpointFilter;
+import frc.robot.util.AsyncDataLogger;
+import frc.robot.util.Telemetry;
 import frc.robot.util.SwerveModuleConstants;
-import frc.robot.Constants;
+import frc.robot.Constants.LoggingConstants;
 import frc.robot.Constants.SwerveDriveConstants;
-
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Constants.TelemetryConstants;
 
 public class Mk4TTBSwerve{
-    // Turning Spark Information and Calls
-    private final SparkMax m_turningSparkMax;
-    private final SparkMaxConfig m_turningSparkMaxConfig;
-    private final SparkAnalogSensor m_turningEncoder;
-    private final SparkClosedLoopController m_turningController;
-
-    // Driving Spark Information and Calls
-    private final SparkMax m_driveSparkMax;
-    private final SparkMaxConfig m_driveSparkMaxConfig;
-    private final RelativeEncoder m_driveEncoder;
-    private final SparkClosedLoopController m_driveController;
+    private final ModuleIO io;
 
     // Module Information and Calls
     private int moduleNum;
-    private SwerveModuleConstants m_constants;
 
-    private SwerveModuleState state;
-    private SwerveModuleState m_desiredState = new SwerveModuleState(0.0, new Rotation2d());
+    // Last requested state, before the angle offset and optimization
+    private double m_desiredSpeed = 0.0;
+    private double m_desiredAngle = 0.0;
     private double m_angleOffset = 0.0;
 
     private IdleMode driveIdleMode;
+
+    private final ModuleIO.ModuleIOInputs inputs;
+
+    // Debug telemetry, bound once so the keys are not rebuilt every loop
+    private final Telemetry.DoubleSignal actualAngleSignal, offsetSignal, moduleAngleSignal,
+        angleSetpointSignal, speedSetpointSignal, drivePositionSignal;
+
+    // Drive log entries
+    private final AsyncDataLogger logger;
+    private final int speedSetpointLog, angleSetpointLog;
+    private final int requestedSpeedLog, requestedAngleLog;
+
+    private final SetpointFilter m_turnSetpointFilter = new SetpointFilter(
+        SwerveDriveConstants.kTurnSetpointToleranceRad, SwerveDriveConstants.kSetpointKeepAliveSeconds, true);
+    private final SetpointFilter m_driveSetpointFilter = new SetpointFilter(
+        SwerveDriveConstants.kDriveSetpointToleranceMPS, SwerveDriveConstants.kSetpointKeepAliveSeconds, false);
+
     /**
      * Creates an instance of a swerve module, use constants to alter motor controller properties.
      * Note: Make sure all encoder values are Positive CCW 
      * @param moduleNum Module ID Number
      * @param constants Module Constants to use
+     * @param io Hardware the module runs on
      */
-    public Mk4TTBSwerve(int moduleNum, SwerveModuleConstants constants){
+    public Mk4TTBSwerve(int moduleNum, SwerveModuleConstants constants, ModuleIO io){
         this.moduleNum = moduleNum;
+        this.io = io;
 
-        m_constants = constants;
         driveIdleMode = IdleMode.kCoast;
-
-        m_turningSparkMaxConfig = new SparkMaxConfig();
-        m_driveSparkMaxConfig = new SparkMaxConfig();
-
-        m_turningSparkMax = new SparkMax(constants.turnMotorID, MotorType.kBrushless);
         m_angleOffset = constants.angleOffset.getRadians();
-        m_turningEncoder = m_turningSparkMax.getAnalog();
-        m_turningController = m_turningSparkMax.getClosedLoopController();
-        configTurningSpark();
-
-        m_driveSparkMax = new SparkMax(constants.driveMotorID, MotorType.kBrushless);
-        m_driveEncoder = m_driveSparkMax.getEncoder();
-        m_driveController = m_driveSparkMax.getClosedLoopController();
-        configDriveSpark();
-        
-        m_desiredState.angle = new Rotation2d(m_turningEncoder.getPosition());
-        m_driveEncoder.setPosition(0);
-    }
+        inputs = new ModuleIO.ModuleIOInputs(InputLog.kPrefix + "Module" + moduleNum + "/");
 
-    /**
-     * Use to isolate configuration of the Turning Motor SparkMAX
-     */
-    private void configTurningSpark(){
-        m_turningSparkMaxConfig.idleMode(IdleMode.kCoast);
-        m_turningSparkMaxConfig.inverted(true);
-        m_turningSparkMaxConfig.smartCurrentLimit(40);
-        m_turningSparkMaxConfig.analogSensor.inverted(m_constants.turnInverted);
-        m_turningSparkMaxConfig.analogSensor.positionConversionFactor((2*Math.PI)/3.3);
-        m_turningSparkMaxConfig.analogSensor.velocityConversionFactor(((2*Math.PI)/3.3)/60);
-        m_turningSparkMaxConfig.closedLoop
-        .feedbackSensor(FeedbackSensor.kAnalogSensor)
-        .pidf(0.45,0.0,0.0,0.0)
-        .outputRange(-1.0, 1.0)
-        .positionWrappingEnabled(true)
-        .positionWrappingInputRange(0, 2*Math.PI);
-        m_turningSparkMaxConfig.closedLoopRampRate(0.05);
-        m_turningSparkMax.configure(m_turningSparkMaxConfig, null, null);
-    }
+        Telemetry telemetry = Telemetry.getInstance();
+        actualAngleSignal = telemetry.addDouble(moduleNum + " Actual Angle", TelemetryConstants.kDebugRateHz, true);
+        offsetSignal = telemetry.addDouble(moduleNum + " Mod. Offset", TelemetryConstants.kDebugRateHz, true);
+        moduleAngleSignal = telemetry.addDouble(moduleNum + " M Angle", TelemetryConstants.kDebugRateHz, true);
+        angleSetpointSignal = telemetry.addDouble(moduleNum + " Set Point", TelemetryConstants.kDebugRateHz, true);
+        speedSetpointSignal = telemetry.addDouble(moduleNum + " Speed Setpoint", TelemetryConstants.kDebugRateHz, true);
+        drivePositionSignal = telemetry.addDouble(moduleNum + "Drive Encoder", TelemetryConstants.kDebugRateHz, true);
 
-    /**
-     * Use to isolate configuration of the Driving Motor SparkMAX
-     */
-    private void configDriveSpark(){
-        m_driveSparkMaxConfig.idleMode(driveIdleMode);
-        m_driveSparkMaxConfig.inverted(m_constants.driveInverted);
-        m_driveSparkMaxConfig.smartCurrentLimit(60);
-        m_driveSparkMaxConfig.encoder.positionConversionFactor(SwerveDriveConstants.kDrivingEncoderPositionFactor);
-        m_driveSparkMaxConfig.encoder.velocityConversionFactor(SwerveDriveConstants.kDrivingEncoderVelocityFactor);
-        m_driveSparkMaxConfig.closedLoop
-        .feedbackSensor(FeedbackSensor.kPrimaryEncoder)
-        .pidf(0.15,0.0,1.0,1.0)
-        .outputRange(-1.0, 1.0);
-        m_driveSparkMaxConfig.closedLoopRampRate(0.05);
-        m_driveSparkMax.configure(m_driveSparkMaxConfig,null,null);
+        logger = AsyncDataLogger.getInstance();
+        // Setpoints are also sent from the DriveControl thread, which replay cannot reproduce
+        String logPrefix = LoggingConstants.kRealtimeLogPrefix + "Module" + moduleNum + "/";
+        speedSetpointLog = logger.registerDouble(logPrefix + "SpeedSetpointMPS");
+        angleSetpointLog = logger.registerDouble(logPrefix + "AngleSetpointRadians");
+        // Requests made on the main loop, these replay does compare
+        requestedSpeedLog = logger.registerDouble("/Drivetrain/Module" + moduleNum + "/RequestedSpeedMPS");
+        requestedAngleLog = logger.registerDouble("/Drivetrain/Module" + moduleNum + "/RequestedAngleRadians");
 
+        updateInputs(0);
+        m_desiredAngle = inputs.turnPositionRadians;
     }
 
     public void toggleDriveIdleMode(){
         if(driveIdleMode.equals(IdleMode.kCoast)){
-            driveIdleMode = IdleMode.kBrake;
+            setDriveIdleMode(IdleMode.kBrake);
         }else{
-            driveIdleMode = IdleMode.kCoast;
+            setDriveIdleMode(IdleMode.kCoast);
         }
-        configDriveSpark();
     }
 
+    /**
+     * Changes the drive motor idle mode in the background, does nothing if it is already set.
+     */
+    public void setDriveIdleMode(IdleMode mode){
+        driveIdleMode = mode;
+        io.setDriveIdleMode(mode);
+    }
+
+    /**
+     * @return Last requested idle mode, does not read from the SparkMax
+     */
     public IdleMode getDriveIdleMode(){
-       return m_driveSparkMax.configAccessor.getIdleMode();
+       return driveIdleMode;
     }
 
+    public boolean isDriveIdleModeConfirmed(){
+        return inputs.driveIdleModeConfirmed;
+    }
 
     
+    /**
+     * Refreshes the {@link ModuleIO.ModuleIOInputs} snapshot and records it, or loads the recorded
+     * one during replay.
+     * @param odometrySamples Samples every odometry signal has since the last {@link #drainOdometrySamples()}
+     */
+    public void updateInputs(int odometrySamples){
+        inputs.odometrySamples = odometrySamples;
+        io.updateInputs(inputs);
+        inputs.process();
+    }
+
+    public ModuleIO.ModuleIOInputs getInputs(){
+        return inputs;
+    }
+
     public void setDesiredState(SwerveModuleState desiredState){
-        SwerveModuleState correctedDesiredState = new SwerveModuleState();
-        correctedDesiredState.speedMetersPerSecond = desiredState.speedMetersPerSecond;
-        correctedDesiredState.angle = desiredState.angle.plus(new Rotation2d(m_angleOffset));
-        correctedDesiredState.optimize(new Rotation2d(m_turningEncoder.getPosition()));
+        setDesiredState(desiredState.speedMetersPerSecond, desiredState.angle.getRadians(), Timer.getFPGATimestamp());
+    }
+
+    /**
+     * Allocation free version of {@link #setDesiredState(SwerveModuleState)}.
+     * @param speedMetersPerSecond Desired wheel speed
+     * @param angleRadians Desired module angle, without the module offset
+     * @param timestamp FPGA time of the write, used to decide when to re-send an unchanged setpoint
+     */
+    public void setDesiredState(double speedMetersPerSecond, double angleRadians, double timestamp){
+        double correctedSpeed = speedMetersPerSecond;
+        double correctedAngle = MathUtil.angleModulus(angleRadians + m_angleOffset);
+
+        // Same as SwerveModuleState.optimize, never turn more than 90 degrees. States from the
+        // drivetrain's kinematics are already optimized, this catches ones passed in directly
+        double delta = MathUtil.angleModulus(correctedAngle - inputs.turnPositionRadians);
+        if(Math.abs(delta) > Math.PI / 2){
+            correctedSpeed = -correctedSpeed;
+            correctedAngle = MathUtil.angleModulus(correctedAngle + Math.PI);
+        }
 
-        m_turningController.setReference(correctedDesiredState.angle.getRadians(), SparkMax.ControlType.kPosition);
-        m_driveController.setReference(correctedDesiredState.speedMetersPerSecond, SparkMax.ControlType.kVelocity);
+        // Parked, keep pointing the same way instead of chasing a meaningless angle
+        if(Math.abs(correctedSpeed) < SwerveDriveConstants.kStoppedSpeedMPS && !Double.isNaN(m_turnSetpointFilter.getLastSentSetpoint())){
+            correctedAngle = m_turnSetpointFilter.getLastSentSetpoint();
+        }
+
+        if(m_turnSetpointFilter.shouldSend(correctedAngle, timestamp)){
+            io.setTurnPosition(correctedAngle);
+        }
+        if(m_driveSetpointFilter.shouldSend(correctedSpeed, timestamp)){
+            io.setDriveVelocity(correctedSpeed);
+        }
         
-        m_desiredState = desiredState;
+        m_desiredSpeed = speedMetersPerSecond;
+        m_desiredAngle = angleRadians;
+
+        logger.log(speedSetpointLog, correctedSpeed);
+        logger.log(angleSetpointLog, correctedAngle);
     }
 
 
 
+    /**
+     * Logs the last requested state where replay compares it. Only call it for requests made on
+     * the main loop, the DriveControl thread repeats them on its own clock.
+     */
+    public void logRequestedState(){
+        logger.log(requestedSpeedLog, m_desiredSpeed);
+        logger.log(requestedAngleLog, m_desiredAngle);
+    }
+
     public SwerveModuleState getDesiredState(){
-        return state;
+        return new SwerveModuleState(m_desiredSpeed, new Rotation2d(m_desiredAngle));
     }
 
     public SwerveModuleState getState(){
-        return new SwerveModuleState(m_driveEncoder.getVelocity(), new Rotation2d(m_turningEncoder.getPosition()-m_angleOffset));
+        return new SwerveModuleState(inputs.driveVelocityMetersPerSecond, new Rotation2d(inputs.turnPositionRadians-m_angleOffset));
     }
 
     public SwerveModulePosition getPosition(){
-        return new SwerveModulePosition(m_driveEncoder.getPosition(), new Rotation2d(m_turningEncoder.getPosition()-m_angleOffset));
+        return new SwerveModulePosition(inputs.drivePositionMeters, new Rotation2d(inputs.turnPositionRadians-m_angleOffset));
+    }
+
+    /**
+     * Moves the buffered odometry samples into this module so they can be read with
+     * {@link #getOdometryDistanceMeters(int)} and {@link #getOdometryAngleRadians(int)}. Must be called
+     * while holding {@link OdometryThread#odometryLock}.
+     * @return Number of samples drained
+     */
+    public int drainOdometrySamples(){
+        return io.drainOdometrySamples(inputs);
+    }
+
+    /**
+     * @param sample Index of a sample from the last {@link #drainOdometrySamples()}
+     * @return Drive distance at that sample in meters
+     */
+    public double getOdometryDistanceMeters(int sample){
+        return inputs.odometryDrivePositionsMeters[sample];
+    }
+
+    /**
+     * @param sample Index of a sample from the last {@link #drainOdometrySamples()}
+     * @return Module angle at that sample in radians, without the module offset
+     */
+    public double getOdometryAngleRadians(int sample){
+        return inputs.odometryTurnPositionsRadians[sample]-m_angleOffset;
+    }
+
+    public double getSpeedMetersPerSecond(){
+        return inputs.driveVelocityMetersPerSecond;
+    }
+
+    /**
+     * @return Module angle in radians, without the module offset
+     */
+    public double getAngleRadians(){
+        return inputs.turnPositionRadians-m_angleOffset;
+    }
+
+    public double getDistanceMeters(){
+        return inputs.drivePositionMeters;
+    }
+
+    /**
+     * @return Turning and drive setpoint writes skipped by the setpoint filters since startup
+     */
+    public long getSuppressedSetpointWrites(){
+        return m_turnSetpointFilter.getSuppressedWrites() + m_driveSetpointFilter.getSuppressedWrites();
     }
 
     public void stop(){
-        m_turningSparkMax.set(0.0);
+        io.stopTurn();
+        m_turnSetpointFilter.reset();
     }
 
     public int getModuleNumber(){
@@ -160,13 +249,13 @@ public class Mk4TTBSwerve{
 
 
     public void putSmartDashboard(){
-        if(Constants.debugMode){
-            SmartDashboard.putNumber(this.moduleNum + " Actual Angle", m_turningEncoder.getPosition());
-            SmartDashboard.putNumber(this.moduleNum + " Mod. Offset", m_angleOffset);
-            SmartDashboard.putNumber(this.moduleNum + " M Angle", m_turningEncoder.getPosition()-m_angleOffset);
-            SmartDashboard.putNumber(this.moduleNum + " Set Point", m_desiredState.angle.getDegrees());
-            SmartDashboard.putNumber(this.moduleNum + " Speed Setpoint", m_desiredState.speedMetersPerSecond);
-            SmartDashboard.putNumber(this.moduleNum + "Drive Encoder", m_driveEncoder.getPosition());
+        if(actualAngleSignal.isEnabled()){
+            actualAngleSignal.set(inputs.turnPositionRadians);
+            offsetSignal.set(m_angleOffset);
+            moduleAngleSignal.set(inputs.turnPositionRadians-m_angleOffset);
+            angleSetpointSignal.set(Math.toDegrees(m_desiredAngle));
+            speedSetpointSignal.set(m_desiredSpeed);
+            drivePositionSignal.set(inputs.drivePositionMeters);
         }
     }
 }
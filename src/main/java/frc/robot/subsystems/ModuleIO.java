@@ -0,0 +1,88 @@
+package frc.robot.subsystems;
+
+import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
+
+import frc.robot.Constants.SwerveDriveConstants;
+import frc.robot.util.InputLog;
+import frc.robot.util.OdometryThread;
+
+/**
+ * Hardware behind one swerve module. {@link Mk4TTBSwerve} only talks to the motors through this,
+ * so the same module code runs on the robot and in simulation ({@link ModuleIOSparkMax}, driven by
+ * {@link SwerveDriveSim} in simulation) and in replay, where every method is left as the no-op default.
+ */
+public interface ModuleIO {
+    /**
+     * Sensor values for one module, refreshed once per loop. Every getter on the module reads from
+     * here instead of going back to the hardware.
+     */
+    class ModuleIOInputs{
+        public double drivePositionMeters = 0.0;
+        public double driveVelocityMetersPerSecond = 0.0;
+        /** Raw analog sensor angle, the module offset is not removed */
+        public double turnPositionRadians = 0.0;
+        public boolean driveIdleModeConfirmed = true;
+
+        // High rate samples from the OdometryThread, only the first odometrySamples are valid
+        public int odometrySamples = 0;
+        public final double[] odometryDrivePositionsMeters = new double[SwerveDriveConstants.kOdometryBufferSize];
+        public final double[] odometryTurnPositionsRadians = new double[SwerveDriveConstants.kOdometryBufferSize];
+
+        private final int drivePositionInput, driveVelocityInput, turnPositionInput, idleModeConfirmedInput,
+            odometryDrivePositionsInput, odometryTurnPositionsInput;
+
+        /**
+         * @param prefix Log name prefix, for example /Inputs/Module0/
+         */
+        public ModuleIOInputs(String prefix){
+            InputLog inputLog = InputLog.getInstance();
+            drivePositionInput = inputLog.registerDouble(prefix + "DrivePositionMeters");
+            driveVelocityInput = inputLog.registerDouble(prefix + "DriveVelocityMPS");
+            turnPositionInput = inputLog.registerDouble(prefix + "TurnPositionRadians");
+            idleModeConfirmedInput = inputLog.registerBoolean(prefix + "DriveIdleModeConfirmed");
+            odometryDrivePositionsInput = inputLog.registerArray(prefix + "OdometryDrivePositionsMeters");
+            odometryTurnPositionsInput = inputLog.registerArray(prefix + "OdometryTurnPositionsRadians");
+        }
+
+        /**
+         * Records these inputs, or replaces them with the recorded ones during replay.
+         */
+        public void process(){
+            InputLog inputLog = InputLog.getInstance();
+            drivePositionMeters = inputLog.process(drivePositionInput, drivePositionMeters);
+            driveVelocityMetersPerSecond = inputLog.process(driveVelocityInput, driveVelocityMetersPerSecond);
+            turnPositionRadians = inputLog.process(turnPositionInput, turnPositionRadians);
+            driveIdleModeConfirmed = inputLog.process(idleModeConfirmedInput, driveIdleModeConfirmed);
+            odometrySamples = inputLog.process(odometryDrivePositionsInput, odometryDrivePositionsMeters, odometrySamples);
+            odometrySamples = inputLog.process(odometryTurnPositionsInput, odometryTurnPositionsRadians, odometrySamples);
+        }
+    }
+
+    /**
+     * Moves the buffered odometry samples into the inputs. Called while holding {@link OdometryThread#odometryLock}.
+     * @return Number of samples drained
+     */
+    default int drainOdometrySamples(ModuleIOInputs inputs){
+        return 0;
+    }
+
+    /**
+     * Reads everything else into the inputs. {@link ModuleIOInputs#odometrySamples} is already set
+     * to the number of samples every odometry signal has.
+     */
+    default void updateInputs(ModuleIOInputs inputs){}
+
+    /**
+     * @param angleRadians Raw sensor angle to turn to
+     */
+    default void setTurnPosition(double angleRadians){}
+
+    default void setDriveVelocity(double metersPerSecond){}
+
+    default void stopTurn(){}
+
+    /**
+     * Changes the drive motor idle mode without blocking.
+     */
+    default void setDriveIdleMode(IdleMode mode){}
+}
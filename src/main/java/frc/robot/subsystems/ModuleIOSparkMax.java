@@ -0,0 +1,166 @@
+package frc.robot.subsystems;
+
+import com.revrobotics.RelativeEncoder;
+import com.revrobotics.spark.SparkAnalogSensor;
+import com.revrobotics.spark.SparkClosedLoopController;
+import com.revrobotics.spark.SparkMax;
+import com.revrobotics.spark.SparkLowLevel.MotorType;
+import com.revrobotics.spark.config.SparkMaxConfig;
+import com.revrobotics.spark.config.ClosedLoopConfig.FeedbackSensor;
+import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
+
+import frc.robot.Constants.SwerveDriveConstants;
+import frc.robot.util.CANBudgetManager;
+import frc.robot.util.DoubleRingBuffer;
+import frc.robot.util.HardwareReadCounter;
+import frc.robot.util.OdometryThread;
+import frc.robot.util.SparkConfigService;
+import frc.robot.util.StatusFrameProfile;
+import frc.robot.util.SwerveModuleConstants;
+
+/**
+ * Mk4 module driven by two SparkMaxes, with the turning sensor on the turning SparkMax's analog input.
+ */
+public class ModuleIOSparkMax implements ModuleIO {
+    // Turning Spark Information and Calls
+    private final SparkMax m_turningSparkMax;
+    private final SparkMaxConfig m_turningSparkMaxConfig;
+    private final SparkAnalogSensor m_turningEncoder;
+    private final SparkClosedLoopController m_turningController;
+
+    // Driving Spark Information and Calls
+    private final SparkMax m_driveSparkMax;
+    private final SparkMaxConfig m_driveSparkMaxConfig;
+    private final RelativeEncoder m_driveEncoder;
+    private final SparkClosedLoopController m_driveController;
+
+    private final int moduleNum;
+    private final SwerveModuleConstants m_constants;
+
+    // High rate odometry samples, filled by the OdometryThread
+    private final DoubleRingBuffer drivePositionBuffer;
+    private final DoubleRingBuffer turnPositionBuffer;
+
+    public ModuleIOSparkMax(int moduleNum, SwerveModuleConstants constants){
+        this.moduleNum = moduleNum;
+        m_constants = constants;
+
+        m_turningSparkMaxConfig = new SparkMaxConfig();
+        m_driveSparkMaxConfig = new SparkMaxConfig();
+
+        m_turningSparkMax = new SparkMax(constants.turnMotorID, MotorType.kBrushless);
+        m_turningEncoder = m_turningSparkMax.getAnalog();
+        m_turningController = m_turningSparkMax.getClosedLoopController();
+        configTurningSpark();
+
+        m_driveSparkMax = new SparkMax(constants.driveMotorID, MotorType.kBrushless);
+        m_driveEncoder = m_driveSparkMax.getEncoder();
+        m_driveController = m_driveSparkMax.getClosedLoopController();
+        configDriveSpark();
+
+        m_driveEncoder.setPosition(0);
+
+        drivePositionBuffer = OdometryThread.getInstance().registerSignal(m_driveEncoder::getPosition, true);
+        turnPositionBuffer = OdometryThread.getInstance().registerSignal(m_turningEncoder::getPosition, true);
+    }
+
+    /**
+     * Use to isolate configuration of the Turning Motor SparkMAX
+     */
+    private void configTurningSpark(){
+        m_turningSparkMaxConfig.idleMode(IdleMode.kCoast);
+        m_turningSparkMaxConfig.inverted(true);
+        m_turningSparkMaxConfig.smartCurrentLimit(40);
+        m_turningSparkMaxConfig.analogSensor.inverted(m_constants.turnInverted);
+        m_turningSparkMaxConfig.analogSensor.positionConversionFactor((2*Math.PI)/3.3);
+        m_turningSparkMaxConfig.analogSensor.velocityConversionFactor(((2*Math.PI)/3.3)/60);
+        m_turningSparkMaxConfig.closedLoop
+        .feedbackSensor(FeedbackSensor.kAnalogSensor)
+        .pidf(0.45,0.0,0.0,0.0)
+        .outputRange(-1.0, 1.0)
+        .positionWrappingEnabled(true)
+        .positionWrappingInputRange(0, 2*Math.PI);
+        m_turningSparkMaxConfig.closedLoopRampRate(0.05);
+        CANBudgetManager.getInstance().applyProfile("Module " + moduleNum + " Turn", m_turningSparkMaxConfig, StatusFrameProfile.kSwerveTurn);
+        m_turningSparkMax.configure(m_turningSparkMaxConfig, null, null);
+    }
+
+    /**
+     * Use to isolate configuration of the Driving Motor SparkMAX
+     */
+    private void configDriveSpark(){
+        m_driveSparkMaxConfig.idleMode(IdleMode.kCoast);
+        m_driveSparkMaxConfig.inverted(m_constants.driveInverted);
+        m_driveSparkMaxConfig.smartCurrentLimit(60);
+        m_driveSparkMaxConfig.encoder.positionConversionFactor(SwerveDriveConstants.kDrivingEncoderPositionFactor);
+        m_driveSparkMaxConfig.encoder.velocityConversionFactor(SwerveDriveConstants.kDrivingEncoderVelocityFactor);
+        m_driveSparkMaxConfig.closedLoop
+        .feedbackSensor(FeedbackSensor.kPrimaryEncoder)
+        .pidf(0.15,0.0,1.0,1.0)
+        .outputRange(-1.0, 1.0);
+        m_driveSparkMaxConfig.closedLoopRampRate(0.05);
+        CANBudgetManager.getInstance().applyProfile("Module " + moduleNum + " Drive", m_driveSparkMaxConfig, StatusFrameProfile.kSwerveDrive);
+        m_driveSparkMax.configure(m_driveSparkMaxConfig,null,null);
+        SparkConfigService.getInstance().registerIdleMode(m_driveSparkMax, IdleMode.kCoast);
+    }
+
+    /**
+     * For {@link SwerveDriveSim}, which simulates the motor behind it.
+     */
+    SparkMax getDriveSparkMax(){
+        return m_driveSparkMax;
+    }
+
+    /**
+     * For {@link SwerveDriveSim}, which simulates the motor and analog sensor behind it.
+     */
+    SparkMax getTurningSparkMax(){
+        return m_turningSparkMax;
+    }
+
+    @Override
+    public int drainOdometrySamples(ModuleIOInputs inputs){
+        int driveSamples = drivePositionBuffer.drainTo(inputs.odometryDrivePositionsMeters);
+        int turnSamples = turnPositionBuffer.drainTo(inputs.odometryTurnPositionsRadians);
+        return Math.min(driveSamples, turnSamples);
+    }
+
+    /**
+     * Positions come from the newest odometry sample when there is one, so only the drive velocity
+     * has to be read over CAN.
+     */
+    @Override
+    public void updateInputs(ModuleIOInputs inputs){
+        if(inputs.odometrySamples > 0){
+            inputs.drivePositionMeters = inputs.odometryDrivePositionsMeters[inputs.odometrySamples - 1];
+            inputs.turnPositionRadians = inputs.odometryTurnPositionsRadians[inputs.odometrySamples - 1];
+        }else{
+            inputs.drivePositionMeters = m_driveEncoder.getPosition();
+            inputs.turnPositionRadians = m_turningEncoder.getPosition();
+            HardwareReadCounter.count(2);
+        }
+        inputs.driveVelocityMetersPerSecond = m_driveEncoder.getVelocity();
+        HardwareReadCounter.count(1);
+        inputs.driveIdleModeConfirmed = SparkConfigService.getInstance().isIdleModeConfirmed(m_driveSparkMax);
+    }
+
+    @Override
+    public void setTurnPosition(double angleRadians){
+        m_turningController.setReference(angleRadians, SparkMax.ControlType.kPosition);
+    }
+
+    @Override
+    public void setDriveVelocity(double metersPerSecond){
+        m_driveController.setReference(metersPerSecond, SparkMax.ControlType.kVelocity);
+    }
+
+    @Override
+    public void stopTurn(){
+        m_turningSparkMax.set(0.0);
+    }
+
+    @Override
+    public void setDriveIdleMode(IdleMode mode){
+        SparkConfigService.getInstance().setIdleMode(m_driveSparkMax, mode);
+    }
+}
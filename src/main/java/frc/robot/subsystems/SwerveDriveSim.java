@@ -0,0 +1,190 @@
+package frc.robot.subsystems;
+
+import com.pathplanner.lib.config.RobotConfig;
+import com.revrobotics.sim.SparkAnalogSensorSim;
+import com.revrobotics.sim.SparkMaxSim;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.wpilibj.ADIS16470_IMU;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.ADIS16470_IMUSim;
+import edu.wpi.first.wpilibj.simulation.BatterySim;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+import frc.robot.Constants.SimulationConstants;
+import frc.robot.Constants.SwerveDriveConstants;
+import frc.robot.util.SwerveChassisPhysics;
+import frc.robot.util.SwerveModuleConstants;
+
+/**
+ * Rigid body physics for the drivetrain in simulation. The robot code runs unchanged on
+ * {@link ModuleIOSparkMax} and {@link frc.robot.util.GyroIOADIS16470}, this drives REV's {@link SparkMaxSim} and
+ * WPILib's {@link ADIS16470_IMUSim} underneath them so the SparkMax closed loops do the controlling.
+ *
+ * <p>Mass, moment of inertia, wheel friction and the drive current limit come from PathPlanner's
+ * settings.json. {@link SwerveChassisPhysics} moves the chassis with the force each NEO makes.
+ *
+ * <p>Steps on its own notifier at {@link SimulationConstants#kPhysicsPeriodSeconds}, on the sim
+ * clock, so it runs in step with the odometry and drive control threads when the clock is stepped
+ * faster than real time.
+ */
+public class SwerveDriveSim {
+    private static SwerveDriveSim instance;
+
+    private static final double kGravity = 9.81;
+
+    private static class ModuleSim{
+        private final SparkMaxSim driveSpark, turnSpark;
+        private final SparkAnalogSensorSim turnSensor;
+        private final DCMotorSim turnMechanism;
+        private final double angleOffset;
+
+        private ModuleSim(int moduleNum, SwerveModuleConstants constants, ModuleIOSparkMax io){
+            driveSpark = new SparkMaxSim(io.getDriveSparkMax(), DCMotor.getNEO(1));
+            turnSpark = new SparkMaxSim(io.getTurningSparkMax(), DCMotor.getNEO(1));
+            turnSensor = turnSpark.getAnalogSensorSim();
+            turnMechanism = new DCMotorSim(LinearSystemId.createDCMotorSystem(DCMotor.getNEO(1),
+                SimulationConstants.kTurnMOI, SimulationConstants.kTurnGearing), DCMotor.getNEO(1));
+            angleOffset = constants.angleOffset.getRadians();
+        }
+    }
+
+    private final ModuleSim[] modules = new ModuleSim[4];
+    private ADIS16470_IMU gyro;
+    private ADIS16470_IMUSim gyroSim;
+
+    private final DCMotor driveMotor = DCMotor.getNEO(1);
+    private final double driveCurrentLimitAmps;
+    private final double wheelRadiusMeters = SwerveDriveConstants.kWheelDiameterMeters / 2;
+
+    // Guarded by this
+    private final SwerveChassisPhysics physics;
+    private double busVoltage = 12.0;
+    private final double[] motorCurrents = new double[8];
+
+    private final Notifier notifier;
+    private long lastStepMicros;
+
+    private SwerveDriveSim(){
+        RobotConfig config;
+        try{
+            config = RobotConfig.fromGUISettings();
+        }catch(Exception e){
+            throw new IllegalStateException("Simulation needs the robot mass and MOI from the PathPlanner settings", e);
+        }
+        // Each wheel carries a quarter of the weight
+        physics = new SwerveChassisPhysics(config.massKG, config.MOI, config.moduleConfig.wheelCOF * config.massKG * kGravity / 4,
+            SwerveDriveConstants.swerveModuleLocations);
+        driveCurrentLimitAmps = config.moduleConfig.driveCurrentLimit;
+
+        notifier = new Notifier(this::step);
+        notifier.setName("SwerveDriveSim");
+    }
+
+    public static SwerveDriveSim getInstance(){
+        if(instance == null){
+            instance = new SwerveDriveSim();
+        }
+        return instance;
+    }
+
+    /**
+     * Simulates the module behind an IO. Must be called for all four modules before {@link #start()}.
+     */
+    public void addModule(int moduleNum, SwerveModuleConstants constants, ModuleIOSparkMax io){
+        modules[moduleNum] = new ModuleSim(moduleNum, constants, io);
+    }
+
+    /**
+     * Feeds the yaw the physics works out to this IMU.
+     */
+    public void setGyro(ADIS16470_IMU gyro){
+        this.gyro = gyro;
+        gyroSim = new ADIS16470_IMUSim(gyro);
+    }
+
+    public void start(){
+        lastStepMicros = RobotController.getFPGATime();
+        notifier.startPeriodic(SimulationConstants.kPhysicsPeriodSeconds);
+    }
+
+    /**
+     * @return Where the robot really is, not where odometry thinks it is
+     */
+    public synchronized Pose2d getPose(){
+        return new Pose2d(physics.getX(), physics.getY(), new Rotation2d(physics.getTheta()));
+    }
+
+    /**
+     * Moves the robot, for autos that start by resetting the pose. The robot stops where it is put.
+     */
+    public synchronized void setPose(Pose2d pose){
+        physics.setPose(pose.getX(), pose.getY(), pose.getRotation().getRadians());
+    }
+
+    private synchronized void step(){
+        long now = RobotController.getFPGATime();
+        double dt = MathUtil.clamp((now - lastStepMicros) / 1e6, 0.0, SimulationConstants.kMaxStepSeconds);
+        lastStepMicros = now;
+        if(dt <= 0.0){
+            return;
+        }
+
+        physics.beginStep();
+        for(int i = 0; i < modules.length; i++){
+            ModuleSim module = modules[i];
+            double wheelAngle = stepTurn(module, i, dt);
+            double wheelSpeed = physics.getWheelSpeed(i, wheelAngle);
+
+            module.driveSpark.iterate(wheelSpeed, busVoltage, dt);
+            double motorSpeed = wheelSpeed / wheelRadiusMeters * SwerveDriveConstants.kDrivingMotorReduction;
+            double current = MathUtil.clamp(driveMotor.getCurrent(motorSpeed, module.driveSpark.getAppliedOutput() * busVoltage),
+                -driveCurrentLimitAmps, driveCurrentLimitAmps);
+            motorCurrents[2 * i] = Math.abs(current);
+            physics.applyWheel(i, wheelAngle,
+                driveMotor.getTorque(current) * SwerveDriveConstants.kDrivingMotorReduction / wheelRadiusMeters, dt);
+        }
+        physics.endStep(dt);
+        double angularVelocity = physics.getAngularVelocity();
+
+        if(gyroSim != null){
+            // Added to what the IMU reads so a gyro reset sticks
+            gyroSim.setGyroAngleZ(gyro.getAngle(gyro.getYawAxis()) + Math.toDegrees(angularVelocity * dt));
+            gyroSim.setGyroRateZ(Math.toDegrees(angularVelocity));
+        }
+
+        busVoltage = BatterySim.calculateDefaultBatteryLoadedVoltage(motorCurrents);
+        RoboRioSim.setVInVoltage(busVoltage);
+    }
+
+    /**
+     * Runs the turning SparkMax's closed loop on the simulated analog sensor and moves the module.
+     * @return Module angle after the step, robot relative
+     */
+    private double stepTurn(ModuleSim module, int moduleNum, double dt){
+        double angle = module.turnMechanism.getAngularPositionRad();
+        double velocity = module.turnMechanism.getAngularVelocityRadPerSec();
+
+        // The sensor reads 0 to 3.3 V for a turn of the module, offset by how it was mounted
+        double sensorAngle = MathUtil.inputModulus(angle + module.angleOffset, 0.0, 2 * Math.PI);
+        double volts = Math.round(sensorAngle / (2 * Math.PI) * SimulationConstants.kAnalogFullScaleVolts
+            / SimulationConstants.kAnalogResolutionVolts) * SimulationConstants.kAnalogResolutionVolts;
+        module.turnSensor.setVoltage(volts);
+        module.turnSensor.setPosition(volts * 2 * Math.PI / SimulationConstants.kAnalogFullScaleVolts);
+        module.turnSensor.setVelocity(velocity);
+
+        // Positive output turns the sensor positive, as the inversion settings make it on the robot
+        double motorRpm = velocity * SimulationConstants.kTurnGearing * 60 / (2 * Math.PI);
+        module.turnSpark.iterate(motorRpm, busVoltage, dt);
+        module.turnMechanism.setInputVoltage(module.turnSpark.getAppliedOutput() * busVoltage);
+        module.turnMechanism.update(dt);
+        motorCurrents[2 * moduleNum + 1] = Math.abs(module.turnMechanism.getCurrentDrawAmps());
+
+        return module.turnMechanism.getAngularPositionRad();
+    }
+}
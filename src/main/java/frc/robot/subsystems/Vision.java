@@ -1,22 +1,74 @@
 package frc.robot.subsystems;
 
-import org.photonvision.PhotonCamera;
-
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants;
+import frc.robot.Constants.TelemetryConstants;
+import frc.robot.util.InputLog;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.Telemetry;
 
+/**
+ * Feeds AprilTag pose measurements from both cameras into the drivetrain pose estimator, at the
+ * time each frame was captured.
+ */
 public class Vision extends SubsystemBase{
+    private static Vision instance;
+
+    private final VisionIO io;
+    private final VisionIO.VisionIOInputs inputs;
+    private final Drivetrain drivetrain;
+
+    private long acceptedMeasurements = 0;
+    // Passed the filters but arrived after the pose history moved past them
+    private long staleMeasurements = 0;
+    private final Telemetry.DoubleSignal acceptedSignal, rejectedSignal;
+    private final LoopProfiler.Section periodicSection = LoopProfiler.getInstance().addSection("Vision.periodic");
 
-    PhotonCamera camera1, camera2;
-    
+    private Vision(){
+        drivetrain = Drivetrain.getInstance();
+        switch(Constants.currentMode){
+            case REAL:
+                io = new VisionIOPhoton();
+                break;
+            case SIM:
+                // The cameras see where the robot really is, so vision corrects the odometry drift
+                io = new VisionIOPhotonSim(SwerveDriveSim.getInstance()::getPose);
+                break;
+            default:
+                io = new VisionIO(){};
+                break;
+        }
+        inputs = new VisionIO.VisionIOInputs(InputLog.kPrefix + "Vision/");
 
-    public Vision(){
-        camera1 = new PhotonCamera("camera1");
-        camera2 = new PhotonCamera("camera2");
+        Telemetry telemetry = Telemetry.getInstance();
+        acceptedSignal = telemetry.addDouble("Vision Measurements Accepted", TelemetryConstants.kStatusRateHz);
+        rejectedSignal = telemetry.addDouble("Vision Results Rejected", TelemetryConstants.kStatusRateHz);
+    }
+
+    public static Vision getInstance(){
+        if(instance == null){
+            instance = new Vision();
+        }
+        return instance;
     }
 
     @Override
     public void periodic(){
+        periodicSection.start();
+        io.updateInputs(inputs);
+        inputs.process();
+
+        for(int i = 0; i < inputs.measurementCount; i++){
+            if(drivetrain.addVisionMeasurement(inputs.poseXMeters[i], inputs.poseYMeters[i], inputs.poseRotationRadians[i],
+                inputs.timestampsSeconds[i], inputs.xyStdDevsMeters[i], inputs.rotationStdDevsRadians[i])){
+                acceptedMeasurements++;
+            }else{
+                staleMeasurements++;
+            }
+        }
 
+        acceptedSignal.set(acceptedMeasurements);
+        rejectedSignal.set(io.getRejectedResults() + staleMeasurements);
+        periodicSection.stop();
     }
-    
 }
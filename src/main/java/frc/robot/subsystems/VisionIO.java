@@ -0,0 +1,66 @@
+package frc.robot.subsystems;
+
+import frc.robot.Constants.VisionConstants;
+import frc.robot.util.InputLog;
+
+/**
+ * Cameras behind {@link Vision}. On the robot and in simulation the pose solving runs on a worker
+ * thread in {@link VisionIOPhoton}, this only hands over the finished measurements. Replay uses
+ * the no-op default.
+ */
+public interface VisionIO {
+    /**
+     * Robot pose measurements that passed the filters since the last loop, oldest first. Only the
+     * first measurementCount entries of each array are valid.
+     */
+    class VisionIOInputs{
+        public int measurementCount = 0;
+        public final double[] poseXMeters = new double[VisionConstants.kMaxMeasurementsPerLoop];
+        public final double[] poseYMeters = new double[VisionConstants.kMaxMeasurementsPerLoop];
+        public final double[] poseRotationRadians = new double[VisionConstants.kMaxMeasurementsPerLoop];
+        /** Capture time on the FPGA clock */
+        public final double[] timestampsSeconds = new double[VisionConstants.kMaxMeasurementsPerLoop];
+        public final double[] xyStdDevsMeters = new double[VisionConstants.kMaxMeasurementsPerLoop];
+        public final double[] rotationStdDevsRadians = new double[VisionConstants.kMaxMeasurementsPerLoop];
+
+        private final int poseXInput, poseYInput, poseRotationInput, timestampsInput, xyStdDevsInput, rotationStdDevsInput;
+
+        /**
+         * @param prefix Log name prefix, for example /Inputs/Vision/
+         */
+        public VisionIOInputs(String prefix){
+            InputLog inputLog = InputLog.getInstance();
+            poseXInput = inputLog.registerArray(prefix + "PoseXMeters");
+            poseYInput = inputLog.registerArray(prefix + "PoseYMeters");
+            poseRotationInput = inputLog.registerArray(prefix + "PoseRotationRadians");
+            timestampsInput = inputLog.registerArray(prefix + "TimestampsSeconds");
+            xyStdDevsInput = inputLog.registerArray(prefix + "XYStdDevsMeters");
+            rotationStdDevsInput = inputLog.registerArray(prefix + "RotationStdDevsRadians");
+        }
+
+        /**
+         * Records these inputs, or replaces them with the recorded ones during replay.
+         */
+        public void process(){
+            InputLog inputLog = InputLog.getInstance();
+            measurementCount = inputLog.process(poseXInput, poseXMeters, measurementCount);
+            measurementCount = inputLog.process(poseYInput, poseYMeters, measurementCount);
+            measurementCount = inputLog.process(poseRotationInput, poseRotationRadians, measurementCount);
+            measurementCount = inputLog.process(timestampsInput, timestampsSeconds, measurementCount);
+            measurementCount = inputLog.process(xyStdDevsInput, xyStdDevsMeters, measurementCount);
+            measurementCount = inputLog.process(rotationStdDevsInput, rotationStdDevsRadians, measurementCount);
+        }
+    }
+
+    /**
+     * Moves the measurements finished since the last call into the inputs.
+     */
+    default void updateInputs(VisionIOInputs inputs){}
+
+    /**
+     * @return Camera results dropped by the filters since startup, not logged
+     */
+    default long getRejectedResults(){
+        return 0;
+    }
+}
@@ -0,0 +1,178 @@
+package frc.robot.subsystems;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.photonvision.PhotonCamera;
+import org.photonvision.targeting.MultiTargetPNPResult;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.wpilibj.Notifier;
+import frc.robot.Constants.VisionConstants;
+
+/**
+ * PhotonVision cameras. A worker thread takes every new result from each camera, turns it into a
+ * robot pose, throws out the ones that cannot be trusted and queues the rest with standard
+ * deviations scaled by tag distance and count. The main loop only drains the queue.
+ */
+public class VisionIOPhoton implements VisionIO {
+    protected final PhotonCamera[] cameras;
+    protected final Transform3d[] robotToCameras;
+    protected final AprilTagFieldLayout fieldLayout;
+
+    private final Transform3d[] cameraToRobots;
+    // Worker thread only
+    private final long[] lastSequenceIds;
+
+    private final ArrayBlockingQueue<Measurement> measurements =
+        new ArrayBlockingQueue<>(VisionConstants.kMeasurementQueueSize);
+    private final AtomicLong rejectedResults = new AtomicLong();
+    private final Notifier worker;
+
+    private static final class Measurement{
+        private final double xMeters, yMeters, rotationRadians, timestampSeconds, xyStdDevMeters, rotationStdDevRadians;
+
+        private Measurement(Pose3d pose, double timestampSeconds, double xyStdDevMeters, double rotationStdDevRadians){
+            xMeters = pose.getX();
+            yMeters = pose.getY();
+            rotationRadians = pose.getRotation().getZ();
+            this.timestampSeconds = timestampSeconds;
+            this.xyStdDevMeters = xyStdDevMeters;
+            this.rotationStdDevRadians = rotationStdDevRadians;
+        }
+    }
+
+    public VisionIOPhoton(){
+        this(AprilTagFieldLayout.loadField(AprilTagFields.kDefaultField));
+    }
+
+    /**
+     * @param fieldLayout Where the tags are, the tests use their own
+     */
+    VisionIOPhoton(AprilTagFieldLayout fieldLayout){
+        this.fieldLayout = fieldLayout;
+
+        int cameraCount = VisionConstants.kCameraNames.length;
+        cameras = new PhotonCamera[cameraCount];
+        robotToCameras = VisionConstants.kRobotToCameras;
+        cameraToRobots = new Transform3d[cameraCount];
+        lastSequenceIds = new long[cameraCount];
+        for(int i = 0; i < cameraCount; i++){
+            cameras[i] = new PhotonCamera(VisionConstants.kCameraNames[i]);
+            cameraToRobots[i] = robotToCameras[i].inverse();
+            lastSequenceIds[i] = -1;
+        }
+
+        worker = new Notifier(this::processNewResults);
+        worker.setName("VisionWorker");
+        worker.startPeriodic(VisionConstants.kWorkerPeriodSeconds);
+    }
+
+    @Override
+    public void updateInputs(VisionIOInputs inputs){
+        int count = 0;
+        Measurement measurement;
+        while(count < VisionConstants.kMaxMeasurementsPerLoop && (measurement = measurements.poll()) != null){
+            inputs.poseXMeters[count] = measurement.xMeters;
+            inputs.poseYMeters[count] = measurement.yMeters;
+            inputs.poseRotationRadians[count] = measurement.rotationRadians;
+            inputs.timestampsSeconds[count] = measurement.timestampSeconds;
+            inputs.xyStdDevsMeters[count] = measurement.xyStdDevMeters;
+            inputs.rotationStdDevsRadians[count] = measurement.rotationStdDevRadians;
+            count++;
+        }
+        inputs.measurementCount = count;
+    }
+
+    @Override
+    public long getRejectedResults(){
+        return rejectedResults.get();
+    }
+
+    /**
+     * Runs on the worker thread.
+     */
+    private void processNewResults(){
+        for(int i = 0; i < cameras.length; i++){
+            List<PhotonPipelineResult> results = cameras[i].getAllUnreadResults();
+            for(PhotonPipelineResult result : results){
+                long sequenceId = result.metadata.getSequenceID();
+                // A camera restart starts the count over, anything else at or below the last ID was already used
+                if(sequenceId <= lastSequenceIds[i] && lastSequenceIds[i] - sequenceId < VisionConstants.kSequenceRestartThreshold){
+                    continue;
+                }
+                lastSequenceIds[i] = sequenceId;
+
+                if(result.hasTargets() && !processResult(i, result)){
+                    rejectedResults.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs on the worker thread, the tests also call it with results they made.
+     * @return False if the result was rejected
+     */
+    boolean processResult(int camera, PhotonPipelineResult result){
+        Pose3d robotPose;
+        int tagCount;
+        Optional<MultiTargetPNPResult> multiTagResult = result.getMultiTagResult();
+        if(multiTagResult.isPresent()){
+            // Solved on the coprocessor from every visible tag, the result is the camera's field pose
+            robotPose = new Pose3d().plus(multiTagResult.get().estimatedPose.best).plus(cameraToRobots[camera]);
+            tagCount = multiTagResult.get().fiducialIDsUsed.size();
+        }else{
+            PhotonTrackedTarget target = result.getBestTarget();
+            Optional<Pose3d> tagPose = fieldLayout.getTagPose(target.getFiducialId());
+            // A single tag can look the same from two places, only trust it when one is clearly better
+            if(tagPose.isEmpty() || target.getPoseAmbiguity() < 0.0
+                || target.getPoseAmbiguity() > VisionConstants.kMaxAmbiguity){
+                return false;
+            }
+            robotPose = tagPose.get().plus(target.getBestCameraToTarget().inverse()).plus(cameraToRobots[camera]);
+            tagCount = 1;
+        }
+
+        double totalDistance = 0.0;
+        List<PhotonTrackedTarget> targets = result.getTargets();
+        for(PhotonTrackedTarget target : targets){
+            totalDistance += target.getBestCameraToTarget().getTranslation().getNorm();
+        }
+        double averageDistance = totalDistance / targets.size();
+
+        double maxDistance = tagCount > 1 ? VisionConstants.kMaxMultiTagDistanceMeters : VisionConstants.kMaxSingleTagDistanceMeters;
+        if(averageDistance > maxDistance
+            || Math.abs(robotPose.getZ()) > VisionConstants.kMaxZErrorMeters
+            || robotPose.getX() < 0.0 || robotPose.getX() > fieldLayout.getFieldLength()
+            || robotPose.getY() < 0.0 || robotPose.getY() > fieldLayout.getFieldWidth()){
+            return false;
+        }
+
+        // Error grows with the square of distance and shrinks with more tags in view
+        double scale = (1.0 + averageDistance * averageDistance / VisionConstants.kStdDevDistanceSquaredMeters) / tagCount;
+        double xyStdDev;
+        double rotationStdDev;
+        if(tagCount > 1){
+            xyStdDev = VisionConstants.kMultiTagXYStdDevMeters * scale;
+            rotationStdDev = VisionConstants.kMultiTagRotationStdDevRadians * scale;
+        }else{
+            xyStdDev = VisionConstants.kSingleTagXYStdDevMeters * scale;
+            rotationStdDev = VisionConstants.kSingleTagRotationStdDevRadians;
+        }
+
+        // Full means the main loop has stalled, the oldest measurement is the least useful
+        Measurement measurement = new Measurement(robotPose, result.getTimestampSeconds(), xyStdDev, rotationStdDev);
+        while(!measurements.offer(measurement)){
+            measurements.poll();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,58 @@
+package frc.robot.subsystems;
+
+import java.util.function.Supplier;
+
+import org.photonvision.simulation.PhotonCameraSim;
+import org.photonvision.simulation.SimCameraProperties;
+import org.photonvision.simulation.VisionSystemSim;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.Constants.VisionConstants;
+
+/**
+ * Same pipeline as {@link VisionIOPhoton}, with the cameras fed by PhotonVision's
+ * {@link VisionSystemSim} instead of coprocessors, so vision runs in the simulator with no camera.
+ */
+public class VisionIOPhotonSim extends VisionIOPhoton {
+    private final VisionSystemSim visionSim;
+    private final Supplier<Pose2d> poseSupplier;
+
+    /**
+     * @param poseSupplier Where the simulated cameras see the robot from
+     */
+    public VisionIOPhotonSim(Supplier<Pose2d> poseSupplier){
+        this(poseSupplier, AprilTagFieldLayout.loadField(AprilTagFields.kDefaultField));
+    }
+
+    /**
+     * @param poseSupplier Where the simulated cameras see the robot from
+     * @param fieldLayout Tags the cameras see and solve against
+     */
+    VisionIOPhotonSim(Supplier<Pose2d> poseSupplier, AprilTagFieldLayout fieldLayout){
+        super(fieldLayout);
+        this.poseSupplier = poseSupplier;
+        visionSim = new VisionSystemSim("main");
+        visionSim.addAprilTags(fieldLayout);
+
+        for(int i = 0; i < cameras.length; i++){
+            SimCameraProperties properties = new SimCameraProperties();
+            properties.setCalibration(VisionConstants.kSimResolutionWidth, VisionConstants.kSimResolutionHeight,
+                Rotation2d.fromDegrees(VisionConstants.kSimFovDegrees));
+            properties.setCalibError(VisionConstants.kSimAverageErrorPixels, VisionConstants.kSimErrorStdDevPixels);
+            properties.setFPS(VisionConstants.kSimFps);
+            properties.setAvgLatencyMs(VisionConstants.kSimAverageLatencyMs);
+            properties.setLatencyStdDevMs(VisionConstants.kSimLatencyStdDevMs);
+            visionSim.addCamera(new PhotonCameraSim(cameras[i], properties, fieldLayout), robotToCameras[i]);
+        }
+    }
+
+    @Override
+    public void updateInputs(VisionIOInputs inputs){
+        // Results rendered now reach the worker a little later, as they would from a real camera
+        visionSim.update(poseSupplier.get());
+        super.updateInputs(inputs);
+    }
+}
@@ -0,0 +1,43 @@
+package frc.robot.util;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures bytes allocated by the current thread, used to check that the drive path stays
+ * allocation free in steady state. Returns 0 if the JVM cannot report thread allocations.
+ */
+public final class AllocationCounter {
+    private static final com.sun.management.ThreadMXBean threadBean;
+
+    static{
+        if(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()){
+            bean.setThreadAllocatedMemoryEnabled(true);
+            threadBean = bean;
+        }else{
+            threadBean = null;
+        }
+    }
+
+    private AllocationCounter(){
+        throw new UnsupportedOperationException("This is a utility class!");
+    }
+
+    /**
+     * @return False if this JVM cannot count thread allocations, {@link #getThreadAllocatedBytes()}
+     * is always 0 then
+     */
+    public static boolean isSupported(){
+        return threadBean != null;
+    }
+
+    /**
+     * @return Total bytes allocated by the calling thread so far
+     */
+    public static long getThreadAllocatedBytes(){
+        if(threadBean == null){
+            return 0;
+        }
+        return threadBean.getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,289 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DataLogWriter;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.Constants.LoggingConstants;
+
+/**
+ * Records drivetrain signals to a WPILOG file without ever blocking the robot loop.
+ * Producers put records into a fixed size lock-free ring buffer (bounded multi producer queue with
+ * a sequence number per slot). A background thread drains the ring into a {@link DataLogWriter}.
+ * If the writer falls behind the ring fills up and new records are dropped and counted, memory never grows.
+ */
+public class AsyncDataLogger {
+    private static AsyncDataLogger instance;
+
+    private static final byte kTypeDouble = 0;
+    private static final byte kTypeBoolean = 1;
+
+    // Null when the log file could not be opened, records are then dropped
+    private final DataLog log;
+    private final String filename;
+
+    // Registered entries, indexed by the handle returned from register*
+    private final int[] logEntries;
+    private final byte[] entryTypes;
+    private int numEntries;
+
+    // Ring buffer slots
+    private final int mask;
+    private final int[] slotHandles;
+    private final double[] slotValues;
+    private final long[] slotTimestamps;
+    private final AtomicLongArray slotSequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Only written by the writer thread
+    private volatile long head = 0;
+
+    private final AtomicLong droppedRecords = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean running;
+
+    /**
+     * @param directory Folder the log file is written to, created if missing
+     * @param capacity Ring buffer size in records, rounded up to a power of two
+     */
+    public AsyncDataLogger(File directory, int capacity) throws IOException{
+        this(directory, capacity, true);
+    }
+
+    /**
+     * @param startWriter False leaves the writer stopped until {@link #startWriter()}, so the
+     * tests can fill the ring
+     */
+    AsyncDataLogger(File directory, int capacity, boolean startWriter) throws IOException{
+        directory.mkdirs();
+        filename = new File(directory,
+            "drive_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + ".wpilog").getPath();
+        log = new DataLogWriter(filename);
+
+        logEntries = new int[LoggingConstants.kMaxEntries];
+        entryTypes = new byte[LoggingConstants.kMaxEntries];
+        numEntries = 0;
+
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        mask = size - 1;
+        slotHandles = new int[size];
+        slotValues = new double[size];
+        slotTimestamps = new long[size];
+        slotSequences = new AtomicLongArray(size);
+        for(int i = 0; i < size; i++){
+            slotSequences.set(i, i);
+        }
+
+        running = true;
+        writerThread = new Thread(this::writerLoop, "AsyncDataLogger");
+        writerThread.setDaemon(true);
+        writerThread.setPriority(Thread.MIN_PRIORITY);
+        if(startWriter){
+            writerThread.start();
+        }
+    }
+
+    void startWriter(){
+        writerThread.start();
+    }
+
+    /**
+     * Logger that drops everything, used when the log file cannot be opened so callers never
+     * have to check.
+     */
+    private AsyncDataLogger(){
+        log = null;
+        filename = null;
+        logEntries = new int[LoggingConstants.kMaxEntries];
+        entryTypes = new byte[LoggingConstants.kMaxEntries];
+        numEntries = 0;
+        mask = 0;
+        slotHandles = null;
+        slotValues = null;
+        slotTimestamps = null;
+        slotSequences = null;
+        running = false;
+        writerThread = null;
+    }
+
+    /**
+     * @return Logger writing to the USB drive if there is one, the roboRIO's home folder if not,
+     * or the project's logs folder in simulation
+     */
+    public static AsyncDataLogger getInstance(){
+        if(instance == null){
+            File directory;
+            if(RobotBase.isSimulation()){
+                directory = new File("logs");
+            }else if(new File(LoggingConstants.kUsbLogDirectory).getParentFile().exists()){
+                directory = new File(LoggingConstants.kUsbLogDirectory);
+            }else{
+                directory = new File(LoggingConstants.kRioLogDirectory);
+            }
+
+            try{
+                instance = new AsyncDataLogger(directory, LoggingConstants.kBufferCapacity);
+            }catch(IOException e){
+                DriverStation.reportError("Could not open drive log in " + directory + ": " + e.getMessage(), false);
+                instance = new AsyncDataLogger();
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a double entry. Call at startup from the main thread.
+     * @return Handle to log values with
+     */
+    public int registerDouble(String name){
+        return register(name, "double", kTypeDouble);
+    }
+
+    public int registerBoolean(String name){
+        return register(name, "boolean", kTypeBoolean);
+    }
+
+    private synchronized int register(String name, String type, byte entryType){
+        if(numEntries >= logEntries.length){
+            throw new IllegalStateException("Too many log entries, raise LoggingConstants.kMaxEntries");
+        }
+        if(log != null){
+            logEntries[numEntries] = log.start(name, type);
+        }
+        entryTypes[numEntries] = entryType;
+        return numEntries++;
+    }
+
+    public boolean log(int handle, double value){
+        return log(handle, value, RobotController.getFPGATime());
+    }
+
+    public boolean log(int handle, boolean value){
+        return log(handle, value ? 1.0 : 0.0, RobotController.getFPGATime());
+    }
+
+    /**
+     * Queues a record. Never blocks and never allocates.
+     * @param timestampMicros FPGA time of the value in microseconds
+     * @return False if the ring was full and the record was dropped
+     */
+    public boolean log(int handle, double value, long timestampMicros){
+        if(log == null){
+            return false;
+        }
+
+        long position = tail.get();
+        int slot;
+        while(true){
+            slot = (int) (position & mask);
+            long difference = slotSequences.get(slot) - position;
+            if(difference == 0){
+                if(tail.compareAndSet(position, position + 1)){
+                    break;
+                }
+                position = tail.get();
+            }else if(difference < 0){
+                droppedRecords.incrementAndGet();
+                return false;
+            }else{
+                position = tail.get();
+            }
+        }
+
+        slotHandles[slot] = handle;
+        slotValues[slot] = value;
+        slotTimestamps[slot] = timestampMicros;
+        slotSequences.lazySet(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * Moves every completed record from the ring into the log. Only called from the writer thread.
+     * @return Number of records written
+     */
+    private int drain(){
+        int written = 0;
+        while(true){
+            int slot = (int) (head & mask);
+            if(slotSequences.get(slot) != head + 1){
+                return written;
+            }
+
+            int handle = slotHandles[slot];
+            if(entryTypes[handle] == kTypeBoolean){
+                log.appendBoolean(logEntries[handle], slotValues[slot] != 0.0, slotTimestamps[slot]);
+            }else{
+                log.appendDouble(logEntries[handle], slotValues[slot], slotTimestamps[slot]);
+            }
+
+            slotSequences.lazySet(slot, head + mask + 1);
+            head++;
+            written++;
+        }
+    }
+
+    private void writerLoop(){
+        long lastFlush = System.nanoTime();
+        while(running){
+            if(drain() == 0){
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(LoggingConstants.kWriterIdleMs));
+            }
+            if(System.nanoTime() - lastFlush > TimeUnit.MILLISECONDS.toNanos(LoggingConstants.kFlushPeriodMs)){
+                log.flush();
+                lastFlush = System.nanoTime();
+            }
+        }
+        drain();
+        log.flush();
+    }
+
+    /**
+     * Blocks until the writer has caught up if the ring is more than half full. Only for code that
+     * runs faster than real time, like replay, which would otherwise outrun the writer and drop records.
+     */
+    public void waitIfBacklogged(){
+        if(log == null || tail.get() - head <= (mask + 1) / 2){
+            return;
+        }
+        LockSupport.unpark(writerThread);
+        while(running && tail.get() != head){
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    /**
+     * @return Records dropped because the ring buffer was full
+     */
+    public long getDroppedRecords(){
+        return droppedRecords.get();
+    }
+
+    public String getFilename(){
+        return filename;
+    }
+
+    /**
+     * Stops the writer thread after it has written everything queued, then closes the file.
+     */
+    public void close(){
+        if(log == null){
+            return;
+        }
+        running = false;
+        try{
+            writerThread.join();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+}
@@ -0,0 +1,103 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import frc.robot.Constants.SimulationConstants;
+
+/**
+ * Results of simulated auto runs as JSON, one object per auto and alliance, and the check against
+ * a stored baseline. Completion time and tracking error are compared, loop times are only reported
+ * since they depend on the machine.
+ */
+public class AutoBenchmarkReport {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ArrayNode runs = mapper.createArrayNode();
+
+    /**
+     * @param completionSeconds Time from scheduling the auto until it ended, or until it was cut off
+     */
+    public void add(String auto, String alliance, boolean finished, double completionSeconds, AutoRunMetrics metrics){
+        ObjectNode run = runs.addObject();
+        run.put("auto", auto);
+        run.put("alliance", alliance);
+        run.put("finished", finished);
+        run.put("completionSeconds", completionSeconds);
+        run.put("rmsErrorMeters", metrics.getRmsErrorMeters());
+        run.put("maxErrorMeters", metrics.getMaxErrorMeters());
+        run.put("peakModuleSpeedMPS", metrics.getPeakModuleSpeedMPS());
+        run.put("loopP50Ms", metrics.getLoopMs(50));
+        run.put("loopP90Ms", metrics.getLoopMs(90));
+        run.put("loopP99Ms", metrics.getLoopMs(99));
+        run.put("loopMaxMs", metrics.getMaxLoopMs());
+    }
+
+    public void write(File file) throws IOException{
+        File directory = file.getAbsoluteFile().getParentFile();
+        if(!directory.isDirectory() && !directory.mkdirs()){
+            throw new IOException("Could not create " + directory);
+        }
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file, runs);
+    }
+
+    /**
+     * Prints every run next to its baseline.
+     * @return Number of runs that got slower, less accurate or stopped finishing
+     */
+    public int compare(File baselineFile) throws IOException{
+        if(!baselineFile.exists()){
+            System.out.println("No baseline at " + baselineFile + ", record one with ./gradlew autoBenchmark autoBenchmarkSaveBaseline --continue");
+            return 0;
+        }
+        Map<String, JsonNode> baseline = new HashMap<>();
+        for(JsonNode run : mapper.readTree(baselineFile)){
+            baseline.put(getKey(run), run);
+        }
+
+        int regressions = 0;
+        System.out.printf("%-24s %16s %20s %20s%n", "Auto", "Time s", "RMS error m", "Max error m");
+        for(JsonNode run : runs){
+            JsonNode base = baseline.get(getKey(run));
+            if(base == null){
+                System.out.printf("%-24s %16.2f %20.3f %20.3f  new%n", getKey(run),
+                    run.path("completionSeconds").asDouble(), run.path("rmsErrorMeters").asDouble(), run.path("maxErrorMeters").asDouble());
+                continue;
+            }
+
+            String flags = "";
+            if(base.path("finished").asBoolean() && !run.path("finished").asBoolean()){
+                flags += "  DID NOT FINISH";
+            }
+            if(isWorse(run, base, "completionSeconds", SimulationConstants.kBenchmarkTimeToleranceSeconds)){
+                flags += "  SLOWER";
+            }
+            if(isWorse(run, base, "rmsErrorMeters", SimulationConstants.kBenchmarkRmsErrorToleranceMeters)
+                || isWorse(run, base, "maxErrorMeters", SimulationConstants.kBenchmarkMaxErrorToleranceMeters)){
+                flags += "  LESS ACCURATE";
+            }
+            if(!flags.isEmpty()){
+                regressions++;
+            }
+            System.out.printf("%-24s %7.2f -> %5.2f %9.3f -> %7.3f %9.3f -> %7.3f%s%n", getKey(run),
+                base.path("completionSeconds").asDouble(), run.path("completionSeconds").asDouble(),
+                base.path("rmsErrorMeters").asDouble(), run.path("rmsErrorMeters").asDouble(),
+                base.path("maxErrorMeters").asDouble(), run.path("maxErrorMeters").asDouble(), flags);
+        }
+        return regressions;
+    }
+
+    private static boolean isWorse(JsonNode run, JsonNode base, String field, double tolerance){
+        return run.path(field).asDouble() > base.path(field).asDouble() + tolerance;
+    }
+
+    private static String getKey(JsonNode run){
+        return run.path("auto").asText() + " " + run.path("alliance").asText();
+    }
+}
@@ -0,0 +1,79 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The parts of a PathPlanner .auto file that can be built without PathPlannerAuto: whether it
+ * resets the pose, and the paths it follows when it is nothing but a sequence of paths.
+ */
+public class AutoFile {
+    private final String name;
+    private final boolean resetOdom;
+    private final List<String> pathNames;
+
+    private AutoFile(String name, boolean resetOdom, List<String> pathNames){
+        this.name = name;
+        this.resetOdom = resetOdom;
+        this.pathNames = pathNames;
+    }
+
+    /**
+     * @param file A .auto file, its name without the extension is the auto's name
+     */
+    public static AutoFile read(File file) throws IOException{
+        JsonNode auto = new ObjectMapper().readTree(file);
+        return new AutoFile(file.getName().replace(".auto", ""), auto.path("resetOdom").asBoolean(),
+            getPathNames(auto.path("command")));
+    }
+
+    /**
+     * @return Names of every .auto file in a directory, sorted, without the extension
+     */
+    public static List<String> findAutos(File directory){
+        List<String> names = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".auto"));
+        if(files != null){
+            for(File file : files){
+                names.add(file.getName().replace(".auto", ""));
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private static List<String> getPathNames(JsonNode command){
+        if(!command.path("type").asText().equals("sequential")){
+            return null;
+        }
+        List<String> pathNames = new ArrayList<>();
+        for(JsonNode child : command.path("data").path("commands")){
+            if(!child.path("type").asText().equals("path")){
+                return null;
+            }
+            pathNames.add(child.path("data").path("pathName").asText());
+        }
+        return pathNames.isEmpty() ? null : Collections.unmodifiableList(pathNames);
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public boolean getResetOdom(){
+        return resetOdom;
+    }
+
+    /**
+     * @return The paths in order, or null if the auto does anything but follow paths
+     */
+    public List<String> getPathNames(){
+        return pathNames;
+    }
+}
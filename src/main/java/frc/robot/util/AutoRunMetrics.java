@@ -0,0 +1,75 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.Constants.ProfilerConstants;
+
+/**
+ * What one simulated auto run did: how closely the robot followed the paths, how fast the modules
+ * went and how long the loops took. Filled in once per main loop by the simulation runner.
+ */
+public class AutoRunMetrics {
+    private final LatencyHistogram loopNanos = new LatencyHistogram(
+        ProfilerConstants.kHistogramSubBucketBits, ProfilerConstants.kHistogramMaxValueBits);
+
+    // Set by PathPlanner while a path is being followed, cleared every loop
+    private Pose2d targetPose = null;
+
+    private double squaredErrorSum = 0.0;
+    private int errorSamples = 0;
+    private double maxErrorMeters = 0.0;
+    private double peakModuleSpeedMPS = 0.0;
+
+    /**
+     * @param pose Where PathPlanner wants the robot this loop
+     */
+    public void setTargetPose(Pose2d pose){
+        targetPose = pose;
+    }
+
+    /**
+     * @param loopTimeNanos How long the loop's code took
+     * @param truePose Where the robot really is, tracking error is measured from here
+     * @param state Drivetrain state at the end of the loop
+     */
+    public void recordLoop(long loopTimeNanos, Pose2d truePose, DrivetrainState state){
+        loopNanos.record(loopTimeNanos);
+
+        if(targetPose != null){
+            double error = truePose.getTranslation().getDistance(targetPose.getTranslation());
+            squaredErrorSum += error * error;
+            errorSamples++;
+            maxErrorMeters = Math.max(maxErrorMeters, error);
+            targetPose = null;
+        }
+
+        for(int i = 0; i < state.getModuleCount(); i++){
+            peakModuleSpeedMPS = Math.max(peakModuleSpeedMPS, Math.abs(state.getModuleState(i).speedMetersPerSecond));
+        }
+    }
+
+    /**
+     * @return RMS distance from the path target over the loops a path was followed
+     */
+    public double getRmsErrorMeters(){
+        return errorSamples == 0 ? 0.0 : Math.sqrt(squaredErrorSum / errorSamples);
+    }
+
+    public double getMaxErrorMeters(){
+        return maxErrorMeters;
+    }
+
+    public double getPeakModuleSpeedMPS(){
+        return peakModuleSpeedMPS;
+    }
+
+    /**
+     * @param percentile 0 to 100
+     */
+    public double getLoopMs(double percentile){
+        return loopNanos.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    public double getMaxLoopMs(){
+        return loopNanos.getMaxValue() / 1e6;
+    }
+}
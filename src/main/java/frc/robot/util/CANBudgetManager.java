@@ -0,0 +1,107 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.revrobotics.spark.config.SparkBaseConfig;
+
+import edu.wpi.first.hal.can.CANStatus;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.Constants.CANBudgetConstants;
+import frc.robot.Constants.TelemetryConstants;
+
+/**
+ * Central place every SparkMax gets its status frame rates from. Keeps track of what each
+ * controller was given so the expected bus load can be compared to what the roboRIO measures.
+ */
+public class CANBudgetManager {
+    private static CANBudgetManager instance;
+
+    private final List<String> controllerNames = new ArrayList<>();
+    private final List<StatusFrameProfile> controllerProfiles = new ArrayList<>();
+
+    private final Telemetry.DoubleSignal measuredUtilizationSignal, estimatedUtilizationSignal, txFullSignal;
+
+    private CANBudgetManager(){
+        Telemetry telemetry = Telemetry.getInstance();
+        measuredUtilizationSignal = telemetry.addDouble("CAN Utilization Measured", TelemetryConstants.kStatusRateHz);
+        estimatedUtilizationSignal = telemetry.addDouble("CAN Utilization Estimated", TelemetryConstants.kStatusRateHz);
+        txFullSignal = telemetry.addDouble("CAN Tx Full Count", TelemetryConstants.kStatusRateHz);
+    }
+
+    public static CANBudgetManager getInstance(){
+        if(instance == null){
+            instance = new CANBudgetManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Sets the signal periods of a controller config from its profile. Call before the config is
+     * sent to the controller.
+     * @param name Name shown in the budget report
+     * @param config Config that is about to be applied
+     * @param profile Status frame profile for this controller
+     */
+    public void applyProfile(String name, SparkBaseConfig config, StatusFrameProfile profile){
+        profile.applyTo(config.signals);
+        controllerNames.add(name);
+        controllerProfiles.add(profile);
+    }
+
+    /**
+     * @return Estimated status frames per second sent by every registered controller
+     */
+    public double getEstimatedFramesPerSecond(){
+        double framesPerSecond = 0.0;
+        for(StatusFrameProfile profile : controllerProfiles){
+            for(int frame = 0; frame < StatusFrameProfile.SparkSignal.kNumFrames; frame++){
+                int periodMs = profile.getFramePeriodMs(frame);
+                if(periodMs != Integer.MAX_VALUE){
+                    framesPerSecond += 1000.0 / periodMs;
+                }
+            }
+        }
+        return framesPerSecond;
+    }
+
+    /**
+     * @return Estimated fraction of the bus used by status frames, 0 to 1
+     */
+    public double getEstimatedUtilization(){
+        return getEstimatedFramesPerSecond() * CANBudgetConstants.kBitsPerFrame / CANBudgetConstants.kBusBitRate;
+    }
+
+    /**
+     * Publishes the estimated and measured bus utilization. Reading the CAN status allocates, so
+     * this is scheduled every {@link CANBudgetConstants#kPublishPeriodSeconds}.
+     */
+    public void periodic(){
+        CANStatus status = RobotController.getCANStatus();
+        measuredUtilizationSignal.set(status.percentBusUtilization);
+        estimatedUtilizationSignal.set(getEstimatedUtilization());
+        txFullSignal.set(status.txFullCount);
+    }
+
+    /**
+     * Prints every registered controller and its frame periods, useful when tuning the profiles.
+     * Robot only prints it in {@link frc.robot.Constants#debugMode}.
+     */
+    public void printReport(){
+        StringBuilder report = new StringBuilder("CAN status frame budget\n");
+        for(int i = 0; i < controllerNames.size(); i++){
+            StatusFrameProfile profile = controllerProfiles.get(i);
+            report.append(String.format("  %-20s %-18s", controllerNames.get(i), profile.getName()));
+            for(int frame = 0; frame < StatusFrameProfile.SparkSignal.kNumFrames; frame++){
+                int periodMs = profile.getFramePeriodMs(frame);
+                if(periodMs != Integer.MAX_VALUE){
+                    report.append(String.format(" S%d:%dms", frame, periodMs));
+                }
+            }
+            report.append('\n');
+        }
+        report.append(String.format("  Estimated %.0f frames/s, %.1f%% of the bus%n",
+            getEstimatedFramesPerSecond(), getEstimatedUtilization() * 100.0));
+        System.out.print(report);
+    }
+}
@@ -0,0 +1,153 @@
+package frc.robot.util;
+
+import java.nio.ByteBuffer;
+
+import com.pathplanner.lib.trajectory.PathPlannerTrajectoryState;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * A trajectory read straight out of the mapped {@link TrajectoryCache} file, for one alliance.
+ * Sampling binary searches the states in the file and interpolates between the two either side,
+ * the same as {@code PathPlannerTrajectory.sample}. Safe to sample from any thread, the buffer is
+ * read only and only read at absolute positions.
+ */
+public class CachedTrajectory {
+    // Each state is these doubles, in this order
+    static final int kTime = 0, kX = 1, kY = 2, kRotation = 3, kVx = 4, kVy = 5, kOmega = 6,
+        kLinearVelocity = 7, kHeading = 8;
+    static final int kDoublesPerState = 9;
+    static final int kStateBytes = kDoublesPerState * Double.BYTES;
+    // Both as PathPlannerTrajectory.sample uses them
+    private static final double kMinInterpolationSeconds = 1e-3;
+    private static final double kIntegrationStepSeconds = 0.01;
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int stateCount;
+
+    /**
+     * @param offset Byte position of the first state in the buffer
+     */
+    CachedTrajectory(ByteBuffer buffer, int offset, int stateCount){
+        this.buffer = buffer;
+        this.offset = offset;
+        this.stateCount = stateCount;
+    }
+
+    private double get(int state, int field){
+        return buffer.getDouble(offset + state * kStateBytes + field * Double.BYTES);
+    }
+
+    public double getTotalTimeSeconds(){
+        return get(stateCount - 1, kTime);
+    }
+
+    public Pose2d getInitialPose(){
+        return new Pose2d(get(0, kX), get(0, kY), new Rotation2d(get(0, kRotation)));
+    }
+
+    /**
+     * @return Speed at the end in meters per second, the follower only stops the robot when this is about zero
+     */
+    public double getEndLinearVelocity(){
+        return get(stateCount - 1, kLinearVelocity);
+    }
+
+    /**
+     * Reads every state once, so the pages of the file behind it are in memory before the auto
+     * starts instead of faulting in during the first loops.
+     * @return Sum of the state times, only so the reads are not optimized away
+     */
+    public double preload(){
+        // A state is far smaller than a page, reading one value from each touches every page
+        double sum = 0.0;
+        for(int state = 0; state < stateCount; state++){
+            sum += get(state, kTime);
+        }
+        return sum;
+    }
+
+    /**
+     * Fills in the target at a time into {@code state}, clamped to the ends of the trajectory.
+     * @return {@code state}
+     */
+    public PathPlannerTrajectoryState sample(double time, PathPlannerTrajectoryState state){
+        int lower, upper;
+        if(time <= get(0, kTime)){
+            lower = upper = 0;
+        }else if(time >= getTotalTimeSeconds()){
+            lower = upper = stateCount - 1;
+        }else{
+            // First state at or after the time
+            int low = 1, high = stateCount - 1;
+            while(low < high){
+                int middle = (low + high) >>> 1;
+                if(get(middle, kTime) < time){
+                    low = middle + 1;
+                }else{
+                    high = middle;
+                }
+            }
+            upper = low;
+            lower = upper - 1;
+        }
+
+        state.timeSeconds = time;
+        double lowerTime = get(lower, kTime), upperTime = get(upper, kTime);
+        if(upperTime - lowerTime < kMinInterpolationSeconds){
+            // The ends, or two states too close together to interpolate between
+            state.pose = new Pose2d(get(upper, kX), get(upper, kY), new Rotation2d(get(upper, kRotation)));
+            state.fieldSpeeds = new ChassisSpeeds(get(upper, kVx), get(upper, kVy), get(upper, kOmega));
+            state.linearVelocity = get(upper, kLinearVelocity);
+            state.heading = new Rotation2d(get(upper, kHeading));
+            return state;
+        }
+
+        double t = (time - lowerTime) / (upperTime - lowerTime);
+        double interpolatedTime = MathUtil.interpolate(lowerTime, upperTime, t);
+
+        // PathPlanner integrates the linear velocity along the lower state's heading in fixed steps
+        // instead of interpolating the positions, since the robot speeds up or slows down between
+        // states. Same steps here so the targets match.
+        double heading = get(lower, kHeading);
+        double cos = Math.cos(heading), sin = Math.sin(heading);
+        double x = get(lower, kX), y = get(lower, kY);
+        double stepTime = lowerTime + kIntegrationStepSeconds;
+        while(true){
+            double velocity = MathUtil.interpolate(get(lower, kLinearVelocity), get(upper, kLinearVelocity),
+                (stepTime - lowerTime) / (upperTime - lowerTime));
+            double vx = velocity * cos, vy = velocity * sin;
+            if(stepTime >= interpolatedTime - kIntegrationStepSeconds){
+                double dt = interpolatedTime - stepTime;
+                x += vx * dt;
+                y += vy * dt;
+                break;
+            }
+            x += vx * kIntegrationStepSeconds;
+            y += vy * kIntegrationStepSeconds;
+            stepTime += kIntegrationStepSeconds;
+        }
+
+        state.pose = new Pose2d(x, y, new Rotation2d(interpolateAngle(lower, upper, kRotation, t)));
+        state.fieldSpeeds = new ChassisSpeeds(interpolate(lower, upper, kVx, t), interpolate(lower, upper, kVy, t),
+            interpolate(lower, upper, kOmega, t));
+        state.linearVelocity = interpolate(lower, upper, kLinearVelocity, t);
+        state.heading = new Rotation2d(interpolateAngle(lower, upper, kHeading, t));
+        return state;
+    }
+
+    private double interpolate(int lower, int upper, int field, double t){
+        double start = get(lower, field);
+        return start + (get(upper, field) - start) * t;
+    }
+
+    private double interpolateAngle(int lower, int upper, int field, double t){
+        double start = get(lower, field);
+        double delta = Math.IEEEremainder(get(upper, field) - start, 2 * Math.PI);
+        return start + delta * t;
+    }
+}
@@ -0,0 +1,53 @@
+package frc.robot.util;
+
+/**
+ * Fixed size ring buffer of primitive doubles. When full, the oldest sample is overwritten.
+ * Not thread safe on its own, callers share {@link OdometryThread#odometryLock}.
+ */
+public class DoubleRingBuffer {
+    private final double[] buffer;
+    private int head;
+    private int size;
+
+    public DoubleRingBuffer(int capacity){
+        buffer = new double[capacity];
+        head = 0;
+        size = 0;
+    }
+
+    public void add(double value){
+        buffer[(head + size) % buffer.length] = value;
+        if(size < buffer.length){
+            size++;
+        }else{
+            head = (head + 1) % buffer.length;
+        }
+    }
+
+    /**
+     * Copies every buffered sample, oldest first, into {@code output} and empties the buffer.
+     * @param output Array to copy into, should be at least {@link #capacity()} long
+     * @return Number of samples copied
+     */
+    public int drainTo(double[] output){
+        int count = Math.min(size, output.length);
+        for(int i = 0; i < count; i++){
+            output[i] = buffer[(head + i) % buffer.length];
+        }
+        clear();
+        return count;
+    }
+
+    public void clear(){
+        head = 0;
+        size = 0;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public int capacity(){
+        return buffer.length;
+    }
+}
@@ -0,0 +1,193 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import frc.robot.Constants.SwerveDriveConstants;
+
+/**
+ * Turns stick positions into drive speeds: the joystick curves, the direction, magnitude and
+ * rotation slew limits and the translation deadband {@link DriverOI} applies. Takes the time as an
+ * argument instead of reading a clock, so the tuning sweeps can run many of these at once on
+ * simulated time. Not thread safe, one per driver.
+ */
+public class DriveInputShaper {
+    private static final double kTranslationDeadband = 0.15;
+    private static final double kRotationDeadband = 0.3;
+
+    private final boolean useRateLimit;
+    private final double directionSlewRate;
+    private final double magnitudeSlewRate;
+    private final double rotationalSlewRate;
+
+    private double currentTranslationDir = 0.0;
+    private double currentTranslationMag = 0.0;
+    private double prevTime;
+    private double currentRotation = 0.0;
+    private double prevRotationTime;
+
+    private double translationX = 0.0;
+    private double translationY = 0.0;
+
+    /**
+     * Shapes with the slew rates in {@link SwerveDriveConstants}.
+     * @param currentTime Time in seconds the slew limits start from
+     */
+    public DriveInputShaper(double currentTime){
+        this(SwerveDriveConstants.kUseRateLimit, SwerveDriveConstants.kDirectionSlewRate,
+            SwerveDriveConstants.kMagnitudeSlewRate, SwerveDriveConstants.kRotationalSlewRate, currentTime);
+    }
+
+    /**
+     * @param useRateLimit False passes the sticks straight through to the deadband
+     * @param directionSlewRate Radians per second at full speed, faster when moving slower
+     * @param magnitudeSlewRate Stick magnitude per second
+     * @param rotationalSlewRate Rotation stick per second
+     * @param currentTime Time in seconds the slew limits start from
+     */
+    public DriveInputShaper(boolean useRateLimit, double directionSlewRate, double magnitudeSlewRate,
+                            double rotationalSlewRate, double currentTime){
+        this.useRateLimit = useRateLimit;
+        this.directionSlewRate = directionSlewRate;
+        this.magnitudeSlewRate = magnitudeSlewRate;
+        this.rotationalSlewRate = rotationalSlewRate;
+        prevTime = currentTime;
+        prevRotationTime = currentTime;
+    }
+
+    /**
+     * Curve for one translation stick axis, already pointed so forward and left are positive.
+     */
+    public static double shapeTranslationAxis(double input){
+        if(Math.abs(input) < 0.9){
+            return input * 0.7777; // Why 0.7777?
+        }else{
+            return Math.pow(input, 3);
+        }
+    }
+
+    /**
+     * Curve for the rotation stick twist, counter clockwise positive.
+     */
+    public static double shapeRotationAxis(double twist){
+        return -Math.pow(deadband(twist, kRotationDeadband), 3);
+    }
+
+    public static double deadband(double joystickValue, double DeadbandCutoff){
+        if(joystickValue<DeadbandCutoff && joystickValue>(DeadbandCutoff*(-1))){
+            return 0.0;
+        }
+        return (joystickValue-(Math.abs(joystickValue)/joystickValue*DeadbandCutoff))/(1-DeadbandCutoff);
+    }
+
+    /**
+     * Slew limits and deadbands shaped translation sticks. Read the result with
+     * {@link #getTranslationX()} and {@link #getTranslationY()}.
+     * @param xSpeed Shaped forward stick
+     * @param ySpeed Shaped left stick
+     * @param speedCoeff Fraction of {@link SwerveDriveConstants#kRealMaxSpeedMPS} a full stick asks for
+     * @param currentTime Loop time in seconds
+     */
+    public void calculateTranslation(double xSpeed, double ySpeed, double speedCoeff, double currentTime){
+        double xSpeedCommanded, ySpeedCommanded;
+
+        if(useRateLimit){
+            double inputTranslationDir = Math.atan2(ySpeed, xSpeed);
+            double inputTranslationMag = Math.sqrt(Math.pow(xSpeed,2)+Math.pow(ySpeed,2));
+
+            double directionRate;
+            if(currentTranslationMag != 0.0){
+                directionRate = Math.abs(directionSlewRate / currentTranslationMag);
+            }else{
+                directionRate = 500.0;
+            }
+
+            double elapsedTime = currentTime - prevTime;
+            double angleDif = DriverOI.AngleDifference(inputTranslationDir, currentTranslationDir);
+            if (angleDif < 0.45 * Math.PI) {
+                currentTranslationDir = DriverOI.StepTowardsCircular(currentTranslationDir, inputTranslationDir,
+                        directionRate * elapsedTime);
+                currentTranslationMag = stepMagnitude(inputTranslationMag, elapsedTime);
+            } else if (angleDif > 0.85 * Math.PI) {
+                if (currentTranslationMag > 1e-4) { // some small number to avoid floating-point errors with equality
+                                                    // checking
+                    // keep currentTranslationDir unchanged
+                    currentTranslationMag = stepMagnitude(0.0, elapsedTime);
+                } else {
+                    currentTranslationDir = DriverOI.WrapAngle(currentTranslationDir + Math.PI);
+                    currentTranslationMag = stepMagnitude(inputTranslationMag, elapsedTime);
+                }
+            } else {
+                currentTranslationDir = DriverOI.StepTowardsCircular(currentTranslationDir, inputTranslationDir,
+                        directionRate * elapsedTime);
+                currentTranslationMag = stepMagnitude(0.0, elapsedTime);
+            }
+            prevTime = currentTime;
+
+            xSpeedCommanded = currentTranslationMag * Math.cos(currentTranslationDir);
+            ySpeedCommanded = currentTranslationMag * Math.sin(currentTranslationDir);
+        } else {
+            xSpeedCommanded = xSpeed;
+            ySpeedCommanded = ySpeed;
+        }
+
+        double norm = Math.hypot(xSpeedCommanded, ySpeedCommanded);
+        if(norm < kTranslationDeadband){
+            translationX = 0.0;
+            translationY = 0.0;
+        }else{
+            // Same as fromPolar(new Rotation2d(x, y), 0.15) without the allocations
+            double deadband_x = xSpeedCommanded / norm * kTranslationDeadband;
+            double deadband_y = ySpeedCommanded / norm * kTranslationDeadband;
+
+            double new_translation_x = xSpeedCommanded - (deadband_x) / (1 - deadband_x);
+            double new_translation_y = ySpeedCommanded - (deadband_y) / (1 - deadband_y);
+
+            translationX = new_translation_x * speedCoeff * SwerveDriveConstants.kRealMaxSpeedMPS;
+            translationY = new_translation_y * speedCoeff * SwerveDriveConstants.kRealMaxSpeedMPS;
+        }
+    }
+
+    /**
+     * Same as a {@link edu.wpi.first.math.filter.SlewRateLimiter} on the magnitude, on the given time.
+     */
+    private double stepMagnitude(double input, double elapsedTime){
+        double maxStep = magnitudeSlewRate * elapsedTime;
+        return currentTranslationMag + MathUtil.clamp(input - currentTranslationMag, -maxStep, maxStep);
+    }
+
+    public double getTranslationX(){
+        return translationX;
+    }
+
+    public double getTranslationY(){
+        return translationY;
+    }
+
+    /**
+     * Forgets the slewed sticks, as if just constructed.
+     * @param currentTime Time in seconds the slew limits start from
+     */
+    public void reset(double currentTime){
+        currentTranslationDir = 0.0;
+        currentTranslationMag = 0.0;
+        currentRotation = 0.0;
+        translationX = 0.0;
+        translationY = 0.0;
+        prevTime = currentTime;
+        prevRotationTime = currentTime;
+    }
+
+    /**
+     * @param rotation Shaped rotation stick
+     * @param currentTime Loop time in seconds
+     * @return Rotation stick after the slew limit, scale it to a rate
+     */
+    public double calculateRotation(double rotation, double currentTime){
+        if(!useRateLimit){
+            return rotation;
+        }
+        double maxStep = rotationalSlewRate * (currentTime - prevRotationTime);
+        currentRotation += MathUtil.clamp(rotation - currentRotation, -maxStep, maxStep);
+        prevRotationTime = currentTime;
+        return currentRotation;
+    }
+}
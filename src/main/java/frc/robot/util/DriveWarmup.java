@@ -0,0 +1,164 @@
+package frc.robot.util;
+
+import com.pathplanner.lib.config.PIDConstants;
+import com.pathplanner.lib.controllers.PPHolonomicDriveController;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectoryState;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.TelemetryConstants;
+import frc.robot.Constants.WarmupConstants;
+import frc.robot.commands.SwerveDriveCommand;
+import frc.robot.subsystems.Autonomous;
+import frc.robot.subsystems.Drivetrain;
+import frc.robot.util.Telemetry.Priority;
+
+/**
+ * Runs the teleop and auto drive paths on made up inputs while disabled, so the JIT has compiled
+ * them before the first enabled loop instead of during it. Teleop iterations feed made up sticks
+ * to {@link DriverOI} on made up time and run the real {@link SwerveDriveCommand}, then run a
+ * {@link HeadingCorrector} on made up time and heading, since the drivetrain's own one never gets
+ * past its hold off on real time with the modules held still. Auto iterations sample a cached
+ * trajectory and go through the same PathPlanner controller the followers use, then
+ * {@link Drivetrain#autoDrive}. The drivetrain holds the modules at zero speed the whole time, see
+ * {@link Drivetrain#setHoldOutputs}.
+ *
+ * <p>The JVM does not say when a method has been compiled, so this runs a fixed number of
+ * iterations, well past the counts C2 compiles at. A fixed count also keeps replay deterministic.
+ */
+public class DriveWarmup {
+    private final Drivetrain drivetrain;
+    private final DriverOI driverOI;
+    private final SwerveDriveCommand swerveDriveCommand;
+    private final WarmupSticks sticks = new WarmupSticks();
+    private final HeadingCorrector headingCorrector = new HeadingCorrector(0.0, 0.0);
+    private final PPHolonomicDriveController controller = new PPHolonomicDriveController(
+        new PIDConstants(AutoConstants.kPathTranslationP, 0, 0),
+        new PIDConstants(AutoConstants.kPathRotationP, 0, 0));
+    // Null when no auto is cached, the target is made up instead
+    private final CachedTrajectory trajectory;
+    private final PathPlannerTrajectoryState targetState = new PathPlannerTrajectoryState();
+
+    private final Telemetry.BooleanSignal completeSignal;
+    private final Telemetry.DoubleSignal progressSignal;
+
+    private int iterations;
+    private double inputTime;
+    private boolean holding;
+
+    /**
+     * Made up joystick values, read by {@link DriverOI} in place of the joysticks.
+     */
+    private static class WarmupSticks implements DriverInputIO {
+        private double leftX, leftY, rightX, rightY, rightTwist;
+
+        @Override
+        public void updateInputs(DriverInputIOInputs inputs){
+            inputs.leftX = leftX;
+            inputs.leftY = leftY;
+            inputs.rightX = rightX;
+            inputs.rightY = rightY;
+            inputs.rightTwist = rightTwist;
+            inputs.leftButtons = 0;
+            inputs.rightButtons = 0;
+        }
+    }
+
+    /**
+     * @param swerveDriveCommand The teleop drive command, run directly since it does not run while disabled
+     */
+    public DriveWarmup(SwerveDriveCommand swerveDriveCommand){
+        this.swerveDriveCommand = swerveDriveCommand;
+        drivetrain = Drivetrain.getInstance();
+        driverOI = DriverOI.getInstance();
+        trajectory = Autonomous.getInstance().getFirstCachedTrajectory();
+
+        Telemetry telemetry = Telemetry.getInstance();
+        completeSignal = telemetry.addBoolean("Drive Warmup Complete", TelemetryConstants.kStatusRateHz, Priority.CRITICAL);
+        progressSignal = telemetry.addDouble("Drive Warmup Progress", TelemetryConstants.kStatusRateHz);
+        completeSignal.set(false);
+        progressSignal.set(0.0);
+    }
+
+    public boolean isComplete(){
+        return iterations >= WarmupConstants.kIterations;
+    }
+
+    /**
+     * Runs a batch of iterations, call from disabledPeriodic(). Does nothing once complete.
+     */
+    public void run(){
+        if(isComplete()){
+            return;
+        }
+        if(!holding){
+            drivetrain.setHoldOutputs(true);
+            driverOI.setInputOverride(sticks);
+            holding = true;
+        }
+
+        for(int i = 0; i < WarmupConstants.kIterationsPerLoop && !isComplete(); i++){
+            if(iterations % 2 == 0){
+                runTeleop();
+            }else{
+                runAuto();
+            }
+            inputTime += WarmupConstants.kInputPeriodSeconds;
+            iterations++;
+        }
+        progressSignal.set((double) iterations / WarmupConstants.kIterations);
+
+        if(isComplete()){
+            stop();
+            completeSignal.set(true);
+        }
+    }
+
+    /**
+     * Gives the drivetrain and the joysticks back, call when leaving disabled. An unfinished
+     * warmup carries on the next time the robot is disabled.
+     */
+    public void stop(){
+        if(holding){
+            driverOI.setInputOverride(null);
+            drivetrain.setHoldOutputs(false);
+            holding = false;
+        }
+    }
+
+    private void runTeleop(){
+        // Sweep the stick around the circle, twisting for part of every cycle
+        double magnitude = 0.5 + 0.5 * Math.sin(inputTime * 0.3);
+        boolean twisting = iterations % WarmupConstants.kRotationCycleIterations < WarmupConstants.kRotationCycleIterations / 4;
+        sticks.leftX = -magnitude * Math.sin(inputTime);
+        sticks.leftY = -magnitude * Math.cos(inputTime);
+        sticks.rightX = twisting ? 0.5 * Math.sin(inputTime * 0.7) : 0.0;
+        sticks.rightY = twisting ? 0.5 * Math.cos(inputTime * 0.5) : 0.0;
+        sticks.rightTwist = twisting ? Math.cos(inputTime * 2.0) : 0.0;
+
+        // Several iterations share a loop, the slew limits would not move on the loop time
+        driverOI.setOverrideTime(inputTime);
+        driverOI.updateInputs();
+        swerveDriveCommand.execute();
+
+        // Drifts off the held heading while the stick is let go, so the correction is taken
+        double heading = 0.3 * Math.sin(inputTime * 0.5);
+        headingCorrector.calculate(driverOI.getSwerveTranslationX(), driverOI.getSwerveTranslationY(),
+            DriveInputShaper.shapeRotationAxis(sticks.rightTwist), inputTime, heading);
+    }
+
+    private void runAuto(){
+        if(trajectory != null){
+            trajectory.sample(inputTime % trajectory.getTotalTimeSeconds(), targetState);
+        }else{
+            targetState.timeSeconds = inputTime;
+            targetState.pose = new Pose2d(Math.cos(inputTime), Math.sin(inputTime), new Rotation2d(inputTime));
+            targetState.fieldSpeeds = new ChassisSpeeds(-Math.sin(inputTime), Math.cos(inputTime), 1.0);
+            targetState.linearVelocity = 1.0;
+            targetState.heading = new Rotation2d(inputTime + Math.PI / 2);
+        }
+        drivetrain.autoDrive(controller.calculateRobotRelativeSpeeds(drivetrain.getPose(), targetState));
+    }
+}
@@ -0,0 +1,60 @@
+package frc.robot.util;
+
+/**
+ * Driver joysticks behind {@link DriverOI}. Replay uses the no-op default.
+ */
+public interface DriverInputIO {
+    /**
+     * Raw joystick axes and buttons for one loop. Bit n - 1 of a button mask is button n.
+     */
+    class DriverInputIOInputs{
+        public double leftX = 0.0;
+        public double leftY = 0.0;
+        public double rightX = 0.0;
+        public double rightY = 0.0;
+        public double rightTwist = 0.0;
+        public int leftButtons = 0;
+        public int rightButtons = 0;
+
+        private final int leftXInput, leftYInput, rightXInput, rightYInput, rightTwistInput,
+            leftButtonsInput, rightButtonsInput;
+
+        public DriverInputIOInputs(String prefix){
+            InputLog inputLog = InputLog.getInstance();
+            leftXInput = inputLog.registerDouble(prefix + "LeftX");
+            leftYInput = inputLog.registerDouble(prefix + "LeftY");
+            rightXInput = inputLog.registerDouble(prefix + "RightX");
+            rightYInput = inputLog.registerDouble(prefix + "RightY");
+            rightTwistInput = inputLog.registerDouble(prefix + "RightTwist");
+            leftButtonsInput = inputLog.registerDouble(prefix + "LeftButtons");
+            rightButtonsInput = inputLog.registerDouble(prefix + "RightButtons");
+        }
+
+        /**
+         * Records these inputs, or replaces them with the recorded ones during replay.
+         */
+        public void process(){
+            InputLog inputLog = InputLog.getInstance();
+            leftX = inputLog.process(leftXInput, leftX);
+            leftY = inputLog.process(leftYInput, leftY);
+            rightX = inputLog.process(rightXInput, rightX);
+            rightY = inputLog.process(rightYInput, rightY);
+            rightTwist = inputLog.process(rightTwistInput, rightTwist);
+            leftButtons = (int) inputLog.process(leftButtonsInput, leftButtons);
+            rightButtons = (int) inputLog.process(rightButtonsInput, rightButtons);
+        }
+
+        /**
+         * @param button Button number, starting at 1
+         */
+        public boolean getLeftButton(int button){
+            return (leftButtons & (1 << (button - 1))) != 0;
+        }
+
+        public boolean getRightButton(int button){
+            return (rightButtons & (1 << (button - 1))) != 0;
+        }
+    }
+
+    default void updateInputs(DriverInputIOInputs inputs){}
+}
@@ -0,0 +1,24 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Joystick;
+
+/**
+ * Two flight sticks, translation on port 0 and rotation on port 1. Also used in simulation, where
+ * the driver station sim provides the joysticks.
+ */
+public class DriverInputIOJoysticks implements DriverInputIO {
+    private final Joystick leftJoystick = new Joystick(0);
+    private final Joystick rightJoystick = new Joystick(1);
+
+    @Override
+    public void updateInputs(DriverInputIOInputs inputs){
+        inputs.leftX = leftJoystick.getRawAxis(0);
+        inputs.leftY = leftJoystick.getRawAxis(1);
+        inputs.rightX = rightJoystick.getRawAxis(0);
+        inputs.rightY = rightJoystick.getRawAxis(1);
+        inputs.rightTwist = rightJoystick.getRawAxis(2);
+        inputs.leftButtons = DriverStation.getStickButtons(leftJoystick.getPort());
+        inputs.rightButtons = DriverStation.getStickButtons(rightJoystick.getPort());
+    }
+}
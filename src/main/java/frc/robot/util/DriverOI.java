@@ -1,12 +1,10 @@
 package frc.robot.util;
 
-import edu.wpi.first.math.filter.SlewRateLimiter;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.util.WPIUtilJNI;
-import edu.wpi.first.wpilibj.Joystick;
-import edu.wpi.first.wpilibj2.command.button.JoystickButton;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.robot.Constants;
 import frc.robot.Constants.SwerveDriveConstants;
 import frc.robot.subsystems.Drivetrain;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
@@ -14,18 +12,24 @@ import edu.wpi.first.wpilibj2.command.InstantCommand;
 public class DriverOI {
     public static DriverOI instance;
 
-    private final Drivetrain drivetrain;
+    // Slew limits and deadband, holds the translation outputs of the last update
+    private final DriveInputShaper m_shaper;
 
-    // private double m_currentRotation = 0.0;
-    private double m_currentTranslationDir = 0.0;
-    private double m_currentTranslationMag = 0.0;
+    // Outputs of the last update, kept as fields so the drive path does not allocate
+    private double m_centerOfRotationX = 0.0;
+    private double m_centerOfRotationY = 0.0;
 
-    private SlewRateLimiter m_magLimiter = new SlewRateLimiter(SwerveDriveConstants.kMagnitudeSlewRate);
-    private SlewRateLimiter m_rotLimiter = new SlewRateLimiter(SwerveDriveConstants.kRotationalSlewRate);
-    private double m_prevTime = WPIUtilJNI.now() * 1e-6;
+    private final DriverInputIO io;
+    private final DriverInputIO.DriverInputIOInputs inputs;
+    // Read instead of io while set, see setInputOverride
+    private DriverInputIO overrideIO;
+    // Replaces the loop time while the override is set, NaN until setOverrideTime is called
+    private double overrideTime = Double.NaN;
 
-    private final Joystick leftJoystick = new Joystick(0);
-    private final Joystick rightJoystick = new Joystick(1);
+    // Drive log entries
+    private final AsyncDataLogger logger;
+    private final int forwardLog, strafeLog, rotationLog, translationXLog, translationYLog,
+        centerOfRotationXLog, centerOfRotationYLog;
 
     public enum DPadDirection{
         NONE, FORWARDS, LEFT, RIGHT, BACKWARDS
@@ -39,21 +43,39 @@ public class DriverOI {
     private DriveSpeedMode driveSpeedMode;
 
     public DriverOI(){
-        drivetrain = Drivetrain.getInstance();
+        this(Constants.currentMode == Constants.Mode.REPLAY ? new DriverInputIO(){} : new DriverInputIOJoysticks());
+    }
+
+    /**
+     * @param io Where the joystick values come from, the benchmarks pass in scripted inputs
+     */
+    public DriverOI(DriverInputIO io){
+        this.io = io;
+        inputs = new DriverInputIO.DriverInputIOInputs(InputLog.kPrefix + "DriverOI/");
+        m_shaper = new DriveInputShaper(InputLog.getInstance().getTimestamp());
 
         driveSpeedMode = DriveSpeedMode.NORMAL;
 
+        logger = AsyncDataLogger.getInstance();
+        forwardLog = logger.registerDouble("/DriverOI/Forward");
+        strafeLog = logger.registerDouble("/DriverOI/Strafe");
+        rotationLog = logger.registerDouble("/DriverOI/RotationRadiansPerSecond");
+        translationXLog = logger.registerDouble("/DriverOI/TranslationXMPS");
+        translationYLog = logger.registerDouble("/DriverOI/TranslationYMPS");
+        centerOfRotationXLog = logger.registerDouble("/DriverOI/CenterOfRotationXMeters");
+        centerOfRotationYLog = logger.registerDouble("/DriverOI/CenterOfRotationYMeters");
+
         configureJoystick();
     }
 
     public void configureJoystick(){
 
         //Slow mode for driving 
-        Trigger slowMode = new JoystickButton(leftJoystick, 1);
+        Trigger slowMode = new Trigger(() -> inputs.getLeftButton(1));
         slowMode.toggleOnTrue(new InstantCommand(()-> toggleDriveSpeedMode()));
 
-        JoystickButton resetPose = new JoystickButton(rightJoystick, 6);
-        resetPose.onTrue(new InstantCommand(()-> drivetrain.resetGyro()));
+        Trigger resetPose = new Trigger(() -> inputs.getRightButton(6));
+        resetPose.onTrue(new InstantCommand(()-> Drivetrain.getInstance().resetGyro()));
         
     }
 
@@ -65,51 +87,96 @@ public class DriverOI {
         return instance;
     }
 
-    public double getForward(){
-        double input = -leftJoystick.getRawAxis(1);
+    /**
+     * Reads the joysticks, or the recorded ones during replay. Call once per loop before the
+     * scheduler runs so the button triggers see this loop's values.
+     */
+    public void updateInputs(){
+        (overrideIO != null ? overrideIO : io).updateInputs(inputs);
+        inputs.process();
+    }
 
-        if(Math.abs(input) < 0.9){
-            return input *= 0.7777; // Why 0.7777?
-        }else{
-            return input = Math.pow(input, 3);
+    /**
+     * Reads the sticks from {@code overrideIO} instead of the joysticks until cleared with null,
+     * {@link DriveWarmup} drives the teleop path with made up sticks through this. The values are
+     * still recorded, so replay sees them too. Clearing it forgets the slewed sticks.
+     */
+    public void setInputOverride(DriverInputIO overrideIO){
+        this.overrideIO = overrideIO;
+        if(overrideIO == null){
+            overrideTime = Double.NaN;
+            m_shaper.reset(InputLog.getInstance().getTimestamp());
         }
     }
 
-        public double getStrafe(){
-        double input = -leftJoystick.getRawAxis(0);
-
-        if(Math.abs(input) < 0.9){
-            return input *=0.7777; // Why 0.7777?
-        }else{
-            return input = Math.pow(input, 3);
+    /**
+     * Runs the slew limits on {@code time} instead of the loop time while the input override is
+     * set. Made up sticks can be read several times a loop, on the loop time only the first read
+     * of each loop would move the slew limits. The first call starts the slew limits over at
+     * {@code time}, after that it must not go back.
+     */
+    public void setOverrideTime(double time){
+        if(Double.isNaN(overrideTime)){
+            m_shaper.reset(time);
         }
+        overrideTime = time;
     }
 
-    public double getRotation() {
-        double rotation = -Math.pow(deadband(rightJoystick.getRawAxis(2),0.3),3);
+    /**
+     * @return Time the slew limits run on, the loop time unless {@link #setOverrideTime} replaced it
+     */
+    private double getInputTime(){
+        return overrideIO != null && !Double.isNaN(overrideTime) ? overrideTime : InputLog.getInstance().getTimestamp();
+    }
 
-        double combinedRotation;
-        if (SwerveDriveConstants.kUseRateLimit) {
-            combinedRotation = m_rotLimiter.calculate(rotation);
-        } else {
-            combinedRotation = (rotation);
-        }
+    public double getForward(){
+        return DriveInputShaper.shapeTranslationAxis(-inputs.leftY);
+    }
 
-        return combinedRotation * getRotationSpeedCoeff() * SwerveDriveConstants.kMaxAngularSpeed;
+    public double getStrafe(){
+        return DriveInputShaper.shapeTranslationAxis(-inputs.leftX);
+    }
+
+    public double getRotation() {
+        double combinedRotation = m_shaper.calculateRotation(DriveInputShaper.shapeRotationAxis(inputs.rightTwist),
+            getInputTime());
+
+        double rotationSpeed = combinedRotation * getRotationSpeedCoeff() * SwerveDriveConstants.kMaxAngularSpeed;
+        logger.log(rotationLog, rotationSpeed);
+        return rotationSpeed;
     }
 
     public Translation2d getCenterOfRotation() {
-        double rotX = rightJoystick.getRawAxis(0) * SwerveDriveConstants.kWheelBase;
-        double rotY = rightJoystick.getRawAxis(1) * SwerveDriveConstants.kTrackWidth;
+        updateCenterOfRotation();
+        return new Translation2d(m_centerOfRotationX, m_centerOfRotationY);
+    }
+
+    /**
+     * Reads the center of rotation without allocating, get the result with
+     * {@link #getCenterOfRotationX()} and {@link #getCenterOfRotationY()}.
+     */
+    public void updateCenterOfRotation() {
+        double rotX = inputs.rightX * SwerveDriveConstants.kWheelBase;
+        double rotY = inputs.rightY * SwerveDriveConstants.kTrackWidth;
 
         if (rotX * rotY > 0) {
             rotX = -rotX;
             rotY = -rotY;
         }
-        rotX *= 0.75;
-        rotY *= 0.75;
-        Translation2d output = new Translation2d(rotX, rotY);
-        return output;
+        m_centerOfRotationX = rotX * 0.75;
+        m_centerOfRotationY = rotY * 0.75;
+
+        long timestamp = RobotController.getFPGATime();
+        logger.log(centerOfRotationXLog, m_centerOfRotationX, timestamp);
+        logger.log(centerOfRotationYLog, m_centerOfRotationY, timestamp);
+    }
+
+    public double getCenterOfRotationX() {
+        return m_centerOfRotationX;
+    }
+
+    public double getCenterOfRotationY() {
+        return m_centerOfRotationY;
     }
 
     public Translation2d fromPolar(Rotation2d direction, double magnitude){
@@ -216,73 +283,41 @@ public class DriverOI {
     }
     
     public Translation2d getSwerveTranslation(){
-        double xSpeed = getForward();
-        double ySpeed = getStrafe();
-
-        double xSpeedCommanded, ySpeedCommanded;
-
-        xSpeedCommanded = xSpeed;
-        ySpeedCommanded = ySpeed;
-
-        if(SwerveDriveConstants.kUseRateLimit){
-            double inputTranslationDir = Math.atan2(ySpeed, xSpeed);
-            double inputTranslationMag = Math.sqrt(Math.pow(xSpeed,2)+Math.pow(ySpeed,2));
-
-            double directionSlewRate;
-            if(m_currentTranslationMag != 0.0){
-                directionSlewRate = Math.abs(SwerveDriveConstants.kDirectionSlewRate / m_currentTranslationMag);
-            }else{
-                directionSlewRate = 500.0;
-            }
-
-            double currentTime = WPIUtilJNI.now() * 1e-6;
-            double elapsedTime = currentTime - m_prevTime;
-            double angleDif = AngleDifference(inputTranslationDir, m_currentTranslationDir);
-            if (angleDif < 0.45 * Math.PI) {
-                m_currentTranslationDir = StepTowardsCircular(m_currentTranslationDir, inputTranslationDir,
-                        directionSlewRate * elapsedTime);
-                m_currentTranslationMag = m_magLimiter.calculate(inputTranslationMag);
-            } else if (angleDif > 0.85 * Math.PI) {
-                if (m_currentTranslationMag > 1e-4) { // some small number to avoid floating-point errors with equality
-                                                      // checking
-                    // keep currentTranslationDir unchanged
-                    m_currentTranslationMag = m_magLimiter.calculate(0.0);
-                } else {
-                    m_currentTranslationDir = WrapAngle(m_currentTranslationDir + Math.PI);
-                    m_currentTranslationMag = m_magLimiter.calculate(inputTranslationMag);
-                }
-            } else {
-                m_currentTranslationDir =StepTowardsCircular(m_currentTranslationDir, inputTranslationDir,
-                        directionSlewRate * elapsedTime);
-                m_currentTranslationMag = m_magLimiter.calculate(0.0);
-            }
-            m_prevTime = currentTime;
+        updateSwerveTranslation();
+        return new Translation2d(m_shaper.getTranslationX(), m_shaper.getTranslationY());
+    }
 
-            xSpeedCommanded = m_currentTranslationMag * Math.cos(m_currentTranslationDir);
-            ySpeedCommanded = m_currentTranslationMag * Math.sin(m_currentTranslationDir);
+    /**
+     * Shapes the translation joystick without allocating, get the result with
+     * {@link #getSwerveTranslationX()} and {@link #getSwerveTranslationY()}.
+     */
+    public void updateSwerveTranslation(){
+        updateSwerveTranslation(getInputTime());
+    }
 
-        } else {
-            xSpeedCommanded = xSpeed;
-            ySpeedCommanded = ySpeed;
-        }
+    /**
+     * {@link #updateSwerveTranslation()} at a given loop time.
+     * @param currentTime Loop time in seconds
+     */
+    public void updateSwerveTranslation(double currentTime){
+        double xSpeed = getForward();
+        double ySpeed = getStrafe();
 
-        Translation2d next_translation = new Translation2d(xSpeedCommanded, ySpeedCommanded);
+        m_shaper.calculateTranslation(xSpeed, ySpeed, getTranslationSpeedCoeff(), currentTime);
 
-        double norm = next_translation.getNorm();
-        if(norm < 0.15){
-            return new Translation2d();
-        }else{
-            Rotation2d deadband_direction = new Rotation2d(next_translation.getX(), next_translation.getY());
-            Translation2d deadband_vector = fromPolar(deadband_direction, 0.15);
+        long timestamp = RobotController.getFPGATime();
+        logger.log(forwardLog, xSpeed, timestamp);
+        logger.log(strafeLog, ySpeed, timestamp);
+        logger.log(translationXLog, m_shaper.getTranslationX(), timestamp);
+        logger.log(translationYLog, m_shaper.getTranslationY(), timestamp);
+    }
 
-            double new_translation_x = next_translation.getX() - (deadband_vector.getX()) / (1 - deadband_vector.getX());
-            double new_translation_y = next_translation.getY() - (deadband_vector.getY()) / (1 - deadband_vector.getY());
+    public double getSwerveTranslationX(){
+        return m_shaper.getTranslationX();
+    }
 
-            next_translation = new Translation2d(new_translation_x * getTranslationSpeedCoeff() * SwerveDriveConstants.kRealMaxSpeedMPS,
-                                                 new_translation_y * getTranslationSpeedCoeff() * SwerveDriveConstants.kRealMaxSpeedMPS);
-                                             
-            return next_translation;
-        }
+    public double getSwerveTranslationY(){
+        return m_shaper.getTranslationY();
     }
 
     public double getTranslationSpeedCoeff(){
@@ -304,10 +339,7 @@ public class DriverOI {
     }
 
     public double deadband(double joystickValue, double DeadbandCutoff){
-        if(joystickValue<DeadbandCutoff && joystickValue>(DeadbandCutoff*(-1))){
-            return 0.0;
-        } 
-        return (joystickValue-(Math.abs(joystickValue)/joystickValue*DeadbandCutoff))/(1-DeadbandCutoff);
+        return DriveInputShaper.deadband(joystickValue, DeadbandCutoff);
     }
     
 }
@@ -0,0 +1,69 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Everything other code reads about the drivetrain, taken at one instant. Immutable, so any thread
+ * can hold on to one without locking. ChassisSpeeds and SwerveModuleState are mutable, they are
+ * stored as numbers and a fresh copy is handed out on every call.
+ */
+public final class DrivetrainState {
+    public final Pose2d pose;
+    public final double vxMetersPerSecond;
+    public final double vyMetersPerSecond;
+    public final double omegaRadiansPerSecond;
+    /** FPGA time of the loop the state was taken in */
+    public final double timestampSeconds;
+
+    // Indexed by module number
+    private final double[] moduleSpeedsMetersPerSecond;
+    private final double[] moduleAnglesRadians;
+
+    /**
+     * @param moduleSpeedsMetersPerSecond Copied
+     * @param moduleAnglesRadians Copied
+     */
+    public DrivetrainState(Pose2d pose, double vxMetersPerSecond, double vyMetersPerSecond, double omegaRadiansPerSecond,
+                           double[] moduleSpeedsMetersPerSecond, double[] moduleAnglesRadians, double timestampSeconds){
+        this.pose = pose;
+        this.vxMetersPerSecond = vxMetersPerSecond;
+        this.vyMetersPerSecond = vyMetersPerSecond;
+        this.omegaRadiansPerSecond = omegaRadiansPerSecond;
+        this.moduleSpeedsMetersPerSecond = moduleSpeedsMetersPerSecond.clone();
+        this.moduleAnglesRadians = moduleAnglesRadians.clone();
+        this.timestampSeconds = timestampSeconds;
+    }
+
+    /**
+     * @return Robot relative speeds, a new object every call
+     */
+    public ChassisSpeeds getChassisSpeeds(){
+        return new ChassisSpeeds(vxMetersPerSecond, vyMetersPerSecond, omegaRadiansPerSecond);
+    }
+
+    public int getModuleCount(){
+        return moduleSpeedsMetersPerSecond.length;
+    }
+
+    /**
+     * @param moduleNum 0 FL, 1 FR, 2 BL, 3 BR
+     * @return Measured module state, a new object every call
+     */
+    public SwerveModuleState getModuleState(int moduleNum){
+        return new SwerveModuleState(moduleSpeedsMetersPerSecond[moduleNum], new Rotation2d(moduleAnglesRadians[moduleNum]));
+    }
+
+    /**
+     * @return Measured module states in module number order, new objects every call
+     */
+    public SwerveModuleState[] getModuleStates(){
+        SwerveModuleState[] states = new SwerveModuleState[moduleSpeedsMetersPerSecond.length];
+        for(int i = 0; i < states.length; i++){
+            states[i] = getModuleState(i);
+        }
+        return states;
+    }
+}
@@ -0,0 +1,452 @@
+package frc.robot.util;
+
+import java.util.Optional;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Swerve pose estimator with the same math as {@link edu.wpi.first.math.estimator.SwerveDrivePoseEstimator},
+ * written against preallocated primitive arrays so the odometry thread's 250 Hz samples can be fed
+ * in every loop without creating garbage.
+ *
+ * <p>Odometry poses are kept in a fixed size ring buffer ordered by timestamp, so a late vision
+ * measurement finds the odometry pose at its capture time with a binary search and interpolates
+ * between the two samples around it. Vision corrections are kept the same way, newest last. A
+ * measurement older than the newest correction drops the corrections after it, like WPILib does,
+ * and later poses are recomputed from the odometry history when they are sampled.
+ *
+ * <p>Not thread safe, main loop only.
+ */
+public class FastPoseEstimator {
+    private static final double kEpsilon = 1e-9;
+
+    private final FastSwerveKinematics kinematics;
+    private final int numModules;
+
+    // Odometry
+    private final double[] previousDistances;
+    private final double[] distanceDeltas;
+    private double gyroOffset;
+    private double previousAngle;
+    private double odometryX, odometryY, odometryTheta;
+
+    // Odometry pose history, timestamps increasing from historyHead
+    private final double historySeconds;
+    private final double[] historyTimestamps, historyX, historyY, historyTheta;
+    private int historyHead, historySize;
+
+    // Vision corrections, timestamps increasing from visionHead. The corrected pose and the
+    // odometry pose at the measurement's timestamp, so later odometry can be applied on top.
+    private final double[] visionTimestamps, visionX, visionY, visionTheta;
+    private final double[] visionOdometryX, visionOdometryY, visionOdometryTheta;
+    private int visionHead, visionSize;
+
+    // Squared state standard deviations
+    private final double qX, qY, qTheta;
+
+    private double estimateX, estimateY, estimateTheta;
+
+    // Output of the pose math below, read right after each call
+    private double resultX, resultY, resultTheta;
+
+    /**
+     * @param moduleLocations Module locations relative to the robot center, in kinematics order
+     * @param gyroAngleRadians Current gyro angle
+     * @param distancesMeters Current drive distance of each module, in kinematics order
+     * @param initialPose Starting pose
+     * @param stateStdDevs Trust in the odometry, x and y in meters and rotation in radians
+     * @param historySeconds How far back vision measurements are accepted
+     * @param historyCapacity Odometry samples kept, enough for historySeconds at the odometry rate
+     * @param visionCapacity Vision corrections kept
+     */
+    public FastPoseEstimator(Translation2d[] moduleLocations, double gyroAngleRadians, double[] distancesMeters,
+                             Pose2d initialPose, double[] stateStdDevs, double historySeconds, int historyCapacity,
+                             int visionCapacity){
+        kinematics = new FastSwerveKinematics(moduleLocations);
+        numModules = moduleLocations.length;
+        previousDistances = new double[numModules];
+        distanceDeltas = new double[numModules];
+
+        this.historySeconds = historySeconds;
+        historyTimestamps = new double[historyCapacity];
+        historyX = new double[historyCapacity];
+        historyY = new double[historyCapacity];
+        historyTheta = new double[historyCapacity];
+
+        visionTimestamps = new double[visionCapacity];
+        visionX = new double[visionCapacity];
+        visionY = new double[visionCapacity];
+        visionTheta = new double[visionCapacity];
+        visionOdometryX = new double[visionCapacity];
+        visionOdometryY = new double[visionCapacity];
+        visionOdometryTheta = new double[visionCapacity];
+
+        qX = stateStdDevs[0] * stateStdDevs[0];
+        qY = stateStdDevs[1] * stateStdDevs[1];
+        qTheta = stateStdDevs[2] * stateStdDevs[2];
+
+        resetPosition(gyroAngleRadians, distancesMeters, initialPose.getX(), initialPose.getY(),
+            initialPose.getRotation().getRadians());
+    }
+
+    /**
+     * Resets the odometry to a pose and forgets the pose history and every vision correction.
+     * @param gyroAngleRadians Current gyro angle
+     * @param distancesMeters Current drive distance of each module, in kinematics order
+     */
+    public void resetPosition(double gyroAngleRadians, double[] distancesMeters, double x, double y, double theta){
+        odometryX = x;
+        odometryY = y;
+        odometryTheta = MathUtil.angleModulus(theta);
+        previousAngle = odometryTheta;
+        gyroOffset = MathUtil.angleModulus(odometryTheta - gyroAngleRadians);
+        for(int i = 0; i < numModules; i++){
+            previousDistances[i] = distancesMeters[i];
+        }
+
+        historyHead = 0;
+        historySize = 0;
+        visionHead = 0;
+        visionSize = 0;
+
+        estimateX = odometryX;
+        estimateY = odometryY;
+        estimateTheta = odometryTheta;
+    }
+
+    /**
+     * Adds one odometry sample. Samples must come in timestamp order, one that is not newer than
+     * the last sample still moves the odometry but is left out of the history.
+     * @param timestampSeconds Sample time on the FPGA clock
+     * @param gyroAngleRadians Gyro angle at the sample
+     * @param distancesMeters Drive distance of each module at the sample, in kinematics order
+     * @param anglesRadians Angle of each module at the sample, in kinematics order
+     */
+    public void updateWithTime(double timestampSeconds, double gyroAngleRadians, double[] distancesMeters,
+                               double[] anglesRadians){
+        for(int i = 0; i < numModules; i++){
+            distanceDeltas[i] = distancesMeters[i] - previousDistances[i];
+            previousDistances[i] = distancesMeters[i];
+        }
+        kinematics.toTwist2d(distanceDeltas, anglesRadians);
+
+        // The gyro is trusted for heading over the wheels, as in SwerveDriveOdometry
+        double angle = MathUtil.angleModulus(gyroAngleRadians + gyroOffset);
+        exp(odometryX, odometryY, odometryTheta, kinematics.getTwistDx(), kinematics.getTwistDy(),
+            MathUtil.angleModulus(angle - previousAngle));
+        odometryX = resultX;
+        odometryY = resultY;
+        odometryTheta = angle;
+        previousAngle = angle;
+
+        addHistorySample(timestampSeconds);
+
+        if(visionSize == 0){
+            estimateX = odometryX;
+            estimateY = odometryY;
+            estimateTheta = odometryTheta;
+        }else{
+            compensate(visionSize - 1, odometryX, odometryY, odometryTheta);
+            estimateX = resultX;
+            estimateY = resultY;
+            estimateTheta = resultTheta;
+        }
+    }
+
+    /**
+     * Corrects the estimate with a vision pose. Measurements older than the pose history are
+     * ignored.
+     * @param timestampSeconds Capture time on the FPGA clock
+     * @param xyStdDevMeters Trust in the measurement's x and y
+     * @param thetaStdDevRadians Trust in the measurement's rotation
+     * @return False if the measurement was too old to use
+     */
+    public boolean addVisionMeasurement(double x, double y, double theta, double timestampSeconds,
+                                        double xyStdDevMeters, double thetaStdDevRadians){
+        if(historySize == 0 || historyTimestamp(historySize - 1) - historySeconds > timestampSeconds){
+            return false;
+        }
+
+        cleanUpVisionUpdates();
+
+        sampleOdometry(timestampSeconds);
+        double odometrySampleX = resultX, odometrySampleY = resultY, odometrySampleTheta = resultTheta;
+
+        sample(timestampSeconds);
+        double sampleX = resultX, sampleY = resultY, sampleTheta = resultTheta;
+
+        // Move the pose at the capture time toward the measurement by the Kalman gain on each axis
+        log(sampleX, sampleY, sampleTheta, x, y, MathUtil.angleModulus(theta));
+        double xyVariance = xyStdDevMeters * xyStdDevMeters;
+        exp(sampleX, sampleY, sampleTheta,
+            resultX * gain(qX, xyVariance),
+            resultY * gain(qY, xyVariance),
+            resultTheta * gain(qTheta, thetaStdDevRadians * thetaStdDevRadians));
+
+        // Corrections after this one were made without it and no longer apply
+        visionSize = upperBound(visionTimestamps, visionHead, visionSize, timestampSeconds);
+        if(visionSize > 0 && visionTimestamp(visionSize - 1) == timestampSeconds){
+            visionSize--;
+        }
+        if(visionSize == visionTimestamps.length){
+            visionHead = (visionHead + 1) % visionTimestamps.length;
+            visionSize--;
+        }
+        int index = (visionHead + visionSize) % visionTimestamps.length;
+        visionTimestamps[index] = timestampSeconds;
+        visionX[index] = resultX;
+        visionY[index] = resultY;
+        visionTheta[index] = resultTheta;
+        visionOdometryX[index] = odometrySampleX;
+        visionOdometryY[index] = odometrySampleY;
+        visionOdometryTheta[index] = odometrySampleTheta;
+        visionSize++;
+
+        compensate(visionSize - 1, odometryX, odometryY, odometryTheta);
+        estimateX = resultX;
+        estimateY = resultY;
+        estimateTheta = resultTheta;
+        return true;
+    }
+
+    /**
+     * @return Current estimate, a new object every call
+     */
+    public Pose2d getEstimatedPosition(){
+        return new Pose2d(estimateX, estimateY, new Rotation2d(estimateTheta));
+    }
+
+    public double getEstimatedX(){
+        return estimateX;
+    }
+
+    public double getEstimatedY(){
+        return estimateY;
+    }
+
+    public double getEstimatedTheta(){
+        return estimateTheta;
+    }
+
+    /**
+     * @param timestampSeconds Time on the FPGA clock
+     * @return Estimated pose at that time with the vision corrections known now, empty before the
+     * first odometry sample
+     */
+    public Optional<Pose2d> sampleAt(double timestampSeconds){
+        if(historySize == 0){
+            return Optional.empty();
+        }
+        sample(timestampSeconds);
+        return Optional.of(new Pose2d(resultX, resultY, new Rotation2d(resultTheta)));
+    }
+
+    /**
+     * Estimated pose at a time into the result fields. The history must not be empty.
+     */
+    private void sample(double timestampSeconds){
+        if(visionSize == 0 || timestampSeconds < visionTimestamp(0)){
+            sampleOdometry(timestampSeconds);
+            return;
+        }
+
+        double time = MathUtil.clamp(timestampSeconds, historyTimestamp(0), historyTimestamp(historySize - 1));
+        int floor = upperBound(visionTimestamps, visionHead, visionSize, time) - 1;
+        sampleOdometry(time);
+        if(floor >= 0){
+            compensate(floor, resultX, resultY, resultTheta);
+        }
+    }
+
+    /**
+     * Odometry pose at a time into the result fields, interpolated between the samples around it
+     * and held at the ends of the history. The history must not be empty.
+     */
+    private void sampleOdometry(double timestampSeconds){
+        int upper = lowerBound(historyTimestamps, historyHead, historySize, timestampSeconds);
+        if(upper == historySize){
+            copyHistorySample(historySize - 1);
+            return;
+        }
+        if(upper == 0 || historyTimestamp(upper) == timestampSeconds){
+            copyHistorySample(upper);
+            return;
+        }
+
+        int lowerIndex = (historyHead + upper - 1) % historyTimestamps.length;
+        int upperIndex = (historyHead + upper) % historyTimestamps.length;
+        double startX = historyX[lowerIndex], startY = historyY[lowerIndex], startTheta = historyTheta[lowerIndex];
+        double t = (timestampSeconds - historyTimestamps[lowerIndex])
+            / (historyTimestamps[upperIndex] - historyTimestamps[lowerIndex]);
+
+        // Pose2d.interpolate, along the twist between the two samples
+        log(startX, startY, startTheta, historyX[upperIndex], historyY[upperIndex], historyTheta[upperIndex]);
+        exp(startX, startY, startTheta, resultX * t, resultY * t, resultTheta * t);
+    }
+
+    private void copyHistorySample(int logicalIndex){
+        int index = (historyHead + logicalIndex) % historyTimestamps.length;
+        resultX = historyX[index];
+        resultY = historyY[index];
+        resultTheta = historyTheta[index];
+    }
+
+    private void addHistorySample(double timestampSeconds){
+        if(historySize > 0 && timestampSeconds <= historyTimestamp(historySize - 1)){
+            if(timestampSeconds < historyTimestamp(historySize - 1)){
+                return;
+            }
+            historySize--;
+        }
+
+        while(historySize > 0 && timestampSeconds - historyTimestamp(0) >= historySeconds){
+            historyHead = (historyHead + 1) % historyTimestamps.length;
+            historySize--;
+        }
+        if(historySize == historyTimestamps.length){
+            historyHead = (historyHead + 1) % historyTimestamps.length;
+            historySize--;
+        }
+
+        int index = (historyHead + historySize) % historyTimestamps.length;
+        historyTimestamps[index] = timestampSeconds;
+        historyX[index] = odometryX;
+        historyY[index] = odometryY;
+        historyTheta[index] = odometryTheta;
+        historySize++;
+    }
+
+    /**
+     * Drops corrections that no sample in the history can use, keeping the newest one at or before
+     * the oldest sample.
+     */
+    private void cleanUpVisionUpdates(){
+        if(historySize == 0 || visionSize == 0 || historyTimestamp(0) < visionTimestamp(0)){
+            return;
+        }
+        int newestNeeded = upperBound(visionTimestamps, visionHead, visionSize, historyTimestamp(0)) - 1;
+        visionHead = (visionHead + newestNeeded) % visionTimestamps.length;
+        visionSize -= newestNeeded;
+    }
+
+    private double historyTimestamp(int logicalIndex){
+        return historyTimestamps[(historyHead + logicalIndex) % historyTimestamps.length];
+    }
+
+    private double visionTimestamp(int logicalIndex){
+        return visionTimestamps[(visionHead + logicalIndex) % visionTimestamps.length];
+    }
+
+    /**
+     * @return Logical index of the first timestamp at or after the time, size if there is none
+     */
+    private static int lowerBound(double[] timestamps, int head, int size, double time){
+        int low = 0, high = size;
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            if(timestamps[(head + middle) % timestamps.length] < time){
+                low = middle + 1;
+            }else{
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return Logical index of the first timestamp after the time, size if there is none
+     */
+    private static int upperBound(double[] timestamps, int head, int size, double time){
+        int low = 0, high = size;
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            if(timestamps[(head + middle) % timestamps.length] <= time){
+                low = middle + 1;
+            }else{
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Steady state Kalman gain for one axis, as in WPILib's PoseEstimator.
+     */
+    private static double gain(double stateVariance, double measurementVariance){
+        if(stateVariance == 0.0){
+            return 0.0;
+        }
+        return stateVariance / (stateVariance + Math.sqrt(stateVariance * measurementVariance));
+    }
+
+    /**
+     * Applies the odometry since a correction's measurement to its corrected pose, into the result
+     * fields.
+     */
+    private void compensate(int visionLogicalIndex, double x, double y, double theta){
+        int index = (visionHead + visionLogicalIndex) % visionTimestamps.length;
+        double baseTheta = visionOdometryTheta[index];
+        double cos = Math.cos(baseTheta), sin = Math.sin(baseTheta);
+        double dx = x - visionOdometryX[index], dy = y - visionOdometryY[index];
+        // Odometry motion in the frame of the odometry pose at the measurement
+        double localX = dx * cos + dy * sin;
+        double localY = -dx * sin + dy * cos;
+
+        double correctedTheta = visionTheta[index];
+        double correctedCos = Math.cos(correctedTheta), correctedSin = Math.sin(correctedTheta);
+        resultX = visionX[index] + localX * correctedCos - localY * correctedSin;
+        resultY = visionY[index] + localX * correctedSin + localY * correctedCos;
+        resultTheta = MathUtil.angleModulus(correctedTheta + theta - baseTheta);
+    }
+
+    /**
+     * Pose2d.exp into the result fields.
+     */
+    private void exp(double x, double y, double theta, double dx, double dy, double dtheta){
+        double sinTheta = Math.sin(dtheta);
+        double cosTheta = Math.cos(dtheta);
+
+        double s, c;
+        if(Math.abs(dtheta) < kEpsilon){
+            s = 1.0 - dtheta * dtheta / 6.0;
+            c = 0.5 * dtheta;
+        }else{
+            s = sinTheta / dtheta;
+            c = (1 - cosTheta) / dtheta;
+        }
+
+        double localX = dx * s - dy * c;
+        double localY = dx * c + dy * s;
+        double cos = Math.cos(theta), sin = Math.sin(theta);
+        resultX = x + localX * cos - localY * sin;
+        resultY = y + localX * sin + localY * cos;
+        resultTheta = MathUtil.angleModulus(theta + dtheta);
+    }
+
+    /**
+     * Pose2d.log from the start pose to the end pose, twist into the result fields.
+     */
+    private void log(double startX, double startY, double startTheta, double endX, double endY, double endTheta){
+        double cos = Math.cos(startTheta), sin = Math.sin(startTheta);
+        double dx = endX - startX, dy = endY - startY;
+        double localX = dx * cos + dy * sin;
+        double localY = -dx * sin + dy * cos;
+        double dtheta = MathUtil.angleModulus(endTheta - startTheta);
+
+        double halfDtheta = dtheta / 2.0;
+        double cosMinusOne = Math.cos(dtheta) - 1;
+        double halfThetaByTanOfHalfDtheta;
+        if(Math.abs(cosMinusOne) < kEpsilon){
+            halfThetaByTanOfHalfDtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+        }else{
+            halfThetaByTanOfHalfDtheta = -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+        }
+
+        resultX = localX * halfThetaByTanOfHalfDtheta + localY * halfDtheta;
+        resultY = -localX * halfDtheta + localY * halfThetaByTanOfHalfDtheta;
+        resultTheta = dtheta;
+    }
+}
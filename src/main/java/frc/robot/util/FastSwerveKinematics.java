@@ -0,0 +1,254 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Inverse and forward kinematics for the drivetrain written against preallocated double arrays, so
+ * running it every loop does not create garbage. Matches {@link edu.wpi.first.math.kinematics.SwerveDriveKinematics}:
+ * modules keep their last angle when the chassis is asked to stop, and forward kinematics is the
+ * same least squares fit.
+ *
+ * <p>Inverse kinematics is closed form for any center of rotation, so moving the center every loop
+ * only rebuilds the module offsets from it instead of a matrix. Forward kinematics gives the motion
+ * of the robot center, as WPILib's does, whatever center of rotation was last used.
+ */
+public class FastSwerveKinematics {
+    private final int numModules;
+    private final double[] moduleX;
+    private final double[] moduleY;
+
+    private final double[] moduleSpeeds;
+    private final double[] moduleAngles;
+
+    // Module locations relative to the last center of rotation, only rebuilt when it moves
+    private final double[] relativeX;
+    private final double[] relativeY;
+    private double centerOfRotationX = 0.0, centerOfRotationY = 0.0;
+
+    // Pseudo inverse of the inverse kinematics matrix, one row per chassis axis. Column 2i is
+    // module i's x component, column 2i + 1 its y component.
+    private final double[] forwardX;
+    private final double[] forwardY;
+    private final double[] forwardTheta;
+
+    private double twistDx, twistDy, twistDtheta;
+    private double chassisVx, chassisVy, chassisOmega;
+    private double fitX, fitY, fitTheta;
+
+    /**
+     * @param moduleLocations Module locations relative to the robot center, in kinematics order
+     */
+    public FastSwerveKinematics(Translation2d... moduleLocations){
+        numModules = moduleLocations.length;
+        moduleX = new double[numModules];
+        moduleY = new double[numModules];
+        moduleSpeeds = new double[numModules];
+        moduleAngles = new double[numModules];
+        relativeX = new double[numModules];
+        relativeY = new double[numModules];
+
+        for(int i = 0; i < numModules; i++){
+            moduleX[i] = moduleLocations[i].getX();
+            moduleY[i] = moduleLocations[i].getY();
+            relativeX[i] = moduleX[i];
+            relativeY[i] = moduleY[i];
+        }
+
+        forwardX = new double[2 * numModules];
+        forwardY = new double[2 * numModules];
+        forwardTheta = new double[2 * numModules];
+        computeForwardKinematics();
+    }
+
+    /**
+     * Builds (A^T A)^-1 A^T for the inverse kinematics matrix A, whose rows are [1, 0, -y] and
+     * [0, 1, x] for every module. A^T A is only 3x3, so it is inverted by cofactors.
+     */
+    private void computeForwardKinematics(){
+        double sumX = 0.0, sumY = 0.0, sumSquares = 0.0;
+        for(int i = 0; i < numModules; i++){
+            sumX += moduleX[i];
+            sumY += moduleY[i];
+            sumSquares += moduleX[i] * moduleX[i] + moduleY[i] * moduleY[i];
+        }
+
+        // A^T A = [[n, 0, -sumY], [0, n, sumX], [-sumY, sumX, sumSquares]], symmetric so its
+        // inverse is too and only the upper triangle of cofactors is needed
+        double n = numModules;
+        double c00 = n * sumSquares - sumX * sumX;
+        double c01 = -sumX * sumY;
+        double c02 = n * sumY;
+        double c11 = n * sumSquares - sumY * sumY;
+        double c12 = -n * sumX;
+        double c22 = n * n;
+        double determinant = n * c00 - sumY * c02;
+
+        double m00 = c00 / determinant, m01 = c01 / determinant, m02 = c02 / determinant;
+        double m11 = c11 / determinant, m12 = c12 / determinant, m22 = c22 / determinant;
+
+        for(int module = 0; module < numModules; module++){
+            // Columns of A^T for this module
+            int xColumn = 2 * module;
+            int yColumn = 2 * module + 1;
+            forwardX[xColumn] = m00 - m02 * moduleY[module];
+            forwardX[yColumn] = m01 + m02 * moduleX[module];
+            forwardY[xColumn] = m01 - m12 * moduleY[module];
+            forwardY[yColumn] = m11 + m12 * moduleX[module];
+            forwardTheta[xColumn] = m02 - m22 * moduleY[module];
+            forwardTheta[yColumn] = m12 + m22 * moduleX[module];
+        }
+    }
+
+    /**
+     * Computes every module's speed and angle for robot relative chassis speeds. Read the result
+     * with {@link #getModuleSpeed(int)} and {@link #getModuleAngle(int)}.
+     * @param vx Forward speed in meters per second
+     * @param vy Left speed in meters per second
+     * @param omega Counter clockwise rotation in radians per second
+     * @param centerOfRotationX Center of rotation relative to the robot center, in meters
+     * @param centerOfRotationY Center of rotation relative to the robot center, in meters
+     */
+    public void toSwerveModuleStates(double vx, double vy, double omega, double centerOfRotationX, double centerOfRotationY){
+        if(vx == 0.0 && vy == 0.0 && omega == 0.0){
+            for(int i = 0; i < numModules; i++){
+                moduleSpeeds[i] = 0.0;
+            }
+            return;
+        }
+
+        if(centerOfRotationX != this.centerOfRotationX || centerOfRotationY != this.centerOfRotationY){
+            this.centerOfRotationX = centerOfRotationX;
+            this.centerOfRotationY = centerOfRotationY;
+            for(int i = 0; i < numModules; i++){
+                relativeX[i] = moduleX[i] - centerOfRotationX;
+                relativeY[i] = moduleY[i] - centerOfRotationY;
+            }
+        }
+
+        for(int i = 0; i < numModules; i++){
+            double moduleVx = vx - omega * relativeY[i];
+            double moduleVy = vy + omega * relativeX[i];
+
+            moduleSpeeds[i] = Math.hypot(moduleVx, moduleVy);
+            if(moduleSpeeds[i] > 1e-6){
+                moduleAngles[i] = Math.atan2(moduleVy, moduleVx);
+            }
+        }
+    }
+
+    /**
+     * Scales every module speed down if any of them is above the max speed, keeping their ratios.
+     * @param maxSpeed Max speed a module can reach in meters per second
+     */
+    public void desaturateWheelSpeeds(double maxSpeed){
+        double realMaxSpeed = 0.0;
+        for(int i = 0; i < numModules; i++){
+            realMaxSpeed = Math.max(realMaxSpeed, Math.abs(moduleSpeeds[i]));
+        }
+
+        if(realMaxSpeed > maxSpeed){
+            for(int i = 0; i < numModules; i++){
+                moduleSpeeds[i] = moduleSpeeds[i] / realMaxSpeed * maxSpeed;
+            }
+        }
+    }
+
+    /**
+     * Flips any module that would turn more than 90 degrees to reach its angle to point the other
+     * way and drive backwards, same as {@code SwerveModuleState.optimize}. Works on the states from
+     * the last {@link #toSwerveModuleStates}.
+     * @param currentAngles Each module's measured angle in radians
+     */
+    public void optimize(double[] currentAngles){
+        for(int i = 0; i < numModules; i++){
+            double delta = MathUtil.angleModulus(moduleAngles[i] - currentAngles[i]);
+            if(Math.abs(delta) > Math.PI / 2){
+                moduleSpeeds[i] = -moduleSpeeds[i];
+                moduleAngles[i] = MathUtil.angleModulus(moduleAngles[i] + Math.PI);
+            }
+        }
+    }
+
+    /**
+     * Forward kinematics for odometry, same as {@code SwerveDriveKinematics.toTwist2d}. Read the
+     * result with {@link #getTwistDx()}, {@link #getTwistDy()} and {@link #getTwistDtheta()}.
+     * @param distanceDeltas Distance each module drove since the last call, in meters
+     * @param angles Each module's angle at the end of that distance, in radians
+     */
+    public void toTwist2d(double[] distanceDeltas, double[] angles){
+        fitChassisMotion(distanceDeltas, angles);
+        twistDx = fitX;
+        twistDy = fitY;
+        twistDtheta = fitTheta;
+    }
+
+    /**
+     * Forward kinematics, same as {@code SwerveDriveKinematics.toChassisSpeeds}. Read the result
+     * with {@link #getChassisVx()}, {@link #getChassisVy()} and {@link #getChassisOmega()}.
+     * @param speeds Each module's speed in meters per second
+     * @param angles Each module's angle in radians
+     */
+    public void toChassisSpeeds(double[] speeds, double[] angles){
+        fitChassisMotion(speeds, angles);
+        chassisVx = fitX;
+        chassisVy = fitY;
+        chassisOmega = fitTheta;
+    }
+
+    /**
+     * Least squares chassis motion for module vectors given as magnitude and angle.
+     */
+    private void fitChassisMotion(double[] magnitudes, double[] angles){
+        double x = 0.0, y = 0.0, theta = 0.0;
+        for(int i = 0; i < numModules; i++){
+            double vectorX = magnitudes[i] * Math.cos(angles[i]);
+            double vectorY = magnitudes[i] * Math.sin(angles[i]);
+            x += forwardX[2 * i] * vectorX + forwardX[2 * i + 1] * vectorY;
+            y += forwardY[2 * i] * vectorX + forwardY[2 * i + 1] * vectorY;
+            theta += forwardTheta[2 * i] * vectorX + forwardTheta[2 * i + 1] * vectorY;
+        }
+        fitX = x;
+        fitY = y;
+        fitTheta = theta;
+    }
+
+    public double getChassisVx(){
+        return chassisVx;
+    }
+
+    public double getChassisVy(){
+        return chassisVy;
+    }
+
+    public double getChassisOmega(){
+        return chassisOmega;
+    }
+
+    public double getTwistDx(){
+        return twistDx;
+    }
+
+    public double getTwistDy(){
+        return twistDy;
+    }
+
+    public double getTwistDtheta(){
+        return twistDtheta;
+    }
+
+    public double getModuleSpeed(int module){
+        return moduleSpeeds[module];
+    }
+
+    /**
+     * @return Module angle in radians, -PI to PI
+     */
+    public double getModuleAngle(int module){
+        return moduleAngles[module];
+    }
+
+    public int getNumModules(){
+        return numModules;
+    }
+}
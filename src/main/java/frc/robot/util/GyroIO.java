@@ -0,0 +1,61 @@
+package frc.robot.util;
+
+import frc.robot.Constants.SwerveDriveConstants;
+
+/**
+ * Hardware behind the drivetrain gyro, used by {@link GyroService}. Replay uses the no-op defaults.
+ */
+public interface GyroIO {
+    /**
+     * Gyro readings for one loop, angles in degrees with yaw continuous.
+     */
+    class GyroIOInputs{
+        public double yawDegrees = 0.0;
+        public double yawRateDegreesPerSecond = 0.0;
+        public double pitchDegrees = 0.0;
+        public double rollDegrees = 0.0;
+
+        // High rate samples from the OdometryThread, only the first odometrySamples are valid
+        public int odometrySamples = 0;
+        public final double[] odometryYawDegrees = new double[SwerveDriveConstants.kOdometryBufferSize];
+
+        private final int yawInput, yawRateInput, pitchInput, rollInput, odometryYawInput;
+
+        public GyroIOInputs(String prefix){
+            InputLog inputLog = InputLog.getInstance();
+            yawInput = inputLog.registerDouble(prefix + "YawDegrees");
+            yawRateInput = inputLog.registerDouble(prefix + "YawRateDegreesPerSecond");
+            pitchInput = inputLog.registerDouble(prefix + "PitchDegrees");
+            rollInput = inputLog.registerDouble(prefix + "RollDegrees");
+            odometryYawInput = inputLog.registerArray(prefix + "OdometryYawDegrees");
+        }
+
+        /**
+         * Records these inputs, or replaces them with the recorded ones during replay.
+         */
+        public void process(){
+            InputLog inputLog = InputLog.getInstance();
+            yawDegrees = inputLog.process(yawInput, yawDegrees);
+            yawRateDegreesPerSecond = inputLog.process(yawRateInput, yawRateDegreesPerSecond);
+            pitchDegrees = inputLog.process(pitchInput, pitchDegrees);
+            rollDegrees = inputLog.process(rollInput, rollDegrees);
+            odometrySamples = inputLog.process(odometryYawInput, odometryYawDegrees, odometrySamples);
+        }
+    }
+
+    /**
+     * Moves the buffered yaw samples into the inputs. Called while holding {@link OdometryThread#odometryLock}.
+     * @return Number of samples drained
+     */
+    default int drainOdometrySamples(GyroIOInputs inputs){
+        return 0;
+    }
+
+    /**
+     * Reads everything else into the inputs. {@link GyroIOInputs#odometrySamples} is already set
+     * to the number of samples every odometry signal has.
+     */
+    default void updateInputs(GyroIOInputs inputs){}
+
+    default void reset(){}
+}
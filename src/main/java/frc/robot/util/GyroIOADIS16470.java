@@ -0,0 +1,48 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj.ADIS16470_IMU;
+
+/**
+ * ADIS16470 on the roboRIO SPI port. Yaw is also sampled on the {@link OdometryThread} clock, the
+ * newest of those samples is reused so only yaw rate, pitch and roll go over SPI from the main loop.
+ */
+public class GyroIOADIS16470 implements GyroIO {
+    private final ADIS16470_IMU gyro;
+    private final DoubleRingBuffer yawBuffer;
+
+    public GyroIOADIS16470(){
+        this(new ADIS16470_IMU());
+    }
+
+    /**
+     * @param gyro IMU to read, in simulation one fed by the drivetrain sim
+     */
+    public GyroIOADIS16470(ADIS16470_IMU gyro){
+        this.gyro = gyro;
+        yawBuffer = OdometryThread.getInstance().registerSignal(() -> gyro.getAngle(gyro.getYawAxis()), false);
+    }
+
+    @Override
+    public int drainOdometrySamples(GyroIOInputs inputs){
+        return yawBuffer.drainTo(inputs.odometryYawDegrees);
+    }
+
+    @Override
+    public void updateInputs(GyroIOInputs inputs){
+        if(inputs.odometrySamples > 0){
+            inputs.yawDegrees = inputs.odometryYawDegrees[inputs.odometrySamples - 1];
+        }else{
+            inputs.yawDegrees = gyro.getAngle(gyro.getYawAxis());
+            HardwareReadCounter.count(1);
+        }
+        inputs.yawRateDegreesPerSecond = gyro.getRate(gyro.getYawAxis());
+        inputs.pitchDegrees = gyro.getAngle(gyro.getPitchAxis());
+        inputs.rollDegrees = gyro.getAngle(gyro.getRollAxis());
+        HardwareReadCounter.count(3);
+    }
+
+    @Override
+    public void reset(){
+        gyro.reset();
+    }
+}
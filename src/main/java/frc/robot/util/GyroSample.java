@@ -0,0 +1,39 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * One reading of the ADIS16470, taken once per loop by {@link GyroService}.
+ * Immutable so every consumer in a loop sees exactly the same heading.
+ */
+public final class GyroSample {
+    /** Continuous yaw, does not wrap at 360 */
+    public final double yawDegrees;
+    public final double yawRateDegreesPerSecond;
+    public final double pitchDegrees;
+    public final double rollDegrees;
+    /** FPGA time the sample was taken */
+    public final double timestampSeconds;
+
+    private final Rotation2d heading;
+
+    public GyroSample(double yawDegrees, double yawRateDegreesPerSecond, double pitchDegrees, double rollDegrees, double timestampSeconds){
+        this.yawDegrees = yawDegrees;
+        this.yawRateDegreesPerSecond = yawRateDegreesPerSecond;
+        this.pitchDegrees = pitchDegrees;
+        this.rollDegrees = rollDegrees;
+        this.timestampSeconds = timestampSeconds;
+        heading = Rotation2d.fromDegrees(getHeadingDegrees());
+    }
+
+    /**
+     * @return Yaw wrapped to -180 to 180 degrees
+     */
+    public double getHeadingDegrees(){
+        return Math.IEEEremainder(yawDegrees, 360);
+    }
+
+    public Rotation2d getHeading(){
+        return heading;
+    }
+}
@@ -0,0 +1,65 @@
+package frc.robot.util;
+
+/**
+ * Reads the gyro through a {@link GyroIO} and hands out one {@link GyroSample} per loop.
+ */
+public class GyroService {
+    private final GyroIO io;
+    private final GyroIO.GyroIOInputs inputs;
+
+    private GyroSample latestSample;
+
+    public GyroService(GyroIO io){
+        this.io = io;
+        inputs = new GyroIO.GyroIOInputs(InputLog.kPrefix + "Gyro/");
+        latestSample = new GyroSample(0.0, 0.0, 0.0, 0.0, 0.0);
+        update(0);
+    }
+
+    /**
+     * Moves the buffered yaw samples out of the odometry thread buffer.
+     * Must be called while holding {@link OdometryThread#odometryLock}.
+     * @return Number of samples drained
+     */
+    public int drainOdometrySamples(){
+        return io.drainOdometrySamples(inputs);
+    }
+
+    /**
+     * @param sample Index of a sample from the last {@link #drainOdometrySamples()}
+     * @return Continuous yaw in degrees at that sample
+     */
+    public double getOdometryYaw(int sample){
+        return inputs.odometryYawDegrees[sample];
+    }
+
+    /**
+     * Takes this loop's sample. Call once per loop, after {@link #drainOdometrySamples()}.
+     * @param odometrySamples Samples every odometry signal has since the last drain
+     */
+    public void update(int odometrySamples){
+        inputs.odometrySamples = odometrySamples;
+        io.updateInputs(inputs);
+        inputs.process();
+
+        latestSample = new GyroSample(
+            inputs.yawDegrees,
+            inputs.yawRateDegreesPerSecond,
+            inputs.pitchDegrees,
+            inputs.rollDegrees,
+            InputLog.getInstance().getTimestamp());
+    }
+
+    public GyroSample getLatestSample(){
+        return latestSample;
+    }
+
+    /**
+     * Zeroes the gyro. The cached sample is zeroed too so the rest of the loop sees the reset.
+     */
+    public void reset(){
+        io.reset();
+        latestSample = new GyroSample(0.0, latestSample.yawRateDegreesPerSecond, latestSample.pitchDegrees,
+            latestSample.rollDegrees, InputLog.getInstance().getTimestamp());
+    }
+}
@@ -0,0 +1,26 @@
+package frc.robot.util;
+
+/**
+ * Counts sensor reads that cross JNI/CAN from the main robot loop.
+ * Reads done by the {@link OdometryThread} are not counted since they do not cost loop time.
+ */
+public final class HardwareReadCounter {
+    private static int reads = 0;
+
+    private HardwareReadCounter(){
+        throw new UnsupportedOperationException("This is a utility class!");
+    }
+
+    public static void count(int numReads){
+        reads += numReads;
+    }
+
+    /**
+     * @return Reads counted since the last call, then starts counting from zero
+     */
+    public static int getAndReset(){
+        int lastReads = reads;
+        reads = 0;
+        return lastReads;
+    }
+}
@@ -0,0 +1,95 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import frc.robot.Constants.SwerveDriveConstants;
+
+/**
+ * Holds the heading while the robot translates without a rotation command. Not thread safe,
+ * {@link frc.robot.subsystems.Drivetrain} only calls it under its drive control lock.
+ */
+public class HeadingCorrector {
+    private final double correctionP;
+    private final double toleranceDegrees;
+
+    private double correctHeadingTargetHeading;
+    private double correctHeadingPreviousTime;
+    private double correctHeadingOffTime;
+
+    /**
+     * @param currentHeading Heading to hold until the first correction, in radians
+     * @param currentTime FPGA time in seconds
+     */
+    public HeadingCorrector(double currentHeading, double currentTime){
+        this(currentHeading, currentTime, SwerveDriveConstants.kHeadingCorrectionP, SwerveDriveConstants.kHeadingCorrectionTolerance);
+    }
+
+    /**
+     * @param currentHeading Heading to hold until the first correction, in radians
+     * @param currentTime FPGA time in seconds
+     * @param correctionP Fraction of the heading error taken out every control step
+     * @param toleranceDegrees Heading error left alone
+     */
+    public HeadingCorrector(double currentHeading, double currentTime, double correctionP, double toleranceDegrees){
+        this.correctionP = correctionP;
+        this.toleranceDegrees = toleranceDegrees;
+        correctHeadingTargetHeading = currentHeading;
+        correctHeadingPreviousTime = currentTime;
+        correctHeadingOffTime = currentTime;
+    }
+
+    /**
+     * Returns the rotation rate to use instead of {@code vr}, which is unchanged when no
+     * correction is needed.
+     * @param currentHeading Heading in radians
+     */
+    public double calculate(double vx, double vy, double vr, double correctHeadingCurrentTime, double currentHeading){
+        double dt = correctHeadingCurrentTime - correctHeadingPreviousTime;
+
+        double v = Math.sqrt(vx * vx + vy * vy);
+
+        if(vr > 0.01 || vr < -0.01){
+            correctHeadingOffTime = correctHeadingCurrentTime;
+            correctHeadingTargetHeading = currentHeading;
+            return vr;
+        }
+        if(correctHeadingCurrentTime - correctHeadingOffTime < 0.5){
+            correctHeadingTargetHeading = currentHeading;
+            return vr;
+        }
+        if (v < 0.05){
+            correctHeadingTargetHeading = currentHeading;
+            return vr;
+        }
+
+        correctHeadingTargetHeading = MathUtil.angleModulus(correctHeadingTargetHeading + vr * dt);
+
+        double deltaHeading = MathUtil.angleModulus(correctHeadingTargetHeading - currentHeading);
+
+        if(Math.abs(Math.toDegrees(deltaHeading)) < toleranceDegrees){
+            return vr;
+        }
+
+        double correctedVr = deltaHeading / dt * correctionP;
+
+        correctHeadingPreviousTime = correctHeadingCurrentTime;
+        return correctedVr;
+    }
+
+    /**
+     * Forgets the held heading, as if just constructed.
+     * @param currentHeading Heading to hold until the first correction, in radians
+     * @param currentTime FPGA time in seconds
+     */
+    public void reset(double currentHeading, double currentTime){
+        correctHeadingTargetHeading = currentHeading;
+        correctHeadingPreviousTime = currentTime;
+        correctHeadingOffTime = currentTime;
+    }
+
+    /**
+     * @return Heading being held in radians
+     */
+    public double getTargetHeading(){
+        return correctHeadingTargetHeading;
+    }
+}
@@ -0,0 +1,191 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathShared;
+import edu.wpi.first.math.MathSharedStore;
+import edu.wpi.first.math.MathUsageId;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants;
+import frc.robot.Constants.LoggingConstants;
+
+/**
+ * Every value the robot code reads from the outside world goes through here. On the robot and in
+ * simulation the value is recorded under /Inputs in the drive log. During replay it is swapped for
+ * the recorded value instead, so everything above the IO layer runs exactly as it did on the robot.
+ *
+ * <p>The loop timestamp is an input too. Control code reads time from {@link #getTimestamp()} and
+ * WPILib math classes are pointed at it, so rate limiters and timers replay the same way.
+ */
+public class InputLog {
+    private static InputLog instance;
+
+    public static final String kPrefix = "/Inputs/";
+    public static final String kLoopStartKey = kPrefix + "LoopStart";
+    public static final String kTimestampKey = kPrefix + "Timestamp";
+    public static final String kEnabledKey = kPrefix + "DriverStation/Enabled";
+    public static final String kAutonomousKey = kPrefix + "DriverStation/Autonomous";
+    public static final String kTestKey = kPrefix + "DriverStation/Test";
+    public static final String kRedAllianceKey = kPrefix + "DriverStation/RedAlliance";
+    public static final String kMatchTimeKey = kPrefix + "DriverStation/MatchTime";
+
+    private final AsyncDataLogger logger;
+    private final ReplaySource replaySource;
+
+    // Per input handle, arrays use a second pair of entries for their sample count
+    private final int[] logEntries;
+    private final int[] countLogEntries;
+    private final int[] replayKeys;
+    private final int[] countReplayKeys;
+    private int numInputs;
+
+    private final int loopStartLog;
+    private final int timestampInput, enabledInput, autonomousInput, testInput, redAllianceInput, matchTimeInput;
+
+    private double timestamp;
+
+    private InputLog(){
+        logger = AsyncDataLogger.getInstance();
+        replaySource = Constants.currentMode == Constants.Mode.REPLAY ? ReplaySource.getInstance() : null;
+
+        logEntries = new int[LoggingConstants.kMaxEntries];
+        countLogEntries = new int[LoggingConstants.kMaxEntries];
+        replayKeys = new int[LoggingConstants.kMaxEntries];
+        countReplayKeys = new int[LoggingConstants.kMaxEntries];
+        numInputs = 0;
+
+        loopStartLog = logger.registerBoolean(kLoopStartKey);
+        timestampInput = registerDouble(kTimestampKey);
+        enabledInput = registerBoolean(kEnabledKey);
+        autonomousInput = registerBoolean(kAutonomousKey);
+        testInput = registerBoolean(kTestKey);
+        redAllianceInput = registerBoolean(kRedAllianceKey);
+        matchTimeInput = registerDouble(kMatchTimeKey);
+
+        // Anything constructed before the first loop sees the startup time
+        timestamp = process(timestampInput, Timer.getFPGATimestamp());
+
+        MathShared defaultMathShared = MathSharedStore.getMathShared();
+        MathSharedStore.setMathShared(new MathShared(){
+            @Override
+            public void reportError(String error, StackTraceElement[] stackTrace){
+                defaultMathShared.reportError(error, stackTrace);
+            }
+
+            @Override
+            public void reportUsage(MathUsageId id, int count){
+                defaultMathShared.reportUsage(id, count);
+            }
+
+            @Override
+            public double getTimestamp(){
+                return timestamp;
+            }
+        });
+    }
+
+    public static InputLog getInstance(){
+        if(instance == null){
+            instance = new InputLog();
+        }
+        return instance;
+    }
+
+    /**
+     * @param key Full log entry name, should start with {@link #kPrefix}
+     * @return Handle to process values with
+     */
+    public int registerDouble(String key){
+        return register(key, logger.registerDouble(key), -1);
+    }
+
+    public int registerBoolean(String key){
+        return register(key, logger.registerBoolean(key), -1);
+    }
+
+    /**
+     * Registers an input holding a variable number of samples, such as the odometry samples drained in a loop.
+     */
+    public int registerArray(String key){
+        return register(key, logger.registerDouble(key), logger.registerDouble(key + "Count"));
+    }
+
+    private int register(String key, int logEntry, int countLogEntry){
+        if(numInputs >= logEntries.length){
+            throw new IllegalStateException("Too many inputs, raise LoggingConstants.kMaxEntries");
+        }
+        logEntries[numInputs] = logEntry;
+        countLogEntries[numInputs] = countLogEntry;
+        if(replaySource != null){
+            replayKeys[numInputs] = replaySource.getKey(key);
+            countReplayKeys[numInputs] = replaySource.getKey(key + "Count");
+        }
+        return numInputs++;
+    }
+
+    public boolean isReplay(){
+        return replaySource != null;
+    }
+
+    /**
+     * Records a value that was just read, or replaces it with the recorded one during replay.
+     * @return Value the robot code should use
+     */
+    public double process(int input, double value){
+        if(replaySource != null){
+            value = replaySource.next(replayKeys[input], value);
+        }
+        logger.log(logEntries[input], value);
+        return value;
+    }
+
+    public boolean process(int input, boolean value){
+        if(replaySource != null){
+            value = replaySource.next(replayKeys[input], value ? 1.0 : 0.0) != 0.0;
+        }
+        logger.log(logEntries[input], value);
+        return value;
+    }
+
+    /**
+     * Array version of {@link #process(int, double)}.
+     * @param values Samples read this loop, overwritten during replay
+     * @param count Number of valid samples
+     * @return Number of valid samples the robot code should use
+     */
+    public int process(int input, double[] values, int count){
+        if(replaySource != null){
+            count = Math.min((int) replaySource.next(countReplayKeys[input], 0.0), values.length);
+            for(int i = 0; i < count; i++){
+                values[i] = replaySource.next(replayKeys[input], values[i]);
+            }
+        }
+        logger.log(countLogEntries[input], count);
+        for(int i = 0; i < count; i++){
+            logger.log(logEntries[input], values[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Marks the start of a loop and takes the loop timestamp and driver station state. Call before
+     * anything else in the loop reads an input.
+     */
+    public void beginLoop(){
+        logger.log(loopStartLog, true);
+        timestamp = process(timestampInput, Timer.getFPGATimestamp());
+
+        DriverStation.refreshData();
+        process(enabledInput, DriverStation.isEnabled());
+        process(autonomousInput, DriverStation.isAutonomous());
+        process(testInput, DriverStation.isTest());
+        process(redAllianceInput, DriverStation.getAlliance().orElse(DriverStation.Alliance.Blue) == DriverStation.Alliance.Red);
+        process(matchTimeInput, DriverStation.getMatchTime());
+    }
+
+    /**
+     * @return FPGA time in seconds at the start of this loop, or the recorded one during replay
+     */
+    public double getTimestamp(){
+        return timestamp;
+    }
+}
@@ -0,0 +1,90 @@
+package frc.robot.util;
+
+import java.util.Arrays;
+
+/**
+ * Fixed memory histogram of durations in nanoseconds, bucketed like an HDR histogram. Every power
+ * of two is split into {@code 2^subBucketBits} linear buckets, so any recorded value is off by at
+ * most {@code 1 / 2^subBucketBits} of itself. Recording is a few shifts and an array increment.
+ */
+public class LatencyHistogram {
+    private final int subBucketBits;
+    private final int subBucketCount;
+    private final long[] counts;
+
+    private long totalCount;
+    private long maxValue;
+
+    /**
+     * @param subBucketBits Precision, 4 keeps values within about 6%
+     * @param maxValueBits Largest value that can be told apart is {@code 2^maxValueBits}, anything larger lands in the last bucket
+     */
+    public LatencyHistogram(int subBucketBits, int maxValueBits){
+        this.subBucketBits = subBucketBits;
+        this.subBucketCount = 1 << subBucketBits;
+        counts = new long[(maxValueBits - subBucketBits + 1) * subBucketCount];
+        reset();
+    }
+
+    public void record(long value){
+        value = Math.max(value, 0);
+        counts[Math.min(getIndex(value), counts.length - 1)]++;
+        totalCount++;
+        maxValue = Math.max(maxValue, value);
+    }
+
+    private int getIndex(long value){
+        int highestBit = 63 - Long.numberOfLeadingZeros(value | 1);
+        if(highestBit < subBucketBits){
+            return (int) value;
+        }
+        int shift = highestBit - subBucketBits;
+        return (shift + 1) * subBucketCount + (int) (value >>> shift) - subBucketCount;
+    }
+
+    /**
+     * @return Largest value that lands in the bucket
+     */
+    private long getUpperBound(int index){
+        if(index < subBucketCount){
+            return index;
+        }
+        int shift = index / subBucketCount - 1;
+        long top = subBucketCount + index % subBucketCount;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * @param percentile 0 to 100
+     * @return Upper bound of the bucket holding the percentile, never more than the largest recorded value
+     */
+    public long getValueAtPercentile(double percentile){
+        if(totalCount == 0){
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long cumulative = 0;
+        for(int i = 0; i < counts.length; i++){
+            cumulative += counts[i];
+            if(cumulative >= target){
+                // The last bucket also holds everything past the range
+                return i == counts.length - 1 ? maxValue : Math.min(getUpperBound(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    public long getMaxValue(){
+        return maxValue;
+    }
+
+    public long getTotalCount(){
+        return totalCount;
+    }
+
+    public void reset(){
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        maxValue = 0;
+    }
+}
@@ -0,0 +1,115 @@
+package frc.robot.util;
+
+import frc.robot.Constants.LoadSheddingConstants;
+import frc.robot.Constants.TelemetryConstants;
+import frc.robot.util.Telemetry.Priority;
+
+/**
+ * Drops dashboard work when the main loop gets close to its budget, and brings it back once there
+ * is headroom again. Work is dropped by {@link Priority}, debug output first and critical signals
+ * never. Only NetworkTables output is shed, control and the WPILOG are never touched.
+ *
+ * <p>Steps up one tier on every loop that runs past {@link LoadSheddingConstants#kShedLoopSeconds}
+ * and steps down one tier after {@link LoadSheddingConstants#kRestoreLoops} loops in a row under
+ * {@link LoadSheddingConstants#kRestoreLoopSeconds}.
+ */
+public class LoadShedder {
+    private static LoadShedder instance;
+
+    public enum Tier{
+        /** Everything is published */
+        FULL(Priority.DEBUG, 1.0),
+        /** Debug signals are dropped */
+        NO_DEBUG(Priority.DISPLAY, 1.0),
+        /** Field2d, module states and other display only output is dropped, status signals slow down */
+        NO_DISPLAY(Priority.STATUS, LoadSheddingConstants.kShedPeriodScale),
+        /** Only critical signals are published */
+        CRITICAL_ONLY(Priority.CRITICAL, LoadSheddingConstants.kShedPeriodScale);
+
+        public final Priority lowestPriority;
+        public final double periodScale;
+
+        private Tier(Priority lowestPriority, double periodScale){
+            this.lowestPriority = lowestPriority;
+            this.periodScale = periodScale;
+        }
+
+        /**
+         * @return True if work of this priority should run in this tier
+         */
+        public boolean allows(Priority priority){
+            return priority.ordinal() <= lowestPriority.ordinal();
+        }
+    }
+
+    private final LoopProfiler profiler;
+    private final Telemetry.DoubleSignal tierSignal;
+    private final Telemetry.DoubleSignal publishDeadlineMissesSignal;
+    private final long publishDeadlineNanos;
+
+    private Tier tier = Tier.FULL;
+    private int loopsWithHeadroom = 0;
+
+    private LoadShedder(){
+        profiler = LoopProfiler.getInstance();
+        publishDeadlineNanos = (long) (LoadSheddingConstants.kPublishDeadlineSeconds * 1e9);
+        Telemetry telemetry = Telemetry.getInstance();
+        tierSignal = telemetry.addDouble("Load Shed Tier", TelemetryConstants.kStatusRateHz, Priority.CRITICAL);
+        publishDeadlineMissesSignal = telemetry.addDouble("Telemetry Deadline Misses", TelemetryConstants.kStatusRateHz, Priority.CRITICAL);
+        tierSignal.set(tier.ordinal());
+    }
+
+    public static LoadShedder getInstance(){
+        if(instance == null){
+            instance = new LoadShedder();
+        }
+        return instance;
+    }
+
+    /**
+     * Picks the tier for the next loop from the length of the loop that just ended. Call after
+     * {@link LoopProfiler#endLoop()}.
+     */
+    public void update(){
+        double loopSeconds = profiler.getLastLoopSeconds();
+        Tier next = tier;
+        if(loopSeconds > LoadSheddingConstants.kShedLoopSeconds){
+            loopsWithHeadroom = 0;
+            if(tier.ordinal() < Tier.values().length - 1){
+                next = Tier.values()[tier.ordinal() + 1];
+            }
+        }else if(loopSeconds < LoadSheddingConstants.kRestoreLoopSeconds){
+            if(++loopsWithHeadroom >= LoadSheddingConstants.kRestoreLoops && tier.ordinal() > 0){
+                next = Tier.values()[tier.ordinal() - 1];
+                loopsWithHeadroom = 0;
+            }
+        }else{
+            loopsWithHeadroom = 0;
+        }
+
+        if(next != tier){
+            tier = next;
+            Telemetry.setLoad(tier.lowestPriority, tier.periodScale);
+        }
+        tierSignal.set(tier.ordinal());
+        publishDeadlineMissesSignal.set(Telemetry.getInstance().getDeadlineMisses());
+    }
+
+    public Tier getTier(){
+        return tier;
+    }
+
+    /**
+     * @return True if work of this priority should run this loop
+     */
+    public boolean allows(Priority priority){
+        return tier.allows(priority);
+    }
+
+    /**
+     * @return {@link System#nanoTime()} by which this loop's telemetry has to be written
+     */
+    public long getPublishDeadlineNanos(){
+        return profiler.getLoopStartNanos() + publishDeadlineNanos;
+    }
+}
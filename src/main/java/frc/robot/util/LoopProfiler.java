@@ -0,0 +1,252 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.WrapperCommand;
+import frc.robot.Constants;
+import frc.robot.Constants.ProfilerConstants;
+
+/**
+ * Times sections of the main loop, such as each subsystem periodic() and command execute(), into
+ * fixed memory histograms. p50, p99 and max of every section are published under Profiler/ and
+ * {@link #printReport()} ranks the sections by the time they took in loops that overran.
+ *
+ * <p>Only runs while {@link Constants#profilingMode} is on. When it is off a section start and
+ * stop is a single field check, so sections can stay in the code for matches.
+ */
+public class LoopProfiler {
+    private static LoopProfiler instance;
+
+    // Read by every section, only changes at the start of a loop
+    private static boolean enabled = false;
+
+    private final List<Section> sections = new ArrayList<>();
+    private final Map<Command, ProfiledCommand> profiledCommands = new IdentityHashMap<>();
+    private final Section loopSection;
+    private final long loopBudgetNanos;
+
+    private long loopStartNanos;
+    private long lastLoopNanos;
+    private long loops;
+    private long overruns;
+
+    /**
+     * Time spent in one named part of the loop.
+     */
+    public static class Section{
+        private final String name;
+        private final LatencyHistogram histogram;
+        private final Telemetry.DoubleSignal p50Signal, p99Signal, maxSignal;
+
+        private long startNanos = -1;
+        private long loopNanos;
+        private long overrunNanos;
+        private long overrunLoops;
+
+        private Section(String name){
+            this.name = name;
+            histogram = new LatencyHistogram(ProfilerConstants.kHistogramSubBucketBits, ProfilerConstants.kHistogramMaxValueBits);
+            Telemetry telemetry = Telemetry.getInstance();
+            p50Signal = telemetry.addDouble("Profiler/" + name + "/P50Ms", ProfilerConstants.kPublishRateHz, Telemetry.Priority.DISPLAY);
+            p99Signal = telemetry.addDouble("Profiler/" + name + "/P99Ms", ProfilerConstants.kPublishRateHz, Telemetry.Priority.DISPLAY);
+            maxSignal = telemetry.addDouble("Profiler/" + name + "/MaxMs", ProfilerConstants.kPublishRateHz, Telemetry.Priority.DISPLAY);
+        }
+
+        public void start(){
+            if(!enabled){
+                return;
+            }
+            startNanos = System.nanoTime();
+        }
+
+        public void stop(){
+            if(!enabled || startNanos < 0){
+                return;
+            }
+            long duration = System.nanoTime() - startNanos;
+            startNanos = -1;
+            histogram.record(duration);
+            loopNanos += duration;
+        }
+
+        public String getName(){
+            return name;
+        }
+
+        private void endLoop(boolean overran){
+            if(overran && loopNanos > 0){
+                overrunNanos += loopNanos;
+                overrunLoops++;
+            }
+            loopNanos = 0;
+            startNanos = -1;
+        }
+
+        private void publish(){
+            // Finding a percentile walks the histogram, only do it when it will be sent
+            if(p50Signal.isDue()){
+                p50Signal.set(histogram.getValueAtPercentile(50) / 1e6);
+                p99Signal.set(histogram.getValueAtPercentile(99) / 1e6);
+                maxSignal.set(histogram.getMaxValue() / 1e6);
+            }
+        }
+
+        private void reset(){
+            histogram.reset();
+            loopNanos = 0;
+            overrunNanos = 0;
+            overrunLoops = 0;
+            startNanos = -1;
+        }
+    }
+
+    /**
+     * Runs the wrapped command with its execute() timed as a section.
+     */
+    private static class ProfiledCommand extends WrapperCommand{
+        private final Section section;
+
+        private ProfiledCommand(Command command, Section section){
+            super(command);
+            this.section = section;
+        }
+
+        @Override
+        public void execute(){
+            section.start();
+            m_command.execute();
+            section.stop();
+        }
+    }
+
+    private LoopProfiler(){
+        loopBudgetNanos = (long) (ProfilerConstants.kLoopBudgetSeconds * 1e9);
+        loopSection = new Section("Loop");
+    }
+
+    public static LoopProfiler getInstance(){
+        if(instance == null){
+            instance = new LoopProfiler();
+        }
+        return instance;
+    }
+
+    /**
+     * @param name Shown in the report and used as the NetworkTables key, e.g. "Drivetrain.periodic"
+     */
+    public Section addSection(String name){
+        Section section = new Section(name);
+        sections.add(section);
+        return section;
+    }
+
+    /**
+     * Wraps a command so its execute() is profiled as {@code <name>.execute}. The same wrapper is
+     * handed back every time for a given command, since a command can only be composed once.
+     */
+    public Command profile(Command command){
+        if(command == null){
+            return null;
+        }
+        return profiledCommands.computeIfAbsent(command,
+            c -> new ProfiledCommand(c, addSection(c.getName() + ".execute")));
+    }
+
+    /**
+     * Call first thing in the loop.
+     */
+    public void beginLoop(){
+        if(enabled != Constants.profilingMode){
+            enabled = Constants.profilingMode;
+            reset();
+        }
+        loopStartNanos = System.nanoTime();
+        loopSection.start();
+    }
+
+    /**
+     * Call last thing in the loop. Records the loop time, charges overruns to the sections that
+     * ran in that loop and sets the section signals that are due.
+     */
+    public void endLoop(){
+        lastLoopNanos = System.nanoTime() - loopStartNanos;
+        if(!enabled){
+            return;
+        }
+        loopSection.stop();
+        loops++;
+        boolean overran = lastLoopNanos > loopBudgetNanos;
+        if(overran){
+            overruns++;
+        }
+
+        loopSection.endLoop(overran);
+        loopSection.publish();
+        for(int i = 0; i < sections.size(); i++){
+            Section section = sections.get(i);
+            section.endLoop(overran);
+            section.publish();
+        }
+    }
+
+    /**
+     * @return {@link System#nanoTime()} at the start of the current loop
+     */
+    public long getLoopStartNanos(){
+        return loopStartNanos;
+    }
+
+    /**
+     * @return Length of the last loop in seconds, measured whether or not profiling is on
+     */
+    public double getLastLoopSeconds(){
+        return lastLoopNanos / 1e9;
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    /**
+     * Prints the sections ranked by how much of the overrunning loops they took, worst first.
+     */
+    public void printReport(){
+        if(!enabled || loops == 0){
+            return;
+        }
+        List<Section> ranked = new ArrayList<>(sections);
+        ranked.sort((a, b) -> Long.compare(b.overrunNanos, a.overrunNanos));
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Loop profile: %d loops, %d over %.1f ms (%.1f%%), p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+            loops, overruns, loopBudgetNanos / 1e6, 100.0 * overruns / loops,
+            loopSection.histogram.getValueAtPercentile(50) / 1e6,
+            loopSection.histogram.getValueAtPercentile(99) / 1e6,
+            loopSection.histogram.getMaxValue() / 1e6));
+        report.append(String.format("  %-40s %12s %11s %9s %9s %9s%n",
+            "Section", "Overrun ms", "In overruns", "p50 ms", "p99 ms", "max ms"));
+        for(Section section : ranked){
+            report.append(String.format("  %-40s %12.2f %11d %9.3f %9.3f %9.3f%n",
+                section.name,
+                section.overrunNanos / 1e6,
+                section.overrunLoops,
+                section.histogram.getValueAtPercentile(50) / 1e6,
+                section.histogram.getValueAtPercentile(99) / 1e6,
+                section.histogram.getMaxValue() / 1e6));
+        }
+        System.out.print(report);
+    }
+
+    private void reset(){
+        loopSection.reset();
+        for(Section section : sections){
+            section.reset();
+        }
+        loops = 0;
+        overruns = 0;
+    }
+}
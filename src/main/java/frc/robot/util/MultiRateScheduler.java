@@ -0,0 +1,158 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Threads;
+import frc.robot.Constants;
+import frc.robot.Constants.SchedulerConstants;
+import frc.robot.Constants.TelemetryConstants;
+
+/**
+ * Runs work at the period each piece of work declares instead of all of it at the main loop rate.
+ *
+ * <p>Main loop tasks run on the robot thread from {@link #run()}, whenever their period has passed
+ * on the loop clock. They can run as often as the main loop at most, and are timed with the loop
+ * clock so replay runs them on the same loops.
+ *
+ * <p>Real time tasks get their own {@link Notifier} thread raised to real time priority, so they
+ * keep their rate while the main loop is busy. Anything they share with the main loop needs its
+ * own locking. Replay only steps the main loop, so real time tasks do not run there and their
+ * owners must not depend on them for anything that is logged.
+ */
+public class MultiRateScheduler {
+    private static MultiRateScheduler instance;
+
+    private final List<PeriodicTask> periodicTasks = new ArrayList<>();
+    private final List<RealtimeTask> realtimeTasks = new ArrayList<>();
+    private boolean started = false;
+
+    private static class PeriodicTask{
+        private final Runnable task;
+        private final double periodSeconds;
+        private final LoopProfiler.Section section;
+        private double nextRunTime = Double.NEGATIVE_INFINITY;
+
+        private PeriodicTask(String name, double periodSeconds, Runnable task){
+            this.task = task;
+            this.periodSeconds = periodSeconds;
+            section = LoopProfiler.getInstance().addSection(name);
+        }
+    }
+
+    private static class RealtimeTask{
+        private final String name;
+        private final Runnable task;
+        private final double periodSeconds;
+        private final int priority;
+        private final Notifier notifier;
+        private final Telemetry.DoubleSignal overrunsSignal, maxMsSignal;
+
+        // Written by the task thread only
+        private boolean priorityRaised = false;
+        private volatile long overruns = 0;
+        private volatile long maxNanos = 0;
+
+        private RealtimeTask(String name, double periodSeconds, int priority, Runnable task){
+            this.name = name;
+            this.task = task;
+            this.periodSeconds = periodSeconds;
+            this.priority = priority;
+            notifier = new Notifier(this::runOnce);
+            notifier.setName(name);
+
+            Telemetry telemetry = Telemetry.getInstance();
+            overrunsSignal = telemetry.addDouble(name + " Overruns", TelemetryConstants.kStatusRateHz);
+            maxMsSignal = telemetry.addDouble(name + " Max Ms", TelemetryConstants.kStatusRateHz);
+        }
+
+        private void runOnce(){
+            if(!priorityRaised){
+                // Notifier callbacks run on a thread the Notifier owns, so it can only be raised from inside
+                if(!Threads.setCurrentThreadPriority(true, priority)){
+                    DriverStation.reportWarning("Could not raise " + name + " to real time priority", false);
+                }
+                priorityRaised = true;
+            }
+
+            long start = System.nanoTime();
+            task.run();
+            long duration = System.nanoTime() - start;
+            if(duration > maxNanos){
+                maxNanos = duration;
+            }
+            if(duration > periodSeconds * 1e9){
+                overruns++;
+            }
+        }
+    }
+
+    private MultiRateScheduler(){}
+
+    public static MultiRateScheduler getInstance(){
+        if(instance == null){
+            instance = new MultiRateScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Runs a task on the main loop, no more often than its period. Tasks with the same period run
+     * in the order they were added. Profiled as a {@link LoopProfiler} section under the name.
+     * @param periodSeconds Time between runs, rounded up to whole main loops
+     */
+    public void addPeriodic(String name, double periodSeconds, Runnable task){
+        periodicTasks.add(new PeriodicTask(name, periodSeconds, task));
+    }
+
+    /**
+     * Runs a task on its own real time thread, starting at {@link #start()}.
+     * @param priority Real time priority, 1 to 99, higher runs first
+     */
+    public void addRealtime(String name, double periodSeconds, int priority, Runnable task){
+        RealtimeTask realtimeTask = new RealtimeTask(name, periodSeconds, priority, task);
+        realtimeTasks.add(realtimeTask);
+        if(started){
+            realtimeTask.notifier.startPeriodic(periodSeconds);
+        }
+    }
+
+    /**
+     * Starts the real time tasks. Does nothing in replay.
+     */
+    public void start(){
+        if(started || Constants.currentMode == Constants.Mode.REPLAY){
+            return;
+        }
+        started = true;
+        for(RealtimeTask task : realtimeTasks){
+            task.notifier.startPeriodic(task.periodSeconds);
+        }
+    }
+
+    /**
+     * Runs the main loop tasks that are due. Call once per main loop.
+     */
+    public void run(){
+        double timestamp = InputLog.getInstance().getTimestamp();
+        for(int i = 0; i < periodicTasks.size(); i++){
+            PeriodicTask task = periodicTasks.get(i);
+            if(timestamp + SchedulerConstants.kPeriodToleranceSeconds < task.nextRunTime){
+                continue;
+            }
+            // Scheduled from the last run rather than from now so the rate does not drift
+            task.nextRunTime = Math.max(task.nextRunTime + task.periodSeconds, timestamp);
+            task.section.start();
+            task.task.run();
+            task.section.stop();
+        }
+
+        for(int i = 0; i < realtimeTasks.size(); i++){
+            RealtimeTask task = realtimeTasks.get(i);
+            task.overrunsSignal.set(task.overruns);
+            task.maxMsSignal.set(task.maxNanos / 1e6);
+        }
+    }
+}
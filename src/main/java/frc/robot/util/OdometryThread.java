@@ -0,0 +1,135 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.Constants.CANBudgetConstants;
+import frc.robot.Constants.SwerveDriveConstants;
+
+/**
+ * Samples the drive encoders, turning sensors and gyro faster than the main loop.
+ * Every registered signal gets its own ring buffer, filled in the same pass as the timestamp buffer
+ * so sample i of every buffer lines up. The main loop drains the buffers while holding
+ * {@link #odometryLock}.
+ *
+ * <p>CAN signals only change when their status frame arrives, every
+ * {@link CANBudgetConstants#kOdometrySignalPeriodMs}. Polling faster samples each frame soon
+ * after it arrives, and a pass where none of them changed is dropped instead of repeating the
+ * last frame under a new timestamp. A sample is still kept at least once a frame period, so a
+ * robot standing still keeps its gyro samples.
+ */
+public class OdometryThread {
+    private static OdometryThread instance;
+
+    public static final Lock odometryLock = new ReentrantLock();
+
+    private static final double kMaxSampleGapSeconds = CANBudgetConstants.kOdometrySignalPeriodMs / 1000.0;
+
+    private final List<DoubleSupplier> signals = new ArrayList<>();
+    private final List<DoubleRingBuffer> signalBuffers = new ArrayList<>();
+    private final List<Boolean> framedSignals = new ArrayList<>();
+    private final DoubleRingBuffer timestampBuffer;
+
+    // Built at start, once every signal is registered
+    private boolean[] framed;
+    private double[] values;
+    private double[] lastValues;
+    private double lastSampleTimestamp = Double.NEGATIVE_INFINITY;
+
+    private final Notifier notifier;
+    private boolean running;
+
+    private OdometryThread(){
+        timestampBuffer = new DoubleRingBuffer(SwerveDriveConstants.kOdometryBufferSize);
+        notifier = new Notifier(this::sample);
+        notifier.setName("OdometryThread");
+        running = false;
+    }
+
+    public static OdometryThread getInstance(){
+        if(instance == null){
+            instance = new OdometryThread();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a signal to be sampled at {@link SwerveDriveConstants#kOdometryFrequencyHz}.
+     * All signals must be registered before {@link #start()} so their buffers stay aligned.
+     * @param signal Sensor read to sample
+     * @param framed True if the value comes from a periodic CAN status frame, a change in one of
+     * these is what marks a new sample
+     * @return Buffer the samples are written into
+     */
+    public DoubleRingBuffer registerSignal(DoubleSupplier signal, boolean framed){
+        odometryLock.lock();
+        try{
+            DoubleRingBuffer buffer = new DoubleRingBuffer(SwerveDriveConstants.kOdometryBufferSize);
+            signals.add(signal);
+            signalBuffers.add(buffer);
+            framedSignals.add(framed);
+            return buffer;
+        }finally{
+            odometryLock.unlock();
+        }
+    }
+
+    /**
+     * @return Buffer of FPGA timestamps (seconds) matching each sample
+     */
+    public DoubleRingBuffer getTimestampBuffer(){
+        return timestampBuffer;
+    }
+
+    public void start(){
+        if(!running){
+            odometryLock.lock();
+            try{
+                framed = new boolean[signals.size()];
+                for(int i = 0; i < framed.length; i++){
+                    framed[i] = framedSignals.get(i);
+                }
+                values = new double[signals.size()];
+                lastValues = new double[signals.size()];
+                // Anything but a real reading, so the first pass is kept
+                Arrays.fill(lastValues, Double.NaN);
+            }finally{
+                odometryLock.unlock();
+            }
+            notifier.startPeriodic(1.0 / SwerveDriveConstants.kOdometryFrequencyHz);
+            running = true;
+        }
+    }
+
+    private void sample(){
+        odometryLock.lock();
+        try{
+            double timestamp = RobotController.getFPGATime() / 1e6;
+            boolean newFrame = timestamp - lastSampleTimestamp >= kMaxSampleGapSeconds;
+            for(int i = 0; i < values.length; i++){
+                values[i] = signals.get(i).getAsDouble();
+                if(framed[i] && values[i] != lastValues[i]){
+                    newFrame = true;
+                }
+            }
+            if(!newFrame){
+                return;
+            }
+
+            for(int i = 0; i < values.length; i++){
+                signalBuffers.get(i).add(values[i]);
+                lastValues[i] = values[i];
+            }
+            timestampBuffer.add(timestamp);
+            lastSampleTimestamp = timestamp;
+        }finally{
+            odometryLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package frc.robot.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import frc.robot.Constants.LoggingConstants;
+
+/**
+ * Inputs recorded by {@link InputLog}, read back from a drive log for replay. The log is split
+ * into frames, one per robot loop. Frame 0 holds what was read while the robot was being
+ * constructed. Within a frame every key is read back in the order it was recorded, so code that
+ * reads the same input twice in a loop gets both values.
+ */
+public class ReplaySource {
+    private static ReplaySource instance;
+
+    private final String filename;
+    private final Map<String, Integer> keys = new HashMap<>();
+    private final List<double[]> keyValues = new ArrayList<>();
+    private final List<int[]> frameOffsets = new ArrayList<>();
+    private int[] keySizes;
+
+    private int frame;
+    private int[] cursors;
+
+    public ReplaySource(String filename) throws IOException{
+        this.filename = filename;
+        DataLogReader reader = new DataLogReader(filename);
+        if(!reader.isValid()){
+            throw new IOException(filename + " is not a WPILOG file");
+        }
+
+        // First pass finds the recorded inputs, the second one collects their values by frame
+        Map<Integer, Integer> entryKeys = new HashMap<>();
+        Map<Integer, Boolean> entryIsBoolean = new HashMap<>();
+        int loopStartEntry = -1;
+        for(DataLogRecord record : reader){
+            if(!record.isStart()){
+                continue;
+            }
+            DataLogRecord.StartRecordData start = record.getStartData();
+            if(start.name.equals(InputLog.kLoopStartKey)){
+                loopStartEntry = start.entry;
+            }else if(start.name.startsWith(InputLog.kPrefix)){
+                Integer key = keys.get(start.name);
+                if(key == null){
+                    key = keys.size();
+                    keys.put(start.name, key);
+                    keyValues.add(new double[64]);
+                }
+                entryKeys.put(start.entry, key);
+                entryIsBoolean.put(start.entry, start.type.equals("boolean"));
+            }
+        }
+
+        keySizes = new int[keys.size()];
+        frameOffsets.add(new int[keys.size()]);
+        for(DataLogRecord record : reader){
+            if(record.isControl()){
+                continue;
+            }
+            if(record.getEntry() == loopStartEntry){
+                frameOffsets.add(keySizes.clone());
+                continue;
+            }
+            Integer key = entryKeys.get(record.getEntry());
+            if(key == null){
+                continue;
+            }
+            double value = entryIsBoolean.get(record.getEntry())
+                ? (record.getBoolean() ? 1.0 : 0.0)
+                : record.getDouble();
+            append(key, value);
+        }
+        frameOffsets.add(keySizes.clone());
+
+        frame = 0;
+        cursors = new int[keys.size()];
+    }
+
+    /**
+     * @return Source for the log named by the {@link LoggingConstants#kReplayLogVariable}
+     * environment variable
+     */
+    public static ReplaySource getInstance(){
+        if(instance == null){
+            String filename = System.getenv(LoggingConstants.kReplayLogVariable);
+            try{
+                instance = new ReplaySource(filename);
+            }catch(IOException e){
+                throw new IllegalStateException("Could not read replay log " + filename, e);
+            }
+        }
+        return instance;
+    }
+
+    private void append(int key, double value){
+        double[] values = keyValues.get(key);
+        if(keySizes[key] == values.length){
+            values = Arrays.copyOf(values, values.length * 2);
+            keyValues.set(key, values);
+        }
+        values[keySizes[key]++] = value;
+    }
+
+    /**
+     * @return Key for an input name, -1 if it was never recorded
+     */
+    public int getKey(String name){
+        Integer key = keys.get(name);
+        return key == null ? -1 : key;
+    }
+
+    /**
+     * Moves to the next loop.
+     * @return False once every recorded loop has been replayed
+     */
+    public boolean advance(){
+        if(frame + 1 >= getFrameCount()){
+            return false;
+        }
+        frame++;
+        System.arraycopy(frameOffsets.get(frame), 0, cursors, 0, cursors.length);
+        return true;
+    }
+
+    /**
+     * @param key Key from {@link #getKey(String)}
+     * @param defaultValue Returned when the key has no more values this frame
+     * @return Next recorded value of the key in this frame
+     */
+    public double next(int key, double defaultValue){
+        if(key < 0 || cursors[key] >= frameOffsets.get(frame + 1)[key]){
+            return defaultValue;
+        }
+        return keyValues.get(key)[cursors[key]++];
+    }
+
+    /**
+     * Reads the first value of a key in this frame without consuming it.
+     */
+    public double peek(String name, double defaultValue){
+        int key = getKey(name);
+        if(key < 0 || frameOffsets.get(frame)[key] >= frameOffsets.get(frame + 1)[key]){
+            return defaultValue;
+        }
+        return keyValues.get(key)[frameOffsets.get(frame)[key]];
+    }
+
+    /**
+     * @return Recorded FPGA time in seconds at the start of this frame
+     */
+    public double getFrameTimestamp(){
+        return peek(InputLog.kTimestampKey, 0.0);
+    }
+
+    /**
+     * @return Number of frames including the startup frame
+     */
+    public int getFrameCount(){
+        return frameOffsets.size() - 1;
+    }
+
+    public int getFrame(){
+        return frame;
+    }
+
+    public String getFilename(){
+        return filename;
+    }
+}
@@ -0,0 +1,79 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Decides whether a motor controller setpoint is worth sending. Writes that move the setpoint less
+ * than the tolerance are dropped, but the last value is still re-sent every keep alive period so a
+ * missed frame cannot leave the controller on an old setpoint for long.
+ */
+public class SetpointFilter {
+    private final double tolerance;
+    private final double keepAliveSeconds;
+    private final boolean continuousAngle;
+
+    private double lastSentSetpoint;
+    private double lastSentTime;
+    private long suppressedWrites;
+
+    /**
+     * @param tolerance Smallest change that is sent right away
+     * @param keepAliveSeconds Longest time between two writes
+     * @param continuousAngle True if the setpoint is an angle in radians, so changes are measured across the wrap
+     */
+    public SetpointFilter(double tolerance, double keepAliveSeconds, boolean continuousAngle){
+        this.tolerance = tolerance;
+        this.keepAliveSeconds = keepAliveSeconds;
+        this.continuousAngle = continuousAngle;
+        lastSentSetpoint = Double.NaN;
+        lastSentTime = Double.NEGATIVE_INFINITY;
+        suppressedWrites = 0;
+    }
+
+    /**
+     * @param setpoint Setpoint about to be sent
+     * @param timestampSeconds Current time
+     * @return True if the setpoint should be sent, in which case it is remembered as the last sent value
+     */
+    public boolean shouldSend(double setpoint, double timestampSeconds){
+        double change;
+        if(continuousAngle){
+            change = Math.abs(MathUtil.angleModulus(setpoint - lastSentSetpoint));
+        }else{
+            change = Math.abs(setpoint - lastSentSetpoint);
+        }
+
+        // NaN change means nothing was sent yet, stopping is always sent so the motor never creeps
+        boolean send = !(change <= tolerance)
+            || (setpoint == 0.0 && lastSentSetpoint != 0.0)
+            || timestampSeconds - lastSentTime >= keepAliveSeconds;
+
+        if(send){
+            lastSentSetpoint = setpoint;
+            lastSentTime = timestampSeconds;
+        }else{
+            suppressedWrites++;
+        }
+        return send;
+    }
+
+    /**
+     * Forgets the last sent setpoint so the next one is always sent. Use after the controller was
+     * commanded some other way.
+     */
+    public void reset(){
+        lastSentSetpoint = Double.NaN;
+        lastSentTime = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * @return Last setpoint that was sent, NaN if none
+     */
+    public double getLastSentSetpoint(){
+        return lastSentSetpoint;
+    }
+
+    public long getSuppressedWrites(){
+        return suppressedWrites;
+    }
+}
@@ -0,0 +1,91 @@
+package frc.robot.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.revrobotics.REVLibError;
+import com.revrobotics.spark.SparkBase.PersistMode;
+import com.revrobotics.spark.SparkBase.ResetMode;
+import com.revrobotics.spark.SparkMax;
+import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
+import com.revrobotics.spark.config.SparkMaxConfig;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Applies SparkMax config changes off the main loop. Keeps the last requested and last confirmed
+ * value for each controller so a request that matches the cache costs nothing, and only the changed
+ * parameter is sent when it does not. REVLib configs only carry the parameters that were set on them,
+ * so a config with just the idle mode leaves everything else on the controller alone.
+ */
+public class SparkConfigService {
+    private static SparkConfigService instance;
+
+    private final ExecutorService executor;
+
+    private final Map<SparkMax, IdleMode> requestedIdleModes = new ConcurrentHashMap<>();
+    private final Map<SparkMax, IdleMode> confirmedIdleModes = new ConcurrentHashMap<>();
+
+    private SparkConfigService(){
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SparkConfigService");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static SparkConfigService getInstance(){
+        if(instance == null){
+            instance = new SparkConfigService();
+        }
+        return instance;
+    }
+
+    /**
+     * Records the idle mode a controller was configured with at startup, so the first request
+     * for the same mode is skipped.
+     */
+    public void registerIdleMode(SparkMax spark, IdleMode mode){
+        requestedIdleModes.put(spark, mode);
+        confirmedIdleModes.put(spark, mode);
+    }
+
+    /**
+     * Queues an idle mode change. Returns right away, check {@link #isIdleModeConfirmed(SparkMax)}
+     * to know when the controller has accepted it.
+     */
+    public void setIdleMode(SparkMax spark, IdleMode mode){
+        if(mode == requestedIdleModes.get(spark)){
+            return;
+        }
+        requestedIdleModes.put(spark, mode);
+
+        SparkMaxConfig changedParameters = new SparkMaxConfig();
+        changedParameters.idleMode(mode);
+
+        executor.execute(() -> {
+            REVLibError result = spark.configure(changedParameters, ResetMode.kNoResetSafeParameters, PersistMode.kNoPersistParameters);
+            if(result == REVLibError.kOk){
+                confirmedIdleModes.put(spark, mode);
+            }else{
+                // Forget the request so the next call sends it again
+                requestedIdleModes.remove(spark, mode);
+                DriverStation.reportWarning("SparkMax " + spark.getDeviceId() + " idle mode change failed: " + result, false);
+            }
+        });
+    }
+
+    /**
+     * @return Last requested idle mode, read from the cache instead of the controller
+     */
+    public IdleMode getIdleMode(SparkMax spark){
+        return requestedIdleModes.get(spark);
+    }
+
+    public boolean isIdleModeConfirmed(SparkMax spark){
+        IdleMode requested = requestedIdleModes.get(spark);
+        return requested != null && requested == confirmedIdleModes.get(spark);
+    }
+}
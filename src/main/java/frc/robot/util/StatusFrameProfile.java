@@ -0,0 +1,130 @@
+package frc.robot.util;
+
+import java.util.EnumMap;
+import java.util.function.ObjIntConsumer;
+
+import com.revrobotics.spark.config.SignalsConfig;
+
+import frc.robot.Constants.CANBudgetConstants;
+
+/**
+ * Declares how often a SparkMax should send each of its periodic signals. Anything a profile does
+ * not ask for is slowed down to {@link CANBudgetConstants#kUnusedSignalPeriodMs}.
+ */
+public class StatusFrameProfile {
+    /**
+     * SparkMax periodic signals and the status frame that carries them. The controller sends a frame
+     * at the fastest period of any signal in it.
+     */
+    public enum SparkSignal{
+        APPLIED_OUTPUT(0, SignalsConfig::appliedOutputPeriodMs),
+        BUS_VOLTAGE(0, SignalsConfig::busVoltagePeriodMs),
+        OUTPUT_CURRENT(0, SignalsConfig::outputCurrentPeriodMs),
+        MOTOR_TEMPERATURE(0, SignalsConfig::motorTemperaturePeriodMs),
+        FAULTS(1, SignalsConfig::faultsPeriodMs),
+        WARNINGS(1, SignalsConfig::warningsPeriodMs),
+        PRIMARY_ENCODER_VELOCITY(2, SignalsConfig::primaryEncoderVelocityPeriodMs),
+        PRIMARY_ENCODER_POSITION(2, SignalsConfig::primaryEncoderPositionPeriodMs),
+        ANALOG_VOLTAGE(3, SignalsConfig::analogVoltagePeriodMs),
+        ANALOG_VELOCITY(3, SignalsConfig::analogVelocityPeriodMs),
+        ANALOG_POSITION(3, SignalsConfig::analogPositionPeriodMs),
+        ABSOLUTE_ENCODER_POSITION(5, SignalsConfig::absoluteEncoderPositionPeriodMs),
+        ABSOLUTE_ENCODER_VELOCITY(6, SignalsConfig::absoluteEncoderVelocityPeriodMs),
+        I_ACCUMULATION(7, SignalsConfig::iAccumulationPeriodMs);
+
+        public static final int kNumFrames = 8;
+
+        public final int frame;
+        private final ObjIntConsumer<SignalsConfig> setter;
+
+        SparkSignal(int frame, ObjIntConsumer<SignalsConfig> setter){
+            this.frame = frame;
+            this.setter = setter;
+        }
+    }
+
+    // Drive motors, position and velocity feed odometry and the drive PID telemetry
+    public static final StatusFrameProfile kSwerveDrive = new StatusFrameProfile("Swerve Drive")
+        .with(SparkSignal.APPLIED_OUTPUT, CANBudgetConstants.kTelemetrySignalPeriodMs)
+        .with(SparkSignal.OUTPUT_CURRENT, CANBudgetConstants.kTelemetrySignalPeriodMs)
+        .with(SparkSignal.MOTOR_TEMPERATURE, CANBudgetConstants.kSlowTelemetrySignalPeriodMs)
+        .with(SparkSignal.BUS_VOLTAGE, CANBudgetConstants.kSlowTelemetrySignalPeriodMs)
+        .with(SparkSignal.FAULTS, CANBudgetConstants.kSlowTelemetrySignalPeriodMs)
+        .with(SparkSignal.WARNINGS, CANBudgetConstants.kSlowTelemetrySignalPeriodMs)
+        .with(SparkSignal.PRIMARY_ENCODER_POSITION, CANBudgetConstants.kOdometrySignalPeriodMs)
+        .with(SparkSignal.PRIMARY_ENCODER_VELOCITY, CANBudgetConstants.kOdometrySignalPeriodMs);
+
+    // Turning motors, only the analog angle is read
+    public static final StatusFrameProfile kSwerveTurn = new StatusFrameProfile("Swerve Turn")
+        .with(SparkSignal.APPLIED_OUTPUT, CANBudgetConstants.kTelemetrySignalPeriodMs)
+        .with(SparkSignal.OUTPUT_CURRENT, CANBudgetConstants.kTelemetrySignalPeriodMs)
+        .with(SparkSignal.MOTOR_TEMPERATURE, CANBudgetConstants.kSlowTelemetrySignalPeriodMs)
+        .with(SparkSignal.BUS_VOLTAGE, CANBudgetConstants.kSlowTelemetrySignalPeriodMs)
+        .with(SparkSignal.FAULTS, CANBudgetConstants.kSlowTelemetrySignalPeriodMs)
+        .with(SparkSignal.WARNINGS, CANBudgetConstants.kSlowTelemetrySignalPeriodMs)
+        .with(SparkSignal.ANALOG_POSITION, CANBudgetConstants.kOdometrySignalPeriodMs);
+
+    // Followers copy the leader's applied output frame, so the leader has to send it fast
+    public static final StatusFrameProfile kElevatorLeader = new StatusFrameProfile("Elevator Leader")
+        .with(SparkSignal.APPLIED_OUTPUT, CANBudgetConstants.kFollowerLeaderSignalPeriodMs)
+        .with(SparkSignal.OUTPUT_CURRENT, CANBudgetConstants.kTelemetrySignalPeriodMs)
+        .with(SparkSignal.MOTOR_TEMPERATURE, CANBudgetConstants.kSlowTelemetrySignalPeriodMs)
+        .with(SparkSignal.BUS_VOLTAGE, CANBudgetConstants.kSlowTelemetrySignalPeriodMs)
+        .with(SparkSignal.FAULTS, CANBudgetConstants.kSlowTelemetrySignalPeriodMs)
+        .with(SparkSignal.WARNINGS, CANBudgetConstants.kSlowTelemetrySignalPeriodMs)
+        .with(SparkSignal.PRIMARY_ENCODER_POSITION, CANBudgetConstants.kTelemetrySignalPeriodMs)
+        .with(SparkSignal.PRIMARY_ENCODER_VELOCITY, CANBudgetConstants.kTelemetrySignalPeriodMs);
+
+    public static final StatusFrameProfile kElevatorFollower = new StatusFrameProfile("Elevator Follower")
+        .with(SparkSignal.OUTPUT_CURRENT, CANBudgetConstants.kSlowTelemetrySignalPeriodMs)
+        .with(SparkSignal.MOTOR_TEMPERATURE, CANBudgetConstants.kSlowTelemetrySignalPeriodMs)
+        .with(SparkSignal.FAULTS, CANBudgetConstants.kSlowTelemetrySignalPeriodMs)
+        .with(SparkSignal.WARNINGS, CANBudgetConstants.kSlowTelemetrySignalPeriodMs);
+
+    private final String name;
+    private final EnumMap<SparkSignal, Integer> periodsMs = new EnumMap<>(SparkSignal.class);
+
+    public StatusFrameProfile(String name){
+        this.name = name;
+        for(SparkSignal signal : SparkSignal.values()){
+            periodsMs.put(signal, CANBudgetConstants.kUnusedSignalPeriodMs);
+        }
+    }
+
+    /**
+     * @param signal Signal to set
+     * @param periodMs How often the signal is needed, in milliseconds
+     * @return This profile, for chaining
+     */
+    public StatusFrameProfile with(SparkSignal signal, int periodMs){
+        periodsMs.put(signal, periodMs);
+        return this;
+    }
+
+    public int getPeriodMs(SparkSignal signal){
+        return periodsMs.get(signal);
+    }
+
+    /**
+     * @return Period the controller will send the frame at, the fastest of the signals it carries
+     */
+    public int getFramePeriodMs(int frame){
+        int periodMs = Integer.MAX_VALUE;
+        for(SparkSignal signal : SparkSignal.values()){
+            if(signal.frame == frame){
+                periodMs = Math.min(periodMs, periodsMs.get(signal));
+            }
+        }
+        return periodMs;
+    }
+
+    public void applyTo(SignalsConfig signals){
+        for(SparkSignal signal : SparkSignal.values()){
+            signal.setter.accept(signals, periodsMs.get(signal));
+        }
+    }
+
+    public String getName(){
+        return name;
+    }
+}
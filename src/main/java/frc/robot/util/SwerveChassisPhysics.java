@@ -0,0 +1,149 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Rigid body motion of a swerve chassis on carpet, without any motors or clocks. Each wheel pushes
+ * along its direction with the force its motor makes, and friction stops it sliding sideways, both
+ * limited to what the wheel's share of the weight allows. Wheels never spin out along their
+ * direction.
+ *
+ * <p>A step is {@link #beginStep()}, then for each module {@link #getWheelSpeed(int, double)} and
+ * {@link #applyWheel(int, double, double, double)}, then {@link #endStep(double)}. Wheels are
+ * applied one at a time so each sees what the others already did. Not thread safe.
+ */
+public class SwerveChassisPhysics {
+    private final double massKg, moiKgMetersSquared;
+    private final double maxWheelForceNewtons;
+    private final double[] moduleX, moduleY;
+
+    // Field relative
+    private double poseX = 0.0, poseY = 0.0, poseTheta = 0.0;
+    private double velocityX = 0.0, velocityY = 0.0, angularVelocity = 0.0;
+
+    // Robot relative, only during a step
+    private double cos, sin;
+    private double vx, vy, omega;
+
+    /**
+     * @param maxWheelForceNewtons Friction limit per wheel
+     * @param moduleLocations Module locations relative to the robot center, by module number
+     */
+    public SwerveChassisPhysics(double massKg, double moiKgMetersSquared, double maxWheelForceNewtons,
+                                Translation2d... moduleLocations){
+        this.massKg = massKg;
+        this.moiKgMetersSquared = moiKgMetersSquared;
+        this.maxWheelForceNewtons = maxWheelForceNewtons;
+        moduleX = new double[moduleLocations.length];
+        moduleY = new double[moduleLocations.length];
+        for(int i = 0; i < moduleLocations.length; i++){
+            moduleX[i] = moduleLocations[i].getX();
+            moduleY[i] = moduleLocations[i].getY();
+        }
+    }
+
+    public void beginStep(){
+        cos = Math.cos(poseTheta);
+        sin = Math.sin(poseTheta);
+        vx = velocityX * cos + velocityY * sin;
+        vy = -velocityX * sin + velocityY * cos;
+        omega = angularVelocity;
+    }
+
+    /**
+     * @param wheelAngle Module angle in radians, robot relative
+     * @return Speed of the ground under the wheel along its direction, meters per second
+     */
+    public double getWheelSpeed(int module, double wheelAngle){
+        double pointX = vx - omega * moduleY[module];
+        double pointY = vy + omega * moduleX[module];
+        return pointX * Math.cos(wheelAngle) + pointY * Math.sin(wheelAngle);
+    }
+
+    /**
+     * Pushes the chassis with one wheel and takes out the slip across it, as far as the friction
+     * left over allows.
+     * @param wheelAngle Module angle in radians, robot relative
+     * @param driveForceNewtons Force the motor puts on the ground along the wheel
+     */
+    public void applyWheel(int module, double wheelAngle, double driveForceNewtons, double dt){
+        double x = moduleX[module], y = moduleY[module];
+        double directionX = Math.cos(wheelAngle), directionY = Math.sin(wheelAngle);
+
+        double pointX = vx - omega * y;
+        double pointY = vy + omega * x;
+        double slipSpeed = -pointX * directionY + pointY * directionX;
+
+        double driveImpulse = MathUtil.clamp(driveForceNewtons, -maxWheelForceNewtons, maxWheelForceNewtons) * dt;
+
+        double momentArm = x * directionX + y * directionY;
+        double effectiveMass = 1.0 / (1.0 / massKg + momentArm * momentArm / moiKgMetersSquared);
+        double maxSlipImpulse = Math.sqrt(Math.max(0.0,
+            Math.pow(maxWheelForceNewtons * dt, 2) - driveImpulse * driveImpulse));
+        double slipImpulse = MathUtil.clamp(-slipSpeed * effectiveMass, -maxSlipImpulse, maxSlipImpulse);
+
+        double impulseX = driveImpulse * directionX - slipImpulse * directionY;
+        double impulseY = driveImpulse * directionY + slipImpulse * directionX;
+        vx += impulseX / massKg;
+        vy += impulseY / massKg;
+        omega += (x * impulseY - y * impulseX) / moiKgMetersSquared;
+    }
+
+    /**
+     * Moves the chassis with the velocity the wheels left it with.
+     */
+    public void endStep(double dt){
+        velocityX = vx * cos - vy * sin;
+        velocityY = vx * sin + vy * cos;
+        angularVelocity = omega;
+        poseX += velocityX * dt;
+        poseY += velocityY * dt;
+        poseTheta = MathUtil.angleModulus(poseTheta + angularVelocity * dt);
+    }
+
+    /**
+     * Puts the chassis somewhere, stopped.
+     */
+    public void setPose(double x, double y, double theta){
+        poseX = x;
+        poseY = y;
+        poseTheta = theta;
+        velocityX = 0.0;
+        velocityY = 0.0;
+        angularVelocity = 0.0;
+    }
+
+    public double getX(){
+        return poseX;
+    }
+
+    public double getY(){
+        return poseY;
+    }
+
+    /**
+     * @return Heading in radians, -pi to pi
+     */
+    public double getTheta(){
+        return poseTheta;
+    }
+
+    /**
+     * @return Field relative velocity in meters per second
+     */
+    public double getVelocityX(){
+        return velocityX;
+    }
+
+    public double getVelocityY(){
+        return velocityY;
+    }
+
+    /**
+     * @return Counter clockwise in radians per second
+     */
+    public double getAngularVelocity(){
+        return angularVelocity;
+    }
+}
@@ -0,0 +1,282 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StructArrayPublisher;
+import edu.wpi.first.networktables.StructPublisher;
+import edu.wpi.first.util.struct.Struct;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants;
+import frc.robot.Constants.TelemetryConstants;
+
+/**
+ * Registry of NetworkTables publishers bound once at startup. Code sets values on its signals as
+ * often as it likes, {@link #publish()} writes the ones that are due at the end of the loop and
+ * flushes NetworkTables once. Number and boolean signals live in the SmartDashboard table so
+ * existing dashboard layouts keep working.
+ */
+public class Telemetry {
+    private static Telemetry instance;
+
+    private final NetworkTable smartDashboardTable;
+    private final List<Signal> signals = new ArrayList<>();
+    // Where the next publish starts, so signals cut off by a deadline go first next loop
+    private int nextSignal = 0;
+    private long deadlineMisses = 0;
+
+    /**
+     * How much a signal matters, used to decide what to drop when the loop is short on time.
+     * Lower ordinals are kept longer.
+     */
+    public enum Priority{
+        CRITICAL, STATUS, DISPLAY, DEBUG
+    }
+
+    // Set by the LoadShedder, anything below this priority is not published
+    private static Priority lowestPublishedPriority = Priority.DEBUG;
+    private static double periodScale = 1.0;
+
+    public abstract static class Signal{
+        private final double periodSeconds;
+        private final Priority priority;
+        private double lastPublishTime = Double.NEGATIVE_INFINITY;
+        protected boolean hasNewValue = false;
+
+        protected Signal(double rateHz, Priority priority){
+            this.periodSeconds = 1.0 / rateHz;
+            this.priority = priority;
+        }
+
+        /**
+         * @return True if a value set now would be published this loop. Use it to skip building
+         * values that are expensive to make.
+         */
+        public boolean isDue(){
+            return isEnabled()
+                && Timer.getFPGATimestamp() - lastPublishTime + TelemetryConstants.kPublishToleranceSeconds >= getPeriodSeconds();
+        }
+
+        /**
+         * @return False while the signal is debug only and debug mode is off, or while its
+         * priority is being shed
+         */
+        public boolean isEnabled(){
+            return (priority != Priority.DEBUG || Constants.debugMode)
+                && priority.ordinal() <= lowestPublishedPriority.ordinal();
+        }
+
+        private double getPeriodSeconds(){
+            // Critical signals keep their rate no matter the load
+            return priority == Priority.CRITICAL ? periodSeconds : periodSeconds * periodScale;
+        }
+
+        private boolean publishIfDue(double timestamp){
+            if(!hasNewValue || !isEnabled()
+                || timestamp - lastPublishTime + TelemetryConstants.kPublishToleranceSeconds < getPeriodSeconds()){
+                return false;
+            }
+            write();
+            hasNewValue = false;
+            lastPublishTime = timestamp;
+            return true;
+        }
+
+        protected abstract void write();
+    }
+
+    public static class DoubleSignal extends Signal{
+        private final DoublePublisher publisher;
+        private double value;
+
+        private DoubleSignal(DoublePublisher publisher, double rateHz, Priority priority){
+            super(rateHz, priority);
+            this.publisher = publisher;
+        }
+
+        public void set(double value){
+            this.value = value;
+            hasNewValue = true;
+        }
+
+        @Override
+        protected void write(){
+            publisher.set(value);
+        }
+    }
+
+    public static class BooleanSignal extends Signal{
+        private final BooleanPublisher publisher;
+        private boolean value;
+
+        private BooleanSignal(BooleanPublisher publisher, double rateHz, Priority priority){
+            super(rateHz, priority);
+            this.publisher = publisher;
+        }
+
+        public void set(boolean value){
+            this.value = value;
+            hasNewValue = true;
+        }
+
+        @Override
+        protected void write(){
+            publisher.set(value);
+        }
+    }
+
+    public static class StructSignal<T> extends Signal{
+        private final StructPublisher<T> publisher;
+        private T value;
+
+        private StructSignal(StructPublisher<T> publisher, double rateHz, Priority priority){
+            super(rateHz, priority);
+            this.publisher = publisher;
+        }
+
+        public void set(T value){
+            this.value = value;
+            hasNewValue = true;
+        }
+
+        @Override
+        protected void write(){
+            publisher.set(value);
+        }
+    }
+
+    public static class StructArraySignal<T> extends Signal{
+        private final StructArrayPublisher<T> publisher;
+        private T[] value;
+
+        private StructArraySignal(StructArrayPublisher<T> publisher, double rateHz, Priority priority){
+            super(rateHz, priority);
+            this.publisher = publisher;
+        }
+
+        public void set(T[] value){
+            this.value = value;
+            hasNewValue = true;
+        }
+
+        @Override
+        protected void write(){
+            publisher.set(value);
+        }
+    }
+
+    private Telemetry(){
+        smartDashboardTable = NetworkTableInstance.getDefault().getTable("SmartDashboard");
+    }
+
+    public static Telemetry getInstance(){
+        if(instance == null){
+            instance = new Telemetry();
+        }
+        return instance;
+    }
+
+    /**
+     * @param key SmartDashboard key
+     * @param rateHz Max publish rate
+     * @param priority What gets dropped first under load, {@link Priority#DEBUG} also needs {@link Constants#debugMode}
+     */
+    public DoubleSignal addDouble(String key, double rateHz, Priority priority){
+        DoubleSignal signal = new DoubleSignal(smartDashboardTable.getDoubleTopic(key).publish(), rateHz, priority);
+        signals.add(signal);
+        return signal;
+    }
+
+    /**
+     * @param debugOnly Only publish while {@link Constants#debugMode} is on
+     */
+    public DoubleSignal addDouble(String key, double rateHz, boolean debugOnly){
+        return addDouble(key, rateHz, debugOnly ? Priority.DEBUG : Priority.STATUS);
+    }
+
+    public DoubleSignal addDouble(String key, double rateHz){
+        return addDouble(key, rateHz, Priority.STATUS);
+    }
+
+    public BooleanSignal addBoolean(String key, double rateHz, Priority priority){
+        BooleanSignal signal = new BooleanSignal(smartDashboardTable.getBooleanTopic(key).publish(), rateHz, priority);
+        signals.add(signal);
+        return signal;
+    }
+
+    public BooleanSignal addBoolean(String key, double rateHz){
+        return addBoolean(key, rateHz, Priority.STATUS);
+    }
+
+    /**
+     * @param topic Full NetworkTables topic name
+     */
+    public <T> StructSignal<T> addStruct(String topic, Struct<T> struct, double rateHz, Priority priority){
+        StructSignal<T> signal = new StructSignal<>(
+            NetworkTableInstance.getDefault().getStructTopic(topic, struct).publish(), rateHz, priority);
+        signals.add(signal);
+        return signal;
+    }
+
+    /**
+     * @param topic Full NetworkTables topic name
+     */
+    public <T> StructArraySignal<T> addStructArray(String topic, Struct<T> struct, double rateHz, Priority priority){
+        StructArraySignal<T> signal = new StructArraySignal<>(
+            NetworkTableInstance.getDefault().getStructArrayTopic(topic, struct).publish(), rateHz, priority);
+        signals.add(signal);
+        return signal;
+    }
+
+    /**
+     * Sheds load by dropping low priority signals and slowing down the rest, critical signals
+     * always keep their rate.
+     * @param lowestPriority Lowest priority still published
+     * @param scale Multiplies the publish period of every signal that is not critical
+     */
+    public static void setLoad(Priority lowestPriority, double scale){
+        lowestPublishedPriority = lowestPriority;
+        periodScale = scale;
+    }
+
+    /**
+     * Writes every signal that has a new value and is due, then flushes NetworkTables once.
+     * Call once per loop after everything else has run.
+     */
+    public void publish(){
+        publish(Long.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #publish()}, but stops writing once {@link System#nanoTime()} passes the
+     * deadline. Signals that were cut off keep their values and are written first next loop.
+     */
+    public void publish(long deadlineNanos){
+        double timestamp = Timer.getFPGATimestamp();
+        boolean published = false;
+        int count = signals.size();
+        for(int n = 0; n < count; n++){
+            int i = (nextSignal + n) % count;
+            if(System.nanoTime() > deadlineNanos){
+                nextSignal = i;
+                deadlineMisses++;
+                break;
+            }
+            published |= signals.get(i).publishIfDue(timestamp);
+        }
+        if(published){
+            NetworkTableInstance.getDefault().flush();
+        }
+    }
+
+    /**
+     * @return Number of publishes cut short by their deadline
+     */
+    public long getDeadlineMisses(){
+        return deadlineMisses;
+    }
+}
@@ -0,0 +1,165 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Trajectories for every auto, generated and flipped for both alliances at build time by
+ * {@link frc.robot.TrajectoryCacheGenerator} and memory mapped at boot, so following a path starts
+ * without generating or flipping anything. Autos that are missing, or whose .auto, .path or
+ * settings.json changed since the file was built, are left out and run through PathPlanner.
+ *
+ * <p>The file is big endian: magic, version, auto count, then for each auto its name, source
+ * hash, resetOdom flag and path count, and for each path its name, then the blue and the red
+ * trajectory as a state count followed by {@link CachedTrajectory#kDoublesPerState} doubles per
+ * state. Strings are a short length followed by UTF-8.
+ */
+public class TrajectoryCache {
+    public static final int kMagic = 0x54524a43;
+    public static final int kVersion = 1;
+
+    public static class CachedAuto{
+        private final String name;
+        private final boolean resetOdom;
+        private final String[] pathNames;
+        private final CachedTrajectory[] blueTrajectories, redTrajectories;
+
+        private CachedAuto(String name, boolean resetOdom, String[] pathNames,
+                           CachedTrajectory[] blueTrajectories, CachedTrajectory[] redTrajectories){
+            this.name = name;
+            this.resetOdom = resetOdom;
+            this.pathNames = pathNames;
+            this.blueTrajectories = blueTrajectories;
+            this.redTrajectories = redTrajectories;
+        }
+
+        public String getName(){
+            return name;
+        }
+
+        /**
+         * @return Whether the auto starts by moving the pose to the start of its first path
+         */
+        public boolean getResetOdom(){
+            return resetOdom;
+        }
+
+        public int getPathCount(){
+            return pathNames.length;
+        }
+
+        public String getPathName(int path){
+            return pathNames[path];
+        }
+
+        public CachedTrajectory getTrajectory(int path, boolean red){
+            return red ? redTrajectories[path] : blueTrajectories[path];
+        }
+    }
+
+    private final Map<String, CachedAuto> autos;
+
+    private TrajectoryCache(Map<String, CachedAuto> autos){
+        this.autos = autos;
+    }
+
+    /**
+     * Maps the cache file and checks every auto in it against its sources. Never throws, a missing
+     * or unreadable file gives an empty cache.
+     * @param deployDirectory The deploy directory, the cache and the PathPlanner files are under it
+     */
+    public static TrajectoryCache load(File deployDirectory, String cacheFile){
+        Map<String, CachedAuto> autos = new HashMap<>();
+        File file = new File(deployDirectory, cacheFile);
+        if(!file.exists()){
+            DriverStation.reportWarning("No trajectory cache at " + file + ", autos will generate their trajectories", false);
+            return new TrajectoryCache(autos);
+        }
+
+        // The mapping stays valid after the channel is closed
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(buffer.getInt() != kMagic || buffer.getInt() != kVersion){
+                DriverStation.reportWarning("Trajectory cache " + file + " is from another version, rebuild it", false);
+                return new TrajectoryCache(autos);
+            }
+
+            int autoCount = buffer.getInt();
+            for(int i = 0; i < autoCount; i++){
+                String name = getString(buffer);
+                long sourceHash = buffer.getLong();
+                boolean resetOdom = buffer.get() != 0;
+                int pathCount = buffer.getInt();
+                String[] pathNames = new String[pathCount];
+                CachedTrajectory[] blue = new CachedTrajectory[pathCount];
+                CachedTrajectory[] red = new CachedTrajectory[pathCount];
+                for(int path = 0; path < pathCount; path++){
+                    pathNames[path] = getString(buffer);
+                    blue[path] = getTrajectory(buffer);
+                    red[path] = getTrajectory(buffer);
+                }
+
+                if(computeSourceHash(deployDirectory, name, pathNames) != sourceHash){
+                    DriverStation.reportWarning("Trajectory cache is out of date for " + name + ", rebuild it", false);
+                    continue;
+                }
+                autos.put(name, new CachedAuto(name, resetOdom, pathNames, blue, red));
+            }
+        }catch(IOException | RuntimeException e){
+            DriverStation.reportWarning("Could not read trajectory cache " + file + ": " + e.getMessage(), false);
+            autos.clear();
+        }
+        return new TrajectoryCache(autos);
+    }
+
+    /**
+     * @return The auto by its .auto file name, or null if it is not cached
+     */
+    public CachedAuto get(String autoName){
+        return autos.get(autoName);
+    }
+
+    /**
+     * CRC of everything a cached auto was generated from: the .auto file, its .path files and the
+     * robot settings.
+     */
+    public static long computeSourceHash(File deployDirectory, String autoName, String[] pathNames) throws IOException{
+        File pathplanner = new File(deployDirectory, "pathplanner");
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(new File(pathplanner, "settings.json").toPath()));
+        crc.update(Files.readAllBytes(new File(pathplanner, "autos/" + autoName + ".auto").toPath()));
+        for(String pathName : pathNames){
+            crc.update(Files.readAllBytes(new File(pathplanner, "paths/" + pathName + ".path").toPath()));
+        }
+        return crc.getValue();
+    }
+
+    private static String getString(ByteBuffer buffer){
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Wraps the trajectory at the buffer's position and skips past it.
+     */
+    private static CachedTrajectory getTrajectory(ByteBuffer buffer){
+        int stateCount = buffer.getInt();
+        if(stateCount < 1){
+            throw new IllegalStateException("Empty trajectory");
+        }
+        CachedTrajectory trajectory = new CachedTrajectory(buffer, buffer.position(), stateCount);
+        buffer.position(buffer.position() + stateCount * CachedTrajectory.kStateBytes);
+        return trajectory;
+    }
+}
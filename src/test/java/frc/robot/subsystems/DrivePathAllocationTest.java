@@ -0,0 +1,132 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.Constants;
+import frc.robot.Constants.SchedulerConstants;
+import frc.robot.commands.SwerveDriveCommand;
+import frc.robot.util.AllocationCounter;
+import frc.robot.util.DriverInputIO;
+import frc.robot.util.DriverOI;
+import frc.robot.util.GyroIO;
+import frc.robot.util.InputLog;
+
+/**
+ * The teleop drive path, from the joysticks to the module setpoints, must not allocate once it is
+ * warmed up. Runs SwerveDriveCommand against fake joysticks, gyro and motor controllers, with its
+ * debug telemetry on, and counts the bytes the test thread allocates inside execute().
+ */
+class DrivePathAllocationTest {
+    private static final int kWarmupIterations = 20000;
+    private static final int kMeasuredIterations = 2000;
+
+    private double leftX, leftY, rightX, rightY, rightTwist;
+
+    /**
+     * Hands out whatever stick positions the test last set.
+     */
+    private class ScriptedInputs implements DriverInputIO{
+        @Override
+        public void updateInputs(DriverInputIOInputs inputs){
+            inputs.leftX = leftX;
+            inputs.leftY = leftY;
+            inputs.rightX = rightX;
+            inputs.rightY = rightY;
+            inputs.rightTwist = rightTwist;
+        }
+    }
+
+    /**
+     * Takes setpoints and only counts them.
+     */
+    private static class FakeModuleIO implements ModuleIO{
+        private long writes = 0;
+
+        @Override
+        public void setTurnPosition(double angleRadians){
+            writes++;
+        }
+
+        @Override
+        public void setDriveVelocity(double metersPerSecond){
+            writes++;
+        }
+    }
+
+    @BeforeAll
+    static void initializeHal(){
+        assertTrue(HAL.initialize(500, 0), "Could not start the simulation HAL");
+        // The loop timestamp only moves when the test steps it
+        SimHooks.pauseTiming();
+    }
+
+    @AfterEach
+    void restoreDebugMode(){
+        Constants.debugMode = false;
+    }
+
+    @Test
+    void teleopDrivePathDoesNotAllocate(){
+        // Without it every reading is 0 and the test would pass without measuring anything
+        assumeTrue(AllocationCounter.isSupported(), "This JVM cannot count thread allocations");
+        // The command's debug signals are set inside execute() too
+        Constants.debugMode = true;
+
+        FakeModuleIO[] moduleIOs = {new FakeModuleIO(), new FakeModuleIO(), new FakeModuleIO(), new FakeModuleIO()};
+        Drivetrain drivetrain = new Drivetrain(moduleIOs, new GyroIO(){});
+        DriverOI driverOI = new DriverOI(new ScriptedInputs());
+        SwerveDriveCommand command = new SwerveDriveCommand(drivetrain, driverOI);
+
+        for(int i = 0; i < kWarmupIterations; i++){
+            runLoop(command, driverOI, i);
+        }
+
+        long writesBefore = countWrites(moduleIOs);
+        long allocated = 0;
+        for(int i = kWarmupIterations; i < kWarmupIterations + kMeasuredIterations; i++){
+            allocated += runLoop(command, driverOI, i);
+        }
+
+        assertTrue(countWrites(moduleIOs) > writesBefore, "The drive path never reached the motor controllers");
+        assertEquals(0, allocated, "Bytes allocated by " + kMeasuredIterations + " drive loops");
+    }
+
+    /**
+     * One robot loop as far as the drive path goes: a new loop timestamp, the joysticks, then the
+     * command. The sticks sweep around, with the twist on for part of each sweep so both the
+     * rotation and the heading correction branches run.
+     * @return Bytes allocated inside execute()
+     */
+    private long runLoop(SwerveDriveCommand command, DriverOI driverOI, int iteration){
+        double phase = iteration * 0.01;
+        leftX = Math.cos(phase);
+        leftY = Math.sin(phase) * 0.8;
+        rightX = Math.sin(phase * 0.3) * 0.5;
+        rightY = Math.cos(phase * 0.3) * 0.5;
+        rightTwist = iteration % 400 < 100 ? Math.sin(phase * 2.0) : 0.0;
+
+        SimHooks.stepTiming(SchedulerConstants.kMainPeriodSeconds);
+        InputLog.getInstance().beginLoop();
+        driverOI.updateInputs();
+
+        long allocatedBefore = AllocationCounter.getThreadAllocatedBytes();
+        command.execute();
+        return AllocationCounter.getThreadAllocatedBytes() - allocatedBefore;
+    }
+
+    private static long countWrites(FakeModuleIO[] moduleIOs){
+        long writes = 0;
+        for(FakeModuleIO io : moduleIOs){
+            writes += io.writes;
+        }
+        return writes;
+    }
+}
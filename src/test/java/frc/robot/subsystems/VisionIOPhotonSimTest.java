@@ -0,0 +1,234 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.photonvision.targeting.MultiTargetPNPResult;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+import org.photonvision.targeting.PnpResult;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.Constants.VisionConstants;
+
+/**
+ * Puts a few tags in {@link VisionIOPhotonSim}'s {@link org.photonvision.simulation.VisionSystemSim},
+ * drives the robot around them and checks which results the filters keep and how far they are
+ * trusted. The ambiguity and tag count checks are fed results made here, since the ambiguity the
+ * simulated camera reports depends on its pixel noise.
+ */
+class VisionIOPhotonSimTest {
+    private static final double kFieldLengthMeters = 16.54;
+    private static final double kFieldWidthMeters = 8.05;
+    private static final double kTagHeightMeters = 0.5;
+    // Two pairs of tags facing the driver station wall, one pair close enough to that wall that
+    // a camera seeing it can be off the field
+    private static final AprilTagFieldLayout kLayout = new AprilTagFieldLayout(List.of(
+        tag(1, 8.0, 3.85), tag(2, 8.0, 4.15),
+        tag(3, 0.8, 6.35), tag(4, 0.8, 6.65)), kFieldLengthMeters, kFieldWidthMeters);
+
+    // Slower than the simulated camera, so every step renders a frame
+    private static final double kFrameSeconds = 0.05;
+    // Frames rendered before the robot moved are still in flight for this long
+    private static final int kSettleFrames = 5;
+    private static final int kFrames = 10;
+    private static final double kPoseToleranceMeters = 0.15;
+    private static final double kRotationToleranceRadians = 0.1;
+
+    private static Pose2d robotPose = new Pose2d();
+    private static VisionIOPhotonSim io;
+    private static VisionIO.VisionIOInputs inputs;
+    private static final List<double[]> measurements = new ArrayList<>();
+    private static long sequenceId;
+
+    private static AprilTag tag(int id, double x, double y){
+        return new AprilTag(id, new Pose3d(x, y, kTagHeightMeters, new Rotation3d(0.0, 0.0, Math.PI)));
+    }
+
+    @BeforeAll
+    static void setup(){
+        assertTrue(HAL.initialize(500, 0), "Could not start the simulation HAL");
+        // The vision worker is a Notifier, it only runs when the tests step time
+        SimHooks.pauseTiming();
+        io = new VisionIOPhotonSim(() -> robotPose, kLayout);
+        inputs = new VisionIO.VisionIOInputs("/Inputs/VisionTest/");
+    }
+
+    @AfterAll
+    static void resumeTiming(){
+        SimHooks.resumeTiming();
+    }
+
+    /**
+     * @return Robot pose that puts the first camera level with the field, looking straight down
+     * the field from (x, y)
+     */
+    private static Pose2d robotPoseForCamera(double x, double y){
+        Transform3d robotToCamera = VisionConstants.kRobotToCameras[0];
+        Rotation2d heading = new Rotation2d(-robotToCamera.getRotation().getZ());
+        Translation2d offset = new Translation2d(robotToCamera.getX(), robotToCamera.getY()).rotateBy(heading);
+        return new Pose2d(x - offset.getX(), y - offset.getY(), heading);
+    }
+
+    private static void runFrames(int frames){
+        for(int frame = 0; frame < frames; frame++){
+            io.updateInputs(inputs);
+            for(int i = 0; i < inputs.measurementCount; i++){
+                measurements.add(new double[] {inputs.poseXMeters[i], inputs.poseYMeters[i],
+                    inputs.poseRotationRadians[i], inputs.xyStdDevsMeters[i], inputs.rotationStdDevsRadians[i]});
+            }
+            SimHooks.stepTiming(kFrameSeconds);
+        }
+    }
+
+    /**
+     * Moves the robot and collects what the cameras see from there into {@link #measurements}.
+     * @return Results rejected meanwhile
+     */
+    private static long view(Pose2d pose){
+        robotPose = pose;
+        runFrames(kSettleFrames);
+        measurements.clear();
+        long rejectedBefore = io.getRejectedResults();
+        runFrames(kFrames);
+        return io.getRejectedResults() - rejectedBefore;
+    }
+
+    /**
+     * Looks away from every tag, then drops whatever was still in flight.
+     */
+    private static void viewNothing(){
+        view(new Pose2d(5.5, 4.0, Rotation2d.fromDegrees(180)));
+        measurements.clear();
+    }
+
+    private static double averageXYStdDev(){
+        double total = 0.0;
+        for(double[] measurement : measurements){
+            total += measurement[3];
+        }
+        return total / measurements.size();
+    }
+
+    @Test
+    void multiTagResultIsAcceptedAtTheRobotPose(){
+        Pose2d pose = robotPoseForCamera(5.5, 4.0);
+        assertEquals(0, view(pose), "rejected results");
+        assertFalse(measurements.isEmpty(), "no measurements");
+        for(double[] measurement : measurements){
+            assertEquals(pose.getX(), measurement[0], kPoseToleranceMeters, "x");
+            assertEquals(pose.getY(), measurement[1], kPoseToleranceMeters, "y");
+            assertEquals(0.0, MathUtil.angleModulus(pose.getRotation().getRadians() - measurement[2]),
+                kRotationToleranceRadians, "rotation");
+            // Two tags are enough to trust the heading
+            assertTrue(measurement[4] < VisionConstants.kSingleTagRotationStdDevRadians, "rotation std dev");
+        }
+    }
+
+    @Test
+    void poseOffTheFieldIsRejected(){
+        Pose2d pose = robotPoseForCamera(-1.5, 6.5);
+        assertTrue(pose.getX() < 0.0);
+        assertTrue(view(pose) > 0, "no rejected results");
+        assertTrue(measurements.isEmpty(), "measurement from off the field was accepted");
+    }
+
+    @Test
+    void stdDevsGrowWithDistance(){
+        view(robotPoseForCamera(6.0, 4.0));
+        assertFalse(measurements.isEmpty(), "no measurements at 2 m");
+        double nearStdDev = averageXYStdDev();
+
+        view(robotPoseForCamera(4.0, 4.0));
+        assertFalse(measurements.isEmpty(), "no measurements at 4 m");
+        double farStdDev = averageXYStdDev();
+
+        assertTrue(farStdDev > nearStdDev, "std dev at 4 m " + farStdDev + " is not above the one at 2 m " + nearStdDev);
+    }
+
+    /**
+     * @return A result with the given tags as camera 0 would see them from the robot pose, solved
+     * from all of them if there is more than one
+     */
+    private static PhotonPipelineResult result(Pose2d pose, double ambiguity, int... tagIds){
+        Pose3d cameraPose = new Pose3d(pose).plus(VisionConstants.kRobotToCameras[0]);
+        List<PhotonTrackedTarget> targets = new ArrayList<>();
+        List<Short> tagsUsed = new ArrayList<>();
+        for(int id : tagIds){
+            Transform3d cameraToTarget = kLayout.getTagPose(id).orElseThrow().minus(cameraPose);
+            targets.add(new PhotonTrackedTarget(0.0, 0.0, 1.0, 0.0, id, -1, -1.0f,
+                cameraToTarget, cameraToTarget, ambiguity, List.of(), List.of()));
+            tagsUsed.add((short) id);
+        }
+        Optional<MultiTargetPNPResult> multiTagResult = tagIds.length > 1
+            ? Optional.of(new MultiTargetPNPResult(new PnpResult(new Transform3d(new Pose3d(), cameraPose), 0.1), tagsUsed))
+            : Optional.empty();
+        sequenceId++;
+        return new PhotonPipelineResult(sequenceId, 1000000, 1000000, 0, targets, multiTagResult);
+    }
+
+    /**
+     * Runs a made up result through the filters.
+     * @return The measurement it became, or null if it was rejected
+     */
+    private static double[] process(PhotonPipelineResult result){
+        viewNothing();
+        if(!io.processResult(0, result)){
+            return null;
+        }
+        runFrames(1);
+        assertEquals(1, measurements.size(), "measurements");
+        return measurements.get(0);
+    }
+
+    @Test
+    void singleTagIsOnlyTrustedWhenUnambiguous(){
+        Pose2d pose = robotPoseForCamera(6.0, 4.0);
+        double[] measurement = process(result(pose, VisionConstants.kMaxAmbiguity / 2, 1));
+        assertTrue(measurement != null, "unambiguous tag was rejected");
+        assertEquals(pose.getX(), measurement[0], 1e-6, "x");
+        assertEquals(pose.getY(), measurement[1], 1e-6, "y");
+
+        assertTrue(process(result(pose, VisionConstants.kMaxAmbiguity * 2, 1)) == null, "ambiguous tag was accepted");
+        // PhotonVision reports -1 when it had no second solution to compare against
+        assertTrue(process(result(pose, -1.0, 1)) == null, "tag with unknown ambiguity was accepted");
+    }
+
+    @Test
+    void tagsTooFarAwayAreRejected(){
+        Pose2d singleTagLimit = robotPoseForCamera(8.0 - VisionConstants.kMaxSingleTagDistanceMeters - 0.5, 4.0);
+        assertTrue(process(result(singleTagLimit, 0.0, 1)) == null, "single tag past its limit was accepted");
+        assertTrue(process(result(singleTagLimit, 0.0, 1, 2)) != null, "tags within the multi tag limit were rejected");
+
+        Pose2d multiTagLimit = robotPoseForCamera(8.0 - VisionConstants.kMaxMultiTagDistanceMeters - 0.5, 4.0);
+        assertTrue(process(result(multiTagLimit, 0.0, 1, 2)) == null, "tags past the multi tag limit were accepted");
+    }
+
+    @Test
+    void stdDevsFallWithTagCount(){
+        Pose2d pose = robotPoseForCamera(5.0, 4.0);
+        double[] oneTag = process(result(pose, 0.0, 1));
+        double[] twoTags = process(result(pose, 0.0, 1, 2));
+        assertTrue(oneTag != null && twoTags != null, "rejected");
+        assertTrue(twoTags[3] < oneTag[3], "xy std dev");
+        assertTrue(twoTags[4] < oneTag[4], "rotation std dev");
+    }
+}
@@ -0,0 +1,101 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+
+class AsyncDataLoggerTest {
+    @TempDir
+    File tempDir;
+
+    @BeforeAll
+    static void initializeHal(){
+        // Logging without a timestamp reads the FPGA clock
+        assertTrue(HAL.initialize(500, 0), "Could not start the simulation HAL");
+    }
+
+    @Test
+    void writesEveryRecordToTheFile() throws IOException{
+        AsyncDataLogger logger = new AsyncDataLogger(tempDir, 64);
+        int speed = logger.registerDouble("/Test/Speed");
+        int enabled = logger.registerBoolean("/Test/Enabled");
+
+        // More than the ring holds, the writer drains it as it goes
+        for(int i = 0; i < 200; i++){
+            while(!logger.log(speed, i * 0.5, 1000L + i)){
+                Thread.onSpinWait();
+            }
+            while(!logger.log(enabled, i % 3 == 0)){
+                Thread.onSpinWait();
+            }
+        }
+        logger.close();
+
+        Map<String, List<DataLogRecord>> records = read(logger.getFilename());
+        List<DataLogRecord> speeds = records.get("/Test/Speed");
+        List<DataLogRecord> enableds = records.get("/Test/Enabled");
+        assertEquals(200, speeds.size());
+        assertEquals(200, enableds.size());
+        for(int i = 0; i < 200; i++){
+            assertEquals(i * 0.5, speeds.get(i).getDouble(), 0.0);
+            assertEquals(1000L + i, speeds.get(i).getTimestamp());
+            assertEquals(i % 3 == 0, enableds.get(i).getBoolean());
+        }
+    }
+
+    @Test
+    void dropsAndCountsRecordsWhenTheRingIsFull() throws IOException{
+        AsyncDataLogger logger = new AsyncDataLogger(tempDir, 64, false);
+        int value = logger.registerDouble("/Test/Value");
+
+        for(int i = 0; i < 64; i++){
+            assertTrue(logger.log(value, i, i));
+        }
+        assertFalse(logger.log(value, 64, 64));
+        assertFalse(logger.log(value, 65, 65));
+        assertEquals(2, logger.getDroppedRecords());
+
+        logger.startWriter();
+        logger.close();
+
+        List<DataLogRecord> values = read(logger.getFilename()).get("/Test/Value");
+        assertEquals(64, values.size());
+        assertEquals(63.0, values.get(63).getDouble(), 0.0);
+    }
+
+    /**
+     * @return Data records of every entry by name, in file order
+     */
+    private static Map<String, List<DataLogRecord>> read(String filename) throws IOException{
+        DataLogReader reader = new DataLogReader(filename);
+        assertTrue(reader.isValid());
+
+        Map<Integer, String> names = new HashMap<>();
+        Map<String, List<DataLogRecord>> records = new HashMap<>();
+        for(DataLogRecord record : reader){
+            if(record.isStart()){
+                DataLogRecord.StartRecordData start = record.getStartData();
+                names.put(start.entry, start.name);
+                records.put(start.name, new ArrayList<>());
+            }else if(!record.isControl()){
+                records.get(names.get(record.getEntry())).add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,137 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.pathplanner.lib.config.RobotConfig;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectory;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectoryState;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * Samples deploy paths through {@link CachedTrajectory} and through the PathPlanner trajectory
+ * they were cached from, and checks both give the same targets.
+ */
+class CachedTrajectoryTest {
+    private static final double kTolerance = 1e-9;
+    private static final double kSampleStepSeconds = 0.0037;
+
+    private static RobotConfig config;
+
+    @BeforeAll
+    static void loadConfig() throws Exception{
+        // PathPlanner finds the deploy directory and the robot settings through the HAL
+        assertTrue(HAL.initialize(500, 0), "Could not start the simulation HAL");
+        config = RobotConfig.fromGUISettings();
+    }
+
+    private static PathPlannerTrajectory generate(String pathName) throws Exception{
+        PathPlannerPath path = PathPlannerPath.fromPathFile(pathName);
+        return path.getIdealTrajectory(config).orElseGet(() -> path.generateTrajectory(
+            new ChassisSpeeds(), path.getStartingHolonomicPose().orElseThrow().getRotation(), config));
+    }
+
+    /**
+     * The states laid out as the cache file stores them, after some bytes so the offset is used.
+     */
+    private static CachedTrajectory cache(PathPlannerTrajectory trajectory){
+        List<PathPlannerTrajectoryState> states = trajectory.getStates();
+        int offset = 12;
+        ByteBuffer buffer = ByteBuffer.allocate(offset + states.size() * CachedTrajectory.kStateBytes);
+        buffer.position(offset);
+        for(PathPlannerTrajectoryState state : states){
+            buffer.putDouble(state.timeSeconds);
+            buffer.putDouble(state.pose.getX());
+            buffer.putDouble(state.pose.getY());
+            buffer.putDouble(state.pose.getRotation().getRadians());
+            buffer.putDouble(state.fieldSpeeds.vxMetersPerSecond);
+            buffer.putDouble(state.fieldSpeeds.vyMetersPerSecond);
+            buffer.putDouble(state.fieldSpeeds.omegaRadiansPerSecond);
+            buffer.putDouble(state.linearVelocity);
+            buffer.putDouble(state.heading.getRadians());
+        }
+        return new CachedTrajectory(buffer, offset, states.size());
+    }
+
+    private static void assertAngleEquals(Rotation2d expected, Rotation2d actual, String name){
+        assertEquals(0.0, MathUtil.angleModulus(expected.getRadians() - actual.getRadians()), kTolerance, name);
+    }
+
+    private static void assertSamplesMatch(PathPlannerTrajectory expected, CachedTrajectory cached){
+        assertEquals(expected.getTotalTimeSeconds(), cached.getTotalTimeSeconds(), kTolerance, "total time");
+        assertEquals(expected.getInitialPose().getX(), cached.getInitialPose().getX(), kTolerance, "initial x");
+        assertEquals(expected.getInitialPose().getY(), cached.getInitialPose().getY(), kTolerance, "initial y");
+        assertEquals(expected.getEndState().linearVelocity, cached.getEndLinearVelocity(), kTolerance, "end velocity");
+
+        PathPlannerTrajectoryState actual = new PathPlannerTrajectoryState();
+        // Past both ends too, where both hold the end states
+        for(double time = -0.5; time <= expected.getTotalTimeSeconds() + 0.5; time += kSampleStepSeconds){
+            PathPlannerTrajectoryState target = expected.sample(time);
+            cached.sample(time, actual);
+            String at = " at " + time;
+            assertEquals(target.pose.getX(), actual.pose.getX(), kTolerance, "x" + at);
+            assertEquals(target.pose.getY(), actual.pose.getY(), kTolerance, "y" + at);
+            assertAngleEquals(target.pose.getRotation(), actual.pose.getRotation(), "rotation" + at);
+            assertEquals(target.fieldSpeeds.vxMetersPerSecond, actual.fieldSpeeds.vxMetersPerSecond, kTolerance, "vx" + at);
+            assertEquals(target.fieldSpeeds.vyMetersPerSecond, actual.fieldSpeeds.vyMetersPerSecond, kTolerance, "vy" + at);
+            assertEquals(target.fieldSpeeds.omegaRadiansPerSecond, actual.fieldSpeeds.omegaRadiansPerSecond, kTolerance, "omega" + at);
+            assertEquals(target.linearVelocity, actual.linearVelocity, kTolerance, "linear velocity" + at);
+            assertAngleEquals(target.heading, actual.heading, "heading" + at);
+        }
+    }
+
+    @Test
+    void sampleMatchesPathPlanner() throws Exception{
+        for(String pathName : new String[] {"CenterDriveOut", "CenterYeet", "DriveOut", "DriveOutReverse"}){
+            assertSamplesMatch(generate(pathName), cache(generate(pathName)));
+        }
+    }
+
+    @Test
+    void flippedSampleMatchesPathPlanner() throws Exception{
+        for(String pathName : new String[] {"CenterDriveOut", "DriveOutReverse"}){
+            PathPlannerTrajectory red = generate(pathName).flip();
+            assertSamplesMatch(red, cache(red));
+        }
+    }
+
+    @Test
+    void sampleFillsTheGivenState(){
+        PathPlannerTrajectoryState state = new PathPlannerTrajectoryState();
+        ByteBuffer buffer = ByteBuffer.allocate(2 * CachedTrajectory.kStateBytes);
+        double[][] states = {
+            {0.0, 1.0, 2.0, 3.0, 0.0, 0.0, 0.0, 0.0, -3.0},
+            {1.0, 3.0, 4.0, -3.0, 2.0, 4.0, 1.0, 6.0, 3.0}
+        };
+        for(double[] values : states){
+            for(double value : values){
+                buffer.putDouble(value);
+            }
+        }
+        CachedTrajectory trajectory = new CachedTrajectory(buffer, 0, 2);
+
+        assertTrue(trajectory.sample(0.25, state) == state);
+        assertEquals(0.25, state.timeSeconds);
+        // Speeding up from 0 to 6 m/s along the first heading, integrated in 10 ms steps
+        double distance = 6.0 * 0.01 * (0.01 + 0.24) * 24 / 2;
+        assertEquals(1.0 + distance * Math.cos(-3.0), state.pose.getX(), kTolerance);
+        assertEquals(2.0 + distance * Math.sin(-3.0), state.pose.getY(), kTolerance);
+        assertEquals(0.5, state.fieldSpeeds.vxMetersPerSecond, kTolerance);
+        assertEquals(1.5, state.linearVelocity, kTolerance);
+        // Angles take the short way across PI rather than sweeping through zero
+        double shortWay = 2 * Math.PI - 6.0;
+        assertAngleEquals(new Rotation2d(3.0 + shortWay * 0.25), state.pose.getRotation(), "rotation");
+        assertAngleEquals(new Rotation2d(-3.0 - shortWay * 0.25), state.heading, "heading");
+    }
+}
@@ -0,0 +1,66 @@
+package frc.robot.util;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class DoubleRingBufferTest {
+    @Test
+    void drainsInOrderAndEmpties(){
+        DoubleRingBuffer buffer = new DoubleRingBuffer(4);
+        buffer.add(1.0);
+        buffer.add(2.0);
+        buffer.add(3.0);
+
+        double[] output = new double[4];
+        assertEquals(3, buffer.drainTo(output));
+        assertArrayEquals(new double[] {1.0, 2.0, 3.0}, Arrays.copyOf(output, 3), 0.0);
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.drainTo(output));
+    }
+
+    @Test
+    void overwritesOldestWhenFull(){
+        DoubleRingBuffer buffer = new DoubleRingBuffer(3);
+        for(int i = 1; i <= 5; i++){
+            buffer.add(i);
+        }
+        assertEquals(3, buffer.size());
+
+        double[] output = new double[3];
+        assertEquals(3, buffer.drainTo(output));
+        assertArrayEquals(new double[] {3.0, 4.0, 5.0}, output, 0.0);
+    }
+
+    @Test
+    void keepsOrderAcrossWraparoundAfterDrain(){
+        DoubleRingBuffer buffer = new DoubleRingBuffer(3);
+        double[] output = new double[3];
+        // Leave the head part way through the array before filling past the end
+        buffer.add(1.0);
+        buffer.add(2.0);
+        buffer.drainTo(output);
+        for(int i = 10; i < 14; i++){
+            buffer.add(i);
+        }
+
+        assertEquals(3, buffer.drainTo(output));
+        assertArrayEquals(new double[] {11.0, 12.0, 13.0}, output, 0.0);
+    }
+
+    @Test
+    void drainsOnlyWhatFitsInTheOutput(){
+        DoubleRingBuffer buffer = new DoubleRingBuffer(4);
+        for(int i = 0; i < 4; i++){
+            buffer.add(i);
+        }
+
+        double[] output = new double[2];
+        assertEquals(2, buffer.drainTo(output));
+        assertArrayEquals(new double[] {0.0, 1.0}, output, 0.0);
+        assertEquals(0, buffer.size());
+    }
+}
@@ -0,0 +1,187 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import frc.robot.Constants.SwerveDriveConstants;
+
+/**
+ * Runs {@link FastPoseEstimator} and WPILib's {@link SwerveDrivePoseEstimator} side by side on the
+ * same samples and checks they agree.
+ */
+class FastPoseEstimatorTest {
+    private static final double kPeriodSeconds = 1.0 / SwerveDriveConstants.kOdometryFrequencyHz;
+    private static final int kSamplesPerLoop = 5;
+    private static final double kVisionLatencySeconds = 0.06;
+    private static final double[] kStdDevs = {0.1, 0.1, 0.1};
+    private static final double kVisionXYStdDev = 0.5;
+    private static final double kVisionRotationStdDev = 0.9;
+    private static final double kTolerance = 1e-6;
+
+    private final SwerveModulePosition[] positions = new SwerveModulePosition[4];
+    private final double[] distances = new double[4];
+    private final double[] angles = new double[4];
+
+    private SwerveDrivePoseEstimator wpilib;
+    private FastPoseEstimator fast;
+
+    private void create(Pose2d initialPose){
+        fill(0);
+        wpilib = new SwerveDrivePoseEstimator(SwerveDriveConstants.kinematics, new Rotation2d(gyro(0)), positions,
+            initialPose, VecBuilder.fill(kStdDevs[0], kStdDevs[1], kStdDevs[2]),
+            VecBuilder.fill(kVisionXYStdDev, kVisionXYStdDev, kVisionRotationStdDev));
+        fast = new FastPoseEstimator(SwerveDriveConstants.swerveModuleLocations, gyro(0), distances, initialPose,
+            kStdDevs, SwerveDriveConstants.kPoseHistorySeconds, SwerveDriveConstants.kPoseHistorySize,
+            SwerveDriveConstants.kVisionUpdateHistorySize);
+    }
+
+    private void update(long step){
+        fill(step);
+        wpilib.updateWithTime(timestamp(step), new Rotation2d(gyro(step)), positions);
+        fast.updateWithTime(timestamp(step), gyro(step), distances, angles);
+    }
+
+    private void addVision(double x, double y, double theta, double timestamp){
+        wpilib.addVisionMeasurement(new Pose2d(x, y, new Rotation2d(theta)), timestamp,
+            VecBuilder.fill(kVisionXYStdDev, kVisionXYStdDev, kVisionRotationStdDev));
+        fast.addVisionMeasurement(x, y, theta, timestamp, kVisionXYStdDev, kVisionRotationStdDev);
+    }
+
+    private void fill(long step){
+        for(int module = 0; module < 4; module++){
+            distances[module] = distance(step, module);
+            angles[module] = 0.5 * Math.sin(step * 0.02 + module);
+            positions[module] = new SwerveModulePosition(distances[module], new Rotation2d(angles[module]));
+        }
+    }
+
+    private static double timestamp(long step){
+        return step * kPeriodSeconds;
+    }
+
+    // Turns the whole way around every few seconds, so the heading wraps
+    private static double gyro(long step){
+        return timestamp(step) * 1.7;
+    }
+
+    // About 3 m/s with the outside modules a little faster
+    private static double distance(long step, int module){
+        return timestamp(step) * (3.0 + 0.1 * module);
+    }
+
+    private static void assertPoseEquals(Pose2d expected, Pose2d actual){
+        assertEquals(expected.getX(), actual.getX(), kTolerance, "x");
+        assertEquals(expected.getY(), actual.getY(), kTolerance, "y");
+        assertEquals(0.0, MathUtil.angleModulus(expected.getRotation().getRadians() - actual.getRotation().getRadians()),
+            kTolerance, "rotation");
+    }
+
+    private void assertEstimatesAgree(){
+        assertPoseEquals(wpilib.getEstimatedPosition(), fast.getEstimatedPosition());
+    }
+
+    @Test
+    void odometryMatches(){
+        create(new Pose2d(1.0, 2.0, new Rotation2d(0.4)));
+        for(long step = 1; step <= 4 * SwerveDriveConstants.kOdometryFrequencyHz; step++){
+            update(step);
+            assertEstimatesAgree();
+        }
+    }
+
+    @Test
+    void visionEveryLoopMatches(){
+        create(Pose2d.kZero);
+        for(long step = 1; step <= 4 * SwerveDriveConstants.kOdometryFrequencyHz; step++){
+            update(step);
+            if(step % kSamplesPerLoop == 0){
+                double visionTime = timestamp(step) - kVisionLatencySeconds;
+                addVision(visionTime, 0.2, 3.0, visionTime);
+            }
+            assertEstimatesAgree();
+        }
+    }
+
+    @Test
+    void measurementOlderThanTheNewestCorrectionMatches(){
+        create(Pose2d.kZero);
+        long step = 1;
+        for(; step <= SwerveDriveConstants.kOdometryFrequencyHz; step++){
+            update(step);
+        }
+        // The second camera's frame arrives after a newer one from the first
+        addVision(2.0, 1.0, 0.5, timestamp(step) - 0.05);
+        addVision(2.5, 0.5, 0.2, timestamp(step) - 0.2);
+        assertEstimatesAgree();
+        for(int i = 0; i < SwerveDriveConstants.kOdometryFrequencyHz / 2; i++, step++){
+            update(step);
+            assertEstimatesAgree();
+        }
+    }
+
+    @Test
+    void sampleAtMatches(){
+        create(Pose2d.kZero);
+        long step = 1;
+        for(; step <= 2 * SwerveDriveConstants.kOdometryFrequencyHz; step++){
+            update(step);
+            if(step % 50 == 0){
+                addVision(1.0, 1.0, 1.0, timestamp(step) - kVisionLatencySeconds);
+            }
+        }
+        // On samples, between samples, and before the first correction still in the history
+        double newest = timestamp(step - 1);
+        for(double time = newest - 1.4; time <= newest; time += 0.0173){
+            assertPoseEquals(wpilib.sampleAt(time).get(), fast.sampleAt(time).get());
+        }
+    }
+
+    @Test
+    void measurementOlderThanTheHistoryIsIgnored(){
+        create(Pose2d.kZero);
+        assertFalse(fast.addVisionMeasurement(1.0, 1.0, 0.0, 0.0, kVisionXYStdDev, kVisionRotationStdDev));
+
+        long step = 1;
+        for(; step <= 2 * SwerveDriveConstants.kOdometryFrequencyHz; step++){
+            update(step);
+        }
+        double tooOld = timestamp(step - 1) - SwerveDriveConstants.kPoseHistorySeconds - 0.1;
+        Pose2d before = fast.getEstimatedPosition();
+        assertFalse(fast.addVisionMeasurement(5.0, 5.0, 0.0, tooOld, kVisionXYStdDev, kVisionRotationStdDev));
+        assertPoseEquals(before, fast.getEstimatedPosition());
+
+        assertTrue(fast.addVisionMeasurement(5.0, 5.0, 0.0, timestamp(step - 1), kVisionXYStdDev, kVisionRotationStdDev));
+    }
+
+    @Test
+    void resetForgetsCorrections(){
+        create(Pose2d.kZero);
+        long step = 1;
+        for(; step <= SwerveDriveConstants.kOdometryFrequencyHz; step++){
+            update(step);
+            if(step % kSamplesPerLoop == 0){
+                addVision(3.0, -1.0, 2.0, timestamp(step) - kVisionLatencySeconds);
+            }
+        }
+
+        fill(step);
+        Pose2d resetPose = new Pose2d(4.0, 5.0, new Rotation2d(-2.0));
+        wpilib.resetPosition(new Rotation2d(gyro(step)), positions, resetPose);
+        fast.resetPosition(gyro(step), distances, resetPose.getX(), resetPose.getY(), resetPose.getRotation().getRadians());
+        assertPoseEquals(resetPose, fast.getEstimatedPosition());
+
+        for(int i = 0; i < SwerveDriveConstants.kOdometryFrequencyHz / 2; i++){
+            update(++step);
+            assertEstimatesAgree();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.Constants.SwerveDriveConstants;
+
+/**
+ * Checks {@link FastSwerveKinematics} against WPILib's {@link SwerveDriveKinematics} on random
+ * speeds, centers of rotation and module angles.
+ */
+class FastSwerveKinematicsTest {
+    private static final int kCheckCount = 10000;
+    private static final double kTolerance = 1e-9;
+    private static final double kMaxSpeed = SwerveDriveConstants.kRealMaxSpeedMPS;
+    private static final double kMaxAngularSpeed = SwerveDriveConstants.kMaxAngularSpeed;
+
+    private final Random random = new Random(1678);
+    private SwerveDriveKinematics wpilib;
+    private FastSwerveKinematics fast;
+
+    @BeforeEach
+    void setup(){
+        wpilib = new SwerveDriveKinematics(SwerveDriveConstants.swerveModuleLocations);
+        fast = new FastSwerveKinematics(SwerveDriveConstants.swerveModuleLocations);
+    }
+
+    @Test
+    void inverseKinematicsMatches(){
+        for(int check = 0; check < kCheckCount; check++){
+            double vx = randomBetween(-kMaxSpeed, kMaxSpeed);
+            double vy = randomBetween(-kMaxSpeed, kMaxSpeed);
+            double omega = randomBetween(-kMaxAngularSpeed, kMaxAngularSpeed);
+            // Off center, as the right joystick moves it
+            double centerX = randomBetween(-1.0, 1.0);
+            double centerY = randomBetween(-1.0, 1.0);
+
+            SwerveModuleState[] expected = wpilib.toSwerveModuleStates(new ChassisSpeeds(vx, vy, omega),
+                new Translation2d(centerX, centerY));
+            fast.toSwerveModuleStates(vx, vy, omega, centerX, centerY);
+            for(int module = 0; module < 4; module++){
+                assertEquals(expected[module].speedMetersPerSecond, fast.getModuleSpeed(module), kTolerance, "speed");
+                assertAngleEquals(expected[module].angle.getRadians(), fast.getModuleAngle(module));
+            }
+        }
+    }
+
+    @Test
+    void stoppingKeepsTheLastAngles(){
+        double[] lastAngles = new double[4];
+        for(int check = 0; check < kCheckCount / 10; check++){
+            double centerX = randomBetween(-1.0, 1.0);
+            double centerY = randomBetween(-1.0, 1.0);
+            fast.toSwerveModuleStates(randomBetween(-kMaxSpeed, kMaxSpeed), randomBetween(-kMaxSpeed, kMaxSpeed),
+                randomBetween(-kMaxAngularSpeed, kMaxAngularSpeed), centerX, centerY);
+            for(int module = 0; module < 4; module++){
+                lastAngles[module] = fast.getModuleAngle(module);
+            }
+
+            fast.toSwerveModuleStates(0.0, 0.0, 0.0, centerX, centerY);
+            for(int module = 0; module < 4; module++){
+                assertEquals(0.0, fast.getModuleSpeed(module), "stopped speed");
+                assertEquals(lastAngles[module], fast.getModuleAngle(module), "kept angle");
+            }
+        }
+    }
+
+    @Test
+    void stoppingKeepsWpilibsDirection(){
+        wpilib.toSwerveModuleStates(new ChassisSpeeds(1.0, -2.0, 0.5), new Translation2d(0.3, -0.2));
+        fast.toSwerveModuleStates(1.0, -2.0, 0.5, 0.3, -0.2);
+
+        SwerveModuleState[] expected = wpilib.toSwerveModuleStates(new ChassisSpeeds(), new Translation2d(0.3, -0.2));
+        fast.toSwerveModuleStates(0.0, 0.0, 0.0, 0.3, -0.2);
+        for(int module = 0; module < 4; module++){
+            assertEquals(0.0, fast.getModuleSpeed(module), "stopped speed");
+            assertAngleEquals(expected[module].angle.getRadians(), fast.getModuleAngle(module));
+        }
+    }
+
+    @Test
+    void desaturateAndOptimizeMatch(){
+        Rotation2d[] current = new Rotation2d[4];
+        double[] currentAngles = new double[4];
+        for(int check = 0; check < kCheckCount; check++){
+            // Up to twice the max speed so most checks get scaled down
+            double vx = randomBetween(-2.0 * kMaxSpeed, 2.0 * kMaxSpeed);
+            double vy = randomBetween(-2.0 * kMaxSpeed, 2.0 * kMaxSpeed);
+            double omega = randomBetween(-kMaxAngularSpeed, kMaxAngularSpeed);
+            double centerX = randomBetween(-1.0, 1.0);
+            double centerY = randomBetween(-1.0, 1.0);
+
+            SwerveModuleState[] expected = wpilib.toSwerveModuleStates(new ChassisSpeeds(vx, vy, omega),
+                new Translation2d(centerX, centerY));
+            fast.toSwerveModuleStates(vx, vy, omega, centerX, centerY);
+
+            SwerveDriveKinematics.desaturateWheelSpeeds(expected, kMaxSpeed);
+            fast.desaturateWheelSpeeds(kMaxSpeed);
+            for(int module = 0; module < 4; module++){
+                assertEquals(expected[module].speedMetersPerSecond, fast.getModuleSpeed(module), kTolerance, "desaturated speed");
+            }
+
+            for(int module = 0; module < 4; module++){
+                current[module] = new Rotation2d(randomBetween(-Math.PI, Math.PI));
+                currentAngles[module] = current[module].getRadians();
+                expected[module].optimize(current[module]);
+            }
+            fast.optimize(currentAngles);
+            for(int module = 0; module < 4; module++){
+                assertEquals(expected[module].speedMetersPerSecond, fast.getModuleSpeed(module), kTolerance, "optimized speed");
+                assertAngleEquals(expected[module].angle.getRadians(), fast.getModuleAngle(module));
+            }
+        }
+    }
+
+    @Test
+    void forwardKinematicsMatches(){
+        SwerveModuleState[] states = new SwerveModuleState[4];
+        SwerveModulePosition[] deltas = new SwerveModulePosition[4];
+        double[] speeds = new double[4];
+        double[] angles = new double[4];
+
+        for(int check = 0; check < kCheckCount; check++){
+            for(int module = 0; module < 4; module++){
+                speeds[module] = randomBetween(-kMaxSpeed, kMaxSpeed);
+                angles[module] = randomBetween(-Math.PI, Math.PI);
+                states[module] = new SwerveModuleState(speeds[module], new Rotation2d(angles[module]));
+                deltas[module] = new SwerveModulePosition(speeds[module], new Rotation2d(angles[module]));
+            }
+
+            ChassisSpeeds expectedSpeeds = wpilib.toChassisSpeeds(states);
+            fast.toChassisSpeeds(speeds, angles);
+            assertEquals(expectedSpeeds.vxMetersPerSecond, fast.getChassisVx(), kTolerance, "vx");
+            assertEquals(expectedSpeeds.vyMetersPerSecond, fast.getChassisVy(), kTolerance, "vy");
+            assertEquals(expectedSpeeds.omegaRadiansPerSecond, fast.getChassisOmega(), kTolerance, "omega");
+
+            Twist2d expectedTwist = wpilib.toTwist2d(deltas);
+            fast.toTwist2d(speeds, angles);
+            assertEquals(expectedTwist.dx, fast.getTwistDx(), kTolerance, "twist dx");
+            assertEquals(expectedTwist.dy, fast.getTwistDy(), kTolerance, "twist dy");
+            assertEquals(expectedTwist.dtheta, fast.getTwistDtheta(), kTolerance, "twist dtheta");
+        }
+    }
+
+    private static void assertAngleEquals(double expected, double actual){
+        assertEquals(0.0, MathUtil.angleModulus(expected - actual), kTolerance, "angle");
+    }
+
+    private double randomBetween(double min, double max){
+        return min + random.nextDouble() * (max - min);
+    }
+}
@@ -0,0 +1,84 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+    private static final int kSubBucketBits = 4;
+    private static final int kMaxValueBits = 30;
+    // Far past every value below, keeps the percentile from being clamped to the largest value
+    private static final long kLargeValue = 1L << 29;
+
+    /**
+     * @return Upper bound of the bucket {@code value} lands in
+     */
+    private static long getBucketUpperBound(long value){
+        LatencyHistogram histogram = new LatencyHistogram(kSubBucketBits, kMaxValueBits);
+        histogram.record(value);
+        histogram.record(kLargeValue);
+        return histogram.getValueAtPercentile(50);
+    }
+
+    @Test
+    void smallValuesAreExact(){
+        for(long value = 0; value < (1 << kSubBucketBits); value++){
+            assertEquals(value, getBucketUpperBound(value));
+        }
+    }
+
+    @Test
+    void bucketsAreWithinTheirPrecision(){
+        for(long value = 1; value < (1L << 28); value = value * 5 / 4 + 1){
+            long upperBound = getBucketUpperBound(value);
+            assertTrue(upperBound >= value, value + " is above its bucket's bound " + upperBound);
+            assertTrue(upperBound - value <= value >> kSubBucketBits, value + " is too far from its bucket's bound " + upperBound);
+        }
+    }
+
+    @Test
+    void upperBoundIsTheLastValueInTheBucket(){
+        for(long value = 1; value < (1L << 28); value = value * 3 / 2 + 1){
+            long upperBound = getBucketUpperBound(value);
+            assertEquals(upperBound, getBucketUpperBound(upperBound));
+            assertTrue(getBucketUpperBound(upperBound + 1) > upperBound, "Bucket after " + upperBound);
+        }
+    }
+
+    @Test
+    void percentilesNeverPassTheLargestValue(){
+        LatencyHistogram histogram = new LatencyHistogram(kSubBucketBits, kMaxValueBits);
+        for(long value = 1000; value <= 1100; value++){
+            histogram.record(value);
+        }
+
+        assertEquals(101, histogram.getTotalCount());
+        assertEquals(1100, histogram.getMaxValue());
+        assertEquals(1100, histogram.getValueAtPercentile(100));
+        long median = histogram.getValueAtPercentile(50);
+        assertTrue(median >= 1050 && median <= 1050 + (1050 >> kSubBucketBits), "Median " + median);
+    }
+
+    @Test
+    void valuesPastTheRangeLandInTheLastBucket(){
+        LatencyHistogram histogram = new LatencyHistogram(kSubBucketBits, kMaxValueBits);
+        histogram.record(1L << 40);
+        histogram.record(-5);
+
+        assertEquals(2, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(1L << 40, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void resetEmptiesTheHistogram(){
+        LatencyHistogram histogram = new LatencyHistogram(kSubBucketBits, kMaxValueBits);
+        histogram.record(1234);
+        histogram.reset();
+
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getMaxValue());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+}
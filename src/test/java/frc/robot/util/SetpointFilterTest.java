@@ -0,0 +1,74 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class SetpointFilterTest {
+    private static final double kTolerance = 0.05;
+    private static final double kKeepAliveSeconds = 0.5;
+
+    @Test
+    void sendsTheFirstSetpoint(){
+        SetpointFilter filter = new SetpointFilter(kTolerance, kKeepAliveSeconds, false);
+        assertTrue(Double.isNaN(filter.getLastSentSetpoint()));
+        assertTrue(filter.shouldSend(1.0, 0.0));
+        assertEquals(1.0, filter.getLastSentSetpoint(), 0.0);
+    }
+
+    @Test
+    void dropsSmallChangesUntilTheKeepAlive(){
+        SetpointFilter filter = new SetpointFilter(kTolerance, kKeepAliveSeconds, false);
+        filter.shouldSend(1.0, 0.0);
+
+        assertFalse(filter.shouldSend(1.04, 0.1));
+        assertFalse(filter.shouldSend(0.96, 0.2));
+        assertEquals(2, filter.getSuppressedWrites());
+        // The last sent value stays the reference, not the dropped ones
+        assertEquals(1.0, filter.getLastSentSetpoint(), 0.0);
+
+        assertTrue(filter.shouldSend(1.0, kKeepAliveSeconds));
+        assertFalse(filter.shouldSend(1.0, kKeepAliveSeconds + 0.1));
+    }
+
+    @Test
+    void sendsChangesPastTheTolerance(){
+        SetpointFilter filter = new SetpointFilter(kTolerance, kKeepAliveSeconds, false);
+        filter.shouldSend(1.0, 0.0);
+
+        assertTrue(filter.shouldSend(1.06, 0.01));
+        assertTrue(filter.shouldSend(1.0, 0.02));
+        assertEquals(0, filter.getSuppressedWrites());
+    }
+
+    @Test
+    void alwaysSendsAStop(){
+        SetpointFilter filter = new SetpointFilter(kTolerance, kKeepAliveSeconds, false);
+        filter.shouldSend(0.01, 0.0);
+
+        assertTrue(filter.shouldSend(0.0, 0.01));
+        // Already stopped, nothing new to send
+        assertFalse(filter.shouldSend(0.0, 0.02));
+    }
+
+    @Test
+    void measuresAnglesAcrossTheWrap(){
+        SetpointFilter filter = new SetpointFilter(kTolerance, kKeepAliveSeconds, true);
+        filter.shouldSend(Math.PI - 0.01, 0.0);
+
+        assertFalse(filter.shouldSend(-Math.PI + 0.01, 0.01));
+        assertTrue(filter.shouldSend(-Math.PI + 0.1, 0.02));
+    }
+
+    @Test
+    void sendsAfterReset(){
+        SetpointFilter filter = new SetpointFilter(kTolerance, kKeepAliveSeconds, false);
+        filter.shouldSend(1.0, 0.0);
+        filter.reset();
+
+        assertTrue(Double.isNaN(filter.getLastSentSetpoint()));
+        assertTrue(filter.shouldSend(1.0, 0.01));
+    }
+}
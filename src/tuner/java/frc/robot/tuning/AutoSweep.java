@@ -0,0 +1,107 @@
+package frc.robot.tuning;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.pathplanner.lib.config.PIDConstants;
+import com.pathplanner.lib.config.RobotConfig;
+import com.pathplanner.lib.controllers.PPHolonomicDriveController;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectory;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectoryState;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.SchedulerConstants;
+import frc.robot.Constants.TuningConstants;
+
+/**
+ * PPHolonomicDriveController gains, scored on every path in deploy/pathplanner/paths. Autos drive
+ * through {@code Drivetrain.autoDrive}, which skips the driver shaping and heading correction, so
+ * those are left to {@link TeleopSweep}.
+ */
+public class AutoSweep implements Sweep {
+    private final RobotConfig config;
+    // Generated once up front, sampling them is read only
+    private final List<PathPlannerTrajectory> trajectories = new ArrayList<>();
+
+    public AutoSweep(RobotConfig config) throws Exception{
+        this.config = config;
+        File[] files = new File(Filesystem.getDeployDirectory(), "pathplanner/paths").listFiles((dir, name) -> name.endsWith(".path"));
+        if(files == null || files.length == 0){
+            throw new IllegalStateException("No paths in deploy/pathplanner/paths");
+        }
+        Arrays.sort(files);
+        for(File file : files){
+            PathPlannerPath path = PathPlannerPath.fromPathFile(file.getName().replace(".path", ""));
+            Pose2d start = path.getStartingHolonomicPose().orElseThrow();
+            trajectories.add(path.generateTrajectory(new ChassisSpeeds(), start.getRotation(), config));
+        }
+    }
+
+    @Override
+    public String getName(){
+        return "auto";
+    }
+
+    @Override
+    public String[] getParameterNames(){
+        return new String[] {"translationP", "rotationP"};
+    }
+
+    @Override
+    public double[] getCurrentValues(){
+        return new double[] {AutoConstants.kPathTranslationP, AutoConstants.kPathRotationP};
+    }
+
+    @Override
+    public String getDefaultGrid(int parameter){
+        return "0:8:33";
+    }
+
+    @Override
+    public TrackingScore run(double[] values){
+        TrackingScore score = new TrackingScore();
+        for(PathPlannerTrajectory trajectory : trajectories){
+            runPath(trajectory, values[0], values[1], score);
+        }
+        return score;
+    }
+
+    private void runPath(PathPlannerTrajectory trajectory, double translationP, double rotationP, TrackingScore score){
+        DrivetrainModel model = new DrivetrainModel(config);
+        PPHolonomicDriveController controller = new PPHolonomicDriveController(
+            new PIDConstants(translationP, 0, 0), new PIDConstants(rotationP, 0, 0));
+        Pose2d start = trajectory.getInitialPose();
+        model.setPose(start);
+        controller.reset(start, new ChassisSpeeds());
+
+        double period = SchedulerConstants.kMainPeriodSeconds;
+        double endTime = trajectory.getTotalTimeSeconds();
+        PathPlannerTrajectoryState end = trajectory.getEndState();
+        for(double time = 0.0; time <= endTime + TuningConstants.kMaxSettleSeconds; time += period){
+            Pose2d pose = model.getPose();
+            PathPlannerTrajectoryState target = time < endTime ? trajectory.sample(time) : end;
+            double positionError = pose.getTranslation().getDistance(target.pose.getTranslation());
+            double headingError = MathUtil.angleModulus(target.pose.getRotation().getRadians() - pose.getRotation().getRadians());
+
+            if(time < endTime){
+                score.recordTracking(positionError, headingError);
+                ChassisSpeeds speeds = ChassisSpeeds.discretize(controller.calculateRobotRelativeSpeeds(pose, target),
+                    SchedulerConstants.kDriveDiscretizationSeconds);
+                model.drive(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond);
+            }else{
+                // The path command stops the robot when the trajectory runs out, settling is how close that left it
+                score.recordSettling(time - endTime, positionError, headingError);
+                model.drive(0.0, 0.0, 0.0);
+            }
+            model.stepLoop(period);
+        }
+        score.endCase();
+    }
+}
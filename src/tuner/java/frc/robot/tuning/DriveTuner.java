@@ -0,0 +1,202 @@
+package frc.robot.tuning;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.pathplanner.lib.config.RobotConfig;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Sweeps drive parameters over a grid on the simulated drivetrain, every core at once, and prints
+ * the parameter sets ranked by score. Run with {@code ./gradlew tune}, arguments through
+ * {@code -PtuneArgs="..."}:
+ * <ul>
+ * <li>{@code --sweep=auto|teleop|both}, both by default</li>
+ * <li>{@code --<parameter>=min:max:count} or {@code --<parameter>=value}, see each {@link Sweep} for the names and default grids</li>
+ * <li>{@code --top=20} rows to print, {@code --threads=N} defaults to every core, {@code --csv=file} writes every row</li>
+ * </ul>
+ * The values in Constants are always run too, so the table shows where they stand.
+ */
+public final class DriveTuner {
+    // Parameter sets per fork/join leaf, a set is a few seconds of simulated driving
+    private static final int kSetsPerTask = 4;
+
+    private DriveTuner(){}
+
+    /**
+     * Runs the sets in [start, end), splitting the range in half until it is small.
+     */
+    private static class SweepTask extends RecursiveAction{
+        private final Sweep sweep;
+        private final List<double[]> sets;
+        private final TrackingScore[] scores;
+        private final int start, end;
+
+        private SweepTask(Sweep sweep, List<double[]> sets, TrackingScore[] scores, int start, int end){
+            this.sweep = sweep;
+            this.sets = sets;
+            this.scores = scores;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute(){
+            if(end - start <= kSetsPerTask){
+                for(int i = start; i < end; i++){
+                    scores[i] = sweep.run(sets.get(i));
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new SweepTask(sweep, sets, scores, start, middle), new SweepTask(sweep, sets, scores, middle, end));
+        }
+    }
+
+    public static void main(String[] args) throws Exception{
+        Map<String, String> options = new HashMap<>();
+        for(String arg : args){
+            if(!arg.startsWith("--") || !arg.contains("=")){
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        String sweepName = options.getOrDefault("sweep", "both");
+        int top = Integer.parseInt(options.getOrDefault("top", "20"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+
+        // PathPlanner finds the deploy directory and the robot settings through the HAL
+        if(!HAL.initialize(500, 0)){
+            throw new IllegalStateException("Failed to initialize the HAL");
+        }
+        RobotConfig config = RobotConfig.fromGUISettings();
+
+        List<Sweep> sweeps = new ArrayList<>();
+        if(sweepName.equals("auto") || sweepName.equals("both")){
+            sweeps.add(new AutoSweep(config));
+        }
+        if(sweepName.equals("teleop") || sweepName.equals("both")){
+            sweeps.add(new TeleopSweep(config));
+        }
+        if(sweeps.isEmpty()){
+            throw new IllegalArgumentException("Unknown sweep " + sweepName);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try(PrintWriter csv = options.containsKey("csv") ? new PrintWriter(options.get("csv")) : null){
+            for(Sweep sweep : sweeps){
+                runSweep(sweep, options, pool, top, csv);
+            }
+        }finally{
+            pool.shutdown();
+        }
+    }
+
+    private static void runSweep(Sweep sweep, Map<String, String> options, ForkJoinPool pool, int top, PrintWriter csv)
+            throws IOException{
+        String[] names = sweep.getParameterNames();
+        double[][] grids = new double[names.length][];
+        for(int i = 0; i < names.length; i++){
+            grids[i] = parseGrid(options.getOrDefault(names[i], sweep.getDefaultGrid(i)));
+        }
+
+        // Every combination, then what the robot uses now
+        List<double[]> sets = new ArrayList<>();
+        addCombinations(grids, new double[names.length], 0, sets);
+        sets.add(sweep.getCurrentValues());
+        int currentIndex = sets.size() - 1;
+
+        System.out.printf("%s sweep: %d parameter sets on %d threads%n", sweep.getName(), sets.size(), pool.getParallelism());
+        long startNanos = System.nanoTime();
+        TrackingScore[] scores = new TrackingScore[sets.size()];
+        pool.invoke(new SweepTask(sweep, sets, scores, 0, sets.size()));
+        System.out.printf("Finished in %.1f s%n%n", (System.nanoTime() - startNanos) / 1e9);
+
+        Integer[] ranking = new Integer[sets.size()];
+        for(int i = 0; i < ranking.length; i++){
+            ranking[i] = i;
+        }
+        Arrays.sort(ranking, Comparator.comparingDouble(i -> scores[i].getScore()));
+
+        StringBuilder header = new StringBuilder(String.format("%6s", "Rank"));
+        for(String name : names){
+            header.append(String.format(" %18s", name));
+        }
+        header.append(String.format(" %12s %14s %10s %10s", "RMS err m", "RMS head deg", "Settle s", "Score"));
+        System.out.println(header);
+        for(int rank = 0; rank < ranking.length; rank++){
+            int index = ranking[rank];
+            if(rank < top || index == currentIndex){
+                System.out.println(formatRow(rank + 1, sets.get(index), scores[index], index == currentIndex ? "  current" : ""));
+            }
+        }
+        System.out.println();
+
+        if(csv != null){
+            csv.println("sweep,rank," + String.join(",", names) + ",rmsErrorMeters,rmsHeadingDegrees,settleSeconds,score,current");
+            for(int rank = 0; rank < ranking.length; rank++){
+                int index = ranking[rank];
+                StringBuilder row = new StringBuilder(sweep.getName() + "," + (rank + 1));
+                for(double value : sets.get(index)){
+                    row.append(',').append(value);
+                }
+                TrackingScore score = scores[index];
+                row.append(',').append(score.getRmsPositionErrorMeters()).append(',').append(score.getRmsHeadingErrorDegrees())
+                    .append(',').append(score.getSettleSeconds()).append(',').append(score.getScore())
+                    .append(',').append(index == currentIndex);
+                csv.println(row);
+            }
+        }
+    }
+
+    private static String formatRow(int rank, double[] values, TrackingScore score, String flag){
+        StringBuilder row = new StringBuilder(String.format("%6d", rank));
+        for(double value : values){
+            row.append(String.format(" %18.4f", value));
+        }
+        row.append(String.format(" %12.4f %14.2f %10.2f %10.4f%s", score.getRmsPositionErrorMeters(),
+            score.getRmsHeadingErrorDegrees(), score.getSettleSeconds(), score.getScore(), flag));
+        return row.toString();
+    }
+
+    /**
+     * @param grid min:max:count, evenly spaced and both ends included, or a single value
+     */
+    private static double[] parseGrid(String grid){
+        String[] parts = grid.split(":");
+        if(parts.length == 1){
+            return new double[] {Double.parseDouble(parts[0])};
+        }
+        if(parts.length != 3){
+            throw new IllegalArgumentException("Expected min:max:count, got " + grid);
+        }
+        double min = Double.parseDouble(parts[0]);
+        double max = Double.parseDouble(parts[1]);
+        int count = Integer.parseInt(parts[2]);
+        double[] values = new double[count];
+        for(int i = 0; i < count; i++){
+            values[i] = count == 1 ? min : min + (max - min) * i / (count - 1);
+        }
+        return values;
+    }
+
+    private static void addCombinations(double[][] grids, double[] values, int parameter, List<double[]> sets){
+        if(parameter == grids.length){
+            sets.add(values.clone());
+            return;
+        }
+        for(double value : grids[parameter]){
+            values[parameter] = value;
+            addCombinations(grids, values, parameter + 1, sets);
+        }
+    }
+}
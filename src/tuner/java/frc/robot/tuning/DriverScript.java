@@ -0,0 +1,68 @@
+package frc.robot.tuning;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stick positions held for set times, standing in for a driver. Raw joystick values, as
+ * {@link frc.robot.util.DriverInputIO} reads them: pushing the left stick forward is negative Y,
+ * left is negative X, and twisting the right stick clockwise is positive.
+ */
+public class DriverScript {
+    private final String name;
+    private final List<double[]> segments = new ArrayList<>();
+    private double durationSeconds = 0.0;
+
+    private DriverScript(String name){
+        this.name = name;
+    }
+
+    /**
+     * Holds the sticks for a while after the previous segment.
+     */
+    private DriverScript hold(double seconds, double leftX, double leftY, double rightTwist){
+        durationSeconds += seconds;
+        segments.add(new double[] {durationSeconds, leftX, leftY, rightTwist});
+        return this;
+    }
+
+    /**
+     * The moves the teleop sweep scores every parameter set on.
+     */
+    public static List<DriverScript> getScripts(){
+        return List.of(
+            new DriverScript("Sprint").hold(1.5, 0.0, -1.0, 0.0),
+            new DriverScript("Strafe reversal").hold(1.0, -1.0, 0.0, 0.0).hold(1.0, 1.0, 0.0, 0.0),
+            new DriverScript("Diagonal").hold(1.5, -0.7, -0.7, 0.0),
+            new DriverScript("Turn while driving").hold(1.5, 0.0, -0.8, 0.8).hold(1.0, 0.0, -0.8, 0.0));
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    /**
+     * @return When the driver lets go of the sticks
+     */
+    public double getDurationSeconds(){
+        return durationSeconds;
+    }
+
+    /**
+     * @return {leftX, leftY, rightTwist} at a time, all zero after the script ends
+     */
+    public double[] sample(double time, double[] sticks){
+        sticks[0] = 0.0;
+        sticks[1] = 0.0;
+        sticks[2] = 0.0;
+        for(double[] segment : segments){
+            if(time < segment[0]){
+                sticks[0] = segment[1];
+                sticks[1] = segment[2];
+                sticks[2] = segment[3];
+                break;
+            }
+        }
+        return sticks;
+    }
+}
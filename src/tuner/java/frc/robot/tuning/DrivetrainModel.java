@@ -0,0 +1,115 @@
+package frc.robot.tuning;
+
+import com.pathplanner.lib.config.RobotConfig;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.system.plant.DCMotor;
+import frc.robot.Constants.SimulationConstants;
+import frc.robot.Constants.SwerveDriveConstants;
+import frc.robot.Constants.TuningConstants;
+import frc.robot.util.FastSwerveKinematics;
+import frc.robot.util.SwerveChassisPhysics;
+
+/**
+ * The drivetrain for the tuning sweeps, on the same chassis physics as {@link frc.robot.subsystems.SwerveDriveSim}
+ * but with no HAL, SparkMaxSim or clock, so thousands can run at once. The drive velocity loop is
+ * an ideal feedforward plus P, steering is a first order lag, and the gyro and odometry read the
+ * true pose. One per run, not thread safe.
+ */
+public class DrivetrainModel {
+    private static final double kGravity = 9.81;
+
+    private final SwerveChassisPhysics physics;
+    private final FastSwerveKinematics kinematics = new FastSwerveKinematics(SwerveDriveConstants.swerveModuleLocations);
+    private final DCMotor driveMotor = DCMotor.getNEO(1);
+    private final double driveCurrentLimitAmps;
+    private final double wheelRadiusMeters = SwerveDriveConstants.kWheelDiameterMeters / 2;
+
+    private final double[] moduleAngles = new double[4];
+    private final double[] setpointSpeeds = new double[4];
+    private final double[] setpointAngles = new double[4];
+
+    public DrivetrainModel(RobotConfig config){
+        physics = new SwerveChassisPhysics(config.massKG, config.MOI, config.moduleConfig.wheelCOF * config.massKG * kGravity / 4,
+            SwerveDriveConstants.swerveModuleLocations);
+        driveCurrentLimitAmps = config.moduleConfig.driveCurrentLimit;
+    }
+
+    /**
+     * Puts the robot somewhere, stopped, with the modules pointing forward.
+     */
+    public void setPose(Pose2d pose){
+        physics.setPose(pose.getX(), pose.getY(), pose.getRotation().getRadians());
+        for(int i = 0; i < moduleAngles.length; i++){
+            moduleAngles[i] = 0.0;
+            setpointSpeeds[i] = 0.0;
+            setpointAngles[i] = 0.0;
+        }
+    }
+
+    /**
+     * New module setpoints, desaturated and optimized the way Drivetrain sends them.
+     * @param vx Robot relative, meters per second
+     * @param vy Robot relative, meters per second
+     * @param omega Counter clockwise, radians per second
+     */
+    public void drive(double vx, double vy, double omega){
+        kinematics.toSwerveModuleStates(vx, vy, omega, 0.0, 0.0);
+        kinematics.desaturateWheelSpeeds(SwerveDriveConstants.kRealMaxSpeedMPS);
+        kinematics.optimize(moduleAngles);
+        for(int i = 0; i < setpointSpeeds.length; i++){
+            setpointSpeeds[i] = kinematics.getModuleSpeed(i);
+            setpointAngles[i] = kinematics.getModuleAngle(i);
+        }
+    }
+
+    /**
+     * Runs the physics for one main loop at {@link SimulationConstants#kPhysicsPeriodSeconds}.
+     */
+    public void stepLoop(double loopSeconds){
+        int steps = (int) Math.round(loopSeconds / SimulationConstants.kPhysicsPeriodSeconds);
+        for(int i = 0; i < steps; i++){
+            step(SimulationConstants.kPhysicsPeriodSeconds);
+        }
+    }
+
+    private void step(double dt){
+        double turnFraction = 1.0 - Math.exp(-dt / TuningConstants.kTurnTimeConstantSeconds);
+        physics.beginStep();
+        for(int i = 0; i < moduleAngles.length; i++){
+            moduleAngles[i] = MathUtil.angleModulus(
+                moduleAngles[i] + MathUtil.angleModulus(setpointAngles[i] - moduleAngles[i]) * turnFraction);
+            double wheelSpeed = physics.getWheelSpeed(i, moduleAngles[i]);
+
+            double motorSpeed = wheelSpeed / wheelRadiusMeters * SwerveDriveConstants.kDrivingMotorReduction;
+            double setpointMotorSpeed = setpointSpeeds[i] / wheelRadiusMeters * SwerveDriveConstants.kDrivingMotorReduction;
+            double volts = MathUtil.clamp(setpointMotorSpeed / driveMotor.KvRadPerSecPerVolt
+                + TuningConstants.kDriveVelocityP * (setpointSpeeds[i] - wheelSpeed), -12.0, 12.0);
+            double current = MathUtil.clamp(driveMotor.getCurrent(motorSpeed, volts), -driveCurrentLimitAmps, driveCurrentLimitAmps);
+            physics.applyWheel(i, moduleAngles[i],
+                driveMotor.getTorque(current) * SwerveDriveConstants.kDrivingMotorReduction / wheelRadiusMeters, dt);
+        }
+        physics.endStep(dt);
+    }
+
+    public Pose2d getPose(){
+        return new Pose2d(physics.getX(), physics.getY(), new Rotation2d(physics.getTheta()));
+    }
+
+    public double getX(){
+        return physics.getX();
+    }
+
+    public double getY(){
+        return physics.getY();
+    }
+
+    /**
+     * @return Heading in radians, what the gyro would read
+     */
+    public double getHeading(){
+        return physics.getTheta();
+    }
+}
@@ -0,0 +1,26 @@
+package frc.robot.tuning;
+
+/**
+ * One group of parameters tuned together, and how a set of them is scored. {@link #run(double[])}
+ * is called from many threads at once, so it must only touch state it creates.
+ */
+public interface Sweep {
+    String getName();
+
+    /**
+     * @return Command line names of the parameters, in the order {@link #run(double[])} takes them
+     */
+    String[] getParameterNames();
+
+    /**
+     * @return What the robot code uses now, in the same order
+     */
+    double[] getCurrentValues();
+
+    /**
+     * Default grid for a parameter, as min:max:count.
+     */
+    String getDefaultGrid(int parameter);
+
+    TrackingScore run(double[] values);
+}
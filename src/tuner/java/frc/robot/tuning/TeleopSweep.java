@@ -0,0 +1,113 @@
+package frc.robot.tuning;
+
+import com.pathplanner.lib.config.RobotConfig;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.Constants.SchedulerConstants;
+import frc.robot.Constants.SwerveDriveConstants;
+import frc.robot.Constants.TuningConstants;
+import frc.robot.util.DriveInputShaper;
+import frc.robot.util.HeadingCorrector;
+
+/**
+ * DriverOI slew rates and the heading correction gains, scored on the {@link DriverScript}s. The
+ * target is where the sticks would have sent the robot with no slew limits, so slow limits lose
+ * by lagging and fast ones by sliding the wheels and knocking the heading off.
+ */
+public class TeleopSweep implements Sweep {
+    private final RobotConfig config;
+    private final double rotationScale = SwerveDriveConstants.kNormalModeRotationSpeedScale
+        * SwerveDriveConstants.kMaxAngularSpeed * SwerveDriveConstants.MAXROTATIONRATE;
+
+    public TeleopSweep(RobotConfig config){
+        this.config = config;
+    }
+
+    @Override
+    public String getName(){
+        return "teleop";
+    }
+
+    @Override
+    public String[] getParameterNames(){
+        return new String[] {"directionSlewRate", "magnitudeSlewRate", "rotationalSlewRate", "headingP", "headingTolerance"};
+    }
+
+    @Override
+    public double[] getCurrentValues(){
+        return new double[] {SwerveDriveConstants.kDirectionSlewRate, SwerveDriveConstants.kMagnitudeSlewRate,
+            SwerveDriveConstants.kRotationalSlewRate, SwerveDriveConstants.kHeadingCorrectionP,
+            SwerveDriveConstants.kHeadingCorrectionTolerance};
+    }
+
+    @Override
+    public String getDefaultGrid(int parameter){
+        switch(parameter){
+            case 0:
+            case 1:
+                return "1.5:12:8";
+            case 2:
+                return "0.5:6:6";
+            case 3:
+                return "0.01:0.16:6";
+            default:
+                return "0.5:3:6";
+        }
+    }
+
+    @Override
+    public TrackingScore run(double[] values){
+        TrackingScore score = new TrackingScore();
+        for(DriverScript script : DriverScript.getScripts()){
+            runScript(script, values, score);
+        }
+        return score;
+    }
+
+    private void runScript(DriverScript script, double[] values, TrackingScore score){
+        DrivetrainModel model = new DrivetrainModel(config);
+        model.setPose(Pose2d.kZero);
+        DriveInputShaper shaper = new DriveInputShaper(true, values[0], values[1], values[2], 0.0);
+        DriveInputShaper unlimited = new DriveInputShaper(false, values[0], values[1], values[2], 0.0);
+        HeadingCorrector headingCorrector = new HeadingCorrector(0.0, 0.0, values[3], values[4]);
+
+        // Where the unlimited sticks would have taken the robot
+        double targetX = 0.0, targetY = 0.0, targetHeading = 0.0;
+        double[] sticks = new double[3];
+
+        double period = SchedulerConstants.kMainPeriodSeconds;
+        double endTime = script.getDurationSeconds();
+        for(double time = period; time <= endTime + TuningConstants.kMaxSettleSeconds; time += period){
+            double heading = model.getHeading();
+            double positionError = Math.hypot(targetX - model.getX(), targetY - model.getY());
+            double headingError = MathUtil.angleModulus(targetHeading - heading);
+            if(time < endTime){
+                score.recordTracking(positionError, headingError);
+            }else{
+                score.recordSettling(time - endTime, positionError, headingError);
+            }
+
+            // Same shaping as DriverOI and the same teleop drive as Drivetrain, field oriented
+            script.sample(time, sticks);
+            double forward = DriveInputShaper.shapeTranslationAxis(-sticks[1]);
+            double strafe = DriveInputShaper.shapeTranslationAxis(-sticks[0]);
+            double rotation = DriveInputShaper.shapeRotationAxis(sticks[2]);
+            shaper.calculateTranslation(forward, strafe, SwerveDriveConstants.kNormalModeTranslationSpeedScale, time);
+            unlimited.calculateTranslation(forward, strafe, SwerveDriveConstants.kNormalModeTranslationSpeedScale, time);
+
+            double xSpeed = shaper.getTranslationX();
+            double ySpeed = shaper.getTranslationY();
+            double rotationSpeed = headingCorrector.calculate(xSpeed, ySpeed,
+                shaper.calculateRotation(rotation, time) * rotationScale, time, heading);
+            double cos = Math.cos(heading), sin = Math.sin(heading);
+            model.drive(xSpeed * cos + ySpeed * sin, -xSpeed * sin + ySpeed * cos, rotationSpeed);
+            model.stepLoop(period);
+
+            targetX += unlimited.getTranslationX() * period;
+            targetY += unlimited.getTranslationY() * period;
+            targetHeading = MathUtil.angleModulus(targetHeading + unlimited.calculateRotation(rotation, time) * rotationScale * period);
+        }
+        score.endCase();
+    }
+}
@@ -0,0 +1,76 @@
+package frc.robot.tuning;
+
+import frc.robot.Constants.TuningConstants;
+
+/**
+ * How well one parameter set did over all the paths or driver scripts of a sweep. While a path or
+ * script runs the error to the target is averaged, after it ends the time until the robot stays
+ * within tolerance of the end is the settle time.
+ */
+public class TrackingScore {
+    private double squaredPositionErrorSum = 0.0;
+    private double squaredHeadingErrorSum = 0.0;
+    private int samples = 0;
+
+    private double settleSecondsSum = 0.0;
+    private int cases = 0;
+
+    // Current path or script
+    private double lastUnsettledSeconds = 0.0;
+    private boolean settled = false;
+
+    /**
+     * @param positionErrorMeters Distance from the target this loop
+     * @param headingErrorRadians Heading error this loop
+     */
+    public void recordTracking(double positionErrorMeters, double headingErrorRadians){
+        squaredPositionErrorSum += positionErrorMeters * positionErrorMeters;
+        squaredHeadingErrorSum += headingErrorRadians * headingErrorRadians;
+        samples++;
+    }
+
+    /**
+     * @param secondsSinceEnd Time since the path or the driver inputs ended
+     */
+    public void recordSettling(double secondsSinceEnd, double positionErrorMeters, double headingErrorRadians){
+        settled = positionErrorMeters < TuningConstants.kSettlePositionToleranceMeters
+            && Math.abs(Math.toDegrees(headingErrorRadians)) < TuningConstants.kSettleHeadingToleranceDegrees;
+        if(!settled){
+            lastUnsettledSeconds = secondsSinceEnd;
+        }
+    }
+
+    /**
+     * Finishes a path or script. One still outside tolerance at the end scores {@link TuningConstants#kMaxSettleSeconds}.
+     */
+    public void endCase(){
+        settleSecondsSum += settled ? lastUnsettledSeconds : TuningConstants.kMaxSettleSeconds;
+        cases++;
+        lastUnsettledSeconds = 0.0;
+        settled = false;
+    }
+
+    public double getRmsPositionErrorMeters(){
+        return samples == 0 ? 0.0 : Math.sqrt(squaredPositionErrorSum / samples);
+    }
+
+    public double getRmsHeadingErrorDegrees(){
+        return samples == 0 ? 0.0 : Math.toDegrees(Math.sqrt(squaredHeadingErrorSum / samples));
+    }
+
+    /**
+     * @return Mean settle time over the paths or scripts
+     */
+    public double getSettleSeconds(){
+        return cases == 0 ? 0.0 : settleSecondsSum / cases;
+    }
+
+    /**
+     * @return Lower is better, see {@link TuningConstants}
+     */
+    public double getScore(){
+        return getRmsPositionErrorMeters()
+            + TuningConstants.kHeadingErrorWeightMetersPerRadian * Math.toRadians(getRmsHeadingErrorDegrees())
+            + TuningConstants.kSettleWeightMetersPerSecond * getSettleSeconds();
+    }
+}